@@ -0,0 +1,50 @@
+package io.github.janhalasa.spaydqr.benchmark;
+
+import io.github.janhalasa.spaydqr.service.CzechIbanConverter;
+import io.github.janhalasa.spaydqr.service.CzechIbanError;
+import io.github.janhalasa.spaydqr.service.CzechIbanGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class CzechIbanGeneratorBenchmark {
+
+    public String bankCode = "0800";
+    public String account = "1234567899";
+    public String prefix = "19";
+    public String invalidAccount = "1234567890";
+    public String domesticAccount = "19-1234567899/0800";
+
+    @Benchmark
+    public String composeWithoutPrefix() {
+        return CzechIbanGenerator.composeCzechIban(bankCode, account, null);
+    }
+
+    @Benchmark
+    public String composeWithPrefix() {
+        return CzechIbanGenerator.composeCzechIban(bankCode, account, prefix);
+    }
+
+    @State(Scope.Thread)
+    public static class ConverterState {
+        final CzechIbanConverter converter = new CzechIbanConverter();
+    }
+
+    @Benchmark
+    public CharSequence convertWithPrefix(ConverterState state) {
+        state.converter.convert(bankCode, account, prefix);
+        return state.converter.getIban();
+    }
+
+    @Benchmark
+    public CzechIbanError convertInvalid(ConverterState state) {
+        return state.converter.convert(bankCode, invalidAccount, prefix);
+    }
+
+    @Benchmark
+    public CharSequence convertDomesticFormat(ConverterState state) {
+        state.converter.convert(domesticAccount, 0, domesticAccount.length());
+        return state.converter.getIban();
+    }
+}
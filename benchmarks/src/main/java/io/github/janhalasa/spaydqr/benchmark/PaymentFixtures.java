@@ -0,0 +1,84 @@
+package io.github.janhalasa.spaydqr.benchmark;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Payments resembling real invoices, shared by all benchmarks.
+ */
+public final class PaymentFixtures {
+
+    private PaymentFixtures() {
+    }
+
+    /**
+     * Only the mandatory bank account.
+     */
+    public static Payment minimal() {
+        return Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .build();
+    }
+
+    /**
+     * Typical invoice payment with a short plain ASCII note.
+     */
+    public static Payment typical() {
+        return Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899", "GIBACZPX"))
+                .amount(new BigDecimal("1234.50"))
+                .currencyCode(Payment.CURRENCY_CZK)
+                .paymentDueDate(LocalDate.of(2029, 1, 31))
+                .variableSymbol("2024000123")
+                .constantSymbol("0308")
+                .paymentNote("FAKTURA 2024000123")
+                .build();
+    }
+
+    /**
+     * Every supported field set, alternative accounts and long accented texts.
+     */
+    public static Payment full() {
+        return Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899", "GIBACZPX"))
+                .alternativeBankAccounts(List.of(
+                        new BankAccount("SK3581800000510543524521", "TATRSKBX"),
+                        new BankAccount("SK3112000000001987426375"),
+                        new BankAccount("CZ5001000000197720000000", "KOMBCZPP")
+                ))
+                .amount(new BigDecimal("987654.321"))
+                .currencyCode(Payment.CURRENCY_CZK)
+                .paymentDueDate(LocalDate.of(2029, 12, 31))
+                .variableSymbol("2024000123")
+                .constantSymbol("0308")
+                .specificSymbol("1122334455")
+                .originatorsReference("1234567890123456")
+                .beneficiaryName("  Žluťoučký kůň, s.r.o. – Příšerně úpěl ďábelské ódy  ")
+                .paymentNote("Úhrada faktury č. 2024000123 za služby v měsíci září – "
+                        + "děkujeme, že platíte včas. Ďábelské ódy úpěl příšerně žluťoučký kůň.")
+                .notificationType("E")
+                .notificationAddress("fakturace@example.cz")
+                .instantPayment(true)
+                .build();
+    }
+
+    /**
+     * Looks up a fixture by the name used in {@code @Param} values.
+     */
+    public static Payment byName(String name) {
+        switch (name) {
+            case "minimal":
+                return minimal();
+            case "typical":
+                return typical();
+            case "full":
+                return full();
+            default:
+                throw new IllegalArgumentException("Unknown payment fixture: " + name);
+        }
+    }
+}
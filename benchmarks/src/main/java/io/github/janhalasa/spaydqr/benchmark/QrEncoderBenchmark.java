@@ -0,0 +1,41 @@
+package io.github.janhalasa.spaydqr.benchmark;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import io.github.janhalasa.spaydqr.service.QrEncoder;
+import io.github.janhalasa.spaydqr.service.QrMatrix;
+import io.github.janhalasa.spaydqr.service.SpaydQrEncoder;
+import io.github.janhalasa.spaydqr.service.SpaydSerializer;
+import io.github.janhalasa.spaydqr.service.ZxingQrEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class QrEncoderBenchmark {
+
+    @Param({"minimal", "typical", "full"})
+    public String fixture;
+
+    @Param({"native", "zxing"})
+    public String encoder;
+
+    @Param({"M"})
+    public ErrorCorrectionLevel errorCorrectionLevel;
+
+    private QrEncoder qrEncoder;
+    private String spaydString;
+
+    @Setup
+    public void setUp() {
+        qrEncoder = "zxing".equals(encoder) ? ZxingQrEncoder.INSTANCE : SpaydQrEncoder.INSTANCE;
+        spaydString = SpaydSerializer.serialize(PaymentFixtures.byName(fixture), true, true);
+    }
+
+    @Benchmark
+    public QrMatrix encode() throws WriterException {
+        return qrEncoder.encode(spaydString, errorCorrectionLevel);
+    }
+}
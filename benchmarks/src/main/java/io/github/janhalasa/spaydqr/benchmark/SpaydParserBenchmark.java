@@ -0,0 +1,47 @@
+package io.github.janhalasa.spaydqr.benchmark;
+
+import io.github.janhalasa.spaydqr.model.Payment;
+import io.github.janhalasa.spaydqr.service.SpaydParseError;
+import io.github.janhalasa.spaydqr.service.SpaydParser;
+import io.github.janhalasa.spaydqr.service.SpaydSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+@State(Scope.Thread)
+public class SpaydParserBenchmark {
+
+    @Param({"minimal", "typical", "full"})
+    public String fixture;
+
+    private String text;
+    private ByteBuffer bytes;
+    private final SpaydParser parser = new SpaydParser();
+
+    @Setup
+    public void setUp() {
+        text = SpaydSerializer.serialize(PaymentFixtures.byName(fixture), true, true);
+        bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Benchmark
+    public SpaydParseError parse() {
+        return parser.parse(text);
+    }
+
+    @Benchmark
+    public SpaydParseError parseBytes() {
+        return parser.parse(bytes);
+    }
+
+    @Benchmark
+    public Payment parseToPayment() {
+        parser.parse(text);
+        return parser.toPayment();
+    }
+}
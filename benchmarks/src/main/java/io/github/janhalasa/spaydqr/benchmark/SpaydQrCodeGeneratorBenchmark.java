@@ -0,0 +1,42 @@
+package io.github.janhalasa.spaydqr.benchmark;
+
+import com.google.zxing.WriterException;
+import io.github.janhalasa.spaydqr.model.Payment;
+import io.github.janhalasa.spaydqr.service.SpaydQrCodeGenerator;
+import io.github.janhalasa.spaydqr.service.SpaydSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+@State(Scope.Benchmark)
+public class SpaydQrCodeGeneratorBenchmark {
+
+    @Param({"typical", "full"})
+    public String fixture;
+
+    @Param({"128", "256", "512", "1024"})
+    public int size;
+
+    private Payment payment;
+    private String spaydString;
+
+    @Setup
+    public void setUp() {
+        payment = PaymentFixtures.byName(fixture);
+        spaydString = SpaydSerializer.serialize(payment);
+    }
+
+    @Benchmark
+    public byte[] generateQrCode() throws IOException, WriterException {
+        return SpaydQrCodeGenerator.generateQrCode(payment, size);
+    }
+
+    @Benchmark
+    public byte[] generateQrCodeFromString() throws IOException, WriterException {
+        return SpaydQrCodeGenerator.generateQrCodeFromString(spaydString, size);
+    }
+}
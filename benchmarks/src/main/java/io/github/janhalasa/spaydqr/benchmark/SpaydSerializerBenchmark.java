@@ -0,0 +1,50 @@
+package io.github.janhalasa.spaydqr.benchmark;
+
+import io.github.janhalasa.spaydqr.model.Payment;
+import io.github.janhalasa.spaydqr.service.SpaydSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+
+@State(Scope.Benchmark)
+public class SpaydSerializerBenchmark {
+
+    @Param({"minimal", "typical", "full"})
+    public String fixture;
+
+    @Param({"false", "true"})
+    public boolean includeChecksum;
+
+    @Param({"false", "true"})
+    public boolean normalizeStrings;
+
+    private Payment payment;
+    private final StringBuilder builder = new StringBuilder(256);
+    private final ByteBuffer bytes = ByteBuffer.allocate(1024);
+
+    @Setup
+    public void setUp() {
+        payment = PaymentFixtures.byName(fixture);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return SpaydSerializer.serialize(payment, includeChecksum, normalizeStrings);
+    }
+
+    @Benchmark
+    public int serializeToReusedByteBuffer() {
+        bytes.clear();
+        return SpaydSerializer.serializeTo(payment, includeChecksum, normalizeStrings, bytes);
+    }
+
+    @Benchmark
+    public StringBuilder serializeToReusedBuilder() {
+        builder.setLength(0);
+        return SpaydSerializer.serializeTo(payment, includeChecksum, normalizeStrings, builder);
+    }
+}
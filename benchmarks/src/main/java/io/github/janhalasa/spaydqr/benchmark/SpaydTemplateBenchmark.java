@@ -0,0 +1,56 @@
+package io.github.janhalasa.spaydqr.benchmark;
+
+import io.github.janhalasa.spaydqr.model.Payment;
+import io.github.janhalasa.spaydqr.service.SpaydSerializer;
+import io.github.janhalasa.spaydqr.service.SpaydTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Compares a precompiled template with serializing the complete payment for every invoice.
+ */
+@State(Scope.Benchmark)
+public class SpaydTemplateBenchmark {
+
+    @Param({"false", "true"})
+    public boolean includeChecksum;
+
+    private final BigDecimal amount = new BigDecimal("987654.32");
+    private final LocalDate dueDate = LocalDate.of(2029, 12, 31);
+    private final String variableSymbol = "2024000123";
+    private final StringBuilder builder = new StringBuilder(256);
+
+    private Payment payment;
+    private SpaydTemplate template;
+
+    @Setup
+    public void setUp() {
+        payment = PaymentFixtures.full();
+        Payment shared = PaymentFixtures.full();
+        shared.setAmount(null);
+        shared.setPaymentDueDate(null);
+        shared.setVariableSymbol(null);
+        template = SpaydTemplate.compile(shared, includeChecksum, true);
+    }
+
+    @Benchmark
+    public StringBuilder serializePayment() {
+        builder.setLength(0);
+        payment.setAmount(amount);
+        payment.setPaymentDueDate(dueDate);
+        payment.setVariableSymbol(variableSymbol);
+        return SpaydSerializer.serializeTo(payment, includeChecksum, true, builder);
+    }
+
+    @Benchmark
+    public StringBuilder serializeTemplate() {
+        builder.setLength(0);
+        return template.serializeTo(builder, amount, dueDate, variableSymbol);
+    }
+}
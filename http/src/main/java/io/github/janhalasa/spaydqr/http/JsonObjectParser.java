@@ -0,0 +1,196 @@
+package io.github.janhalasa.spaydqr.http;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses a flat JSON object, the payment parameters of a request body, without a JSON library.
+ * Strings are unescaped, numbers and booleans are kept as written (so an amount is not rounded through
+ * a {@code double}), {@code null} members are left out. Nested objects and arrays are rejected.
+ */
+final class JsonObjectParser {
+
+    private final String json;
+    private int position;
+
+    private JsonObjectParser(String json) {
+        this.json = json;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the input is not a flat JSON object
+     */
+    static Map<String, String> parse(String json) {
+        return new JsonObjectParser(json).object();
+    }
+
+    private Map<String, String> object() {
+        Map<String, String> members = new LinkedHashMap<>();
+        Set<String> names = new HashSet<>();
+        expect('{');
+        if (peek() == '}') {
+            position++;
+        } else {
+            do {
+                expect('"');
+                String name = string();
+                expect(':');
+                String value = value(name);
+                if (!names.add(name)) {
+                    throw error("Duplicate member " + name);
+                }
+                if (value != null) {
+                    members.put(name, value);
+                }
+            } while (consume(','));
+            expect('}');
+        }
+        if (peek() != -1) {
+            throw error("Unexpected content after the object");
+        }
+        return members;
+    }
+
+    private String value(String name) {
+        int c = peek();
+        if (c == '"') {
+            position++;
+            return string();
+        }
+        if (c == '{' || c == '[') {
+            throw error("Nested values are not supported: " + name);
+        }
+        int start = position;
+        while (position < json.length() && isLiteralChar(json.charAt(position))) {
+            position++;
+        }
+        String literal = json.substring(start, position);
+        if (literal.equals("true") || literal.equals("false")) {
+            return literal;
+        }
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (!isNumber(literal)) {
+            throw error("Invalid value of " + name);
+        }
+        return literal;
+    }
+
+    /**
+     * Reads the rest of a string after the opening quote.
+     */
+    private String string() {
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            if (position >= json.length()) {
+                throw error("Unterminated string");
+            }
+            char c = json.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c < 0x20) {
+                throw error("Control character in a string");
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= json.length()) {
+                throw error("Unterminated string");
+            }
+            char escaped = json.charAt(position++);
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    value.append(escaped);
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    value.append(unicodeEscape());
+                    break;
+                default:
+                    throw error("Invalid escape \\" + escaped);
+            }
+        }
+    }
+
+    private char unicodeEscape() {
+        if (position + 4 > json.length()) {
+            throw error("Invalid unicode escape");
+        }
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(json.charAt(position++), 16);
+            if (digit < 0) {
+                throw error("Invalid unicode escape");
+            }
+            code = code << 4 | digit;
+        }
+        return (char) code;
+    }
+
+    private static boolean isLiteralChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.' || c == 'E';
+    }
+
+    /**
+     * JSON number grammar: {@code -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?}.
+     */
+    private static boolean isNumber(String literal) {
+        return literal.matches("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+    }
+
+    private void expect(char expected) {
+        if (!consume(expected)) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    /**
+     * Skips whitespace and consumes the next character if it is the expected one.
+     */
+    private boolean consume(char expected) {
+        if (peek() != expected) {
+            return false;
+        }
+        position++;
+        return true;
+    }
+
+    /**
+     * Skips whitespace and returns the next character without consuming it, -1 at the end.
+     */
+    private int peek() {
+        while (position < json.length()) {
+            char c = json.charAt(position);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at position " + position + ": " + message);
+    }
+}
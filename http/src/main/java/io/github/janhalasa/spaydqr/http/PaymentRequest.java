@@ -0,0 +1,198 @@
+package io.github.janhalasa.spaydqr.http;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Payment and image parameters of a request, named after the {@link Payment} properties:
+ * {@code iban}, {@code bic}, {@code amount}, {@code currencyCode}, {@code paymentDueDate} (ISO date),
+ * {@code variableSymbol}, {@code constantSymbol}, {@code specificSymbol}, {@code originatorsReference},
+ * {@code paymentNote}, {@code notificationType}, {@code notificationAddress}, {@code instantPayment}
+ * and {@code beneficiaryName}; {@code checksum} adds the CRC32 field, {@code size} and {@code format}
+ * ({@code png} or {@code svg}) select the image. Empty values are left out, unknown names are rejected.
+ */
+final class PaymentRequest {
+
+    static final int DEFAULT_SIZE = 300;
+
+    private final Payment payment;
+    private final boolean includeChecksum;
+    private final int size;
+    private final String format;
+
+    private PaymentRequest(Payment payment, boolean includeChecksum, int size, String format) {
+        this.payment = payment;
+        this.includeChecksum = includeChecksum;
+        this.size = size;
+        this.format = format;
+    }
+
+    Payment getPayment() {
+        return payment;
+    }
+
+    boolean isIncludeChecksum() {
+        return includeChecksum;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Lower case format name, {@code null} if not requested.
+     */
+    String getFormat() {
+        return format;
+    }
+
+    /**
+     * @throws IllegalArgumentException on an unknown parameter or an invalid value
+     */
+    static PaymentRequest of(Map<String, String> parameters) {
+        Payment.PaymentBuilder payment = Payment.builder();
+        String iban = null;
+        String bic = null;
+        boolean includeChecksum = false;
+        int size = DEFAULT_SIZE;
+        String format = null;
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            String value = parameter.getValue();
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            switch (parameter.getKey()) {
+                case "iban":
+                    iban = value;
+                    break;
+                case "bic":
+                    bic = value;
+                    break;
+                case "amount":
+                    payment.amount(parseAmount(value));
+                    break;
+                case "currencyCode":
+                    payment.currencyCode(value);
+                    break;
+                case "paymentDueDate":
+                    payment.paymentDueDate(parseDate(value));
+                    break;
+                case "variableSymbol":
+                    payment.variableSymbol(value);
+                    break;
+                case "constantSymbol":
+                    payment.constantSymbol(value);
+                    break;
+                case "specificSymbol":
+                    payment.specificSymbol(value);
+                    break;
+                case "originatorsReference":
+                    payment.originatorsReference(value);
+                    break;
+                case "paymentNote":
+                    payment.paymentNote(value);
+                    break;
+                case "notificationType":
+                    payment.notificationType(value);
+                    break;
+                case "notificationAddress":
+                    payment.notificationAddress(value);
+                    break;
+                case "instantPayment":
+                    payment.instantPayment(parseBoolean("instantPayment", value));
+                    break;
+                case "beneficiaryName":
+                    payment.beneficiaryName(value);
+                    break;
+                case "checksum":
+                    includeChecksum = parseBoolean("checksum", value);
+                    break;
+                case "size":
+                    size = parseSize(value);
+                    break;
+                case "format":
+                    format = value.toLowerCase(Locale.ROOT);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown parameter: " + parameter.getKey());
+            }
+        }
+        if (iban != null) {
+            payment.bankAccount(new BankAccount(iban, bic));
+        } else if (bic != null) {
+            throw new IllegalArgumentException("BIC requires an IBAN");
+        }
+        return new PaymentRequest(payment.build(), includeChecksum, size, format);
+    }
+
+    /**
+     * Decodes an {@code application/x-www-form-urlencoded} query string or body.
+     *
+     * @throws IllegalArgumentException on a repeated parameter or invalid escaping
+     */
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String name = decode(separator < 0 ? pair : pair.substring(0, separator));
+            String value = separator < 0 ? "" : decode(pair.substring(separator + 1));
+            if (parameters.put(name, value) != null) {
+                throw new IllegalArgumentException("Repeated parameter: " + name);
+            }
+        }
+        return parameters;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid payment due date: " + value);
+        }
+    }
+
+    private static boolean parseBoolean(String name, String value) {
+        if (value.equals("true")) {
+            return true;
+        }
+        if (value.equals("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Invalid " + name + ", true or false expected: " + value);
+    }
+
+    private static int parseSize(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size: " + value);
+        }
+    }
+}
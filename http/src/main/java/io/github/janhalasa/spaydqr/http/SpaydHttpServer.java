@@ -0,0 +1,518 @@
+package io.github.janhalasa.spaydqr.http;
+
+import com.google.zxing.WriterException;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.janhalasa.spaydqr.service.ImageFormat;
+import io.github.janhalasa.spaydqr.service.QrCodeGenerator;
+import io.github.janhalasa.spaydqr.service.QrEncoder;
+import io.github.janhalasa.spaydqr.service.RenderingOptions;
+import io.github.janhalasa.spaydqr.service.SpaydSerializer;
+import io.github.janhalasa.spaydqr.service.SpaydValidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP service rendering payments with {@link SpaydSerializer} and {@link QrCodeGenerator},
+ * on the HTTP server built into the JDK ({@code com.sun.net.httpserver}):
+ * <ul>
+ *     <li>{@code /spayd} responds with the SPD string as {@code text/plain},</li>
+ *     <li>{@code /qr} responds with the QR code image, PNG or SVG as selected by the {@code format} parameter.</li>
+ * </ul>
+ * The payment is given by the query string of a {@code GET} or {@code HEAD} request, or by the body of
+ * a {@code POST} request, either a JSON object or a form. See {@link PaymentRequest} for the parameter names.
+ * <p>
+ * Responses are the same for the same payment, so they carry a strong {@code ETag} derived from the SPD string,
+ * the image size and the rendering options, and a {@code Cache-Control} header allowing to cache them.
+ * A request with a matching {@code If-None-Match} header is answered with 304 Not Modified without rendering.
+ * Payments breaking the rules of {@link SpaydValidator} are answered with 400 Bad Request and the messages
+ * of all the violations.
+ * <p>
+ * Without a configured executor, the exchanges are handled on a pool of {@code maxConcurrent} long-lived threads,
+ * which keep reusing the per-thread writers and buffers of {@link QrCodeGenerator}. Exchanges that do not fit
+ * into its queue are passed to a single overflow thread, never run on the thread accepting the connections:
+ * it still answers the cheap requests, such as 304 Not Modified, but answers image requests with
+ * 503 Service Unavailable without rendering. At most {@code maxConcurrent} images are rendered at a time,
+ * a request waiting longer than a second for its turn is answered with 503 Service Unavailable too.
+ * <p>
+ * The JDK server writes the headers and the body separately. With Nagle's algorithm enabled, the body waits
+ * for the delayed acknowledgement of the headers, which adds about 40 ms to every response. Start the JVM with
+ * {@code -Dsun.net.httpserver.nodelay=true} to disable it. The server does not set the property itself,
+ * because the JDK reads it once and it applies to all the {@code com.sun.net.httpserver} servers of the JVM.
+ * <p>
+ * The server binds to the loopback address by default, it is meant to be embedded in an application
+ * or run next to it, not to be exposed to the internet.
+ */
+public class SpaydHttpServer implements AutoCloseable {
+
+    public static final String SPAYD_PATH = "/spayd";
+    public static final String QR_PATH = "/qr";
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_MAX_SIZE = 2000;
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofDays(1);
+    private static final int MAX_BODY_LENGTH = 16 * 1024;
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final long RENDERING_WAIT_MILLIS = 1000;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Set on the overflow thread while it handles an exchange the default pool had no room for.
+     */
+    private static final ThreadLocal<Boolean> OVERFLOW = new ThreadLocal<>();
+
+    private final HttpServer server;
+    private final Map<ImageFormat, QrCodeGenerator> generators;
+    private final Map<ImageFormat, String> fingerprints = new EnumMap<>(ImageFormat.class);
+    private final ImageFormat defaultFormat;
+    private final ExecutorService ownExecutor;
+    private final ExecutorService overflowExecutor;
+    private final Semaphore rendering;
+    private final int maxSize;
+    private final String cacheControl;
+
+    private SpaydHttpServer(Builder builder) throws IOException {
+        this.generators = new EnumMap<>(builder.generators);
+        this.defaultFormat = builder.defaultFormat;
+        this.generators.forEach((format, generator) -> fingerprints.put(format, fingerprint(generator.getOptions())));
+        this.rendering = new Semaphore(builder.maxConcurrent);
+        this.maxSize = builder.maxSize;
+        this.cacheControl = "public, max-age=" + builder.maxAge.getSeconds();
+
+        this.server = HttpServer.create(builder.address, 0);
+        if (builder.executor == null) {
+            this.overflowExecutor = Executors.newSingleThreadExecutor(daemonThreads("spayd-http-overflow-"));
+            this.ownExecutor = defaultExecutor(builder.maxConcurrent, builder.queueCapacity, overflowExecutor);
+            server.setExecutor(ownExecutor);
+        } else {
+            this.overflowExecutor = null;
+            this.ownExecutor = null;
+            server.setExecutor(builder.executor);
+        }
+        server.createContext(SPAYD_PATH, exchange -> handle(exchange, false));
+        server.createContext(QR_PATH, exchange -> handle(exchange, true));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts accepting requests in a background thread.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to the delay for the exchanges in progress and shuts down
+     * the default executor.
+     */
+    public void stop(Duration delay) {
+        server.stop((int) Math.min(Integer.MAX_VALUE, delay.getSeconds()));
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+            overflowExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Stops the server immediately, see {@link #stop(Duration)}.
+     */
+    @Override
+    public void close() {
+        stop(Duration.ZERO);
+    }
+
+    /**
+     * The bound address, with the actual port if an ephemeral one was requested.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange, boolean image) throws IOException {
+        try {
+            if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                sendError(exchange, 404, "Not found: " + exchange.getRequestURI().getPath());
+                return;
+            }
+            Map<String, String> parameters;
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                case "HEAD":
+                    parameters = PaymentRequest.parseQuery(exchange.getRequestURI().getRawQuery());
+                    break;
+                case "POST":
+                    parameters = readBody(exchange);
+                    break;
+                default:
+                    exchange.getResponseHeaders().set("Allow", "GET, HEAD, POST");
+                    sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+                    return;
+            }
+            if (parameters == null) {
+                return;
+            }
+            respond(exchange, PaymentRequest.of(parameters), image);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (WriterException e) {
+            sendError(exchange, 400, "Payment cannot be encoded: " + e.getMessage());
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "Internal server error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, PaymentRequest request, boolean image)
+            throws IOException, WriterException {
+        SpaydValidator.validate(request.getPayment()).throwIfInvalid();
+        String spayd = SpaydSerializer.serialize(request.getPayment(), request.isIncludeChecksum(), true);
+        ImageFormat format = null;
+        String entityTag;
+        if (image) {
+            format = format(request.getFormat());
+            if (request.getSize() < 0 || request.getSize() > maxSize) {
+                throw new IllegalArgumentException("Size must be between 0 and " + maxSize + ": " + request.getSize());
+            }
+            entityTag = entityTag(spayd, fingerprints.get(format), Integer.toString(request.getSize()));
+        } else if (request.getFormat() != null || request.getSize() != PaymentRequest.DEFAULT_SIZE) {
+            throw new IllegalArgumentException("Format and size apply to " + QR_PATH + " only");
+        } else {
+            entityTag = entityTag(spayd);
+        }
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", entityTag);
+        headers.set("Cache-Control", cacheControl);
+        if (matches(exchange.getRequestHeaders().get("If-None-Match"), entityTag)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        headers.set("Content-Type", image ? contentType(format) : "text/plain; charset=UTF-8");
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        byte[] body = image ? render(exchange, format, spayd, request.getSize()) : spayd.getBytes(StandardCharsets.UTF_8);
+        if (body != null) {
+            send(exchange, 200, body);
+        }
+    }
+
+    /**
+     * @return the image, {@code null} if the service unavailable response was sent instead
+     */
+    private byte[] render(HttpExchange exchange, ImageFormat format, String spayd, int size)
+            throws IOException, WriterException {
+        boolean acquired = false;
+        if (OVERFLOW.get() == null) {
+            try {
+                acquired = rendering.tryAcquire(RENDERING_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!acquired) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Too many images being rendered");
+            return null;
+        }
+        try {
+            return generators.get(format).render(spayd, size);
+        } finally {
+            rendering.release();
+        }
+    }
+
+    /**
+     * @return the parameters, {@code null} if an error response was sent instead
+     */
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_LENGTH + 1);
+        }
+        if (body.length > MAX_BODY_LENGTH) {
+            sendError(exchange, 413, "Request body exceeds " + MAX_BODY_LENGTH + " bytes");
+            return null;
+        }
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String mediaType = contentType == null ? "" : contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        String text = new String(body, StandardCharsets.UTF_8);
+        switch (mediaType) {
+            case "application/json":
+                return JsonObjectParser.parse(text);
+            case "application/x-www-form-urlencoded":
+                return PaymentRequest.parseQuery(text);
+            default:
+                sendError(exchange, 415, "Unsupported content type: " + contentType);
+                return null;
+        }
+    }
+
+    private ImageFormat format(String name) {
+        if (name == null) {
+            return defaultFormat;
+        }
+        for (ImageFormat format : generators.keySet()) {
+            if (format.name().toLowerCase(Locale.ROOT).equals(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported format: " + name);
+    }
+
+    private static String contentType(ImageFormat format) {
+        switch (format) {
+            case PNG:
+                return "image/png";
+            case SVG:
+                return "image/svg+xml";
+            default:
+                throw new IllegalStateException("Unsupported format: " + format);
+        }
+    }
+
+    /**
+     * Options affecting the image bytes. The encoder is identified by its configuration, see {@link QrEncoder}.
+     */
+    private static String fingerprint(RenderingOptions options) {
+        return options.getFormat()
+                + "," + options.getErrorCorrectionLevel()
+                + "," + options.getMargin()
+                + "," + options.getModuleSize()
+                + "," + Integer.toHexString(options.getDarkColor())
+                + "," + Integer.toHexString(options.getLightColor())
+                + "," + options.getCompressionLevel()
+                + "," + options.getEncoder();
+    }
+
+    /**
+     * Strong entity tag: the first 128 bits of the SHA-256 digest of the parts, in hex.
+     */
+    static String entityTag(String... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by the Java platform", e);
+        }
+        for (String part : parts) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        byte[] hash = digest.digest();
+        char[] tag = new char[34];
+        tag[0] = '"';
+        for (int i = 0; i < 16; i++) {
+            tag[1 + 2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+            tag[2 + 2 * i] = HEX_DIGITS[hash[i] & 0xF];
+        }
+        tag[33] = '"';
+        return new String(tag);
+    }
+
+    /**
+     * {@code If-None-Match} uses the weak comparison, so a weak validator of the same value matches too.
+     */
+    static boolean matches(List<String> ifNoneMatch, String entityTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String header : ifNoneMatch) {
+            for (String candidate : header.split(",")) {
+                candidate = candidate.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || candidate.equals(entityTag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.remove("ETag");
+        headers.set("Cache-Control", "no-store");
+        headers.set("Content-Type", "text/plain; charset=UTF-8");
+        send(exchange, status, String.valueOf(message).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Bounded pool passing the exchanges rejected by its full queue to the overflow executor.
+     */
+    private static ExecutorService defaultExecutor(int maxConcurrent, int queueCapacity, Executor overflow) {
+        RejectedExecutionHandler toOverflow = (task, pool) -> overflow.execute(() -> {
+            OVERFLOW.set(Boolean.TRUE);
+            try {
+                task.run();
+            } finally {
+                OVERFLOW.remove();
+            }
+        });
+        return new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("spayd-http-"), toOverflow);
+    }
+
+    private static ThreadFactory daemonThreads(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static final class Builder {
+
+        private InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), DEFAULT_PORT);
+        private final Map<ImageFormat, QrCodeGenerator> generators = new EnumMap<>(ImageFormat.class);
+        private ImageFormat defaultFormat;
+        private Executor executor;
+        private int maxConcurrent = 2 * Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private int maxSize = DEFAULT_MAX_SIZE;
+        private Duration maxAge = DEFAULT_MAX_AGE;
+
+        private Builder() {
+        }
+
+        /**
+         * Address to bind to, port 8080 of the loopback address by default. Port 0 selects an ephemeral port.
+         */
+        public Builder address(InetSocketAddress address) {
+            this.address = address;
+            return this;
+        }
+
+        public Builder port(int port) {
+            this.address = new InetSocketAddress(address.getAddress(), port);
+            return this;
+        }
+
+        /**
+         * Generator of the images of its format, PNG or SVG. The first one configured is used when the request
+         * does not select a format. Without any, {@link QrCodeGenerator#DEFAULT} renders PNG
+         * and a generator with {@link RenderingOptions#DEFAULT_SVG} renders SVG.
+         */
+        public Builder generator(QrCodeGenerator generator) {
+            ImageFormat format = generator.getOptions().getFormat();
+            if (format != ImageFormat.PNG && format != ImageFormat.SVG) {
+                throw new IllegalArgumentException("Unsupported format: " + format);
+            }
+            generators.put(format, generator);
+            if (defaultFormat == null) {
+                defaultFormat = format;
+            }
+            return this;
+        }
+
+        /**
+         * Executor handling the exchanges, it is not shut down when the server stops.
+         * A pool of {@code maxConcurrent} threads with a queue of {@code queueCapacity} exchanges if not set.
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Maximum number of images rendered at the same time, twice the number of processors by default.
+         * It is also the number of threads of the default pool.
+         */
+        public Builder maxConcurrent(int maxConcurrent) {
+            if (maxConcurrent < 1) {
+                throw new IllegalArgumentException("Max concurrent count must be positive: " + maxConcurrent);
+            }
+            this.maxConcurrent = maxConcurrent;
+            return this;
+        }
+
+        /**
+         * Number of exchanges the default pool queues while all its threads are busy, 256 by default.
+         * Image requests beyond it are answered with 503 Service Unavailable.
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Largest image size a request can ask for, 2000 pixels by default.
+         */
+        public Builder maxSize(int maxSize) {
+            if (maxSize < 0) {
+                throw new IllegalArgumentException("Max size cannot be negative: " + maxSize);
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * How long clients and proxies can reuse a response without revalidating it, one day by default.
+         */
+        public Builder maxAge(Duration maxAge) {
+            if (maxAge.isNegative()) {
+                throw new IllegalArgumentException("Max age cannot be negative: " + maxAge);
+            }
+            this.maxAge = maxAge;
+            return this;
+        }
+
+        /**
+         * Creates the server bound to the address, it accepts requests once started.
+         *
+         * @throws IOException if the address cannot be bound
+         */
+        public SpaydHttpServer build() throws IOException {
+            if (generators.isEmpty()) {
+                generator(QrCodeGenerator.DEFAULT);
+                generator(new QrCodeGenerator(RenderingOptions.DEFAULT_SVG));
+            }
+            return new SpaydHttpServer(this);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.janhalasa.spaydqr.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonObjectParserTest {
+
+    @Test
+    void givenFlatObject_whenParsed_thenValuesAsWritten() {
+        Map<String, String> members = JsonObjectParser.parse(
+                " {\"amount\": 480.50, \"instantPayment\": true, \"paymentNote\": \"Za \\\"zbo\\u017E\\u00ED\\\"\\n\","
+                        + " \"variableSymbol\": null, \"exponent\": -1.5E+3}\n");
+
+        assertEquals(Map.of(
+                "amount", "480.50",
+                "instantPayment", "true",
+                "paymentNote", "Za \"zboží\"\n",
+                "exponent", "-1.5E+3"), members);
+    }
+
+    @Test
+    void givenEmptyObject_whenParsed_thenNoMembers() {
+        assertTrue(JsonObjectParser.parse("{ }").isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "[]",
+            "{\"a\": {\"b\": 1}}",
+            "{\"a\": [1]}",
+            "{\"a\": 1,}",
+            "{\"a\": 1} {}",
+            "{\"a\": 01}",
+            "{\"a\": yes}",
+            "{\"a\": \"unterminated}",
+            "{\"a\": \"\\x\"}",
+            "{\"a\": 1, \"a\": 2}",
+            "{\"a\": null, \"a\": 2}",
+            "{a: 1}",
+    })
+    void givenInvalidJson_whenParsed_thenThrows(String json) {
+        assertThrows(IllegalArgumentException.class, () -> JsonObjectParser.parse(json));
+    }
+}
@@ -0,0 +1,163 @@
+package io.github.janhalasa.spaydqr.http;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load test of the QR code endpoint on localhost, not run by the build:
+ * <pre>
+ * mvn test-compile
+ * java -cp "target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     io.github.janhalasa.spaydqr.http.SpaydHttpLoadTest [clients] [seconds] [payments] [base URL]
+ * </pre>
+ * Every client thread requests QR codes of randomly chosen payments out of a fixed set. Half of the requests
+ * of a payment already seen carry its entity tag in {@code If-None-Match}, so both rendering and the 304 path
+ * are measured. Without a base URL, a server with the default configuration is started on an ephemeral port.
+ * The report contains the throughput, the response statuses and the latency percentiles.
+ */
+public class SpaydHttpLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2 * Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int payments = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            // Responses of the embedded server would wait for delayed acknowledgements, see SpaydHttpServer
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        SpaydHttpServer server = null;
+        String baseUrl;
+        if (args.length > 3) {
+            baseUrl = args[3];
+        } else {
+            server = SpaydHttpServer.builder().port(0).build();
+            server.start();
+            baseUrl = "http://localhost:" + server.getAddress().getPort();
+        }
+        try {
+            System.out.printf("%d clients, %d seconds, %d payments, %s%n", clients, seconds, payments, baseUrl);
+            // Warm-up for a quarter of the time, not reported
+            run(baseUrl, clients, Math.max(1, seconds / 4), payments);
+            Result result = run(baseUrl, clients, seconds, payments);
+            result.print(seconds);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static Result run(String baseUrl, int clients, int seconds, int payments) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+        Map<Integer, String> entityTags = new ConcurrentHashMap<>();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Client> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Client thread = new Client(client, baseUrl, payments, entityTags, deadline);
+            threads.add(thread);
+            thread.start();
+        }
+        Result result = new Result();
+        for (Client thread : threads) {
+            thread.join();
+            result.add(thread);
+        }
+        return result;
+    }
+
+    private static String uri(String baseUrl, int payment) {
+        return baseUrl + SpaydHttpServer.QR_PATH + "?iban=CZ5508000000001234567899&currencyCode=CZK"
+                + "&amount=" + (100 + payment) + ".50&variableSymbol=" + (1_000_000 + payment) + "&size=300";
+    }
+
+    private static final class Client extends Thread {
+
+        private final HttpClient client;
+        private final String baseUrl;
+        private final int payments;
+        private final Map<Integer, String> entityTags;
+        private final long deadline;
+
+        final Map<Integer, Integer> statuses = new TreeMap<>();
+        long[] latencies = new long[1024];
+        int count;
+        int failures;
+
+        Client(HttpClient client, String baseUrl, int payments, Map<Integer, String> entityTags, long deadline) {
+            this.client = client;
+            this.baseUrl = baseUrl;
+            this.payments = payments;
+            this.entityTags = entityTags;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < deadline) {
+                int payment = random.nextInt(payments);
+                HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri(baseUrl, payment)));
+                String entityTag = entityTags.get(payment);
+                if (entityTag != null && random.nextBoolean()) {
+                    request.header("If-None-Match", entityTag);
+                }
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+                    record(System.nanoTime() - start);
+                    statuses.merge(response.statusCode(), 1, Integer::sum);
+                    response.headers().firstValue("ETag").ifPresent(tag -> entityTags.put(payment, tag));
+                } catch (Exception e) {
+                    failures++;
+                }
+            }
+        }
+
+        private void record(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, 2 * count);
+            }
+            latencies[count++] = latency;
+        }
+    }
+
+    private static final class Result {
+
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+        private long[] latencies = new long[0];
+        private int failures;
+
+        void add(Client client) {
+            client.statuses.forEach((status, count) -> statuses.merge(status, count, Integer::sum));
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + client.count);
+            System.arraycopy(client.latencies, 0, latencies, offset, client.count);
+            failures += client.failures;
+        }
+
+        void print(int seconds) {
+            Arrays.sort(latencies);
+            System.out.printf("%d requests, %.0f/s, %d failed, statuses %s%n",
+                    latencies.length, (double) latencies.length / seconds, failures, statuses);
+            if (latencies.length > 0) {
+                System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                        percentile(0.5), percentile(0.9), percentile(0.99), percentile(0.999),
+                        latencies[latencies.length - 1] / 1e6);
+            }
+        }
+
+        private double percentile(double fraction) {
+            return latencies[(int) Math.min(latencies.length - 1, Math.ceil(fraction * latencies.length) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package io.github.janhalasa.spaydqr.http;
+
+import io.github.janhalasa.spaydqr.service.ImageFormat;
+import io.github.janhalasa.spaydqr.service.QrCodeGenerator;
+import io.github.janhalasa.spaydqr.service.QrEncoder;
+import io.github.janhalasa.spaydqr.service.RenderingOptions;
+import io.github.janhalasa.spaydqr.service.SpaydQrEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaydHttpServerTest {
+
+    private static final String QUERY = "iban=CZ5508000000001234567899&amount=480.50&currencyCode=CZK"
+            + "&paymentNote=Dekujeme&variableSymbol=1234567890";
+    private static final String JSON = "{\"iban\": \"CZ5508000000001234567899\", \"amount\": 480.50,"
+            + " \"currencyCode\": \"CZK\", \"paymentNote\": \"Dekujeme\", \"variableSymbol\": \"1234567890\"}";
+    private static final String SPAYD = "SPD*1.0*ACC:CZ5508000000001234567899*AM:480.5*CC:CZK*MSG:DEKUJEME*X-VS:1234567890";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private SpaydHttpServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = SpaydHttpServer.builder().port(0).maxAge(Duration.ofHours(1)).build();
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    @Test
+    void givenQuery_whenGetSpayd_thenSpdStringWithCachingHeaders() throws Exception {
+        HttpResponse<String> response = get("/spayd?" + QUERY);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(SPAYD, response.body());
+        assertEquals("text/plain; charset=UTF-8", response.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals("public, max-age=3600", response.headers().firstValue("Cache-Control").orElseThrow());
+        assertEquals(SpaydHttpServer.entityTag(SPAYD), response.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    void givenQuery_whenGetQr_thenSameImageAsGenerator() throws Exception {
+        HttpResponse<byte[]> response = client.send(
+                request("/qr?" + QUERY + "&size=200").build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("image/png", response.headers().firstValue("Content-Type").orElseThrow());
+        assertArrayEquals(QrCodeGenerator.DEFAULT.render(SPAYD, 200), response.body());
+    }
+
+    @Test
+    void givenSvgFormat_whenGetQr_thenSvgImage() throws Exception {
+        HttpResponse<String> response = get("/qr?" + QUERY + "&format=SVG");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("image/svg+xml", response.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals(new String(new QrCodeGenerator(RenderingOptions.DEFAULT_SVG).render(SPAYD, 300),
+                StandardCharsets.UTF_8), response.body());
+    }
+
+    @Test
+    void givenMatchingEntityTag_whenGet_thenNotModified() throws Exception {
+        String entityTag = get("/qr?" + QUERY).headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> response = client.send(
+                request("/qr?" + QUERY).header("If-None-Match", "\"other\", W/" + entityTag).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(304, response.statusCode());
+        assertEquals("", response.body());
+        assertEquals(entityTag, response.headers().firstValue("ETag").orElseThrow());
+        assertTrue(response.headers().firstValue("Cache-Control").isPresent());
+    }
+
+    @Test
+    void givenDifferentSizeOrFormat_whenGetQr_thenDifferentEntityTags() throws Exception {
+        String png300 = get("/qr?" + QUERY).headers().firstValue("ETag").orElseThrow();
+        String png200 = get("/qr?" + QUERY + "&size=200").headers().firstValue("ETag").orElseThrow();
+        String svg300 = get("/qr?" + QUERY + "&format=svg").headers().firstValue("ETag").orElseThrow();
+        String spayd = get("/spayd?" + QUERY).headers().firstValue("ETag").orElseThrow();
+
+        assertEquals(4, List.of(png300, png200, svg300, spayd).stream().distinct().count());
+    }
+
+    @Test
+    void givenDifferentlyConfiguredEncoders_whenGetQr_thenEntityTagsDifferOnlyForDifferentConfiguration()
+            throws Exception {
+        String defaultEncoder = get("/qr?" + QUERY).headers().firstValue("ETag").orElseThrow();
+        List<String> boosted = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            QrCodeGenerator generator = QrCodeGenerator.builder()
+                    .encoder(SpaydQrEncoder.builder().mixedModes(true).boostErrorCorrection(true).build())
+                    .build();
+            try (SpaydHttpServer other = SpaydHttpServer.builder().port(0).generator(generator).build()) {
+                other.start();
+                boosted.add(client.send(HttpRequest.newBuilder(URI.create(
+                                "http://localhost:" + other.getAddress().getPort() + "/qr?" + QUERY)).build(),
+                        HttpResponse.BodyHandlers.discarding()).headers().firstValue("ETag").orElseThrow());
+            }
+        }
+
+        assertNotEquals(defaultEncoder, boosted.get(0));
+        assertEquals(boosted.get(0), boosted.get(1));
+    }
+
+    @Test
+    void givenFullQueue_whenGetQr_thenServiceUnavailableWithoutBlockingOtherRequests() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        QrEncoder blocking = (content, errorCorrectionLevel) -> {
+            rendering.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return SpaydQrEncoder.INSTANCE.encode(content, errorCorrectionLevel);
+        };
+        try (SpaydHttpServer busy = SpaydHttpServer.builder().port(0).maxConcurrent(1).queueCapacity(1)
+                .generator(QrCodeGenerator.builder().encoder(blocking).build()).build()) {
+            busy.start();
+            String base = "http://localhost:" + busy.getAddress().getPort();
+            CompletableFuture<HttpResponse<Void>> first = client.sendAsync(
+                    HttpRequest.newBuilder(URI.create(base + "/qr?" + QUERY)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            assertTrue(rendering.await(10, TimeUnit.SECONDS));
+
+            // One of them is queued, the others overflow and are answered while the only pool thread is busy
+            List<CompletableFuture<HttpResponse<Void>>> others = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                others.add(client.sendAsync(HttpRequest.newBuilder(URI.create(base + "/qr?" + QUERY + "&size=" + i))
+                        .build(), HttpResponse.BodyHandlers.discarding()));
+            }
+            List<Integer> statuses = new ArrayList<>();
+            while (statuses.size() < 2) {
+                CompletableFuture.anyOf(others.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+                statuses.clear();
+                for (CompletableFuture<HttpResponse<Void>> other : others) {
+                    if (other.isDone()) {
+                        statuses.add(other.get().statusCode());
+                    }
+                }
+                Thread.sleep(10);
+            }
+            assertEquals(List.of(503, 503), statuses);
+            HttpResponse<String> spayd = client.send(HttpRequest.newBuilder(URI.create(base + "/spayd?" + QUERY))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, spayd.statusCode());
+            assertEquals(SPAYD, spayd.body());
+
+            release.countDown();
+            assertEquals(200, first.get(10, TimeUnit.SECONDS).statusCode());
+            long succeeded = others.stream().filter(other -> other.join().statusCode() == 200).count();
+            assertEquals(1, succeeded);
+        }
+    }
+
+    @Test
+    void givenInvalidQueueCapacity_whenBuild_thenThrows() {
+        assertThrows(IllegalArgumentException.class, () -> SpaydHttpServer.builder().queueCapacity(0));
+    }
+
+    @Test
+    void givenJsonBody_whenPostQr_thenSameEntityTagAsQuery() throws Exception {
+        HttpResponse<String> response = client.send(request("/qr")
+                        .header("Content-Type", "application/json; charset=UTF-8")
+                        .POST(HttpRequest.BodyPublishers.ofString(JSON)).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(get("/qr?" + QUERY).headers().firstValue("ETag"), response.headers().firstValue("ETag"));
+    }
+
+    @Test
+    void givenFormBody_whenPostSpayd_thenSpdString() throws Exception {
+        HttpResponse<String> response = client.send(request("/spayd")
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(QUERY)).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(SPAYD, response.body());
+    }
+
+    @Test
+    void givenHead_whenRequested_thenHeadersOnly() throws Exception {
+        HttpResponse<String> response = client.send(
+                request("/qr?" + QUERY).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("", response.body());
+        assertTrue(response.headers().firstValue("ETag").isPresent());
+    }
+
+    @Test
+    void givenInvalidRequests_whenSent_thenClientErrors() throws Exception {
+        HttpResponse<String> missingAccount = get("/qr?amount=100");
+        assertEquals(400, missingAccount.statusCode());
+        assertEquals("Bank account (IBAN) is required", missingAccount.body());
+        assertEquals("no-store", missingAccount.headers().firstValue("Cache-Control").orElseThrow());
+        assertTrue(missingAccount.headers().firstValue("ETag").isEmpty());
+
+        assertEquals(400, get("/qr?" + QUERY + "&amount=1").statusCode());
+        assertEquals(400, get("/qr?" + QUERY.replace("1234567899", "1234567898")).statusCode());
+        assertEquals("Currency must be an ISO 4217 code of 3 uppercase letters; Variable symbol must be 1 to 10 digits",
+                get("/spayd?" + QUERY.replace("CZK", "XYZ").replace("1234567890", "VS1")).body());
+        assertEquals("Unknown parameter: vs", get("/qr?" + QUERY + "&vs=1").body());
+        assertEquals(400, get("/qr?" + QUERY + "&size=5000").statusCode());
+        assertEquals(400, get("/qr?" + QUERY + "&format=gif").statusCode());
+        assertEquals(400, get("/spayd?" + QUERY + "&size=100").statusCode());
+        assertEquals(404, get("/qr/other?" + QUERY).statusCode());
+
+        HttpResponse<String> delete = client.send(request("/qr").DELETE().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, delete.statusCode());
+        assertEquals("GET, HEAD, POST", delete.headers().firstValue("Allow").orElseThrow());
+
+        HttpResponse<String> text = client.send(request("/qr")
+                        .header("Content-Type", "text/plain")
+                        .POST(HttpRequest.BodyPublishers.ofString(QUERY)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(415, text.statusCode());
+
+        HttpResponse<String> large = client.send(request("/qr")
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(" ".repeat(20_000))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(413, large.statusCode());
+    }
+
+    @Test
+    void givenIfNoneMatchHeaders_whenMatched_thenWeakComparison() {
+        String tag = SpaydHttpServer.entityTag("SPD*1.0");
+
+        assertTrue(SpaydHttpServer.matches(List.of(tag), tag));
+        assertTrue(SpaydHttpServer.matches(List.of("\"a\"", "W/" + tag), tag));
+        assertTrue(SpaydHttpServer.matches(List.of("*"), tag));
+        assertFalse(SpaydHttpServer.matches(List.of("\"a\", \"b\""), tag));
+        assertFalse(SpaydHttpServer.matches(null, tag));
+    }
+
+    @Test
+    void givenPdfGenerator_whenConfigured_thenThrows() {
+        QrCodeGenerator pdf = new QrCodeGenerator(RenderingOptions.builder()
+                .format(ImageFormat.PDF).build());
+
+        assertThrows(IllegalArgumentException.class, () -> SpaydHttpServer.builder().generator(pdf));
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(request(path).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getAddress().getPort() + path));
+    }
+}
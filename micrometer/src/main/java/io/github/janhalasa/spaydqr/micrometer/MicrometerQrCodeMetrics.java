@@ -0,0 +1,145 @@
+package io.github.janhalasa.spaydqr.micrometer;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import io.github.janhalasa.spaydqr.service.ImageFormat;
+import io.github.janhalasa.spaydqr.service.QrCodeMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the generation stages to a Micrometer registry:
+ * <ul>
+ *     <li>{@code spayd.qr.serialize}, {@code spayd.qr.encode}, {@code spayd.qr.write} timers
+ *     (encoding tagged by the error correction level, writing by the image format),</li>
+ *     <li>{@code spayd.qr.payload} and {@code spayd.qr.image} summaries of the lengths in bytes,
+ *     {@code spayd.qr.version} summary of the QR code versions,</li>
+ *     <li>{@code spayd.qr.invalid} counter of rejected payments,</li>
+ *     <li>{@code spayd.qr.cache} counter tagged by the {@code result} hit or miss,</li>
+ *     <li>{@code spayd.qr.verify} timer tagged by the {@code result} match or mismatch.</li>
+ * </ul>
+ * All meters are registered when the adapter is created, so reporting looks up nothing.
+ */
+public class MicrometerQrCodeMetrics implements QrCodeMetrics {
+
+    private final Timer serialize;
+    private final DistributionSummary payload;
+    private final Counter invalid;
+    private final Map<ErrorCorrectionLevel, Timer> encode = new EnumMap<>(ErrorCorrectionLevel.class);
+    private final DistributionSummary version;
+    private final Map<ImageFormat, Timer> write = new EnumMap<>(ImageFormat.class);
+    private final Map<ImageFormat, DistributionSummary> image = new EnumMap<>(ImageFormat.class);
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Timer verifyMatches;
+    private final Timer verifyMismatches;
+
+    public MicrometerQrCodeMetrics(MeterRegistry registry) {
+        this(registry, Tags.empty());
+    }
+
+    /**
+     * @param tags added to all meters, e.g. to tell several generators apart
+     */
+    public MicrometerQrCodeMetrics(MeterRegistry registry, Iterable<Tag> tags) {
+        serialize = Timer.builder("spayd.qr.serialize")
+                .description("Serialization of payments to SPD strings")
+                .tags(tags)
+                .register(registry);
+        payload = DistributionSummary.builder("spayd.qr.payload")
+                .description("Length of the encoded SPD strings")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry);
+        invalid = Counter.builder("spayd.qr.invalid")
+                .description("Payments rejected by the SPAYD validation")
+                .tags(tags)
+                .register(registry);
+        for (ErrorCorrectionLevel level : ErrorCorrectionLevel.values()) {
+            encode.put(level, Timer.builder("spayd.qr.encode")
+                    .description("Encoding of SPD strings to QR code module matrices")
+                    .tags(tags)
+                    .tag("ec", level.name())
+                    .register(registry));
+        }
+        version = DistributionSummary.builder("spayd.qr.version")
+                .description("Versions of the encoded QR codes")
+                .tags(tags)
+                .register(registry);
+        for (ImageFormat format : ImageFormat.values()) {
+            String formatName = format.name().toLowerCase(Locale.ROOT);
+            write.put(format, Timer.builder("spayd.qr.write")
+                    .description("Writing of images from QR code module matrices")
+                    .tags(tags)
+                    .tag("format", formatName)
+                    .register(registry));
+            image.put(format, DistributionSummary.builder("spayd.qr.image")
+                    .description("Length of the written images")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .tag("format", formatName)
+                    .register(registry));
+        }
+        cacheHits = cacheCounter(registry, tags, "hit");
+        cacheMisses = cacheCounter(registry, tags, "miss");
+        verifyMatches = verifyTimer(registry, tags, "match");
+        verifyMismatches = verifyTimer(registry, tags, "mismatch");
+    }
+
+    @Override
+    public void onSerialized(long nanos, int length) {
+        serialize.record(nanos, TimeUnit.NANOSECONDS);
+        payload.record(length);
+    }
+
+    @Override
+    public void onInvalidPayment(IllegalArgumentException exception) {
+        invalid.increment();
+    }
+
+    @Override
+    public void onEncoded(long nanos, int length, int version, ErrorCorrectionLevel errorCorrectionLevel) {
+        encode.get(errorCorrectionLevel).record(nanos, TimeUnit.NANOSECONDS);
+        this.version.record(version);
+    }
+
+    @Override
+    public void onWritten(long nanos, ImageFormat format, long length) {
+        write.get(format).record(nanos, TimeUnit.NANOSECONDS);
+        image.get(format).record(length);
+    }
+
+    @Override
+    public void onCacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    @Override
+    public void onVerified(long nanos, boolean matches) {
+        (matches ? verifyMatches : verifyMismatches).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Counter cacheCounter(MeterRegistry registry, Iterable<Tag> tags, String result) {
+        return Counter.builder("spayd.qr.cache")
+                .description("Lookups of rendered images in the cache")
+                .tags(tags)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static Timer verifyTimer(MeterRegistry registry, Iterable<Tag> tags, String result) {
+        return Timer.builder("spayd.qr.verify")
+                .description("Decoding of rendered images back to SPD strings")
+                .tags(tags)
+                .tag("result", result)
+                .register(registry);
+    }
+}
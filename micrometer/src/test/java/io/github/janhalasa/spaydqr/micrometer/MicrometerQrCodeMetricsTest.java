@@ -0,0 +1,54 @@
+package io.github.janhalasa.spaydqr.micrometer;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import io.github.janhalasa.spaydqr.service.CachingQrCodeRenderer;
+import io.github.janhalasa.spaydqr.service.QrCodeCache;
+import io.github.janhalasa.spaydqr.service.QrCodeGenerator;
+import io.github.janhalasa.spaydqr.service.SpaydSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicrometerQrCodeMetricsTest {
+
+    @Test
+    void givenRegistry_whenGenerate_thenStagesRecorded() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerQrCodeMetrics metrics = new MicrometerQrCodeMetrics(registry);
+        QrCodeGenerator generator = QrCodeGenerator.builder().metrics(metrics).build();
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .amount(new BigDecimal("480.50"))
+                .build();
+
+        byte[] image = generator.generate(payment, 200);
+        assertThrows(IllegalArgumentException.class, () -> generator.generate(Payment.builder().build(), 200));
+
+        assertEquals(1, registry.get("spayd.qr.serialize").timer().count());
+        assertEquals(SpaydSerializer.serialize(payment).length(),
+                registry.get("spayd.qr.payload").summary().totalAmount());
+        assertEquals(1, registry.get("spayd.qr.encode").tag("ec", "M").timer().count());
+        assertEquals(1, registry.get("spayd.qr.write").tag("format", "png").timer().count());
+        assertEquals(image.length, registry.get("spayd.qr.image").tag("format", "png").summary().totalAmount());
+        assertEquals(1, registry.get("spayd.qr.invalid").counter().count());
+    }
+
+    @Test
+    void givenCache_whenRender_thenHitsAndMissesCounted() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerQrCodeMetrics metrics = new MicrometerQrCodeMetrics(registry);
+        CachingQrCodeRenderer renderer = new CachingQrCodeRenderer(
+                QrCodeGenerator.DEFAULT, new QrCodeCache(1024 * 1024), metrics);
+
+        for (int i = 0; i < 3; i++) {
+            renderer.render("SPD*1.0*ACC:CZ5508000000001234567899", 200);
+        }
+
+        assertEquals(2, registry.get("spayd.qr.cache").tag("result", "hit").counter().count());
+        assertEquals(1, registry.get("spayd.qr.cache").tag("result", "miss").counter().count());
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.janhalasa.spaydqr.model;
+
+import lombok.Value;
+
+/**
+ * Bank identified by a Czech or Slovak bank code, see {@code BankRegistry}.
+ */
+@Value
+public class Bank {
+
+    /**
+     * 4 digits.
+     */
+    String code;
+    /**
+     * Null if the bank has no BIC.
+     */
+    String bic;
+    String name;
+}
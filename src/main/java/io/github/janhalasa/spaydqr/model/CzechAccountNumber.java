@@ -0,0 +1,25 @@
+package io.github.janhalasa.spaydqr.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Czech domestic bank account number, {@code prefix-number/bankCode}.
+ */
+@Value
+@Builder
+public class CzechAccountNumber {
+
+    /**
+     * Optional, up to 6 digits.
+     */
+    String prefix;
+    /**
+     * 2 to 10 digits.
+     */
+    String number;
+    /**
+     * 4 digits.
+     */
+    String bankCode;
+}
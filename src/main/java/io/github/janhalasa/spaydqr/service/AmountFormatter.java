@@ -0,0 +1,126 @@
+package io.github.janhalasa.spaydqr.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Formats payment amounts for the {@code AM} field.
+ * <p>
+ * The output is the same as {@code new DecimalFormat("0.##")} with at most 9 fraction digits and no grouping:
+ * plain notation, no trailing fraction zeros and half-even rounding. Unlike {@link java.text.DecimalFormat},
+ * the methods are stateless and can be called from any number of threads without synchronization.
+ * The digits are computed from the unscaled value and scale of the {@link BigDecimal}, amounts whose unscaled value
+ * fits into a {@code long} are written to the target without creating any intermediate strings.
+ */
+public final class AmountFormatter {
+
+    static final int MAX_FRACTION_DIGITS = 9;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private AmountFormatter() {
+    }
+
+    /**
+     * Formats the amount, e.g. {@code 123.45}, {@code 1000} or {@code 0.5}.
+     */
+    public static String format(BigDecimal amount) {
+        return appendTo(new StringBuilder(24), amount).toString();
+    }
+
+    /**
+     * Appends the formatted amount to the target, see {@link #format(BigDecimal)}.
+     *
+     * @return the target builder
+     */
+    public static StringBuilder appendTo(StringBuilder target, BigDecimal amount) {
+        // DecimalFormat keeps the minus sign of negative amounts rounded to zero ("-0")
+        if (amount.signum() < 0) {
+            target.append('-');
+        }
+        BigDecimal value = amount.scale() > MAX_FRACTION_DIGITS
+                ? amount.setScale(MAX_FRACTION_DIGITS, RoundingMode.HALF_EVEN)
+                : amount;
+        int scale = value.scale();
+        BigInteger unscaledValue = value.unscaledValue();
+
+        if (unscaledValue.bitLength() < 63) {
+            appendCompact(target, Math.abs(unscaledValue.longValue()), scale);
+        } else {
+            appendInflated(target, unscaledValue.abs().toString(), scale);
+        }
+        return target;
+    }
+
+    private static void appendCompact(StringBuilder target, long unscaled, int scale) {
+        if (unscaled == 0) {
+            target.append('0');
+            return;
+        }
+        if (scale <= 0) {
+            target.append(unscaled);
+            appendZeros(target, -scale);
+            return;
+        }
+        while (scale > 0 && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+        long divisor = POWERS_OF_TEN[scale];
+        target.append(unscaled / divisor);
+        if (scale > 0) {
+            long fraction = unscaled % divisor;
+            target.append('.');
+            appendZeros(target, scale - digitCount(fraction));
+            target.append(fraction);
+        }
+    }
+
+    private static void appendInflated(StringBuilder target, String digits, int scale) {
+        if (scale <= 0) {
+            target.append(digits);
+            if (!digits.equals("0")) {
+                appendZeros(target, -scale);
+            }
+            return;
+        }
+        int end = digits.length();
+        while (scale > 0 && digits.charAt(end - 1) == '0') {
+            end--;
+            scale--;
+        }
+        int integerDigits = end - scale;
+        if (integerDigits > 0) {
+            target.append(digits, 0, integerDigits);
+        } else {
+            target.append('0');
+        }
+        if (scale > 0) {
+            target.append('.');
+            appendZeros(target, -integerDigits);
+            target.append(digits, Math.max(integerDigits, 0), end);
+        }
+    }
+
+    private static void appendZeros(StringBuilder target, int count) {
+        for (int i = 0; i < count; i++) {
+            target.append('0');
+        }
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (count < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[count]) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,320 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.Payment;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking facade of {@link QrCodeGenerator}: the images are rendered on the configured executor and
+ * delivered as {@link CompletableFuture}s, or for a batch as a reactive-streams {@link Flow.Publisher}.
+ * <p>
+ * Without a configured executor, the images are rendered on the common fork-join pool. Its threads are long-lived,
+ * so they keep reusing the per-thread writers and buffers of {@link QrCodeGenerator} and {@link SpaydSerializer};
+ * an executor starting a new (e.g. virtual) thread per image would allocate them again for every image.
+ * At most {@code maxQueued} single images are waiting for or being rendered, further requests are rejected
+ * with a {@link RejectedExecutionException} instead of queueing up without a limit.
+ * A batch renders at most {@code maxQueued} images ahead of what its subscriber requested.
+ * <p>
+ * Instances are thread-safe.
+ */
+@Getter
+public class AsyncQrCodeGenerator {
+
+    private static final Flow.Subscription NO_SUBSCRIPTION = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private final QrCodeGenerator generator;
+    private final Executor executor;
+    private final int maxQueued;
+    @Getter(AccessLevel.NONE)
+    private final Semaphore queued;
+
+    /**
+     * @param generator generator rendering the images, {@link QrCodeGenerator#DEFAULT} if {@code null}
+     * @param executor executor rendering the images, {@link ForkJoinPool#commonPool()} if {@code null}
+     * @param maxQueued maximum number of images waiting for or being rendered,
+     *                  four times the number of processors if {@code null}
+     */
+    @Builder
+    public AsyncQrCodeGenerator(QrCodeGenerator generator, Executor executor, Integer maxQueued) {
+        if (maxQueued != null && maxQueued < 1) {
+            throw new IllegalArgumentException("Max queued count must be positive: " + maxQueued);
+        }
+        this.generator = generator == null ? QrCodeGenerator.DEFAULT : generator;
+        this.executor = executor == null ? ForkJoinPool.commonPool() : executor;
+        this.maxQueued = maxQueued == null ? 4 * Runtime.getRuntime().availableProcessors() : maxQueued;
+        this.queued = new Semaphore(this.maxQueued);
+    }
+
+    /**
+     * @return future completed with the image or with the exception of {@link QrCodeGenerator#generate(Payment, int)},
+     * failed with a {@link RejectedExecutionException} if {@code maxQueued} images are already queued
+     */
+    public CompletableFuture<byte[]> generate(Payment payment, int size) {
+        return submit(() -> generator.generate(payment, size));
+    }
+
+    /**
+     * @see QrCodeGenerator#generate(Payment, int, boolean, boolean)
+     * @see #generate(Payment, int)
+     */
+    public CompletableFuture<byte[]> generate(Payment payment, int size, boolean includeChecksum, boolean normalizeStrings) {
+        return submit(() -> generator.generate(payment, size, includeChecksum, normalizeStrings));
+    }
+
+    /**
+     * @see QrCodeGenerator#render(String, int)
+     * @see #generate(Payment, int)
+     */
+    public CompletableFuture<byte[]> render(String spaydString, int size) {
+        return submit(() -> generator.render(spaydString, size));
+    }
+
+    /**
+     * Renders the payments of a batch in parallel as the subscriber requests them. The images are published
+     * in the order they are finished, a payment failing validation or encoding is published as a failed result
+     * and the batch continues. Iterating the payments fails the publisher.
+     * <p>
+     * The publisher accepts a single subscriber, as the payments are iterated only once.
+     */
+    public <K> Flow.Publisher<QrCodeResult<K>> publish(
+            Iterable<? extends Map.Entry<K, Payment>> payments, int size, boolean includeChecksum, boolean normalizeStrings) {
+        Objects.requireNonNull(payments, "payments");
+        AtomicBoolean subscribed = new AtomicBoolean();
+        return subscriber -> {
+            Objects.requireNonNull(subscriber, "subscriber");
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(NO_SUBSCRIPTION);
+                subscriber.onError(new IllegalStateException("The batch has already been subscribed to"));
+                return;
+            }
+            BatchSubscription<K> subscription = new BatchSubscription<>(
+                    subscriber, payments, size, includeChecksum, normalizeStrings);
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    /**
+     * @see #publish(Iterable, int, boolean, boolean)
+     */
+    public <K> Flow.Publisher<QrCodeResult<K>> publish(Iterable<? extends Map.Entry<K, Payment>> payments, int size) {
+        return publish(payments, size, false, true);
+    }
+
+    private CompletableFuture<byte[]> submit(Callable<byte[]> task) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        if (!queued.tryAcquire()) {
+            future.completeExceptionally(new RejectedExecutionException(
+                    "Too many queued images: " + maxQueued));
+            return future;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    queued.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Submits the payments while the subscriber has demand and fewer than {@code maxQueued} are being rendered.
+     * All signals to the subscriber are sent from {@link #drain()}, which runs on one thread at a time:
+     * the one increasing {@code wip} from zero loops until there is no more work.
+     */
+    private final class BatchSubscription<K> implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super QrCodeResult<K>> subscriber;
+        private final Iterator<? extends Map.Entry<K, Payment>> payments;
+        private final int size;
+        private final boolean includeChecksum;
+        private final boolean normalizeStrings;
+
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final Queue<QrCodeResult<K>> finished = new ConcurrentLinkedQueue<>();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private volatile Throwable renderError;
+
+        // Accessed by the draining thread only
+        private int inFlight;
+        private boolean exhausted;
+        private boolean done;
+
+        BatchSubscription(
+                Flow.Subscriber<? super QrCodeResult<K>> subscriber,
+                Iterable<? extends Map.Entry<K, Payment>> payments,
+                int size, boolean includeChecksum, boolean normalizeStrings) {
+            this.subscriber = subscriber;
+            this.payments = payments.iterator();
+            this.size = size;
+            this.includeChecksum = includeChecksum;
+            this.normalizeStrings = normalizeStrings;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested count must be positive: " + n);
+            } else {
+                requested.getAndAccumulate(n, (current, added) -> {
+                    long sum = current + added;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void onFinished(QrCodeResult<K> result) {
+            finished.add(result);
+            drain();
+        }
+
+        private void onRenderError(Throwable error) {
+            if (renderError == null) {
+                renderError = error;
+            }
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!done) {
+                    drainOnce();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drainOnce() {
+            if (cancelled) {
+                done = true;
+                finished.clear();
+                return;
+            }
+            if (invalidRequest != null) {
+                done = true;
+                finished.clear();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            if (renderError != null) {
+                // The tasks still queued skip rendering
+                done = true;
+                cancelled = true;
+                finished.clear();
+                subscriber.onError(renderError);
+                return;
+            }
+            QrCodeResult<K> result;
+            while (requested.get() > 0 && (result = finished.poll()) != null) {
+                inFlight--;
+                requested.decrementAndGet();
+                subscriber.onNext(result);
+                if (cancelled) {
+                    done = true;
+                    finished.clear();
+                    return;
+                }
+            }
+            try {
+                // Images finished but not yet requested count as in flight, so they are bounded as well
+                while (!exhausted && inFlight < maxQueued && inFlight < requested.get()) {
+                    if (!payments.hasNext()) {
+                        exhausted = true;
+                        break;
+                    }
+                    Map.Entry<K, Payment> entry = payments.next();
+                    inFlight++;
+                    submit(entry.getKey(), entry.getValue());
+                }
+            } catch (RuntimeException e) {
+                done = true;
+                cancelled = true;
+                finished.clear();
+                subscriber.onError(e);
+                return;
+            }
+            if (exhausted && inFlight == 0) {
+                done = true;
+                subscriber.onComplete();
+            }
+        }
+
+        private void submit(K key, Payment payment) {
+            Runnable task = () -> {
+                QrCodeResult<K> result;
+                try {
+                    result = render(key, payment);
+                } catch (Throwable e) {
+                    // Only errors get here, they cannot be the result of a payment and end the batch
+                    onRenderError(e);
+                    return;
+                }
+                onFinished(result);
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Reported as the result of the payment, it cannot be added to the queue while draining
+                finished.add(new QrCodeResult<>(key, null, e));
+                wip.incrementAndGet();
+            }
+        }
+
+        private QrCodeResult<K> render(K key, Payment payment) {
+            if (cancelled) {
+                return new QrCodeResult<>(key, null, new CancellationException("The batch was cancelled"));
+            }
+            try {
+                return new QrCodeResult<>(key, generator.generate(payment, size, includeChecksum, normalizeStrings), null);
+            } catch (Exception e) {
+                return new QrCodeResult<>(key, null, e);
+            }
+        }
+    }
+}
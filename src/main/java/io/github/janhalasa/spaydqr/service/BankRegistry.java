@@ -0,0 +1,140 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.Bank;
+import io.github.janhalasa.spaydqr.model.BankAccount;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Embedded registry of Czech and Slovak bank codes with the BIC and the name of the bank.
+ * <p>
+ * The list of every country is loaded from the class path on the first lookup into an array indexed
+ * by the 4-digit bank code, so a lookup is a bounds check and an array access without allocation.
+ */
+public final class BankRegistry {
+
+    private static final int BANK_CODE_DIGITS = 4;
+    private static final int BANK_CODES = 10_000;
+
+    /*
+     * Czech and Slovak IBAN: CZ or SK, check digits, bank code.
+     */
+    private static final int IBAN_BANK_CODE_OFFSET = 4;
+
+    private BankRegistry() {
+    }
+
+    /**
+     * @return the bank or null if the bank code is unknown or is not 4 digits
+     */
+    public static Bank findCzechBank(CharSequence bankCode) {
+        return find(CzechBanks.BANKS, bankCode, 0, bankCode == null ? 0 : bankCode.length());
+    }
+
+    /**
+     * @return the bank or null if the bank code is unknown or is not 4 digits
+     */
+    public static Bank findSlovakBank(CharSequence bankCode) {
+        return find(SlovakBanks.BANKS, bankCode, 0, bankCode == null ? 0 : bankCode.length());
+    }
+
+    /**
+     * Finds the bank of a Czech or Slovak IBAN in the electronic format. The check digits are not verified,
+     * see {@link IbanValidator}.
+     *
+     * @return the bank or null for an unknown bank or another country
+     */
+    public static Bank findBankByIban(CharSequence iban) {
+        if (iban == null || iban.length() < IBAN_BANK_CODE_OFFSET + BANK_CODE_DIGITS) {
+            return null;
+        }
+        char first = iban.charAt(0);
+        char second = iban.charAt(1);
+        int start = IBAN_BANK_CODE_OFFSET;
+        int end = IBAN_BANK_CODE_OFFSET + BANK_CODE_DIGITS;
+        if (first == 'C' && second == 'Z') {
+            return find(CzechBanks.BANKS, iban, start, end);
+        }
+        if (first == 'S' && second == 'K') {
+            return find(SlovakBanks.BANKS, iban, start, end);
+        }
+        return null;
+    }
+
+    /**
+     * Fills in the BIC of a Czech or Slovak bank account.
+     *
+     * @return the same account if it already has a BIC or the bank is unknown, otherwise a new account with the BIC
+     */
+    public static BankAccount withBic(BankAccount bankAccount) {
+        if (bankAccount.getBic() != null) {
+            return bankAccount;
+        }
+        Bank bank = findBankByIban(bankAccount.getIban());
+        if (bank == null || bank.getBic() == null) {
+            return bankAccount;
+        }
+        return new BankAccount(bankAccount.getIban(), bank.getBic());
+    }
+
+    private static Bank find(Bank[] banks, CharSequence bankCode, int start, int end) {
+        if (end - start != BANK_CODE_DIGITS) {
+            return null;
+        }
+        int index = 0;
+        for (int i = start; i < end; i++) {
+            char c = bankCode.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            index = index * 10 + c - '0';
+        }
+        return banks[index];
+    }
+
+    private static Bank[] load(String resource) {
+        Bank[] banks = new Bank[BANK_CODES];
+        try (InputStream input = BankRegistry.class.getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalStateException("Missing bank code list: " + resource);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                int bicStart = line.indexOf(';') + 1;
+                int nameStart = line.indexOf(';', bicStart) + 1;
+                if (bicStart != BANK_CODE_DIGITS + 1 || nameStart == 0) {
+                    throw new IllegalStateException("Invalid bank code list line: " + line);
+                }
+                String code = line.substring(0, BANK_CODE_DIGITS);
+                String bic = nameStart - 1 == bicStart ? null : line.substring(bicStart, nameStart - 1);
+                banks[Integer.parseInt(code)] = new Bank(code, bic, line.substring(nameStart));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read bank code list: " + resource, e);
+        }
+        return banks;
+    }
+
+    /**
+     * Loaded on the first Czech lookup.
+     */
+    private static final class CzechBanks {
+        static final Bank[] BANKS = load("banks-cz.csv");
+    }
+
+    /**
+     * Loaded on the first Slovak lookup.
+     */
+    private static final class SlovakBanks {
+        static final Bank[] BANKS = load("banks-sk.csv");
+    }
+}
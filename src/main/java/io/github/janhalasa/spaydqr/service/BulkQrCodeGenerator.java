@@ -0,0 +1,160 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.Payment;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders large numbers of payment QR codes in parallel.
+ * <p>
+ * Serialization and rendering run on the configured executor, while the results are handed over to the sink
+ * on the calling thread. At most {@code maxInFlight} payments are being rendered or waiting for the sink
+ * at any time, so the memory used by a batch does not depend on its length.
+ * A payment failing validation or encoding is reported to the sink and the batch continues.
+ * <p>
+ * Instances are immutable and may be used for several batches, even concurrently.
+ */
+@Getter
+public class BulkQrCodeGenerator {
+
+    private final Executor executor;
+    private final int maxInFlight;
+    private final int size;
+    private final boolean includeChecksum;
+    private final boolean normalizeStrings;
+
+    /**
+     * @param executor executor rendering the images, {@link ForkJoinPool#commonPool()} if {@code null}
+     * @param maxInFlight maximum number of images being rendered or waiting for the sink,
+     *                    twice the number of processors if {@code null}
+     * @param size image size in pixels
+     * @param includeChecksum see {@link SpaydSerializer#serialize(Payment, boolean, boolean)}
+     * @param normalizeStrings see {@link SpaydSerializer#serialize(Payment, boolean, boolean)}, {@code true} if {@code null}
+     */
+    @Builder
+    public BulkQrCodeGenerator(
+            Executor executor, Integer maxInFlight, int size, boolean includeChecksum, Boolean normalizeStrings) {
+        if (maxInFlight != null && maxInFlight < 1) {
+            throw new IllegalArgumentException("Max in-flight count must be positive: " + maxInFlight);
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be positive: " + size);
+        }
+        this.executor = executor == null ? ForkJoinPool.commonPool() : executor;
+        this.maxInFlight = maxInFlight == null ? 2 * Runtime.getRuntime().availableProcessors() : maxInFlight;
+        this.size = size;
+        this.includeChecksum = includeChecksum;
+        this.normalizeStrings = normalizeStrings == null || normalizeStrings;
+    }
+
+    public <K> BulkQrCodeResult generate(Stream<? extends Map.Entry<K, Payment>> payments, BulkQrCodeSink<K> sink)
+            throws IOException, InterruptedException {
+        return generate(payments.iterator(), sink);
+    }
+
+    public <K> BulkQrCodeResult generate(Iterable<? extends Map.Entry<K, Payment>> payments, BulkQrCodeSink<K> sink)
+            throws IOException, InterruptedException {
+        return generate(payments.iterator(), sink);
+    }
+
+    /**
+     * Writes every rendered image as a separate entry of the ZIP stream.
+     * The stream is not finished or closed, so further entries may be added.
+     *
+     * @param entryName name of the ZIP entry for the payment key, e.g. {@code key -> key + ".png"}
+     * @param failureHandler receives the keys of payments that could not be rendered
+     */
+    public <K> BulkQrCodeResult generateToZip(
+            Iterable<? extends Map.Entry<K, Payment>> payments,
+            ZipOutputStream zip,
+            Function<K, String> entryName,
+            BiConsumer<K, Exception> failureHandler) throws IOException, InterruptedException {
+        return generate(payments, new BulkQrCodeSink<K>() {
+            @Override
+            public void onSuccess(K key, byte[] png) throws IOException {
+                zip.putNextEntry(new ZipEntry(entryName.apply(key)));
+                zip.write(png);
+                zip.closeEntry();
+            }
+
+            @Override
+            public void onFailure(K key, Exception exception) {
+                failureHandler.accept(key, exception);
+            }
+        });
+    }
+
+    private <K> BulkQrCodeResult generate(Iterator<? extends Map.Entry<K, Payment>> payments, BulkQrCodeSink<K> sink)
+            throws IOException, InterruptedException {
+        CompletionService<Rendered<K>> completionService = new ExecutorCompletionService<>(executor);
+        long succeeded = 0;
+        long failed = 0;
+        int inFlight = 0;
+        try {
+            while (payments.hasNext() || inFlight > 0) {
+                while (inFlight < maxInFlight && payments.hasNext()) {
+                    Map.Entry<K, Payment> entry = payments.next();
+                    K key = entry.getKey();
+                    Payment payment = entry.getValue();
+                    completionService.submit(() -> render(key, payment));
+                    inFlight++;
+                }
+                // Count the task as done before get(), which throws if the task failed with an error
+                Future<Rendered<K>> done = completionService.take();
+                inFlight--;
+                Rendered<K> rendered = done.get();
+                if (rendered.failure == null) {
+                    sink.onSuccess(rendered.key, rendered.png);
+                    succeeded++;
+                } else {
+                    sink.onFailure(rendered.key, rendered.failure);
+                    failed++;
+                }
+            }
+        } catch (ExecutionException e) {
+            // render() catches all exceptions, only errors can get here
+            throw new IllegalStateException("Rendering failed", e.getCause());
+        } finally {
+            // Don't leave tasks behind when the sink or the input fails, their results would never be consumed
+            for (; inFlight > 0; inFlight--) {
+                completionService.take();
+            }
+        }
+        return new BulkQrCodeResult(succeeded, failed);
+    }
+
+    private <K> Rendered<K> render(K key, Payment payment) {
+        try {
+            return new Rendered<>(key, SpaydQrCodeGenerator.generateQrCode(payment, size, includeChecksum, normalizeStrings), null);
+        } catch (Exception e) {
+            return new Rendered<>(key, null, e);
+        }
+    }
+
+    private static final class Rendered<K> {
+        final K key;
+        final byte[] png;
+        final Exception failure;
+
+        Rendered(K key, byte[] png, Exception failure) {
+            this.key = key;
+            this.png = png;
+            this.failure = failure;
+        }
+    }
+}
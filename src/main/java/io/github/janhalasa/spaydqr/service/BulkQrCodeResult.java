@@ -0,0 +1,17 @@
+package io.github.janhalasa.spaydqr.service;
+
+import lombok.Value;
+
+/**
+ * Summary of a {@link BulkQrCodeGenerator} run.
+ */
+@Value
+public class BulkQrCodeResult {
+
+    long succeeded;
+    long failed;
+
+    public long getTotal() {
+        return succeeded + failed;
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.janhalasa.spaydqr.service;
+
+import java.io.IOException;
+
+/**
+ * Receives the results of {@link BulkQrCodeGenerator}.
+ * The methods are always called from the thread running the batch, one at a time,
+ * so implementations don't have to be thread-safe.
+ *
+ * @param <K> type of the payment keys
+ */
+public interface BulkQrCodeSink<K> {
+
+    /**
+     * Called with the PNG image of a successfully rendered payment.
+     * An exception thrown from this method aborts the whole batch.
+     */
+    void onSuccess(K key, byte[] png) throws IOException;
+
+    /**
+     * Called when a payment could not be rendered, e.g. because it failed validation.
+     * The batch continues with the next payment.
+     */
+    void onFailure(K key, Exception exception) throws IOException;
+}
@@ -0,0 +1,27 @@
+package io.github.janhalasa.spaydqr.service;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Output stream writing into a caller supplied buffer. Writing beyond the buffer's limit
+ * throws {@link java.nio.BufferOverflowException}.
+ */
+class ByteBufferOutputStream extends OutputStream {
+
+    private final ByteBuffer target;
+
+    ByteBufferOutputStream(ByteBuffer target) {
+        this.target = target;
+    }
+
+    @Override
+    public void write(int b) {
+        target.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        target.put(b, off, len);
+    }
+}
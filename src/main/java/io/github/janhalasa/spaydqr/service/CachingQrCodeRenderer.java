@@ -0,0 +1,53 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.WriterException;
+import io.github.janhalasa.spaydqr.model.Payment;
+
+import java.io.IOException;
+
+/**
+ * Decorator serving repeated images from a {@link QrCodeCache} instead of rendering them again.
+ * <p>
+ * Every call returns a new copy of the image, so callers may modify the result.
+ */
+public class CachingQrCodeRenderer implements QrCodeRenderer {
+
+    private final QrCodeRenderer delegate;
+    private final QrCodeCache cache;
+    private final QrCodeMetrics metrics;
+
+    public CachingQrCodeRenderer(QrCodeRenderer delegate, QrCodeCache cache) {
+        this(delegate, cache, QrCodeMetrics.NONE);
+    }
+
+    /**
+     * @param metrics notified about every cache hit and miss, {@link QrCodeMetrics#NONE} if {@code null}
+     */
+    public CachingQrCodeRenderer(QrCodeRenderer delegate, QrCodeCache cache, QrCodeMetrics metrics) {
+        if (delegate == null || cache == null) {
+            throw new IllegalArgumentException("Renderer and cache are required");
+        }
+        this.delegate = delegate;
+        this.cache = cache;
+        this.metrics = metrics == null ? QrCodeMetrics.NONE : metrics;
+    }
+
+    public byte[] render(Payment payment, int size) throws IOException, WriterException {
+        return render(SpaydSerializer.serialize(payment), size);
+    }
+
+    @Override
+    public byte[] render(String spaydString, int size) throws IOException, WriterException {
+        QrCodeCache.Key key = new QrCodeCache.Key(spaydString, size, delegate.getOptions());
+        return cache.get(key, () -> delegate.render(spaydString, size), metrics).clone();
+    }
+
+    @Override
+    public RenderingOptions getOptions() {
+        return delegate.getOptions();
+    }
+
+    public QrCodeCache getCache() {
+        return cache;
+    }
+}
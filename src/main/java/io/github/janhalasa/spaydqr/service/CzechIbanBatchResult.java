@@ -0,0 +1,17 @@
+package io.github.janhalasa.spaydqr.service;
+
+import lombok.Value;
+
+/**
+ * Summary of a bulk {@link CzechIbanConverter} conversion.
+ */
+@Value
+public class CzechIbanBatchResult {
+
+    long converted;
+    long failed;
+
+    public long getTotal() {
+        return converted + failed;
+    }
+}
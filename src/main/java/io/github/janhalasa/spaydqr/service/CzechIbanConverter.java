@@ -0,0 +1,418 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.CzechAccountNumber;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static io.github.janhalasa.spaydqr.service.CzechIbanError.*;
+
+/**
+ * Converts Czech domestic account numbers to IBAN, one by one or in bulk.
+ * <p>
+ * The validation rules and the result are the same as of {@link CzechIbanGenerator#composeCzechIban},
+ * but invalid input is reported as a {@link CzechIbanError} instead of an exception, and the digits are
+ * scanned, checked (modulo 11) and used for the IBAN checksum (modulo 97) in one pass over a reused buffer,
+ * without regular expressions, number parsing or big integers. Converting a valid account allocates nothing
+ * until the IBAN is turned into a {@code String}.
+ * <p>
+ * An instance reuses its buffers, so it must not be shared by multiple threads at the same time.
+ */
+public final class CzechIbanConverter {
+
+    static final int IBAN_LENGTH = 24;
+
+    private static final int BANK_CODE_DIGITS = 4;
+    private static final int MIN_ACCOUNT_DIGITS = 2;
+    private static final int MAX_ACCOUNT_DIGITS = 10;
+    private static final int PREFIX_MAX_DIGITS = 6;
+
+    private static final int BANK_CODE_OFFSET = 4;
+    private static final int PREFIX_OFFSET = BANK_CODE_OFFSET + BANK_CODE_DIGITS;
+    private static final int ACCOUNT_OFFSET = PREFIX_OFFSET + PREFIX_MAX_DIGITS;
+
+    /**
+     * The country code with provisional check digits, moved behind the BBAN: C = 12, Z = 35, 00.
+     */
+    private static final int COUNTRY_DIGITS = 123500;
+    private static final int COUNTRY_DIGITS_SCALE = 1_000_000;
+
+    /**
+     * Modulo 11 weights from the last digit.
+     */
+    private static final int[] MOD11_WEIGHTS = {1, 2, 4, 8, 5, 10, 9, 7, 3, 6};
+
+    /**
+     * Longest line accepted by {@link #convertLines(ByteBuffer, CzechIbanSink)}, including whitespace.
+     */
+    private static final int MAX_RECORD_LENGTH = 64;
+
+    private final char[] iban = new char[IBAN_LENGTH];
+    /**
+     * The IBAN being composed, copied to {@link #iban} only if the conversion succeeds.
+     */
+    private final char[] scratch = new char[IBAN_LENGTH];
+    private final CharSequence ibanView = new IbanView();
+    private final char[] line = new char[MAX_RECORD_LENGTH];
+    private final CharSequence lineView = CharBuffer.wrap(line);
+
+    public CzechIbanConverter() {
+        iban[0] = 'C';
+        iban[1] = 'Z';
+        scratch[0] = 'C';
+        scratch[1] = 'Z';
+    }
+
+    /**
+     * Converts the account number, the IBAN is then available from {@link #getIban()}.
+     *
+     * @param prefix can be null or empty
+     * @return null on success, otherwise the first problem found
+     */
+    public CzechIbanError convert(CharSequence bankCode, CharSequence account, CharSequence prefix) {
+        if (bankCode == null) {
+            return BANK_CODE_NULL;
+        }
+        if (account == null) {
+            CzechIbanError error = putBankCode(bankCode, 0, bankCode.length());
+            return error != null ? error : ACCOUNT_NULL;
+        }
+        return prefix == null
+                ? convert(bankCode, 0, bankCode.length(), account, 0, account.length(), "", 0, 0)
+                : convert(bankCode, 0, bankCode.length(), account, 0, account.length(), prefix, 0, prefix.length());
+    }
+
+    public CzechIbanError convert(CzechAccountNumber accountNumber) {
+        return convert(accountNumber.getBankCode(), accountNumber.getNumber(), accountNumber.getPrefix());
+    }
+
+    /**
+     * Converts an account number written as {@code [prefix-]number/bankCode}, surrounding whitespace is ignored.
+     *
+     * @return null on success, otherwise the first problem found
+     */
+    public CzechIbanError convert(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int slash = -1;
+        int dash = -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '/') {
+                if (slash >= 0) {
+                    return FORMAT;
+                }
+                slash = i;
+            } else if (c == '-' && slash < 0) {
+                if (dash >= 0) {
+                    return FORMAT;
+                }
+                dash = i;
+            }
+        }
+        if (slash < 0) {
+            return FORMAT;
+        }
+        return dash < 0
+                ? convert(text, slash + 1, end, text, start, slash, text, start, start)
+                : convert(text, slash + 1, end, text, dash + 1, slash, text, start, dash);
+    }
+
+    /**
+     * The IBAN from the last successful conversion, without spaces. Failed conversions leave it unchanged.
+     * The sequence is a view of a reused buffer, its content changes with the next successful conversion,
+     * use {@code toString()} to keep it.
+     */
+    public CharSequence getIban() {
+        return ibanView;
+    }
+
+    /**
+     * Appends the IBAN from the last successful conversion.
+     */
+    public StringBuilder appendIban(StringBuilder target) {
+        return target.append(iban);
+    }
+
+    /**
+     * Converts the accounts in the iteration order. The sink is called for every account before the next one
+     * is converted.
+     */
+    public CzechIbanBatchResult convertAll(Iterable<? extends CzechAccountNumber> accounts, CzechIbanSink sink) {
+        return convertAll(accounts.iterator(), sink);
+    }
+
+    /**
+     * Converts the accounts sequentially, see {@link #convertAll(Iterable, CzechIbanSink)}.
+     */
+    public CzechIbanBatchResult convertAll(Stream<? extends CzechAccountNumber> accounts, CzechIbanSink sink) {
+        return convertAll(accounts.iterator(), sink);
+    }
+
+    private CzechIbanBatchResult convertAll(Iterator<? extends CzechAccountNumber> accounts, CzechIbanSink sink) {
+        long record = 0;
+        long failed = 0;
+        while (accounts.hasNext()) {
+            if (!report(record++, convert(accounts.next()), sink)) {
+                failed++;
+            }
+        }
+        return new CzechIbanBatchResult(record - failed, failed);
+    }
+
+    /**
+     * Converts the accounts given as parallel arrays. For every index, either the IBAN or the error is stored
+     * to the output arrays, the other one is set to null.
+     *
+     * @param prefixes can be null if no account has a prefix
+     */
+    public CzechIbanBatchResult convertAll(
+            String[] bankCodes, String[] accounts, String[] prefixes, String[] ibans, CzechIbanError[] errors) {
+        int length = bankCodes.length;
+        if (accounts.length != length || (prefixes != null && prefixes.length != length)
+                || ibans.length < length || errors.length < length) {
+            throw new IllegalArgumentException("Input and output arrays must have the same length");
+        }
+        long failed = 0;
+        for (int i = 0; i < length; i++) {
+            CzechIbanError error = convert(bankCodes[i], accounts[i], prefixes == null ? null : prefixes[i]);
+            errors[i] = error;
+            if (error == null) {
+                ibans[i] = new String(iban);
+            } else {
+                ibans[i] = null;
+                failed++;
+            }
+        }
+        return new CzechIbanBatchResult(length - failed, failed);
+    }
+
+    /**
+     * Converts account numbers written as {@code [prefix-]number/bankCode}, one per line.
+     * Blank lines are skipped, but counted in the record indexes, which are zero-based line numbers.
+     */
+    public CzechIbanBatchResult convertLines(CharSequence text, CzechIbanSink sink) {
+        long record = 0;
+        long converted = 0;
+        long failed = 0;
+        int length = text.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (!isBlank(text, lineStart, lineEnd)) {
+                if (report(record, convert(text, lineStart, lineEnd), sink)) {
+                    converted++;
+                } else {
+                    failed++;
+                }
+            }
+            record++;
+            lineStart = lineEnd + 1;
+        }
+        return new CzechIbanBatchResult(converted, failed);
+    }
+
+    /**
+     * Converts ASCII (or UTF-8) encoded lines between the position and the limit of the buffer,
+     * see {@link #convertLines(CharSequence, CzechIbanSink)}. The position of the buffer is not changed.
+     */
+    public CzechIbanBatchResult convertLines(ByteBuffer text, CzechIbanSink sink) {
+        long record = 0;
+        long converted = 0;
+        long failed = 0;
+        int limit = text.limit();
+        int lineStart = text.position();
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && text.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int length = lineEnd - lineStart;
+            if (length > MAX_RECORD_LENGTH) {
+                report(record, FORMAT, sink);
+                failed++;
+            } else {
+                for (int i = 0; i < length; i++) {
+                    line[i] = (char) (text.get(lineStart + i) & 0xFF);
+                }
+                if (!isBlank(lineView, 0, length)) {
+                    if (report(record, convert(lineView, 0, length), sink)) {
+                        converted++;
+                    } else {
+                        failed++;
+                    }
+                }
+            }
+            record++;
+            lineStart = lineEnd + 1;
+        }
+        return new CzechIbanBatchResult(converted, failed);
+    }
+
+    private boolean report(long record, CzechIbanError error, CzechIbanSink sink) {
+        if (error == null) {
+            sink.onSuccess(record, ibanView);
+            return true;
+        }
+        sink.onFailure(record, error);
+        return false;
+    }
+
+    private static boolean isBlank(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Validates the parts in the order of {@link CzechIbanGenerator#composeCzechIban}, writes them
+     * to the scratch buffer and copies it to the IBAN buffer if all of them are valid.
+     */
+    private CzechIbanError convert(
+            CharSequence bankCode, int bankCodeStart, int bankCodeEnd,
+            CharSequence account, int accountStart, int accountEnd,
+            CharSequence prefix, int prefixStart, int prefixEnd) {
+        CzechIbanError error = putBankCode(bankCode, bankCodeStart, bankCodeEnd);
+        if (error == null) {
+            error = putAccount(account, accountStart, accountEnd);
+        }
+        if (error == null) {
+            error = putPrefix(prefix, prefixStart, prefixEnd);
+        }
+        if (error == null) {
+            putCheckDigits();
+            System.arraycopy(scratch, 0, iban, 0, IBAN_LENGTH);
+        }
+        return error;
+    }
+
+    private CzechIbanError putBankCode(CharSequence value, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return BANK_CODE_EMPTY;
+        }
+        if (length != BANK_CODE_DIGITS) {
+            return BANK_CODE_LENGTH;
+        }
+        return putDigits(value, start, end, BANK_CODE_OFFSET, BANK_CODE_DIGITS) ? null : BANK_CODE_NOT_DIGITS;
+    }
+
+    private CzechIbanError putAccount(CharSequence value, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return ACCOUNT_EMPTY;
+        }
+        if (length < MIN_ACCOUNT_DIGITS) {
+            return ACCOUNT_TOO_SHORT;
+        }
+        if (length > MAX_ACCOUNT_DIGITS) {
+            return ACCOUNT_TOO_LONG;
+        }
+        if (!putDigits(value, start, end, ACCOUNT_OFFSET, MAX_ACCOUNT_DIGITS)) {
+            return ACCOUNT_NOT_DIGITS;
+        }
+        int checksum = checksum(ACCOUNT_OFFSET, MAX_ACCOUNT_DIGITS);
+        if (checksum < 0) {
+            return ACCOUNT_ZERO;
+        }
+        return checksum == 0 ? null : ACCOUNT_CHECKSUM;
+    }
+
+    private CzechIbanError putPrefix(CharSequence value, int start, int end) {
+        int length = end - start;
+        if (length > PREFIX_MAX_DIGITS) {
+            return PREFIX_TOO_LONG;
+        }
+        if (!putDigits(value, start, end, PREFIX_OFFSET, PREFIX_MAX_DIGITS)) {
+            return PREFIX_NOT_DIGITS;
+        }
+        // An empty or zero prefix has the checksum 0 too
+        return checksum(PREFIX_OFFSET, PREFIX_MAX_DIGITS) <= 0 ? null : PREFIX_CHECKSUM;
+    }
+
+    /**
+     * Copies the digits right aligned to the field of the scratch buffer, padded with zeros.
+     *
+     * @return false if there is a character other than an ASCII digit
+     */
+    private boolean putDigits(CharSequence value, int start, int end, int offset, int width) {
+        int padding = width - (end - start);
+        for (int i = 0; i < padding; i++) {
+            scratch[offset + i] = '0';
+        }
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            scratch[offset + padding + i - start] = c;
+        }
+        return true;
+    }
+
+    /**
+     * Weighted sum of the digits of the field modulo 11, -1 if all the digits are zeros.
+     */
+    private int checksum(int offset, int width) {
+        int sum = 0;
+        boolean zero = true;
+        for (int i = 0; i < width; i++) {
+            int digit = scratch[offset + width - 1 - i] - '0';
+            sum += digit * MOD11_WEIGHTS[i];
+            zero &= digit == 0;
+        }
+        return zero ? -1 : sum % 11;
+    }
+
+    /**
+     * ISO 7064 mod 97-10 over the BBAN followed by the country code, computed a digit at a time.
+     */
+    private void putCheckDigits() {
+        int remainder = 0;
+        for (int i = BANK_CODE_OFFSET; i < IBAN_LENGTH; i++) {
+            remainder = (remainder * 10 + scratch[i] - '0') % 97;
+        }
+        remainder = (remainder * COUNTRY_DIGITS_SCALE + COUNTRY_DIGITS) % 97;
+        int checkDigits = 98 - remainder;
+        scratch[2] = (char) ('0' + checkDigits / 10);
+        scratch[3] = (char) ('0' + checkDigits % 10);
+    }
+
+    /**
+     * Read-only view of the IBAN buffer.
+     */
+    private final class IbanView implements CharSequence {
+
+        @Override
+        public int length() {
+            return IBAN_LENGTH;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return iban[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(iban, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(iban);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.janhalasa.spaydqr.service;
+
+/**
+ * Reasons why a Czech account number cannot be converted to IBAN, see {@link CzechIbanConverter}.
+ */
+public enum CzechIbanError {
+
+    BANK_CODE_NULL(Field.BANK_CODE, "Bank code cannot be null", false),
+    BANK_CODE_EMPTY(Field.BANK_CODE, "Bank code cannot be empty", false),
+    BANK_CODE_LENGTH(Field.BANK_CODE, "Bank code must be exactly 4 digits", true),
+    BANK_CODE_NOT_DIGITS(Field.BANK_CODE, "Bank code must contain only digits", false),
+    ACCOUNT_NULL(Field.ACCOUNT, "Account number cannot be null", false),
+    ACCOUNT_EMPTY(Field.ACCOUNT, "Account number cannot be empty", false),
+    ACCOUNT_TOO_SHORT(Field.ACCOUNT, "Account number cannot be shorter than 2 digits", true),
+    ACCOUNT_TOO_LONG(Field.ACCOUNT, "Account number cannot exceed 10 digits", true),
+    ACCOUNT_NOT_DIGITS(Field.ACCOUNT, "Account number must contain only digits", false),
+    ACCOUNT_ZERO(Field.ACCOUNT, "Account number cannot be zero", false),
+    ACCOUNT_CHECKSUM(Field.ACCOUNT, "Account number must have modulo 11 checksum", false),
+    PREFIX_TOO_LONG(Field.PREFIX, "Prefix cannot exceed 6 digits", true),
+    PREFIX_NOT_DIGITS(Field.PREFIX, "Prefix must contain only digits", false),
+    PREFIX_CHECKSUM(Field.PREFIX, "Prefix must be valid modulo 11 number", false),
+    /**
+     * Text input which is not in the {@code [prefix-]number/bankCode} format.
+     */
+    FORMAT(Field.RECORD, "Account number must be in the format [prefix-]number/bankCode", false);
+
+    /**
+     * The part of the account number the error relates to.
+     */
+    public enum Field {
+        BANK_CODE, ACCOUNT, PREFIX, RECORD
+    }
+
+    private final Field field;
+    private final String message;
+    private final boolean lengthError;
+
+    CzechIbanError(Field field, String message, boolean lengthError) {
+        this.field = field;
+        this.message = message;
+        this.lengthError = lengthError;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * True if the field has a wrong number of digits.
+     */
+    public boolean isLengthError() {
+        return lengthError;
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.janhalasa.spaydqr.service;
+
+/**
+ * Receives the results of a bulk {@link CzechIbanConverter} conversion, in the order of the input records.
+ */
+public interface CzechIbanSink {
+
+    /**
+     * @param record zero-based index of the record in the input
+     * @param iban the IBAN, only valid during the call; use {@code toString()} to keep it
+     */
+    void onSuccess(long record, CharSequence iban);
+
+    /**
+     * @param record zero-based index of the record in the input
+     */
+    void onFailure(long record, CzechIbanError error);
+}
@@ -0,0 +1,24 @@
+package io.github.janhalasa.spaydqr.service;
+
+/**
+ * Reasons why a string is not a valid IBAN, see {@link IbanValidator}.
+ */
+public enum IbanError {
+
+    EMPTY("IBAN cannot be empty"),
+    INVALID_CHARACTER("IBAN can contain only uppercase letters and digits"),
+    UNSUPPORTED_COUNTRY("IBAN country code is not supported"),
+    LENGTH("IBAN does not have the length of its country"),
+    STRUCTURE("IBAN does not match the account number format of its country"),
+    CHECKSUM("IBAN check digits are invalid");
+
+    private final String message;
+
+    IbanError(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
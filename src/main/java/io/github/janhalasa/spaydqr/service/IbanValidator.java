@@ -0,0 +1,239 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.CzechAccountNumber;
+
+/**
+ * Validates and parses IBANs of the SEPA countries.
+ * <p>
+ * The length and the BBAN structure of every country (from the SWIFT IBAN registry) are expanded
+ * at class initialization to a table indexed by the country code, holding the expected character class
+ * of every position. Validation is a single pass over the characters checking the class and computing
+ * the mod 97 checksum, without regular expressions, big integers or allocation.
+ */
+public final class IbanValidator {
+
+    /**
+     * Country code, IBAN length and the BBAN structure: lengths followed by
+     * n (digits), a (uppercase letters) or c (uppercase letters and digits).
+     */
+    private static final String[] COUNTRIES = {
+            "AD24 4n4n12c", "AT20 5n11n", "BE16 3n7n2n", "BG22 4a4n2n8c", "CH21 5n12c", "CY28 3n5n16c",
+            "CZ24 4n6n10n", "DE22 8n10n", "DK18 4n9n1n", "EE20 2n2n11n1n", "ES24 4n4n1n1n10n", "FI18 3n11n",
+            "FR27 5n5n11c2n", "GB22 4a6n8n", "GI23 4a15c", "GR27 3n4n16c", "HR21 7n10n", "HU28 3n4n1n15n1n",
+            "IE22 4a6n8n", "IS26 4n2n6n10n", "IT27 1a5n5n12c", "LI21 5n12c", "LT20 5n11n", "LU20 3n13c",
+            "LV21 4a13c", "MC27 5n5n11c2n", "MT31 4a5n18c", "NL18 4a10n", "NO15 4n6n1n", "PL28 8n16n",
+            "PT25 4n4n11n2n", "RO24 4a16c", "SE24 3n16n1n", "SI19 5n8n2n", "SK24 4n6n10n", "SM27 1a5n5n12c",
+            "VA22 3n15n",
+    };
+
+    private static final byte DIGIT = 1;
+    private static final byte LETTER = 2;
+    private static final byte ALPHANUMERIC = DIGIT | LETTER;
+
+    private static final int COUNTRY_CODE_LENGTH = 2;
+    private static final int BBAN_OFFSET = 4;
+
+    /**
+     * Character class of every BBAN position by {@link #countryIndex}, null for unsupported countries.
+     */
+    private static final byte[][] STRUCTURES = new byte[26 * 26][];
+
+    /*
+     * Czech and Slovak BBAN: bank code, prefix and account number.
+     */
+    private static final int CZ_BANK_CODE_OFFSET = 4;
+    private static final int CZ_PREFIX_OFFSET = 8;
+    private static final int CZ_ACCOUNT_OFFSET = 14;
+
+    static {
+        for (String country : COUNTRIES) {
+            int length = Integer.parseInt(country.substring(COUNTRY_CODE_LENGTH, 4));
+            byte[] structure = new byte[length - BBAN_OFFSET];
+            int position = 0;
+            int count = 0;
+            for (int i = 5; i < country.length(); i++) {
+                char c = country.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    count = count * 10 + c - '0';
+                    continue;
+                }
+                byte characterClass = c == 'n' ? DIGIT : c == 'a' ? LETTER : ALPHANUMERIC;
+                for (int j = 0; j < count; j++) {
+                    structure[position++] = characterClass;
+                }
+                count = 0;
+            }
+            if (position != structure.length) {
+                throw new IllegalStateException("Inconsistent IBAN structure: " + country);
+            }
+            STRUCTURES[countryIndex(country.charAt(0), country.charAt(1))] = structure;
+        }
+    }
+
+    private IbanValidator() {
+    }
+
+    public static boolean isValid(CharSequence iban) {
+        return validate(iban) == null;
+    }
+
+    /**
+     * Checks an IBAN in the electronic format: uppercase, without spaces.
+     *
+     * @return null for a valid IBAN, otherwise the first problem found
+     */
+    public static IbanError validate(CharSequence iban) {
+        if (iban == null || iban.length() == 0) {
+            return IbanError.EMPTY;
+        }
+        int length = iban.length();
+        if (length < BBAN_OFFSET) {
+            return isAlphanumeric(iban, 0, length) ? IbanError.LENGTH : IbanError.INVALID_CHARACTER;
+        }
+        char first = iban.charAt(0);
+        char second = iban.charAt(1);
+        if (!isLetter(first) || !isLetter(second) || !isDigit(iban.charAt(2)) || !isDigit(iban.charAt(3))) {
+            return isAlphanumeric(iban, 0, BBAN_OFFSET) ? IbanError.STRUCTURE : IbanError.INVALID_CHARACTER;
+        }
+        byte[] structure = STRUCTURES[countryIndex(first, second)];
+        if (structure == null) {
+            return IbanError.UNSUPPORTED_COUNTRY;
+        }
+        if (length != BBAN_OFFSET + structure.length) {
+            return isAlphanumeric(iban, 0, length) ? IbanError.LENGTH : IbanError.INVALID_CHARACTER;
+        }
+
+        // The BBAN first, then the country code and check digits, letters count as two digits 10 to 35
+        int remainder = 0;
+        IbanError error = null;
+        for (int i = BBAN_OFFSET; i < length; i++) {
+            char c = iban.charAt(i);
+            int value;
+            byte characterClass;
+            if (isDigit(c)) {
+                value = c - '0';
+                characterClass = DIGIT;
+            } else if (isLetter(c)) {
+                value = c - 'A' + 10;
+                characterClass = LETTER;
+            } else {
+                return IbanError.INVALID_CHARACTER;
+            }
+            if ((structure[i - BBAN_OFFSET] & characterClass) == 0) {
+                error = IbanError.STRUCTURE;
+            }
+            remainder = mod97(remainder, value);
+        }
+        if (error != null) {
+            return error;
+        }
+        remainder = mod97(mod97(remainder, first - 'A' + 10), second - 'A' + 10);
+        int checkDigits = (iban.charAt(2) - '0') * 10 + iban.charAt(3) - '0';
+        remainder = (remainder * 100 + checkDigits) % 97;
+        // 00, 01 and 99 are never generated, but 00 would pass the same way as 97
+        return remainder == 1 && checkDigits >= 2 && checkDigits <= 98 ? null : IbanError.CHECKSUM;
+    }
+
+    /**
+     * Converts an IBAN as written by people to the electronic format: removes spaces, tabs and dashes
+     * and converts letters to uppercase. A string which needs no change is returned as is.
+     */
+    public static String normalize(CharSequence iban) {
+        int length = iban.length();
+        int i = 0;
+        while (i < length && isNormalized(iban.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return iban.toString();
+        }
+        StringBuilder result = new StringBuilder(length);
+        result.append(iban, 0, i);
+        for (; i < length; i++) {
+            char c = iban.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                result.append((char) (c - 'a' + 'A'));
+            } else if (!isSeparator(c)) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return true if IBANs of the country are validated
+     */
+    public static boolean isSupportedCountry(String countryCode) {
+        return countryCode.length() == COUNTRY_CODE_LENGTH
+                && isLetter(countryCode.charAt(0)) && isLetter(countryCode.charAt(1))
+                && STRUCTURES[countryIndex(countryCode.charAt(0), countryCode.charAt(1))] != null;
+    }
+
+    /**
+     * Splits a Czech or Slovak IBAN to the domestic account number. Leading zeros are removed,
+     * a zero prefix is returned as null.
+     *
+     * @throws IllegalArgumentException if it is not a valid Czech or Slovak IBAN
+     */
+    public static CzechAccountNumber toCzechAccountNumber(CharSequence iban) {
+        IbanError error = validate(iban);
+        if (error != null) {
+            throw new IllegalArgumentException(error.getMessage() + ": " + iban);
+        }
+        boolean czechOrSlovak = (iban.charAt(0) == 'C' && iban.charAt(1) == 'Z')
+                || (iban.charAt(0) == 'S' && iban.charAt(1) == 'K');
+        if (!czechOrSlovak) {
+            throw new IllegalArgumentException("Not a Czech or Slovak IBAN: " + iban);
+        }
+        String prefix = withoutLeadingZeros(iban, CZ_PREFIX_OFFSET, CZ_ACCOUNT_OFFSET);
+        return CzechAccountNumber.builder()
+                .bankCode(iban.subSequence(CZ_BANK_CODE_OFFSET, CZ_PREFIX_OFFSET).toString())
+                .prefix(prefix.equals("0") ? null : prefix)
+                .number(withoutLeadingZeros(iban, CZ_ACCOUNT_OFFSET, iban.length()))
+                .build();
+    }
+
+    private static String withoutLeadingZeros(CharSequence value, int start, int end) {
+        while (start < end - 1 && value.charAt(start) == '0') {
+            start++;
+        }
+        return value.subSequence(start, end).toString();
+    }
+
+    /**
+     * @return true if all the characters are uppercase letters or digits
+     */
+    private static boolean isAlphanumeric(CharSequence value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c) && !isLetter(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mod97(int remainder, int value) {
+        return (value < 10 ? remainder * 10 + value : remainder * 100 + value) % 97;
+    }
+
+    private static int countryIndex(char first, char second) {
+        return (first - 'A') * 26 + second - 'A';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '-' || c == '\t';
+    }
+
+    private static boolean isNormalized(char c) {
+        return !isSeparator(c) && (c < 'a' || c > 'z');
+    }
+}
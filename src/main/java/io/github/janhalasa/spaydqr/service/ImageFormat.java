@@ -0,0 +1,13 @@
+package io.github.janhalasa.spaydqr.service;
+
+/**
+ * Image formats produced by {@link QrCodeRenderer}s.
+ */
+public enum ImageFormat {
+    PNG,
+    SVG,
+    /**
+     * PDF image XObject, see {@link QrPdfImageWriter}.
+     */
+    PDF
+}
@@ -0,0 +1,176 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Reports the generation stages as Java Flight Recorder events in the category "SPAYD QR",
+ * to be analysed together with the GC, allocation and lock events of the same recording.
+ * <p>
+ * The events are created only while a recording has them enabled, e.g.
+ * {@code -XX:StartFlightRecording:settings=profile}. Stack traces are not recorded.
+ */
+public final class JfrQrCodeMetrics implements QrCodeMetrics {
+
+    public static final JfrQrCodeMetrics INSTANCE = new JfrQrCodeMetrics();
+
+    private static final String CATEGORY = "SPAYD QR";
+
+    private JfrQrCodeMetrics() {
+    }
+
+    @Override
+    public void onSerialized(long nanos, int length) {
+        SerializedEvent event = new SerializedEvent();
+        if (event.isEnabled()) {
+            event.nanos = nanos;
+            event.length = length;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onInvalidPayment(IllegalArgumentException exception) {
+        InvalidPaymentEvent event = new InvalidPaymentEvent();
+        if (event.isEnabled()) {
+            event.message = exception.getMessage();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onEncoded(long nanos, int length, int version, ErrorCorrectionLevel errorCorrectionLevel) {
+        EncodedEvent event = new EncodedEvent();
+        if (event.isEnabled()) {
+            event.nanos = nanos;
+            event.length = length;
+            event.version = version;
+            event.errorCorrectionLevel = errorCorrectionLevel.name();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onWritten(long nanos, ImageFormat format, long length) {
+        WrittenEvent event = new WrittenEvent();
+        if (event.isEnabled()) {
+            event.nanos = nanos;
+            event.format = format.name();
+            event.length = length;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onCacheLookup(boolean hit) {
+        CacheLookupEvent event = new CacheLookupEvent();
+        if (event.isEnabled()) {
+            event.hit = hit;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onVerified(long nanos, boolean matches) {
+        VerifiedEvent event = new VerifiedEvent();
+        if (event.isEnabled()) {
+            event.nanos = nanos;
+            event.matches = matches;
+            event.commit();
+        }
+    }
+
+    @Name("io.github.janhalasa.spaydqr.Serialized")
+    @Label("SPAYD Serialized")
+    @Description("Payment serialized to an SPD string")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class SerializedEvent extends Event {
+        @Label("Serialization Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+
+        @Label("SPD String Length")
+        @DataAmount
+        int length;
+    }
+
+    @Name("io.github.janhalasa.spaydqr.InvalidPayment")
+    @Label("SPAYD Invalid Payment")
+    @Description("Payment rejected by the SPAYD validation")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class InvalidPaymentEvent extends Event {
+        @Label("Message")
+        String message;
+    }
+
+    @Name("io.github.janhalasa.spaydqr.Encoded")
+    @Label("SPAYD QR Encoded")
+    @Description("SPD string encoded to the QR code module matrix")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class EncodedEvent extends Event {
+        @Label("Encoding Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+
+        @Label("SPD String Length")
+        @DataAmount
+        int length;
+
+        @Label("QR Code Version")
+        int version;
+
+        @Label("Error Correction Level")
+        String errorCorrectionLevel;
+    }
+
+    @Name("io.github.janhalasa.spaydqr.Written")
+    @Label("SPAYD QR Image Written")
+    @Description("QR code image written from the module matrix")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class WrittenEvent extends Event {
+        @Label("Writing Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+
+        @Label("Format")
+        String format;
+
+        @Label("Image Length")
+        @DataAmount
+        long length;
+    }
+
+    @Name("io.github.janhalasa.spaydqr.CacheLookup")
+    @Label("SPAYD QR Cache Lookup")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class CacheLookupEvent extends Event {
+        @Label("Hit")
+        boolean hit;
+    }
+
+    @Name("io.github.janhalasa.spaydqr.Verified")
+    @Label("SPAYD QR Image Verified")
+    @Description("Rendered image decoded back and compared to its SPD string")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class VerifiedEvent extends Event {
+        @Label("Decoding Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+
+        @Label("Matches")
+        boolean matches;
+    }
+}
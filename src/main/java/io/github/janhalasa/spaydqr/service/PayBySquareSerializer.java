@@ -0,0 +1,338 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.tukaani.xz.ArrayCache;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.LZMAOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Serializes payments to the PAY by square format used in Slovakia, the counterpart of the Czech SPAYD format
+ * of {@link SpaydSerializer}. The result consists of the characters {@code 0-9A-V} only, which any
+ * {@link QrCodeRenderer} encodes in the alphanumeric mode:
+ * <pre>{@code
+ * byte[] png = QrCodeGenerator.DEFAULT.render(PayBySquareSerializer.serialize(payment), 300);
+ * }</pre>
+ * The payment is written as a payment order of the version 1.1.0: tab separated fields prefixed with their
+ * CRC32 checksum, compressed by raw LZMA1 and encoded with base32hex together with the header.
+ * Texts are written in UTF-8 as they are, the format does not need {@link TextNormalizer}.
+ * The compression needs the optional {@code org.tukaani:xz} dependency on the class path.
+ * <p>
+ * Setting up an LZMA encoder costs more than compressing a payment, most of it being the dictionary
+ * and the match finder tables (more than 1 MB). They are kept per thread and reused by the next payment.
+ */
+public class PayBySquareSerializer {
+
+    /*
+     * LZMA parameters required by the specification. The decoders use the same dictionary size,
+     * so the stream carries no LZMA header.
+     */
+    static final int DICTIONARY_SIZE = 128 * 1024;
+    static final int LITERAL_CONTEXT_BITS = 3;
+    static final int LITERAL_POSITION_BITS = 0;
+    static final int POSITION_BITS = 2;
+
+    /**
+     * Type of the code (PAY by square) and version (1.1.0), 4 bits each.
+     */
+    static final int HEADER_TYPE_VERSION = 0x01;
+    /**
+     * Document type (payment order) and 4 reserved bits.
+     */
+    static final int HEADER_DOCUMENT_TYPE = 0x00;
+    /**
+     * The header bytes and the 2 bytes of the length of the uncompressed data, little-endian.
+     */
+    static final int HEADER_LENGTH = 4;
+    static final int CHECKSUM_LENGTH = 4;
+    static final int MAX_DATA_LENGTH = 0xFFFF;
+
+    static final String DEFAULT_CURRENCY = "EUR";
+
+    private static final char SEPARATOR = '\t';
+    private static final String PAYMENT_COUNT = "1";
+    private static final String PAYMENT_ORDER = "1";
+    /**
+     * Neither standing order nor direct debit data follows.
+     */
+    private static final String NO_EXTENSION = "0";
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final char[] BASE32HEX = "0123456789ABCDEFGHIJKLMNOPQRSTUV".toCharArray();
+
+    private static final LZMA2Options LZMA_OPTIONS = lzmaOptions();
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Per-thread buffers reused by the serializer.
+     */
+    private static final class Scratch {
+        final StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+        final CharsetEncoder utf8 = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final CRC32 crc32 = new CRC32();
+        final CompressedOutput compressed = new CompressedOutput();
+        final LzmaArrayPool lzmaArrays = new LzmaArrayPool();
+        byte[] data = new byte[INITIAL_CAPACITY];
+
+        byte[] data(int capacity) {
+            if (data.length < capacity) {
+                data = new byte[Math.max(capacity, 2 * data.length)];
+            }
+            return data;
+        }
+    }
+
+    /**
+     * Gives the arrays returned by an encoder to the next encoder on the same thread. An encoder asks for
+     * arrays of the same few sizes every time, because the options are fixed.
+     */
+    private static final class LzmaArrayPool extends ArrayCache {
+        private static final int MAX_POOLED = 4;
+
+        private final List<byte[]> byteArrays = new ArrayList<>(MAX_POOLED);
+        private final List<int[]> intArrays = new ArrayList<>(MAX_POOLED);
+
+        @Override
+        public byte[] getByteArray(int size, boolean fillWithZeros) {
+            for (int i = byteArrays.size() - 1; i >= 0; i--) {
+                byte[] array = byteArrays.get(i);
+                if (array.length == size) {
+                    byteArrays.remove(i);
+                    if (fillWithZeros) {
+                        Arrays.fill(array, (byte) 0);
+                    }
+                    return array;
+                }
+            }
+            return new byte[size];
+        }
+
+        @Override
+        public void putArray(byte[] array) {
+            if (byteArrays.size() < MAX_POOLED) {
+                byteArrays.add(array);
+            }
+        }
+
+        @Override
+        public int[] getIntArray(int size, boolean fillWithZeros) {
+            for (int i = intArrays.size() - 1; i >= 0; i--) {
+                int[] array = intArrays.get(i);
+                if (array.length == size) {
+                    intArrays.remove(i);
+                    if (fillWithZeros) {
+                        Arrays.fill(array, 0);
+                    }
+                    return array;
+                }
+            }
+            return new int[size];
+        }
+
+        @Override
+        public void putArray(int[] array) {
+            if (intArrays.size() < MAX_POOLED) {
+                intArrays.add(array);
+            }
+        }
+    }
+
+    /**
+     * Exposes the buffer, so that the compressed bytes are encoded without a copy.
+     */
+    private static final class CompressedOutput extends ByteArrayOutputStream {
+        CompressedOutput() {
+            super(INITIAL_CAPACITY);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    private static LZMA2Options lzmaOptions() {
+        try {
+            LZMA2Options options = new LZMA2Options();
+            options.setDictSize(DICTIONARY_SIZE);
+            options.setLcLp(LITERAL_CONTEXT_BITS, LITERAL_POSITION_BITS);
+            options.setPb(POSITION_BITS);
+            // The optimal parser of the normal mode makes the encoder about 3 times slower
+            // for a few bytes shorter payment
+            options.setMode(LZMA2Options.MODE_FAST);
+            options.setMatchFinder(LZMA2Options.MF_HC4);
+            return options;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unsupported LZMA options", e);
+        }
+    }
+
+    /**
+     * @return the PAY by square string of the payment
+     * @throws IllegalArgumentException if the payment has no bank account, a field contains a tab
+     *                                  or the data exceed 65535 bytes
+     */
+    public static String serialize(Payment payment) {
+        Scratch scratch = SCRATCH.get();
+        StringBuilder builder = scratch.builder;
+        builder.setLength(0);
+        serializeDataTo(payment, builder);
+
+        byte[] data = scratch.data(CHECKSUM_LENGTH + builder.length() * 3);
+        int length = CHECKSUM_LENGTH + encodeUtf8(scratch.utf8, builder, data, CHECKSUM_LENGTH);
+        if (length > MAX_DATA_LENGTH) {
+            throw new IllegalArgumentException("PAY by square data cannot exceed " + MAX_DATA_LENGTH + " bytes");
+        }
+        CRC32 crc32 = scratch.crc32;
+        crc32.reset();
+        crc32.update(data, CHECKSUM_LENGTH, length - CHECKSUM_LENGTH);
+        writeLittleEndian(data, 0, crc32.getValue(), CHECKSUM_LENGTH);
+
+        CompressedOutput compressed = scratch.compressed;
+        compressed.reset();
+        compressed.write(HEADER_TYPE_VERSION);
+        compressed.write(HEADER_DOCUMENT_TYPE);
+        compressed.write(length & 0xFF);
+        compressed.write(length >>> 8);
+        compress(data, length, compressed, scratch.lzmaArrays);
+        return toBase32Hex(compressed.buffer(), compressed.size());
+    }
+
+    /**
+     * Writes the tab separated fields of the payment, the data before the checksum and compression.
+     * Only the bank account is required, the currency defaults to {@value #DEFAULT_CURRENCY}.
+     * The SPAYD notification and instant payment fields have no counterpart in the format and are skipped.
+     *
+     * @return the target builder
+     */
+    static StringBuilder serializeDataTo(Payment payment, StringBuilder target) {
+        SpaydSerializer.validate(payment);
+
+        // No invoice ID, one payment order
+        target.append(SEPARATOR);
+        appendField(target, PAYMENT_COUNT);
+        appendField(target, PAYMENT_ORDER);
+
+        BigDecimal amount = payment.getAmount();
+        if (amount != null) {
+            AmountFormatter.appendTo(target, amount);
+        }
+        target.append(SEPARATOR);
+        appendField(target, payment.getCurrencyCode() != null ? payment.getCurrencyCode() : DEFAULT_CURRENCY);
+        LocalDate dueDate = payment.getPaymentDueDate();
+        if (dueDate != null) {
+            SpaydSerializer.appendDate(target, dueDate);
+        }
+        target.append(SEPARATOR);
+        appendField(target, payment.getVariableSymbol());
+        appendField(target, payment.getConstantSymbol());
+        appendField(target, payment.getSpecificSymbol());
+        appendField(target, payment.getOriginatorsReference());
+        appendField(target, payment.getPaymentNote());
+
+        List<BankAccount> alternativeBankAccounts = payment.getAlternativeBankAccounts();
+        int alternativeCount = alternativeBankAccounts != null ? alternativeBankAccounts.size() : 0;
+        target.append(1 + alternativeCount).append(SEPARATOR);
+        appendBankAccount(target, payment.getBankAccount());
+        for (int i = 0; i < alternativeCount; i++) {
+            appendBankAccount(target, alternativeBankAccounts.get(i));
+        }
+        appendField(target, NO_EXTENSION);
+        appendField(target, NO_EXTENSION);
+
+        // Beneficiary name and two empty address lines, the last field is not terminated
+        appendField(target, payment.getBeneficiaryName());
+        target.append(SEPARATOR);
+        return target;
+    }
+
+    private static void appendBankAccount(StringBuilder target, BankAccount bankAccount) {
+        appendField(target, bankAccount.getIban());
+        appendField(target, bankAccount.getBic());
+    }
+
+    private static void appendField(StringBuilder target, String value) {
+        if (value != null) {
+            if (value.indexOf(SEPARATOR) >= 0) {
+                throw new IllegalArgumentException("PAY by square fields cannot contain a tab: " + value);
+            }
+            target.append(value);
+        }
+        target.append(SEPARATOR);
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    private static int encodeUtf8(CharsetEncoder encoder, CharSequence value, byte[] target, int offset) {
+        ByteBuffer out = ByteBuffer.wrap(target, offset, target.length - offset);
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(value), out, true);
+        if (result.isOverflow() || encoder.flush(out).isOverflow()) {
+            // Cannot happen, a character takes at most 3 bytes
+            throw new IllegalStateException("UTF-8 buffer overflow");
+        }
+        return out.position() - offset;
+    }
+
+    private static void writeLittleEndian(byte[] target, int offset, long value, int length) {
+        for (int i = 0; i < length; i++) {
+            target[offset + i] = (byte) (value >>> 8 * i);
+        }
+    }
+
+    /**
+     * Raw LZMA1 stream without the end marker, the decoder knows the length from the header.
+     * The encoder returns its arrays to the pool when finished.
+     */
+    private static void compress(byte[] data, int length, ByteArrayOutputStream target, ArrayCache arrays) {
+        try {
+            LZMAOutputStream lzma = new LZMAOutputStream(target, LZMA_OPTIONS, false, arrays);
+            lzma.write(data, 0, length);
+            lzma.finish();
+        } catch (IOException e) {
+            // Not thrown by ByteArrayOutputStream
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Base32hex (RFC 4648) without padding: 5 bits per character, the last one padded with zero bits.
+     */
+    static String toBase32Hex(byte[] bytes, int length) {
+        char[] chars = new char[(length * 8 + 4) / 5];
+        int count = 0;
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < length; i++) {
+            buffer = buffer << 8 | bytes[i] & 0xFF;
+            bits += 8;
+            while (bits >= 5) {
+                bits -= 5;
+                chars[count++] = BASE32HEX[buffer >>> bits & 0x1F];
+            }
+        }
+        if (bits > 0) {
+            chars[count] = BASE32HEX[buffer << 5 - bits & 0x1F];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.janhalasa.spaydqr.service;
+
+import java.util.Arrays;
+
+/**
+ * QR code as a 1-bit bitmap, for image and PDF libraries taking raw pixels instead of PNG.
+ * <p>
+ * The pixel at column {@code x} of row {@code y} is the bit {@code 7 - x % 8} (most significant bit first)
+ * of the byte {@code y * stride + x / 8}. Set bits are dark pixels, the unused bits at the end of a row are clear.
+ * The layout is the same as of the PNG image: modules scaled to whole pixels, light margin around them.
+ */
+public final class QrBitmap {
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final byte[] data;
+
+    private QrBitmap(int width, int height, byte[] data) {
+        this.width = width;
+        this.height = height;
+        this.stride = (width + 7) / 8;
+        this.data = data;
+    }
+
+    /**
+     * Every module becomes a square of {@code moduleSize} pixels, placed at the given offset in a bitmap
+     * of the given size.
+     */
+    static QrBitmap of(QrMatrix modules, int width, int height, int moduleSize, int left, int top) {
+        int stride = (width + 7) / 8;
+        byte[] data = new byte[stride * height];
+        for (int y = 0; y < modules.getHeight(); y++) {
+            int rowStart = (top + y * moduleSize) * stride;
+            int x = modules.nextDark(0, y);
+            while (x < modules.getWidth()) {
+                int end = modules.nextLight(x, y);
+                setBits(data, rowStart, left + x * moduleSize, left + end * moduleSize);
+                x = modules.nextDark(end, y);
+            }
+            for (int i = 1; i < moduleSize; i++) {
+                System.arraycopy(data, rowStart, data, rowStart + i * stride, stride);
+            }
+        }
+        return new QrBitmap(width, height, data);
+    }
+
+    /**
+     * Sets the pixels {@code from} (inclusive) to {@code to} (exclusive) of the row starting at the offset.
+     */
+    private static void setBits(byte[] target, int offset, int from, int to) {
+        int firstByte = offset + (from >>> 3);
+        int lastByte = offset + ((to - 1) >>> 3);
+        int firstMask = 0xFF >>> (from & 7);
+        int lastMask = 0xFF << (7 - ((to - 1) & 7)) & 0xFF;
+        if (firstByte == lastByte) {
+            target[firstByte] |= (byte) (firstMask & lastMask);
+            return;
+        }
+        target[firstByte] |= (byte) firstMask;
+        Arrays.fill(target, firstByte + 1, lastByte, (byte) 0xFF);
+        target[lastByte] |= (byte) lastMask;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Bytes per row.
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * @return true for a dark pixel
+     */
+    public boolean get(int x, int y) {
+        return (data[y * stride + (x >>> 3)] & 0x80 >>> (x & 7)) != 0;
+    }
+
+    /**
+     * The packed rows, not copied.
+     */
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,196 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.WriterException;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memory bounded cache of rendered QR code images, keyed by the SPD string and the rendering parameters.
+ * <p>
+ * The cache is split into independently locked segments, each evicting its least recently used images
+ * once its share of the memory budget is exceeded, so concurrent lookups of different payments rarely contend.
+ * A cache may be shared by several {@link CachingQrCodeRenderer}s with different options.
+ */
+public class QrCodeCache {
+
+    /**
+     * Rough per-entry memory overhead of the key, the map node and the array headers.
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final long maxBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes memory budget for the cached images
+     */
+    public QrCodeCache(long maxBytes) {
+        this(maxBytes, DEFAULT_SEGMENTS);
+    }
+
+    public QrCodeCache(long maxBytes, int segmentCount) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive: " + maxBytes);
+        }
+        if (segmentCount <= 0) {
+            throw new IllegalArgumentException("Segment count must be positive: " + segmentCount);
+        }
+        this.maxBytes = maxBytes;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(Math.max(1, maxBytes / segmentCount));
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the cached image, or renders and caches it.
+     * Rendering happens outside of any lock, concurrent misses of the same key may render it more than once.
+     */
+    byte[] get(Key key, ImageLoader loader) throws IOException, WriterException {
+        return get(key, loader, QrCodeMetrics.NONE);
+    }
+
+    /**
+     * @param metrics notified about the hit or miss
+     */
+    byte[] get(Key key, ImageLoader loader, QrCodeMetrics metrics) throws IOException, WriterException {
+        Segment segment = segmentFor(key);
+        byte[] image = segment.get(key);
+        if (image != null) {
+            hits.increment();
+            metrics.onCacheLookup(true);
+            return image;
+        }
+        misses.increment();
+        metrics.onCacheLookup(false);
+        image = loader.load();
+        segment.put(key, image);
+        return image;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public QrCodeCacheStats getStats() {
+        long entries = 0;
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                entries += segment.entries.size();
+                bytes += segment.bytes;
+            }
+        }
+        return new QrCodeCacheStats(hits.sum(), misses.sum(), evictions.sum(), entries, bytes);
+    }
+
+    private Segment segmentFor(Key key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private static long weight(Key key, byte[] image) {
+        return ENTRY_OVERHEAD + 2L * key.spaydString.length() + image.length;
+    }
+
+    @FunctionalInterface
+    interface ImageLoader {
+        byte[] load() throws IOException, WriterException;
+    }
+
+    private final class Segment {
+        private final long maxBytes;
+        private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized byte[] get(Key key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(Key key, byte[] image) {
+            long weight = weight(key, image);
+            if (weight > maxBytes) {
+                return;
+            }
+            byte[] previous = entries.put(key, image);
+            if (previous != null) {
+                bytes -= weight(key, previous);
+            }
+            bytes += weight;
+            Iterator<Map.Entry<Key, byte[]>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes) {
+                Map.Entry<Key, byte[]> entry = eldest.next();
+                bytes -= weight(entry.getKey(), entry.getValue());
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Identifies an image: the canonical SPD string, the size and the rendering options.
+     */
+    static final class Key {
+        private final String spaydString;
+        private final int size;
+        private final RenderingOptions options;
+        private final int hash;
+
+        Key(String spaydString, int size, RenderingOptions options) {
+            this.spaydString = spaydString;
+            this.size = size;
+            this.options = options;
+            this.hash = 31 * (31 * spaydString.hashCode() + size) + options.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                    && size == other.size
+                    && spaydString.equals(other.spaydString)
+                    && options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toString(options) + "/" + size + "/" + spaydString;
+        }
+    }
+}
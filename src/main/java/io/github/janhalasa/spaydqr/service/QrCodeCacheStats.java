@@ -0,0 +1,21 @@
+package io.github.janhalasa.spaydqr.service;
+
+import lombok.Value;
+
+/**
+ * Snapshot of the {@link QrCodeCache} counters.
+ */
+@Value
+public class QrCodeCacheStats {
+
+    long hits;
+    long misses;
+    long evictions;
+    long entries;
+    long bytes;
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,422 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import io.github.janhalasa.spaydqr.model.Payment;
+import lombok.Builder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Configurable QR code generator.
+ * <p>
+ * The configuration (SVG writer) is prepared once, when the generator is created,
+ * and every thread rendering PNG images gets its own {@link QrPngWriter} with reusable row and compression buffers.
+ * The PNG image is written directly from the QR module matrix, no pixel matrix is created.
+ * For PDF documents, the code can be rendered as a raw 1-bit {@link QrBitmap} or an image XObject
+ * ({@link ImageFormat#PDF}) with the same pixels, so the PDF writer does not have to decode a PNG image.
+ * The durations of serialization, encoding and writing are reported to the configured {@link QrCodeMetrics}.
+ * <p>
+ * Instances are immutable and thread-safe, create them once and share them.
+ */
+public class QrCodeGenerator implements QrCodeRenderer {
+
+    /**
+     * The configuration used by the static {@link SpaydQrCodeGenerator} methods.
+     */
+    public static final QrCodeGenerator DEFAULT = new QrCodeGenerator(RenderingOptions.DEFAULT_PNG);
+
+    private final RenderingOptions options;
+    private final QrCodeMetrics metrics;
+    private final boolean instrumented;
+    private final QrSvgWriter svgWriter;
+    private final ThreadLocal<QrPngWriter> pngWriter;
+    private final ThreadLocal<QrPdfImageWriter> pdfWriter;
+
+    public QrCodeGenerator(RenderingOptions options) {
+        this(options, QrCodeMetrics.NONE);
+    }
+
+    /**
+     * @param metrics receives the durations of the generation stages, {@link QrCodeMetrics#NONE} if {@code null}
+     */
+    public QrCodeGenerator(RenderingOptions options, QrCodeMetrics metrics) {
+        if (options.getMargin() < 0) {
+            throw new IllegalArgumentException("Margin cannot be negative: " + options.getMargin());
+        }
+        if (options.getModuleSize() != null && options.getModuleSize() < 1) {
+            throw new IllegalArgumentException("Module size must be positive: " + options.getModuleSize());
+        }
+        this.options = options;
+        this.metrics = metrics == null ? QrCodeMetrics.NONE : metrics;
+        this.instrumented = this.metrics != QrCodeMetrics.NONE;
+
+        this.svgWriter = QrSvgWriter.builder()
+                .margin(options.getMargin())
+                .darkColor(toSvgColor(options.getDarkColor()))
+                .lightColor(toSvgColor(options.getLightColor()))
+                .build();
+
+        // Fail fast on an invalid compression level
+        QrPngWriter writer = createPngWriter();
+        this.pngWriter = ThreadLocal.withInitial(this::createPngWriter);
+        this.pngWriter.set(writer);
+        this.pdfWriter = ThreadLocal.withInitial(this::createPdfWriter);
+    }
+
+    /**
+     * Unset values fall back to the defaults of {@link RenderingOptions}.
+     */
+    @Builder
+    private static QrCodeGenerator create(
+            ImageFormat format,
+            ErrorCorrectionLevel errorCorrectionLevel,
+            Integer margin,
+            Integer moduleSize,
+            Integer darkColor,
+            Integer lightColor,
+            Integer compressionLevel,
+            QrEncoder encoder,
+            QrCodeMetrics metrics) {
+        RenderingOptions.RenderingOptionsBuilder options = RenderingOptions.builder().moduleSize(moduleSize);
+        if (format != null) {
+            options.format(format);
+        }
+        if (errorCorrectionLevel != null) {
+            options.errorCorrectionLevel(errorCorrectionLevel);
+        }
+        if (margin != null) {
+            options.margin(margin);
+        }
+        if (darkColor != null) {
+            options.darkColor(darkColor);
+        }
+        if (lightColor != null) {
+            options.lightColor(lightColor);
+        }
+        if (compressionLevel != null) {
+            options.compressionLevel(compressionLevel);
+        }
+        if (encoder != null) {
+            options.encoder(encoder);
+        }
+        return new QrCodeGenerator(options.build(), metrics);
+    }
+
+    @Override
+    public RenderingOptions getOptions() {
+        return options;
+    }
+
+    public QrCodeMetrics getMetrics() {
+        return metrics;
+    }
+
+    public byte[] generate(Payment payment, int size) throws IOException, WriterException {
+        return generate(payment, size, false, true);
+    }
+
+    /**
+     * The payment is serialized to ISO-8859-1 bytes, which are encoded to the QR code directly,
+     * see {@link SpaydSerializer#serializeTo(Payment, boolean, boolean, java.nio.ByteBuffer)}.
+     *
+     * @param includeChecksum see {@link SpaydSerializer#serialize(Payment, boolean, boolean)}
+     * @param normalizeStrings see {@link SpaydSerializer#serialize(Payment, boolean, boolean)}
+     */
+    public byte[] generate(Payment payment, int size, boolean includeChecksum, boolean normalizeStrings)
+            throws IOException, WriterException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(payment, size, includeChecksum, normalizeStrings, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the image of the payment to the stream, see {@link #generate(Payment, int, boolean, boolean)}.
+     * The stream is neither flushed nor closed.
+     */
+    public void write(Payment payment, int size, boolean includeChecksum, boolean normalizeStrings, OutputStream out)
+            throws IOException, WriterException {
+        checkSize(size);
+        write(encode(payment, includeChecksum, normalizeStrings), size, out);
+    }
+
+    /**
+     * Renders the Slovak PAY by square code of the payment instead of SPAYD, see {@link PayBySquareSerializer}.
+     */
+    public byte[] generatePayBySquare(Payment payment, int size) throws IOException, WriterException {
+        return render(PayBySquareSerializer.serialize(payment), size);
+    }
+
+    /**
+     * @param size image size in pixels; ignored if the module size is configured.
+     *             For SVG, it is the value of the {@code width} and {@code height} attributes, none if 0.
+     */
+    @Override
+    public byte[] render(String spaydString, int size) throws IOException, WriterException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(spaydString, size, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the image to the stream, see {@link #render(String, int)}. The stream is neither flushed nor closed.
+     */
+    public void write(String spaydString, int size, OutputStream out) throws IOException, WriterException {
+        checkSize(size);
+        write(encode(spaydString), size, out);
+    }
+
+    private void write(QrMatrix modules, int size, OutputStream out) throws IOException {
+        if (!instrumented) {
+            writeImage(modules, size, out);
+            return;
+        }
+        long start = System.nanoTime();
+        CountingOutputStream counting = new CountingOutputStream(out);
+        writeImage(modules, size, counting);
+        metrics.onWritten(System.nanoTime() - start, options.getFormat(), counting.count);
+    }
+
+    private void writeImage(QrMatrix modules, int size, OutputStream out) throws IOException {
+        switch (options.getFormat()) {
+            case PNG:
+                writePng(modules, size, out);
+                break;
+            case PDF:
+                pdfWriter.get().write(bitmap(modules, size), out);
+                break;
+            case SVG:
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                svgWriter.write(modules, svgSize(modules, size), writer);
+                writer.flush();
+                break;
+            default:
+                throw new IllegalStateException("Unsupported format: " + options.getFormat());
+        }
+    }
+
+    /**
+     * Renders the QR code as a 1-bit bitmap, with the same pixels as the PNG image.
+     *
+     * @param size image size in pixels; ignored if the module size is configured
+     */
+    public QrBitmap renderBitmap(String spaydString, int size) throws WriterException {
+        checkSize(size);
+        return bitmap(encode(spaydString), size);
+    }
+
+    /**
+     * @see #renderBitmap(String, int)
+     * @see #generate(Payment, int, boolean, boolean)
+     */
+    public QrBitmap generateBitmap(Payment payment, int size, boolean includeChecksum, boolean normalizeStrings)
+            throws WriterException {
+        checkSize(size);
+        return bitmap(encode(payment, includeChecksum, normalizeStrings), size);
+    }
+
+    /**
+     * Version, module count and error correction level of the QR code of the string, without rendering it.
+     */
+    public QrSymbol predict(String spaydString) throws WriterException {
+        return options.getEncoder().predict(spaydString, options.getErrorCorrectionLevel());
+    }
+
+    /**
+     * @see #predict(String)
+     * @see #generate(Payment, int, boolean, boolean)
+     */
+    public QrSymbol predict(Payment payment, boolean includeChecksum, boolean normalizeStrings) throws WriterException {
+        ByteBuffer bytes = SpaydSerializer.serializeToBytes(payment, includeChecksum, normalizeStrings);
+        return options.getEncoder().predict(
+                bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), options.getErrorCorrectionLevel());
+    }
+
+    /**
+     * Upper bound of the PNG image length for the requested size, regardless of the content.
+     */
+    public int maxPngLength(int size) {
+        int width = options.getModuleSize() == null
+                ? Math.max(size, QrLayout.MAX_MODULES + 2 * options.getMargin())
+                : (QrLayout.MAX_MODULES + 2 * options.getMargin()) * options.getModuleSize();
+        return QrPngWriter.maxEncodedLength(width, width);
+    }
+
+    /**
+     * Encodes the string to the QR code module matrix, one cell per module, without the margin.
+     */
+    QrMatrix encode(String spaydString) throws WriterException {
+        if (spaydString.isEmpty()) {
+            throw new IllegalArgumentException("Found empty contents");
+        }
+        if (!instrumented) {
+            return options.getEncoder().encode(spaydString, options.getErrorCorrectionLevel());
+        }
+        long start = System.nanoTime();
+        QrMatrix modules = options.getEncoder().encode(spaydString, options.getErrorCorrectionLevel());
+        onEncoded(start, spaydString.length(), modules);
+        return modules;
+    }
+
+    QrMatrix encode(Payment payment, boolean includeChecksum, boolean normalizeStrings) throws WriterException {
+        if (!instrumented) {
+            return encode(SpaydSerializer.serializeToBytes(payment, includeChecksum, normalizeStrings));
+        }
+        long start = System.nanoTime();
+        ByteBuffer bytes;
+        try {
+            bytes = SpaydSerializer.serializeToBytes(payment, includeChecksum, normalizeStrings);
+        } catch (IllegalArgumentException e) {
+            metrics.onInvalidPayment(e);
+            throw e;
+        }
+        long serialized = System.nanoTime();
+        int length = bytes.remaining();
+        metrics.onSerialized(serialized - start, length);
+        QrMatrix modules = encode(bytes);
+        onEncoded(serialized, length, modules);
+        return modules;
+    }
+
+    private QrMatrix encode(ByteBuffer bytes) throws WriterException {
+        return options.getEncoder().encode(
+                bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), options.getErrorCorrectionLevel());
+    }
+
+    private void onEncoded(long start, int length, QrMatrix modules) {
+        // The encoder may raise the level
+        metrics.onEncoded(System.nanoTime() - start, length, modules.getVersion(), modules.getErrorCorrectionLevel());
+    }
+
+    private static void checkSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Requested size cannot be negative: " + size);
+        }
+    }
+
+    private void writePng(QrMatrix modules, int size, OutputStream out) throws IOException {
+        QrLayout layout = layout(modules, size);
+        pngWriter.get().write(modules, layout.width, layout.height,
+                layout.moduleSize, layout.left, layout.top, out);
+    }
+
+    private QrBitmap bitmap(QrMatrix modules, int size) {
+        QrLayout layout = layout(modules, size);
+        return QrBitmap.of(modules, layout.width, layout.height, layout.moduleSize, layout.left, layout.top);
+    }
+
+    private QrLayout layout(QrMatrix modules, int size) {
+        return options.getModuleSize() == null
+                ? QrLayout.scaled(modules, options.getMargin(), size)
+                : QrLayout.fixed(modules, options.getMargin(), options.getModuleSize());
+    }
+
+    private String svgSize(QrMatrix modules, int size) {
+        if (options.getModuleSize() != null) {
+            return Integer.toString((modules.getWidth() + 2 * options.getMargin()) * options.getModuleSize());
+        }
+        return size == 0 ? null : Integer.toString(size);
+    }
+
+    private QrPngWriter createPngWriter() {
+        return new QrPngWriter(options.getCompressionLevel(), options.getDarkColor(), options.getLightColor());
+    }
+
+    private QrPdfImageWriter createPdfWriter() {
+        return new QrPdfImageWriter(options.getCompressionLevel(), options.getDarkColor(), options.getLightColor());
+    }
+
+    private static String toSvgColor(int argb) {
+        if (argb >>> 24 == 0) {
+            return "none";
+        }
+        return String.format("#%06X", argb & 0xFFFFFF);
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Position of the modules in the image.
+     */
+    static final class QrLayout {
+
+        /**
+         * Width of the largest QR code (version 40) in modules.
+         */
+        static final int MAX_MODULES = 177;
+
+        final int width;
+        final int height;
+        final int moduleSize;
+        final int left;
+        final int top;
+
+        private QrLayout(int width, int height, int moduleSize, int left, int top) {
+            this.width = width;
+            this.height = height;
+            this.moduleSize = moduleSize;
+            this.left = left;
+            this.top = top;
+        }
+
+        static QrLayout fixed(QrMatrix modules, int margin, int moduleSize) {
+            return new QrLayout(
+                    (modules.getWidth() + 2 * margin) * moduleSize,
+                    (modules.getHeight() + 2 * margin) * moduleSize,
+                    moduleSize,
+                    margin * moduleSize,
+                    margin * moduleSize);
+        }
+
+        /**
+         * The same layout as zxing's {@code QRCodeWriter}: the largest integer module size fitting into the requested
+         * size including the margin, centered; the image is enlarged if the code does not fit.
+         */
+        static QrLayout scaled(QrMatrix modules, int margin, int size) {
+            int inputWidth = modules.getWidth();
+            int inputHeight = modules.getHeight();
+            int qrWidth = inputWidth + 2 * margin;
+            int qrHeight = inputHeight + 2 * margin;
+            int outputWidth = Math.max(size, qrWidth);
+            int outputHeight = Math.max(size, qrHeight);
+            int moduleSize = Math.min(outputWidth / qrWidth, outputHeight / qrHeight);
+            return new QrLayout(
+                    outputWidth,
+                    outputHeight,
+                    moduleSize,
+                    (outputWidth - inputWidth * moduleSize) / 2,
+                    (outputHeight - inputHeight * moduleSize) / 2);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+/**
+ * Receives the timings and outcomes of the stages of QR code generation, e.g. to publish them as metrics.
+ * Configured on {@link QrCodeGenerator}, {@link CachingQrCodeRenderer} and {@link VerifyingQrCodeRenderer}.
+ * <p>
+ * Called synchronously on the rendering (or verification) threads, so implementations must be thread-safe
+ * and fast. All methods do nothing by default. With {@link #NONE}, the generators don't even read the clock.
+ *
+ * @see JfrQrCodeMetrics
+ */
+public interface QrCodeMetrics {
+
+    QrCodeMetrics NONE = new QrCodeMetrics() {
+    };
+
+    /**
+     * A payment was serialized to an SPD string.
+     *
+     * @param length length of the SPD string in bytes
+     */
+    default void onSerialized(long nanos, int length) {
+    }
+
+    /**
+     * A payment failed the validation of {@link SpaydSerializer} and was not rendered.
+     */
+    default void onInvalidPayment(IllegalArgumentException exception) {
+    }
+
+    /**
+     * An SPD string was encoded to the QR code module matrix.
+     *
+     * @param length length of the SPD string in bytes
+     * @param version QR code version chosen by the encoder, 1 to 40
+     */
+    default void onEncoded(long nanos, int length, int version, ErrorCorrectionLevel errorCorrectionLevel) {
+    }
+
+    /**
+     * The image was written from the module matrix.
+     *
+     * @param length image length in bytes
+     */
+    default void onWritten(long nanos, ImageFormat format, long length) {
+    }
+
+    /**
+     * An image was looked up in the {@link QrCodeCache}.
+     */
+    default void onCacheLookup(boolean hit) {
+    }
+
+    /**
+     * A rendered image was decoded back by {@link VerifyingQrCodeRenderer}.
+     *
+     * @param matches whether the image scanned back to the SPD string it was rendered from
+     */
+    default void onVerified(long nanos, boolean matches) {
+    }
+}
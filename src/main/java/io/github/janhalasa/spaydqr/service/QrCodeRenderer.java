@@ -0,0 +1,18 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.WriterException;
+
+import java.io.IOException;
+
+/**
+ * Renders an SPD string as a QR code image. Implementations are thread-safe.
+ */
+public interface QrCodeRenderer {
+
+    /**
+     * @param size image size in pixels; ignored by vector formats
+     */
+    byte[] render(String spaydString, int size) throws IOException, WriterException;
+
+    RenderingOptions getOptions();
+}
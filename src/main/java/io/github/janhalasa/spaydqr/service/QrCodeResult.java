@@ -0,0 +1,27 @@
+package io.github.janhalasa.spaydqr.service;
+
+import lombok.Value;
+
+/**
+ * Image of one payment of a batch published by {@link AsyncQrCodeGenerator#publish}, or the reason it could not
+ * be rendered.
+ *
+ * @param <K> type of the payment keys
+ */
+@Value
+public class QrCodeResult<K> {
+
+    K key;
+    /**
+     * Null if rendering failed.
+     */
+    byte[] image;
+    /**
+     * Null if the image was rendered.
+     */
+    Exception failure;
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes text to a QR code module matrix. Characters are encoded as ISO-8859-1.
+ * <p>
+ * Implementations must be thread-safe. Their {@code toString()} identifies the configuration: encoders
+ * with equal strings must produce the same matrices, because it is a part of the keys of rendered images,
+ * such as HTTP entity tags. The identity string inherited from {@code Object} meets that.
+ *
+ * @see SpaydQrEncoder
+ * @see ZxingQrEncoder
+ */
+public interface QrEncoder {
+
+    /**
+     * @throws WriterException if the content does not fit into the largest QR code or cannot be encoded
+     */
+    QrMatrix encode(String content, ErrorCorrectionLevel errorCorrectionLevel) throws WriterException;
+
+    /**
+     * Encodes ISO-8859-1 encoded text, the same as {@link #encode(String, ErrorCorrectionLevel)}
+     * with the decoded string.
+     *
+     * @throws WriterException if the content does not fit into the largest QR code
+     */
+    default QrMatrix encode(byte[] content, int offset, int length, ErrorCorrectionLevel errorCorrectionLevel)
+            throws WriterException {
+        return encode(new String(content, offset, length, StandardCharsets.ISO_8859_1), errorCorrectionLevel);
+    }
+
+    /**
+     * Version and error correction level of the QR code the content would be encoded to.
+     * The default implementation encodes the content, see {@link SpaydQrEncoder} for one that does not.
+     *
+     * @throws WriterException if the content does not fit into the largest QR code or cannot be encoded
+     */
+    default QrSymbol predict(String content, ErrorCorrectionLevel errorCorrectionLevel) throws WriterException {
+        QrMatrix modules = encode(content, errorCorrectionLevel);
+        return new QrSymbol(modules.getVersion(), modules.getErrorCorrectionLevel());
+    }
+
+    /**
+     * @see #predict(String, ErrorCorrectionLevel)
+     */
+    default QrSymbol predict(byte[] content, int offset, int length, ErrorCorrectionLevel errorCorrectionLevel)
+            throws WriterException {
+        return predict(new String(content, offset, length, StandardCharsets.ISO_8859_1), errorCorrectionLevel);
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+
+import java.util.Arrays;
+
+/**
+ * QR code module matrix without the quiet zone, one bit per module, set bits are dark.
+ * <p>
+ * Every row is packed into whole {@code long} words, the module at column {@code x} is the bit {@code x % 64}
+ * of the word {@code x / 64} of its row. The unused bits at the end of a row are always clear.
+ */
+public final class QrMatrix {
+
+    private static final int FORMAT_INFO_MASK = 0x5412;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    QrMatrix(int width, int height, long[] bits) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = wordsPerRow(width);
+        if (bits.length != height * wordsPerRow) {
+            throw new IllegalArgumentException("Expected " + height * wordsPerRow + " words, got " + bits.length);
+        }
+        this.bits = bits;
+    }
+
+    static int wordsPerRow(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * Copies zxing's matrix, modules with the value 1 are dark.
+     */
+    public static QrMatrix from(ByteMatrix modules) {
+        int width = modules.getWidth();
+        int height = modules.getHeight();
+        int words = wordsPerRow(width);
+        long[] bits = new long[height * words];
+        byte[][] rows = modules.getArray();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (rows[y][x] == 1) {
+                    bits[y * words + (x >>> 6)] |= 1L << x;
+                }
+            }
+        }
+        return new QrMatrix(width, height, bits);
+    }
+
+    /**
+     * Width in modules, QR codes are square.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * QR code version (1 to 40) of a matrix of a QR code encoder.
+     */
+    public int getVersion() {
+        return (width - 17) / 4;
+    }
+
+    /**
+     * Error correction level read from the format information next to the top left finder pattern.
+     */
+    public ErrorCorrectionLevel getErrorCorrectionLevel() {
+        int formatInfo = 0;
+        for (int i = 0; i < 15; i++) {
+            int x = i < 8 ? 8 : i == 8 ? 7 : 14 - i;
+            int y = i < 6 ? i : i < 8 ? i + 1 : 8;
+            if (get(x, y)) {
+                formatInfo |= 1 << i;
+            }
+        }
+        return ErrorCorrectionLevel.forBits((formatInfo ^ FORMAT_INFO_MASK) >>> 13);
+    }
+
+    /**
+     * @return true for a dark module
+     */
+    public boolean get(int x, int y) {
+        return (bits[y * wordsPerRow + (x >>> 6)] >>> x & 1) != 0;
+    }
+
+    /**
+     * Column of the first dark module of the row from the given column, the width if there is none.
+     */
+    int nextDark(int fromX, int y) {
+        return next(fromX, y, 0L);
+    }
+
+    /**
+     * Column of the first light module of the row from the given column, the width if there is none.
+     */
+    int nextLight(int fromX, int y) {
+        return next(fromX, y, -1L);
+    }
+
+    /**
+     * Scans whole words for a set bit of the row XORed with the flip mask.
+     */
+    private int next(int fromX, int y, long flip) {
+        if (fromX >= width) {
+            return width;
+        }
+        int offset = y * wordsPerRow;
+        int word = fromX >>> 6;
+        long candidates = (bits[offset + word] ^ flip) & (-1L << fromX);
+        while (candidates == 0) {
+            if (++word == wordsPerRow) {
+                return width;
+            }
+            candidates = bits[offset + word] ^ flip;
+        }
+        return Math.min(width, (word << 6) + Long.numberOfTrailingZeros(candidates));
+    }
+
+    public ByteMatrix toByteMatrix() {
+        ByteMatrix modules = new ByteMatrix(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                modules.set(x, y, get(x, y));
+            }
+        }
+        return modules;
+    }
+
+    /**
+     * Index of the first word of the row in {@link #words()}.
+     */
+    int rowOffset(int y) {
+        return y * wordsPerRow;
+    }
+
+    int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * The packed rows, not copied.
+     */
+    long[] words() {
+        return bits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QrMatrix)) {
+            return false;
+        }
+        QrMatrix other = (QrMatrix) o;
+        return width == other.width && height == other.height && Arrays.equals(bits, other.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * width + height) + Arrays.hashCode(bits);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(height * (2 * width + 1));
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                result.append(get(x, y) ? " 1" : " 0");
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+}
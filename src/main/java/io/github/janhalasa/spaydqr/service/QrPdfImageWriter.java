@@ -0,0 +1,87 @@
+package io.github.janhalasa.spaydqr.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes QR codes as PDF image XObjects: the image dictionary followed by the 1-bit Flate compressed pixels,
+ * from {@code <<} to {@code endstream}. Wrapped in {@code N 0 obj ... endobj}, the result is an indirect object
+ * to be referenced from the {@code /XObject} resources of a page, so a PDF writer embeds the QR code
+ * without decoding and compressing a PNG image again.
+ * <p>
+ * With the default black and white colours, the image is in the {@code DeviceGray} colour space, other colours
+ * use a two entry {@code Indexed} one. A fully transparent light colour leaves the light pixels unpainted
+ * (colour key mask), other transparency is not supported by PDF images and is ignored.
+ * <p>
+ * An instance reuses its {@link Deflater} and buffer across images,
+ * so it must not be shared by multiple threads at the same time.
+ */
+public class QrPdfImageWriter {
+
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    private static final byte[] ENDSTREAM = "\nendstream".getBytes(StandardCharsets.US_ASCII);
+
+    private final Deflater deflater;
+    private final String colorSpace;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    public QrPdfImageWriter() {
+        this(Deflater.DEFAULT_COMPRESSION, QrPngWriter.BLACK, QrPngWriter.WHITE);
+    }
+
+    /**
+     * @param compressionLevel deflate level, {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     *                         or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param darkColor ARGB colour of the dark modules
+     * @param lightColor ARGB colour of the light modules and the margin
+     */
+    public QrPdfImageWriter(int compressionLevel, int darkColor, int lightColor) {
+        if ((compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION)
+                && compressionLevel != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
+        this.deflater = new Deflater(compressionLevel);
+        if (darkColor == QrPngWriter.BLACK && lightColor == QrPngWriter.WHITE) {
+            // Set bits are dark
+            this.colorSpace = "/ColorSpace /DeviceGray /Decode [1 0]";
+        } else {
+            // Index 0 (clear bits) is light, 1 is dark
+            this.colorSpace = String.format("/ColorSpace [/Indexed /DeviceRGB 1 <%06X%06X>]%s",
+                    lightColor & 0xFFFFFF, darkColor & 0xFFFFFF, lightColor >>> 24 == 0 ? " /Mask [0 0]" : "");
+        }
+    }
+
+    public void write(QrBitmap bitmap, OutputStream out) throws IOException {
+        int length = deflate(bitmap.getData());
+        String dictionary = "<< /Type /XObject /Subtype /Image"
+                + " /Width " + bitmap.getWidth()
+                + " /Height " + bitmap.getHeight()
+                + " /BitsPerComponent 1 " + colorSpace
+                + " /Filter /FlateDecode /Length " + length + " >>\nstream\n";
+        out.write(dictionary.getBytes(StandardCharsets.US_ASCII));
+        out.write(buffer, 0, length);
+        out.write(ENDSTREAM);
+    }
+
+    /**
+     * Compresses the pixels to the buffer, enlarging it as needed.
+     *
+     * @return the compressed length
+     */
+    private int deflate(byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,320 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes QR codes as 1-bit PNG images.
+ * <p>
+ * The rows of the matrix are packed into PNG scanlines directly, no {@code BufferedImage} or ImageIO is involved.
+ * Set modules are dark, unset ones light. With the default black and white colours, the image is 1-bit grayscale
+ * with the same pixels as produced by zxing's {@code MatrixToImageWriter}, other colours use a two entry palette.
+ * <p>
+ * An instance reuses its {@link Deflater}, {@link CRC32} and row buffers across images,
+ * so it must not be shared by multiple threads at the same time.
+ */
+public class QrPngWriter {
+
+    public static final int BLACK = 0xFF000000;
+    public static final int WHITE = 0xFFFFFFFF;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] PLTE = {'P', 'L', 'T', 'E'};
+    private static final byte[] TRNS = {'t', 'R', 'N', 'S'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+
+    private static final int BIT_DEPTH = 1;
+    private static final int COLOR_TYPE_GRAYSCALE = 0;
+    private static final int COLOR_TYPE_PALETTE = 3;
+    private static final int FILTER_NONE = 0;
+    private static final int FILTER_UP = 2;
+    private static final int IDAT_BUFFER_SIZE = 16 * 1024;
+    private static final int CHUNK_OVERHEAD = 12;
+    /**
+     * IHDR, PLTE and tRNS chunks.
+     */
+    private static final int HEADER_CHUNKS_LENGTH = 3 * CHUNK_OVERHEAD + 13 + 6 + 2;
+
+    private final Deflater deflater;
+    private final byte[] palette;
+    private final byte[] transparency;
+    private final CRC32 crc32 = new CRC32();
+    private final byte[] chunkHeader = new byte[8];
+    private final byte[] imageHeader = new byte[13];
+    private final byte[] filterType = new byte[1];
+    private final byte[] idatBuffer = new byte[IDAT_BUFFER_SIZE];
+    private int idatLength;
+    private BitArray row = new BitArray(0);
+    private BitArray previousRow = new BitArray(0);
+    private byte[] scanline = new byte[0];
+    private byte[] lightScanline = new byte[0];
+    private byte[] zeroScanline = new byte[0];
+
+    public QrPngWriter() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compressionLevel deflate level, {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     *                         or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public QrPngWriter(int compressionLevel) {
+        this(compressionLevel, BLACK, WHITE);
+    }
+
+    /**
+     * @param compressionLevel deflate level, {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     *                         or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param darkColor ARGB colour of the dark modules
+     * @param lightColor ARGB colour of the light modules and the margin
+     */
+    public QrPngWriter(int compressionLevel, int darkColor, int lightColor) {
+        if ((compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION)
+                && compressionLevel != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
+        this.deflater = new Deflater(compressionLevel);
+        if (darkColor == BLACK && lightColor == WHITE) {
+            this.palette = null;
+            this.transparency = null;
+        } else {
+            // Pixel value 0 is dark, 1 is light, the same as in the grayscale image
+            this.palette = new byte[] {
+                    (byte) (darkColor >>> 16), (byte) (darkColor >>> 8), (byte) darkColor,
+                    (byte) (lightColor >>> 16), (byte) (lightColor >>> 8), (byte) lightColor};
+            this.transparency = (darkColor >>> 24) == 0xFF && (lightColor >>> 24) == 0xFF
+                    ? null
+                    : new byte[] {(byte) (darkColor >>> 24), (byte) (lightColor >>> 24)};
+        }
+    }
+
+    /**
+     * Upper bound of the PNG size in bytes for an image of the given dimensions, whatever its content.
+     */
+    public static int maxEncodedLength(int width, int height) {
+        long rawLength = (long) height * (1 + (width + 7) / 8);
+        // Stored (uncompressed) deflate blocks of at most 16 KiB with a 5 byte header each,
+        // the zlib header and trailer and some slack for the final block
+        long deflatedLength = rawLength + 5 * (rawLength / (16 * 1024) + 1) + 32;
+        long idatChunks = (deflatedLength + IDAT_BUFFER_SIZE - 1) / IDAT_BUFFER_SIZE;
+        long length = SIGNATURE.length + HEADER_CHUNKS_LENGTH
+                + idatChunks * CHUNK_OVERHEAD + deflatedLength + CHUNK_OVERHEAD;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Image too large: " + width + "x" + height);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Writes the bit matrix, one pixel per bit.
+     */
+    public void write(BitMatrix matrix, OutputStream out) throws IOException {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int rowBytes = (width + 7) / 8;
+        ensureCapacity(rowBytes);
+        if (row.getSize() != width) {
+            row = new BitArray(width);
+            previousRow = new BitArray(width);
+        }
+
+        startImage(out, width, height);
+        for (int y = 0; y < height; y++) {
+            row = matrix.getRow(y, row);
+            if (y > 0 && row.equals(previousRow)) {
+                writeRepeatedRow(out, rowBytes);
+            } else {
+                packRow(row.getBitArray(), width, rowBytes);
+                writeRow(out, FILTER_NONE, scanline, rowBytes);
+                BitArray swap = previousRow;
+                previousRow = row;
+                row = swap;
+            }
+        }
+        finishImage(out);
+    }
+
+    /**
+     * Writes the module matrix scaled up without creating a pixel matrix. Every module becomes
+     * a square of {@code moduleSize} pixels, placed at the given offset in an image of the given size.
+     * The area around the modules is light.
+     */
+    void write(QrMatrix modules, int width, int height, int moduleSize, int left, int top, OutputStream out)
+            throws IOException {
+        int rowBytes = (width + 7) / 8;
+        ensureCapacity(rowBytes);
+        Arrays.fill(lightScanline, 0, rowBytes, (byte) 0xFF);
+        setPadding(lightScanline, width, rowBytes);
+
+        int codeBottom = top + modules.getHeight() * moduleSize;
+
+        startImage(out, width, height);
+        int previousModuleRow = Integer.MIN_VALUE;
+        for (int y = 0; y < height; y++) {
+            // -1 for the light area above and below the code
+            int moduleRow = y >= top && y < codeBottom ? (y - top) / moduleSize : -1;
+            if (moduleRow == previousModuleRow) {
+                writeRepeatedRow(out, rowBytes);
+            } else if (moduleRow < 0) {
+                writeRow(out, FILTER_NONE, lightScanline, rowBytes);
+            } else {
+                packModuleRow(modules, moduleRow, moduleSize, left, rowBytes);
+                writeRow(out, FILTER_NONE, scanline, rowBytes);
+            }
+            previousModuleRow = moduleRow;
+        }
+        finishImage(out);
+    }
+
+    private void startImage(OutputStream out, int width, int height) throws IOException {
+        out.write(SIGNATURE);
+        writeHeader(out, width, height);
+        if (palette != null) {
+            writeChunk(out, PLTE, palette, palette.length);
+            if (transparency != null) {
+                writeChunk(out, TRNS, transparency, transparency.length);
+            }
+        }
+        deflater.reset();
+        idatLength = 0;
+    }
+
+    private void finishImage(OutputStream out) throws IOException {
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflateToIdat(out);
+        }
+        if (idatLength > 0) {
+            writeChunk(out, IDAT, idatBuffer, idatLength);
+        }
+        writeChunk(out, IEND, idatBuffer, 0);
+    }
+
+    private void ensureCapacity(int rowBytes) {
+        if (scanline.length < rowBytes) {
+            scanline = new byte[rowBytes];
+            lightScanline = new byte[rowBytes];
+            zeroScanline = new byte[rowBytes];
+        }
+    }
+
+    /**
+     * Converts zxing's row bits (LSB first, set = dark) to PNG 1-bit samples (MSB first, 0 = dark).
+     */
+    private void packRow(int[] bits, int width, int rowBytes) {
+        for (int i = 0; i < rowBytes; i++) {
+            int word = bits[i >>> 2] >>> ((i & 3) << 3);
+            scanline[i] = (byte) ~(Integer.reverse(word) >>> 24);
+        }
+        setPadding(scanline, width, rowBytes);
+    }
+
+    /**
+     * Expands a row of modules to a scanline, dark module pixels are 0 bits.
+     */
+    private void packModuleRow(QrMatrix modules, int y, int moduleSize, int left, int rowBytes) {
+        System.arraycopy(lightScanline, 0, scanline, 0, rowBytes);
+        int x = modules.nextDark(0, y);
+        while (x < modules.getWidth()) {
+            int end = modules.nextLight(x, y);
+            clearBits(scanline, left + x * moduleSize, left + end * moduleSize);
+            x = modules.nextDark(end, y);
+        }
+    }
+
+    /**
+     * Clears the pixels {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    private static void clearBits(byte[] target, int from, int to) {
+        int firstByte = from >>> 3;
+        int lastByte = (to - 1) >>> 3;
+        int firstMask = 0xFF >>> (from & 7);
+        int lastMask = 0xFF << (7 - ((to - 1) & 7)) & 0xFF;
+        if (firstByte == lastByte) {
+            target[firstByte] &= (byte) ~(firstMask & lastMask);
+            return;
+        }
+        target[firstByte] &= (byte) ~firstMask;
+        for (int i = firstByte + 1; i < lastByte; i++) {
+            target[i] = 0;
+        }
+        target[lastByte] &= (byte) ~lastMask;
+    }
+
+    /**
+     * Sets the unused bits of the last byte, the same way as for light pixels.
+     */
+    private static void setPadding(byte[] target, int width, int rowBytes) {
+        int padding = rowBytes * 8 - width;
+        if (padding > 0) {
+            target[rowBytes - 1] |= (byte) ((1 << padding) - 1);
+        }
+    }
+
+    private void writeRepeatedRow(OutputStream out, int rowBytes) throws IOException {
+        // Scaled QR codes repeat each row many times, "Up" filtered repetitions are just zeros
+        writeRow(out, FILTER_UP, zeroScanline, rowBytes);
+    }
+
+    private void writeRow(OutputStream out, int filter, byte[] data, int length) throws IOException {
+        filterType[0] = (byte) filter;
+        deflater.setInput(filterType);
+        drainDeflater(out);
+        deflater.setInput(data, 0, length);
+        drainDeflater(out);
+    }
+
+    private void drainDeflater(OutputStream out) throws IOException {
+        while (!deflater.needsInput()) {
+            deflateToIdat(out);
+        }
+    }
+
+    /**
+     * Collects the compressed data and emits it in IDAT chunks of the full buffer size.
+     */
+    private void deflateToIdat(OutputStream out) throws IOException {
+        idatLength += deflater.deflate(idatBuffer, idatLength, idatBuffer.length - idatLength);
+        if (idatLength == idatBuffer.length) {
+            writeChunk(out, IDAT, idatBuffer, idatLength);
+            idatLength = 0;
+        }
+    }
+
+    private void writeHeader(OutputStream out, int width, int height) throws IOException {
+        putInt(imageHeader, 0, width);
+        putInt(imageHeader, 4, height);
+        imageHeader[8] = BIT_DEPTH;
+        imageHeader[9] = (byte) (palette == null ? COLOR_TYPE_GRAYSCALE : COLOR_TYPE_PALETTE);
+        // compression, filter and interlace methods are all 0
+        writeChunk(out, IHDR, imageHeader, imageHeader.length);
+    }
+
+    private void writeChunk(OutputStream out, byte[] type, byte[] data, int length) throws IOException {
+        putInt(chunkHeader, 0, length);
+        System.arraycopy(type, 0, chunkHeader, 4, 4);
+        out.write(chunkHeader);
+        out.write(data, 0, length);
+
+        crc32.reset();
+        crc32.update(type);
+        crc32.update(data, 0, length);
+        putInt(chunkHeader, 0, (int) crc32.getValue());
+        out.write(chunkHeader, 0, 4);
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,155 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a QR code module matrix as an SVG image.
+ * <p>
+ * One SVG unit corresponds to one module and horizontal runs of dark modules are merged into a single path segment,
+ * so the output size depends on the number of modules, not on the rendered size.
+ * Only plain {@code java.io} is used, the writer works without AWT.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+@Getter
+public class QrSvgWriter {
+
+    public static final String DEFAULT_DARK_COLOR = "#000000";
+    public static final String DEFAULT_LIGHT_COLOR = "#FFFFFF";
+
+    private final int margin;
+    private final String darkColor;
+    private final String lightColor;
+    private final String size;
+
+    /**
+     * @param margin quiet zone around the code in modules, 0 if {@code null}
+     * @param darkColor colour of dark modules, {@link #DEFAULT_DARK_COLOR} if {@code null}
+     * @param lightColor background colour, {@link #DEFAULT_LIGHT_COLOR} if {@code null}, {@code "none"} for a transparent background
+     * @param size value of the {@code width} and {@code height} attributes, e.g. {@code "256"} or {@code "3cm"};
+     *             if {@code null}, the image scales to its container
+     */
+    @Builder
+    public QrSvgWriter(Integer margin, String darkColor, String lightColor, String size) {
+        if (margin != null && margin < 0) {
+            throw new IllegalArgumentException("Margin cannot be negative: " + margin);
+        }
+        this.margin = margin == null ? 0 : margin;
+        this.darkColor = requireAttributeValue(darkColor == null ? DEFAULT_DARK_COLOR : darkColor);
+        this.lightColor = requireAttributeValue(lightColor == null ? DEFAULT_LIGHT_COLOR : lightColor);
+        this.size = requireAttributeValue(size);
+    }
+
+    public static QrSvgWriter defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Writes the SVG document as UTF-8. The stream is flushed, but not closed.
+     */
+    public void write(ByteMatrix modules, OutputStream out) throws IOException {
+        write(QrMatrix.from(modules), out);
+    }
+
+    /**
+     * Writes the SVG document. The writer is neither flushed nor closed.
+     */
+    public void write(ByteMatrix modules, Writer out) throws IOException {
+        write(QrMatrix.from(modules), size, out);
+    }
+
+    /**
+     * Writes the SVG document as UTF-8. The stream is flushed, but not closed.
+     */
+    public void write(QrMatrix modules, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        write(modules, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the SVG document. The writer is neither flushed nor closed.
+     */
+    public void write(QrMatrix modules, Writer out) throws IOException {
+        write(modules, size, out);
+    }
+
+    /**
+     * Writes the SVG document with the given {@code width} and {@code height} instead of the configured ones.
+     */
+    void write(QrMatrix modules, String size, Writer out) throws IOException {
+        requireAttributeValue(size);
+        int width = modules.getWidth() + 2 * margin;
+        int height = modules.getHeight() + 2 * margin;
+
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" viewBox=\"0 0 ");
+        out.write(Integer.toString(width));
+        out.write(' ');
+        out.write(Integer.toString(height));
+        out.write('"');
+        if (size != null) {
+            out.write(" width=\"");
+            out.write(size);
+            out.write("\" height=\"");
+            out.write(size);
+            out.write('"');
+        }
+        out.write(" shape-rendering=\"crispEdges\">");
+
+        if (!"none".equals(lightColor)) {
+            out.write("<rect width=\"100%\" height=\"100%\" fill=\"");
+            out.write(lightColor);
+            out.write("\"/>");
+        }
+
+        out.write("<path fill=\"");
+        out.write(darkColor);
+        out.write("\" d=\"");
+        writeModules(modules, out);
+        out.write("\"/></svg>");
+    }
+
+    private void writeModules(QrMatrix modules, Writer out) throws IOException {
+        int width = modules.getWidth();
+        for (int y = 0; y < modules.getHeight(); y++) {
+            int x = modules.nextDark(0, y);
+            while (x < width) {
+                int start = x;
+                x = modules.nextLight(x, y);
+                String length = Integer.toString(x - start);
+                // Rectangle of one module height: move, right, down, back left, close
+                out.write('M');
+                out.write(Integer.toString(start + margin));
+                out.write(' ');
+                out.write(Integer.toString(y + margin));
+                out.write('h');
+                out.write(length);
+                out.write("v1h-");
+                out.write(length);
+                out.write('z');
+                x = modules.nextDark(x, y);
+            }
+        }
+    }
+
+    private static String requireAttributeValue(String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '<' || c == '&') {
+                    throw new IllegalArgumentException("Invalid SVG attribute value: " + value);
+                }
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import lombok.Value;
+
+/**
+ * Size and error correction level of a QR code, known before the matrix is built,
+ * see {@link QrEncoder#predict(String, ErrorCorrectionLevel)}.
+ */
+@Value
+public class QrSymbol {
+
+    /**
+     * 1 to 40.
+     */
+    int version;
+    ErrorCorrectionLevel errorCorrectionLevel;
+
+    /**
+     * Width and height in modules, without the quiet zone.
+     */
+    public int getModules() {
+        return QrTables.dimension(version);
+    }
+}
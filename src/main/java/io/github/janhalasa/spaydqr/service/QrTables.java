@@ -0,0 +1,260 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+/**
+ * Constant tables of the QR code specification (ISO/IEC 18004) used by {@link SpaydQrEncoder}.
+ * <p>
+ * Everything which does not depend on the content is computed once: the error correction block structure,
+ * alignment pattern positions, format and version information words and the Reed-Solomon generator polynomials.
+ */
+final class QrTables {
+
+    static final int MIN_VERSION = 1;
+    static final int MAX_VERSION = 40;
+
+    /**
+     * For every version and error correction level in the order L, M, Q, H: EC codewords per block,
+     * number of blocks in group 1, data codewords per group 1 block, the same for group 2.
+     */
+    private static final int[][] EC_BLOCKS = {
+            {7, 1, 19, 0, 0,  10, 1, 16, 0, 0,  13, 1, 13, 0, 0,  17, 1, 9, 0, 0},
+            {10, 1, 34, 0, 0,  16, 1, 28, 0, 0,  22, 1, 22, 0, 0,  28, 1, 16, 0, 0},
+            {15, 1, 55, 0, 0,  26, 1, 44, 0, 0,  18, 2, 17, 0, 0,  22, 2, 13, 0, 0},
+            {20, 1, 80, 0, 0,  18, 2, 32, 0, 0,  26, 2, 24, 0, 0,  16, 4, 9, 0, 0},
+            {26, 1, 108, 0, 0,  24, 2, 43, 0, 0,  18, 2, 15, 2, 16,  22, 2, 11, 2, 12},
+            {18, 2, 68, 0, 0,  16, 4, 27, 0, 0,  24, 4, 19, 0, 0,  28, 4, 15, 0, 0},
+            {20, 2, 78, 0, 0,  18, 4, 31, 0, 0,  18, 2, 14, 4, 15,  26, 4, 13, 1, 14},
+            {24, 2, 97, 0, 0,  22, 2, 38, 2, 39,  22, 4, 18, 2, 19,  26, 4, 14, 2, 15},
+            {30, 2, 116, 0, 0,  22, 3, 36, 2, 37,  20, 4, 16, 4, 17,  24, 4, 12, 4, 13},
+            {18, 2, 68, 2, 69,  26, 4, 43, 1, 44,  24, 6, 19, 2, 20,  28, 6, 15, 2, 16},
+            {20, 4, 81, 0, 0,  30, 1, 50, 4, 51,  28, 4, 22, 4, 23,  24, 3, 12, 8, 13},
+            {24, 2, 92, 2, 93,  22, 6, 36, 2, 37,  26, 4, 20, 6, 21,  28, 7, 14, 4, 15},
+            {26, 4, 107, 0, 0,  22, 8, 37, 1, 38,  24, 8, 20, 4, 21,  22, 12, 11, 4, 12},
+            {30, 3, 115, 1, 116,  24, 4, 40, 5, 41,  20, 11, 16, 5, 17,  24, 11, 12, 5, 13},
+            {22, 5, 87, 1, 88,  24, 5, 41, 5, 42,  30, 5, 24, 7, 25,  24, 11, 12, 7, 13},
+            {24, 5, 98, 1, 99,  28, 7, 45, 3, 46,  24, 15, 19, 2, 20,  30, 3, 15, 13, 16},
+            {28, 1, 107, 5, 108,  28, 10, 46, 1, 47,  28, 1, 22, 15, 23,  28, 2, 14, 17, 15},
+            {30, 5, 120, 1, 121,  26, 9, 43, 4, 44,  28, 17, 22, 1, 23,  28, 2, 14, 19, 15},
+            {28, 3, 113, 4, 114,  26, 3, 44, 11, 45,  26, 17, 21, 4, 22,  26, 9, 13, 16, 14},
+            {28, 3, 107, 5, 108,  26, 3, 41, 13, 42,  30, 15, 24, 5, 25,  28, 15, 15, 10, 16},
+            {28, 4, 116, 4, 117,  26, 17, 42, 0, 0,  28, 17, 22, 6, 23,  30, 19, 16, 6, 17},
+            {28, 2, 111, 7, 112,  28, 17, 46, 0, 0,  30, 7, 24, 16, 25,  24, 34, 13, 0, 0},
+            {30, 4, 121, 5, 122,  28, 4, 47, 14, 48,  30, 11, 24, 14, 25,  30, 16, 15, 14, 16},
+            {30, 6, 117, 4, 118,  28, 6, 45, 14, 46,  30, 11, 24, 16, 25,  30, 30, 16, 2, 17},
+            {26, 8, 106, 4, 107,  28, 8, 47, 13, 48,  30, 7, 24, 22, 25,  30, 22, 15, 13, 16},
+            {28, 10, 114, 2, 115,  28, 19, 46, 4, 47,  28, 28, 22, 6, 23,  30, 33, 16, 4, 17},
+            {30, 8, 122, 4, 123,  28, 22, 45, 3, 46,  30, 8, 23, 26, 24,  30, 12, 15, 28, 16},
+            {30, 3, 117, 10, 118,  28, 3, 45, 23, 46,  30, 4, 24, 31, 25,  30, 11, 15, 31, 16},
+            {30, 7, 116, 7, 117,  28, 21, 45, 7, 46,  30, 1, 23, 37, 24,  30, 19, 15, 26, 16},
+            {30, 5, 115, 10, 116,  28, 19, 47, 10, 48,  30, 15, 24, 25, 25,  30, 23, 15, 25, 16},
+            {30, 13, 115, 3, 116,  28, 2, 46, 29, 47,  30, 42, 24, 1, 25,  30, 23, 15, 28, 16},
+            {30, 17, 115, 0, 0,  28, 10, 46, 23, 47,  30, 10, 24, 35, 25,  30, 19, 15, 35, 16},
+            {30, 17, 115, 1, 116,  28, 14, 46, 21, 47,  30, 29, 24, 19, 25,  30, 11, 15, 46, 16},
+            {30, 13, 115, 6, 116,  28, 14, 46, 23, 47,  30, 44, 24, 7, 25,  30, 59, 16, 1, 17},
+            {30, 12, 121, 7, 122,  28, 12, 47, 26, 48,  30, 39, 24, 14, 25,  30, 22, 15, 41, 16},
+            {30, 6, 121, 14, 122,  28, 6, 47, 34, 48,  30, 46, 24, 10, 25,  30, 2, 15, 64, 16},
+            {30, 17, 122, 4, 123,  28, 29, 46, 14, 47,  30, 49, 24, 10, 25,  30, 24, 15, 46, 16},
+            {30, 4, 122, 18, 123,  28, 13, 46, 32, 47,  30, 48, 24, 14, 25,  30, 42, 15, 32, 16},
+            {30, 20, 117, 4, 118,  28, 40, 47, 7, 48,  30, 43, 24, 22, 25,  30, 10, 15, 67, 16},
+            {30, 19, 118, 6, 119,  28, 18, 47, 31, 48,  30, 34, 24, 34, 25,  30, 20, 15, 61, 16}
+    };
+
+    /**
+     * Row / column coordinates of the alignment pattern centers.
+     */
+    private static final int[][] ALIGNMENT_CENTERS = {
+            {},
+            {6, 18},
+            {6, 22},
+            {6, 26},
+            {6, 30},
+            {6, 34},
+            {6, 22, 38},
+            {6, 24, 42},
+            {6, 26, 46},
+            {6, 28, 50},
+            {6, 30, 54},
+            {6, 32, 58},
+            {6, 34, 62},
+            {6, 26, 46, 66},
+            {6, 26, 48, 70},
+            {6, 26, 50, 74},
+            {6, 30, 54, 78},
+            {6, 30, 56, 82},
+            {6, 30, 58, 86},
+            {6, 34, 62, 90},
+            {6, 28, 50, 72, 94},
+            {6, 26, 50, 74, 98},
+            {6, 30, 54, 78, 102},
+            {6, 28, 54, 80, 106},
+            {6, 32, 58, 84, 110},
+            {6, 30, 58, 86, 114},
+            {6, 34, 62, 90, 118},
+            {6, 26, 50, 74, 98, 122},
+            {6, 30, 54, 78, 102, 126},
+            {6, 26, 52, 78, 104, 130},
+            {6, 30, 56, 82, 108, 134},
+            {6, 34, 60, 86, 112, 138},
+            {6, 30, 58, 86, 114, 142},
+            {6, 34, 62, 90, 118, 146},
+            {6, 30, 54, 78, 102, 126, 150},
+            {6, 24, 50, 76, 102, 128, 154},
+            {6, 28, 54, 80, 106, 132, 158},
+            {6, 32, 58, 84, 110, 136, 162},
+            {6, 26, 54, 82, 110, 138, 166},
+            {6, 30, 58, 86, 114, 142, 170}
+    };
+
+    /**
+     * Polynomial 0x11D, the field of the QR code Reed-Solomon codes.
+     */
+    private static final int FIELD_POLYNOMIAL = 0x11D;
+    private static final int FORMAT_INFO_POLYNOMIAL = 0x537;
+    private static final int FORMAT_INFO_MASK = 0x5412;
+    private static final int VERSION_INFO_POLYNOMIAL = 0x1F25;
+
+    /**
+     * Antilogarithms doubled in length, so that the sum of two logarithms can index it without a modulo.
+     */
+    static final int[] EXP = new int[512];
+    static final int[] LOG = new int[256];
+
+    /**
+     * Reed-Solomon generator polynomial coefficients by degree, highest degree first, without the leading 1.
+     */
+    private static final int[][] GENERATORS = new int[31][];
+
+    /**
+     * 15 bit format information by error correction level ordinal and mask.
+     */
+    private static final int[][] FORMAT_INFO = new int[4][8];
+
+    /**
+     * 18 bit version information by version, only present from version 7.
+     */
+    private static final int[] VERSION_INFO = new int[MAX_VERSION + 1];
+
+    static {
+        int value = 1;
+        for (int i = 0; i < 255; i++) {
+            EXP[i] = value;
+            LOG[value] = i;
+            value <<= 1;
+            if (value >= 256) {
+                value ^= FIELD_POLYNOMIAL;
+            }
+        }
+        for (int i = 255; i < EXP.length; i++) {
+            EXP[i] = EXP[i - 255];
+        }
+
+        for (int[] blocks : EC_BLOCKS) {
+            for (int level = 0; level < 4; level++) {
+                int degree = blocks[level * 5];
+                if (GENERATORS[degree] == null) {
+                    GENERATORS[degree] = buildGenerator(degree);
+                }
+            }
+        }
+
+        for (ErrorCorrectionLevel level : ErrorCorrectionLevel.values()) {
+            for (int mask = 0; mask < 8; mask++) {
+                int typeInfo = level.getBits() << 3 | mask;
+                FORMAT_INFO[level.ordinal()][mask] =
+                        (typeInfo << 10 | bchCode(typeInfo, FORMAT_INFO_POLYNOMIAL)) ^ FORMAT_INFO_MASK;
+            }
+        }
+        for (int version = 7; version <= MAX_VERSION; version++) {
+            VERSION_INFO[version] = version << 12 | bchCode(version, VERSION_INFO_POLYNOMIAL);
+        }
+    }
+
+    private QrTables() {
+    }
+
+    static int dimension(int version) {
+        return 17 + 4 * version;
+    }
+
+    static int ecCodewordsPerBlock(int version, ErrorCorrectionLevel level) {
+        return EC_BLOCKS[version - 1][level.ordinal() * 5];
+    }
+
+    static int blocks(int version, ErrorCorrectionLevel level) {
+        int[] row = EC_BLOCKS[version - 1];
+        int offset = level.ordinal() * 5;
+        return row[offset + 1] + row[offset + 3];
+    }
+
+    /**
+     * Number of blocks with the shorter data length, they precede the longer ones.
+     */
+    static int shortBlocks(int version, ErrorCorrectionLevel level) {
+        return EC_BLOCKS[version - 1][level.ordinal() * 5 + 1];
+    }
+
+    static int shortBlockDataCodewords(int version, ErrorCorrectionLevel level) {
+        return EC_BLOCKS[version - 1][level.ordinal() * 5 + 2];
+    }
+
+    static int dataCodewords(int version, ErrorCorrectionLevel level) {
+        int[] row = EC_BLOCKS[version - 1];
+        int offset = level.ordinal() * 5;
+        return row[offset + 1] * row[offset + 2] + row[offset + 3] * row[offset + 4];
+    }
+
+    static int totalCodewords(int version, ErrorCorrectionLevel level) {
+        return dataCodewords(version, level) + blocks(version, level) * ecCodewordsPerBlock(version, level);
+    }
+
+    static int[] alignmentCenters(int version) {
+        return ALIGNMENT_CENTERS[version - 1];
+    }
+
+    static int[] generator(int degree) {
+        return GENERATORS[degree];
+    }
+
+    static int formatInfo(ErrorCorrectionLevel level, int mask) {
+        return FORMAT_INFO[level.ordinal()][mask];
+    }
+
+    static int versionInfo(int version) {
+        return VERSION_INFO[version];
+    }
+
+    static int multiply(int a, int b) {
+        return a == 0 || b == 0 ? 0 : EXP[LOG[a] + LOG[b]];
+    }
+
+    /**
+     * (x - a^0)(x - a^1)...(x - a^(degree-1))
+     */
+    private static int[] buildGenerator(int degree) {
+        int[] coefficients = {1};
+        for (int i = 0; i < degree; i++) {
+            int[] next = new int[coefficients.length + 1];
+            for (int j = 0; j < coefficients.length; j++) {
+                next[j] ^= coefficients[j];
+                next[j + 1] ^= multiply(coefficients[j], EXP[i]);
+            }
+            coefficients = next;
+        }
+        int[] generator = new int[degree];
+        System.arraycopy(coefficients, 1, generator, 0, degree);
+        return generator;
+    }
+
+    /**
+     * Remainder of the value shifted by the degree of the polynomial, divided by the polynomial.
+     */
+    private static int bchCode(int value, int polynomial) {
+        int polynomialBits = 32 - Integer.numberOfLeadingZeros(polynomial);
+        int remainder = value << (polynomialBits - 1);
+        while (32 - Integer.numberOfLeadingZeros(remainder) >= polynomialBits) {
+            remainder ^= polynomial << (32 - Integer.numberOfLeadingZeros(remainder) - polynomialBits);
+        }
+        return remainder;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.janhalasa.spaydqr.service;
+
+/**
+ * Notified by {@link VerifyingQrCodeRenderer} about images which do not scan back to their SPD string.
+ * Called on the verification threads.
+ */
+@FunctionalInterface
+public interface QrVerificationListener {
+
+    /**
+     * @param spaydString the string the image was rendered from
+     * @param decoded the decoded text, null if the image could not be decoded
+     */
+    void onMismatch(String spaydString, String decoded);
+}
@@ -0,0 +1,44 @@
+package io.github.janhalasa.spaydqr.service;
+
+import lombok.Value;
+
+/**
+ * Snapshot of the {@link VerifyingQrCodeRenderer} counters.
+ */
+@Value
+public class QrVerificationStats {
+
+    /**
+     * Images verified, including the mismatched and unreadable ones.
+     */
+    long verified;
+    /**
+     * Images decoded to a different text.
+     */
+    long mismatches;
+    /**
+     * Images in which no QR code could be found or decoded.
+     */
+    long unreadable;
+    /**
+     * Sampled images not verified because too many were waiting for verification.
+     */
+    long dropped;
+    /**
+     * Sampled images in a format which cannot be decoded (SVG).
+     */
+    long skipped;
+    long totalDecodeNanos;
+    long maxDecodeNanos;
+
+    /**
+     * Mismatched or unreadable images of the verified ones.
+     */
+    public double getFailureRate() {
+        return verified == 0 ? 0 : (double) (mismatches + unreadable) / verified;
+    }
+
+    public long getAverageDecodeNanos() {
+        return verified == 0 ? 0 : totalDecodeNanos / verified;
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.zip.Deflater;
+
+/**
+ * Parameters determining the image produced by a {@link QrCodeRenderer} from an SPD string and size.
+ * Renderers with equal options produce identical images.
+ */
+@Value
+@Builder
+public class RenderingOptions {
+
+    public static final RenderingOptions DEFAULT_PNG = RenderingOptions.builder().build();
+    public static final RenderingOptions DEFAULT_SVG = RenderingOptions.builder().format(ImageFormat.SVG).build();
+
+    @Builder.Default
+    ImageFormat format = ImageFormat.PNG;
+
+    @Builder.Default
+    ErrorCorrectionLevel errorCorrectionLevel = ErrorCorrectionLevel.M;
+
+    /**
+     * Quiet zone around the code in modules.
+     */
+    @Builder.Default
+    int margin = 0;
+
+    /**
+     * Size of a module in pixels. If {@code null}, the code is scaled to fit the requested image size.
+     */
+    Integer moduleSize;
+
+    /**
+     * ARGB colour of the dark modules.
+     */
+    @Builder.Default
+    int darkColor = QrPngWriter.BLACK;
+
+    /**
+     * ARGB colour of the light modules and the quiet zone.
+     */
+    @Builder.Default
+    int lightColor = QrPngWriter.WHITE;
+
+    /**
+     * PNG deflate level.
+     */
+    @Builder.Default
+    int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Encoder of the module matrix, {@link ZxingQrEncoder} produces the same matrices.
+     */
+    @Builder.Default
+    QrEncoder encoder = SpaydQrEncoder.INSTANCE;
+}
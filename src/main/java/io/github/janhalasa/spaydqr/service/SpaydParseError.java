@@ -0,0 +1,29 @@
+package io.github.janhalasa.spaydqr.service;
+
+/**
+ * Reasons why a string cannot be parsed as a SPAYD payment, see {@link SpaydParser}.
+ */
+public enum SpaydParseError {
+
+    NOT_SPAYD("Payment must start with the SPD*1.0 header"),
+    UNSUPPORTED_VERSION("Only SPAYD version 1 is supported"),
+    MALFORMED_FIELD("Field must be in the format KEY:value"),
+    INVALID_ESCAPE("Percent sign must be followed by two hexadecimal digits"),
+    DUPLICATE_FIELD("Field can be present only once"),
+    MISSING_ACCOUNT("Bank account (ACC) is required"),
+    INVALID_ACCOUNT("Bank account must be IBAN optionally followed by +BIC"),
+    INVALID_AMOUNT("Amount must be a number with up to 9 decimal places"),
+    INVALID_DATE("Due date must be a valid date in the format YYYYMMDD"),
+    INVALID_CHECKSUM("CRC32 must be up to 8 hexadecimal digits"),
+    CHECKSUM_MISMATCH("CRC32 does not match the content");
+
+    private final String message;
+
+    SpaydParseError(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,527 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static io.github.janhalasa.spaydqr.service.SpaydParseError.*;
+
+/**
+ * Reads SPD strings written by {@link SpaydSerializer} or by other SPAYD generators.
+ * <p>
+ * {@link #parse(CharSequence)} scans the text once, remembers where the value of every known field is,
+ * checks the syntax of the accounts, the amount and the due date and verifies the CRC32 field, if present.
+ * Nothing is copied or allocated at that point: malformed input is reported as a {@link SpaydParseError}
+ * and its position, not as an exception. The values are decoded only when read with {@link #getField(String)}
+ * or {@link #toPayment()}. Unknown fields (such as the {@code X-} extensions not used by {@link Payment})
+ * are skipped.
+ * <p>
+ * Amounts are accepted in any form {@link AmountFormatter} writes, with up to 9 decimal places and no length
+ * limit, so that everything the serializer writes can be read back. The limits of the specification are checked
+ * by {@link SpaydValidator}.
+ * <p>
+ * The checksum is computed the same way as by {@link SpaydSerializer}, over the fields between the header
+ * and the CRC32 field as they appear in the text. The serializer writes them in the canonical order,
+ * strings of other generators are expected to do the same.
+ * <p>
+ * An instance keeps the parsed positions and a reference to the text, so it must not be shared by multiple
+ * threads at the same time.
+ */
+public final class SpaydParser {
+
+    private static final String HEADER_PREFIX = "SPD*";
+    private static final char SUPPORTED_MAJOR_VERSION = '1';
+
+    private static final String[] KEYS = {
+            SpaydSerializer.KEY_ACC,
+            SpaydSerializer.KEY_ALT_ACC,
+            SpaydSerializer.KEY_AM,
+            SpaydSerializer.KEY_CC,
+            SpaydSerializer.KEY_DT,
+            SpaydSerializer.KEY_MSG,
+            SpaydSerializer.KEY_NT,
+            SpaydSerializer.KEY_NTA,
+            SpaydSerializer.KEY_PT,
+            SpaydSerializer.KEY_RF,
+            SpaydSerializer.KEY_RN,
+            SpaydSerializer.KEY_X_KS,
+            SpaydSerializer.KEY_X_SS,
+            SpaydSerializer.KEY_X_VS,
+            SpaydSerializer.KEY_CRC32,
+    };
+
+    /*
+     * Indexes to KEYS.
+     */
+    private static final int ACC = 0;
+    private static final int ALT_ACC = 1;
+    private static final int AM = 2;
+    private static final int CC = 3;
+    private static final int DT = 4;
+    private static final int MSG = 5;
+    private static final int NT = 6;
+    private static final int NTA = 7;
+    private static final int PT = 8;
+    private static final int RF = 9;
+    private static final int RN = 10;
+    private static final int X_KS = 11;
+    private static final int X_SS = 12;
+    private static final int X_VS = 13;
+    private static final int CRC = 14;
+
+    private static final int MAX_IBAN_LENGTH = 34;
+    private static final int MAX_BIC_LENGTH = 11;
+    private static final int DATE_LENGTH = 8;
+    private static final int MAX_CHECKSUM_DIGITS = 8;
+    private static final String INSTANT_PAYMENT = "IP";
+
+    /**
+     * Start of the key and end of the value of every known field, the start is -1 for a missing one.
+     */
+    private final int[] keyStarts = new int[KEYS.length];
+    private final int[] valueEnds = new int[KEYS.length];
+    private final ByteBufferView bufferView = new ByteBufferView();
+    private byte[] escaped = new byte[16];
+
+    private CharSequence text;
+    private int errorPosition = -1;
+
+    /**
+     * Parses an SPD string. The text must not change until the fields are read.
+     *
+     * @return null if the string is a valid SPAYD payment, otherwise the first problem found,
+     *         see {@link #getErrorPosition()}
+     */
+    public SpaydParseError parse(CharSequence text) {
+        this.text = text;
+        errorPosition = -1;
+        Arrays.fill(keyStarts, -1);
+
+        int length = text.length();
+        int position = parseHeader(text, length);
+        if (position < 0) {
+            return errorPosition == 0 ? NOT_SPAYD : UNSUPPORTED_VERSION;
+        }
+        int fieldsStart = position;
+        while (position < length) {
+            int keyStart = position;
+            int keyEnd = keyStart;
+            char c = 0;
+            while (keyEnd < length && (c = text.charAt(keyEnd)) != ':' && c != '*') {
+                keyEnd++;
+            }
+            if (keyEnd == length || c == '*' || keyEnd == keyStart) {
+                // A trailing asterisk is tolerated
+                if (keyEnd == keyStart && keyEnd == length) {
+                    break;
+                }
+                return error(MALFORMED_FIELD, keyStart);
+            }
+            int valueEnd = keyEnd + 1;
+            while (valueEnd < length && (c = text.charAt(valueEnd)) != '*') {
+                if (c == '%') {
+                    if (valueEnd + 2 >= length
+                            || hexValue(text.charAt(valueEnd + 1)) < 0 || hexValue(text.charAt(valueEnd + 2)) < 0) {
+                        return error(INVALID_ESCAPE, valueEnd);
+                    }
+                    valueEnd += 2;
+                }
+                valueEnd++;
+            }
+            int field = keyIndex(text, keyStart, keyEnd);
+            if (field >= 0) {
+                if (keyStarts[field] >= 0) {
+                    return error(DUPLICATE_FIELD, keyStart);
+                }
+                keyStarts[field] = keyStart;
+                valueEnds[field] = valueEnd;
+            }
+            position = valueEnd + 1;
+        }
+        if (keyStarts[ACC] < 0) {
+            return error(MISSING_ACCOUNT, length);
+        }
+        return validate(fieldsStart, length);
+    }
+
+    /**
+     * Parses an SPD string from the ISO-8859-1 (or ASCII) encoded bytes between the position and the limit,
+     * such as the content of a scanned QR code. The position of the buffer is not changed and error positions
+     * are relative to it. The buffer must not change until the fields are read.
+     */
+    public SpaydParseError parse(ByteBuffer bytes) {
+        bufferView.wrap(bytes, bytes.position(), bytes.remaining());
+        return parse(bufferView);
+    }
+
+    /**
+     * @return the index of the character where the last parsed text is malformed, -1 if it is valid
+     */
+    public int getErrorPosition() {
+        return errorPosition;
+    }
+
+    /**
+     * @return true if the last parsed text contains a CRC32 field, which then matched the content
+     */
+    public boolean hasChecksum() {
+        return keyStarts[CRC] >= 0;
+    }
+
+    /**
+     * Decoded value of a field of the last successfully parsed text.
+     *
+     * @param key one of the keys written by {@link SpaydSerializer}, such as {@code AM} or {@code X-VS}
+     * @return the value or null if the field is missing
+     * @throws IllegalArgumentException for an unknown key
+     * @throws IllegalStateException if the last parsed text was not valid
+     */
+    public String getField(String key) {
+        checkParsed();
+        int field = keyIndex(key, 0, key.length());
+        if (field < 0) {
+            throw new IllegalArgumentException("Unknown SPAYD field: " + key);
+        }
+        return value(field);
+    }
+
+    /**
+     * Creates a payment from the last successfully parsed text.
+     *
+     * @throws IllegalStateException if the last parsed text was not valid
+     */
+    public Payment toPayment() {
+        checkParsed();
+        String amount = value(AM);
+        String instantPayment = value(PT);
+        return Payment.builder()
+                .bankAccount(toBankAccount(value(ACC)))
+                .alternativeBankAccounts(toBankAccounts(value(ALT_ACC)))
+                .amount(amount == null ? null : new BigDecimal(amount))
+                .currencyCode(value(CC))
+                .paymentDueDate(keyStarts[DT] < 0 ? null : toDate(valueStart(DT)))
+                .paymentNote(value(MSG))
+                .notificationType(value(NT))
+                .notificationAddress(value(NTA))
+                .instantPayment(INSTANT_PAYMENT.equals(instantPayment) ? Boolean.TRUE : null)
+                .originatorsReference(value(RF))
+                .beneficiaryName(value(RN))
+                .constantSymbol(value(X_KS))
+                .specificSymbol(value(X_SS))
+                .variableSymbol(value(X_VS))
+                .build();
+    }
+
+    private void checkParsed() {
+        if (text == null || errorPosition >= 0) {
+            throw new IllegalStateException("No valid SPAYD payment has been parsed");
+        }
+    }
+
+    /**
+     * @return the index of the first field or -1 with the error position set
+     */
+    private int parseHeader(CharSequence text, int length) {
+        int prefixLength = HEADER_PREFIX.length();
+        if (length < prefixLength || !regionEquals(text, 0, prefixLength, HEADER_PREFIX)) {
+            errorPosition = 0;
+            return -1;
+        }
+        // Version: digits, dot, digits
+        int position = prefixLength;
+        int majorEnd = skipDigits(text, position, length);
+        int minorEnd = majorEnd < length && text.charAt(majorEnd) == '.' ? skipDigits(text, majorEnd + 1, length) : -1;
+        if (majorEnd == position || minorEnd <= majorEnd + 1 || (minorEnd < length && text.charAt(minorEnd) != '*')) {
+            errorPosition = 0;
+            return -1;
+        }
+        if (majorEnd != position + 1 || text.charAt(position) != SUPPORTED_MAJOR_VERSION) {
+            errorPosition = position;
+            return -1;
+        }
+        return minorEnd + 1;
+    }
+
+    private SpaydParseError validate(int fieldsStart, int length) {
+        int invalid = invalidAccounts(valueStart(ACC), valueEnds[ACC], false);
+        if (invalid >= 0) {
+            return error(INVALID_ACCOUNT, invalid);
+        }
+        if (keyStarts[ALT_ACC] >= 0 && (invalid = invalidAccounts(valueStart(ALT_ACC), valueEnds[ALT_ACC], true)) >= 0) {
+            return error(INVALID_ACCOUNT, invalid);
+        }
+        if (keyStarts[AM] >= 0 && !isAmount(valueStart(AM), valueEnds[AM])) {
+            return error(INVALID_AMOUNT, valueStart(AM));
+        }
+        if (keyStarts[DT] >= 0 && !isDate(valueStart(DT), valueEnds[DT])) {
+            return error(INVALID_DATE, valueStart(DT));
+        }
+        if (keyStarts[CRC] >= 0) {
+            return verifyChecksum(fieldsStart, length);
+        }
+        return null;
+    }
+
+    private SpaydParseError verifyChecksum(int fieldsStart, int length) {
+        int start = valueStart(CRC);
+        int end = valueEnds[CRC];
+        if (end == start || end - start > MAX_CHECKSUM_DIGITS) {
+            return error(INVALID_CHECKSUM, start);
+        }
+        long expected = 0;
+        for (int i = start; i < end; i++) {
+            int digit = hexValue(text.charAt(i));
+            if (digit < 0) {
+                return error(INVALID_CHECKSUM, i);
+            }
+            expected = expected << 4 | digit;
+        }
+
+        // The content without the CRC32 field and its separator
+        CRC32 crc32 = SpaydSerializer.resetChecksum();
+        int keyStart = keyStarts[CRC];
+        if (keyStart == fieldsStart) {
+            SpaydSerializer.updateChecksum(crc32, text, Math.min(end + 1, length), length);
+        } else {
+            SpaydSerializer.updateChecksum(crc32, text, fieldsStart, keyStart - 1);
+            SpaydSerializer.updateChecksum(crc32, text, end, length);
+        }
+        return crc32.getValue() == expected ? null : error(CHECKSUM_MISMATCH, start);
+    }
+
+    /**
+     * Accounts in the format {@code IBAN[+BIC]}, separated by commas if a list is allowed.
+     *
+     * @return the position of the first invalid character or -1
+     */
+    private int invalidAccounts(int start, int end, boolean list) {
+        int position = start;
+        do {
+            int ibanEnd = skipAlphanumeric(text, position, end);
+            if (ibanEnd == position || ibanEnd - position > MAX_IBAN_LENGTH) {
+                return position;
+            }
+            position = ibanEnd;
+            if (position < end && text.charAt(position) == '+') {
+                int bicEnd = skipAlphanumeric(text, position + 1, end);
+                if (bicEnd == position + 1 || bicEnd - position - 1 > MAX_BIC_LENGTH) {
+                    return position + 1;
+                }
+                position = bicEnd;
+            }
+            if (position == end) {
+                return -1;
+            }
+            if (!list || text.charAt(position) != ',') {
+                return position;
+            }
+            position++;
+        } while (true);
+    }
+
+    private boolean isAmount(int start, int end) {
+        if (start < end && text.charAt(start) == '-') {
+            start++;
+        }
+        int integerEnd = skipDigits(text, start, end);
+        if (integerEnd == start) {
+            return false;
+        }
+        if (integerEnd == end) {
+            return true;
+        }
+        int decimals = end - integerEnd - 1;
+        return text.charAt(integerEnd) == '.' && decimals > 0 && decimals <= AmountFormatter.MAX_FRACTION_DIGITS
+                && skipDigits(text, integerEnd + 1, end) == end;
+    }
+
+    private boolean isDate(int start, int end) {
+        if (end - start != DATE_LENGTH || skipDigits(text, start, end) != end) {
+            return false;
+        }
+        int year = number(start, start + 4);
+        int month = number(start + 4, start + 6);
+        int day = number(start + 6, end);
+        return month >= 1 && month <= 12 && day >= 1 && day <= LocalDate.of(year, month, 1).lengthOfMonth();
+    }
+
+    private LocalDate toDate(int start) {
+        return LocalDate.of(number(start, start + 4), number(start + 4, start + 6), number(start + 6, start + 8));
+    }
+
+    private int number(int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            result = result * 10 + text.charAt(i) - '0';
+        }
+        return result;
+    }
+
+    private static BankAccount toBankAccount(String value) {
+        int bicSeparator = value.indexOf('+');
+        return bicSeparator < 0
+                ? new BankAccount(value)
+                : new BankAccount(value.substring(0, bicSeparator), value.substring(bicSeparator + 1));
+    }
+
+    private static List<BankAccount> toBankAccounts(String value) {
+        if (value == null) {
+            return null;
+        }
+        List<BankAccount> result = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = value.indexOf(',', start)) >= 0) {
+            result.add(toBankAccount(value.substring(start, end)));
+            start = end + 1;
+        }
+        result.add(toBankAccount(value.substring(start)));
+        return result;
+    }
+
+    private int valueStart(int field) {
+        return keyStarts[field] + KEYS[field].length() + 1;
+    }
+
+    /**
+     * The value with {@code %XX} escapes decoded, the escaped bytes are decoded as UTF-8.
+     */
+    private String value(int field) {
+        if (keyStarts[field] < 0) {
+            return null;
+        }
+        int start = valueStart(field);
+        int end = valueEnds[field];
+        int escape = start;
+        while (escape < end && text.charAt(escape) != '%') {
+            escape++;
+        }
+        if (escape == end) {
+            return text.subSequence(start, end).toString();
+        }
+        StringBuilder result = new StringBuilder(end - start);
+        result.append(text, start, escape);
+        int i = escape;
+        while (i < end) {
+            if (text.charAt(i) != '%') {
+                result.append(text.charAt(i++));
+                continue;
+            }
+            int count = 0;
+            while (i < end && text.charAt(i) == '%') {
+                if (count == escaped.length) {
+                    escaped = Arrays.copyOf(escaped, count * 2);
+                }
+                escaped[count++] = (byte) (hexValue(text.charAt(i + 1)) << 4 | hexValue(text.charAt(i + 2)));
+                i += 3;
+            }
+            result.append(new String(escaped, 0, count, StandardCharsets.UTF_8));
+        }
+        return result.toString();
+    }
+
+    private SpaydParseError error(SpaydParseError error, int position) {
+        errorPosition = position;
+        return error;
+    }
+
+    private static int keyIndex(CharSequence text, int start, int end) {
+        for (int i = 0; i < KEYS.length; i++) {
+            if (regionEquals(text, start, end, KEYS[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(CharSequence text, int start, int end, String value) {
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != value.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipDigits(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) >= '0' && text.charAt(start) <= '9') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipAlphanumeric(CharSequence text, int start, int end) {
+        while (start < end) {
+            char c = text.charAt(start);
+            if ((c < '0' || c > '9') && (c < 'A' || c > 'Z')) {
+                break;
+            }
+            start++;
+        }
+        return start;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * ISO-8859-1 characters of a part of a byte buffer.
+     */
+    private static final class ByteBufferView implements CharSequence {
+
+        private ByteBuffer buffer;
+        private int offset;
+        private int length;
+
+        void wrap(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(offset + start + i);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+}
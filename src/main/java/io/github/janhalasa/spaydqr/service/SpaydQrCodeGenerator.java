@@ -1,44 +1,127 @@
 package io.github.janhalasa.spaydqr.service;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.EncodeHintType;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
-import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import io.github.janhalasa.spaydqr.model.Payment;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.EnumMap;
-import java.util.Map;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
+/**
+ * Static shortcuts for {@link QrCodeGenerator#DEFAULT}: PNG, error correction level M, no margin.
+ */
 public class SpaydQrCodeGenerator {
 
+    private static final int CHANNEL_BUFFER_SIZE = 8 * 1024;
+
     public static byte[] generateQrCode(Payment payment, int size)
             throws IOException, WriterException {
-        String code = SpaydSerializer.serialize(payment);
-        return generateQrCodeFromString(code, size);
+        return QrCodeGenerator.DEFAULT.generate(payment, size);
     }
 
     public static byte[] generateQrCode(Payment payment, int size, boolean includeChecksum, boolean normalizeStrings)
             throws IOException, WriterException {
-        String code = SpaydSerializer.serialize(payment, includeChecksum, normalizeStrings);
-        return generateQrCodeFromString(code, size);
+        return QrCodeGenerator.DEFAULT.generate(payment, size, includeChecksum, normalizeStrings);
     }
 
-    public static byte[] generateQrCodeFromString(String spaydString, int size) throws IOException, WriterException {
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
-        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
-        hints.put(EncodeHintType.CHARACTER_SET, "ISO-8859-1");
-        hints.put(EncodeHintType.MARGIN, 0);
-
-        BitMatrix bitMatrix = qrCodeWriter.encode(spaydString, BarcodeFormat.QR_CODE, size, size, hints);
+    /**
+     * PNG image of the Slovak PAY by square code of the payment, see {@link PayBySquareSerializer}.
+     */
+    public static byte[] generatePayBySquareQrCode(Payment payment, int size) throws IOException, WriterException {
+        return QrCodeGenerator.DEFAULT.generatePayBySquare(payment, size);
+    }
 
+    public static byte[] generateQrCodeFromString(String spaydString, int size) throws IOException, WriterException {
         ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", pngOutputStream);
+        writeQrCodeFromString(spaydString, size, pngOutputStream);
         return pngOutputStream.toByteArray();
     }
+
+    /**
+     * Writes the PNG image directly to the stream. The stream is neither flushed nor closed.
+     */
+    public static void writeQrCode(Payment payment, int size, OutputStream out) throws IOException, WriterException {
+        QrCodeGenerator.DEFAULT.write(payment, size, false, true, out);
+    }
+
+    /**
+     * Writes the PNG image directly to the stream. The stream is neither flushed nor closed.
+     */
+    public static void writeQrCodeFromString(String spaydString, int size, OutputStream out)
+            throws IOException, WriterException {
+        QrCodeGenerator.DEFAULT.write(spaydString, size, out);
+    }
+
+    /**
+     * Writes the PNG image to the channel. The channel is not closed.
+     */
+    public static void writeQrCodeFromString(String spaydString, int size, WritableByteChannel channel)
+            throws IOException, WriterException {
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), CHANNEL_BUFFER_SIZE);
+        writeQrCodeFromString(spaydString, size, out);
+        out.flush();
+    }
+
+    /**
+     * Writes the PNG image to the buffer, starting at its current position.
+     * A buffer of {@link #maxQrCodeLength(int)} bytes is always large enough, so a reused buffer of that capacity
+     * gives the exact length of the image (e.g. for a {@code Content-Length} header) before it is sent.
+     *
+     * @return number of bytes written, the buffer's position is advanced by the same amount
+     * @throws java.nio.BufferOverflowException if the image does not fit into the remaining space of the buffer
+     */
+    public static int writeQrCodeFromString(String spaydString, int size, ByteBuffer target)
+            throws IOException, WriterException {
+        int start = target.position();
+        writeQrCodeFromString(spaydString, size, new ByteBufferOutputStream(target));
+        return target.position() - start;
+    }
+
+    /**
+     * Upper bound of the PNG image length in bytes for the given size, regardless of the encoded content.
+     */
+    public static int maxQrCodeLength(int size) {
+        return QrCodeGenerator.DEFAULT.maxPngLength(size);
+    }
+
+    /**
+     * Generates the QR code as an SVG document with default colours, no margin and no fixed size.
+     */
+    public static String generateSvgQrCode(Payment payment) throws WriterException {
+        StringWriter writer = new StringWriter();
+        try {
+            writeSvgQrCodeFromString(SpaydSerializer.serialize(payment), QrSvgWriter.defaults(), writer);
+        } catch (IOException e) {
+            throw new IllegalStateException("StringWriter cannot fail", e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Streams the QR code as an SVG document to the writer.
+     */
+    public static void writeSvgQrCodeFromString(String spaydString, QrSvgWriter svgWriter, Writer out)
+            throws IOException, WriterException {
+        svgWriter.write(encodeModules(spaydString), out);
+    }
+
+    /**
+     * Encodes the string to the QR code module matrix, one cell per module, without any margin.
+     */
+    static QrMatrix encodeModules(String spaydString) throws WriterException {
+        return QrCodeGenerator.DEFAULT.encode(spaydString);
+    }
+
+    /**
+     * Renderer with the given options.
+     */
+    public static QrCodeRenderer renderer(RenderingOptions options) {
+        return new QrCodeGenerator(options);
+    }
 }
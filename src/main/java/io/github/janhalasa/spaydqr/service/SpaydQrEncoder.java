@@ -0,0 +1,913 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * QR code encoder specialised for SPD strings. By default, it produces the same matrices as zxing's {@code Encoder}
+ * with the ISO-8859-1 character set: the same mode, version, error correction codewords and mask.
+ * <p>
+ * Two options make the symbols smaller or more robust, at the price of differing from zxing:
+ * <ul>
+ *     <li>{@code mixedModes} splits the content into numeric, alphanumeric and byte segments, minimizing
+ *     the number of bits (dynamic programming over the characters). Normalized SPD strings are almost entirely
+ *     alphanumeric, so a few lowercase letters in the message no longer turn the whole string into byte mode.</li>
+ *     <li>{@code boostErrorCorrection} treats the requested error correction level as a minimum and raises it
+ *     while the data still fits into the smallest version for that minimum, or into {@code targetVersion},
+ *     if it is larger. The symbol does not get bigger, it is just more resilient.</li>
+ * </ul>
+ * {@link #predict} tells the version and level of a symbol without encoding it.
+ * <p>
+ * The matrix is built as packed {@code long} words. The function patterns, the order of the data modules
+ * and the eight mask patterns of every version are computed once and cached, so encoding is
+ * a Reed-Solomon pass, placing the data bits and scoring the masks. The mask penalty rules
+ * are evaluated 64 modules at a time, on the rows and on a transposed copy for the columns.
+ * <p>
+ * Instances are immutable and thread-safe. Instances with the same configuration are equal.
+ */
+@EqualsAndHashCode
+@ToString
+public final class SpaydQrEncoder implements QrEncoder {
+
+    /**
+     * Single mode, the requested error correction level, the same matrices as zxing.
+     */
+    public static final SpaydQrEncoder INSTANCE = new SpaydQrEncoder(false, false, null);
+
+    private static final int MODE_NUMERIC = 0x1;
+    private static final int MODE_ALPHANUMERIC = 0x2;
+    private static final int MODE_BYTE = 0x4;
+    private static final int MODE_ECI = 0x7;
+    private static final int ECI_ISO_8859_1 = 1;
+
+    /**
+     * Character count bit ranges: versions 1 to 9, 10 to 26 and 27 to 40.
+     */
+    private static final int COUNT_RANGES = 3;
+
+    /**
+     * Segmentation costs in sixths of a bit, the least common multiple of the per-character costs:
+     * 8 bits per byte, 11 bits per 2 alphanumeric characters and 10 bits per 3 digits.
+     */
+    private static final int BYTE_COST = 48;
+    private static final int ALPHANUMERIC_COST = 33;
+    private static final int NUMERIC_COST = 20;
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    /**
+     * Modes in the order of the segmentation costs.
+     */
+    private static final int[] MODE_CODES = {MODE_BYTE, MODE_ALPHANUMERIC, MODE_NUMERIC};
+
+    private static final int PENALTY_N1 = 3;
+    private static final int PENALTY_N2 = 3;
+    private static final int PENALTY_N3 = 40;
+    private static final int PENALTY_N4 = 10;
+
+    private static final int MASK_PATTERNS = 8;
+
+    private static final int[] ALPHANUMERIC_CODES = new int[128];
+
+    static {
+        Arrays.fill(ALPHANUMERIC_CODES, -1);
+        String alphanumeric = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+        for (int i = 0; i < alphanumeric.length(); i++) {
+            ALPHANUMERIC_CODES[alphanumeric.charAt(i)] = i;
+        }
+    }
+
+    /**
+     * Layouts by version, created on first use. The instances are immutable, a race creates equal copies.
+     */
+    private static final VersionLayout[] LAYOUTS = new VersionLayout[QrTables.MAX_VERSION + 1];
+
+    private final boolean mixedModes;
+    private final boolean boostErrorCorrection;
+    private final int targetVersion;
+
+    /**
+     * @param mixedModes split the content into segments of different modes to minimize its length
+     * @param boostErrorCorrection raise the error correction level as long as the version does not grow
+     * @param targetVersion with {@code boostErrorCorrection}, the version whose capacity may be used
+     *                      for error correction even if the data fits into a smaller one, none if {@code null}
+     */
+    @Builder
+    private SpaydQrEncoder(boolean mixedModes, boolean boostErrorCorrection, Integer targetVersion) {
+        if (targetVersion != null && (targetVersion < QrTables.MIN_VERSION || targetVersion > QrTables.MAX_VERSION)) {
+            throw new IllegalArgumentException("Target version must be between 1 and 40: " + targetVersion);
+        }
+        if (targetVersion != null && !boostErrorCorrection) {
+            throw new IllegalArgumentException("Target version requires boosting the error correction");
+        }
+        this.mixedModes = mixedModes;
+        this.boostErrorCorrection = boostErrorCorrection;
+        this.targetVersion = targetVersion == null ? QrTables.MIN_VERSION : targetVersion;
+    }
+
+    @Override
+    public QrMatrix encode(String content, ErrorCorrectionLevel errorCorrectionLevel) throws WriterException {
+        byte[] bytes = toBytes(content);
+        return encode(bytes, 0, bytes.length, errorCorrectionLevel);
+    }
+
+    @Override
+    public QrMatrix encode(byte[] content, int offset, int length, ErrorCorrectionLevel errorCorrectionLevel)
+            throws WriterException {
+        Plan plan = plan(content, offset, length, errorCorrectionLevel);
+
+        BitWriter data = new BitWriter(QrTables.dataCodewords(plan.version, plan.level));
+        plan.segments.write(data, content, plan.version);
+        data.terminate();
+
+        byte[] codewords = interleaveWithEcCodewords(data.buffer, plan.version, plan.level);
+        return VersionLayout.of(plan.version).build(codewords, plan.level);
+    }
+
+    @Override
+    public QrSymbol predict(String content, ErrorCorrectionLevel errorCorrectionLevel) throws WriterException {
+        byte[] bytes = toBytes(content);
+        return predict(bytes, 0, bytes.length, errorCorrectionLevel);
+    }
+
+    @Override
+    public QrSymbol predict(byte[] content, int offset, int length, ErrorCorrectionLevel errorCorrectionLevel)
+            throws WriterException {
+        Plan plan = plan(content, offset, length, errorCorrectionLevel);
+        return new QrSymbol(plan.version, plan.level);
+    }
+
+    /**
+     * Chooses the segments, the smallest version they fit into with the requested level and the final level.
+     * The segments of the mixed modes depend on the character count lengths, which depend on the version,
+     * so they are chosen for every range of versions tried.
+     */
+    private Plan plan(byte[] content, int offset, int length, ErrorCorrectionLevel level) throws WriterException {
+        Segments single = mixedModes ? null : Segments.single(chooseMode(content, offset, length), offset, length);
+        Segments[] byRange = new Segments[COUNT_RANGES];
+        int version = QrTables.MIN_VERSION;
+        for (; ; version++) {
+            if (version > QrTables.MAX_VERSION) {
+                throw new WriterException("Data too big");
+            }
+            int range = countRange(version);
+            if (byRange[range] == null) {
+                byRange[range] = mixedModes ? Segments.mixed(content, offset, length, range) : single;
+            }
+            if (byRange[range].bits(range) <= QrTables.dataCodewords(version, level) * 8) {
+                break;
+            }
+        }
+        if (!mixedModes) {
+            int countBits = characterCountBits(single.modes[0], version);
+            if (length >= 1 << countBits) {
+                throw new WriterException(length + " is bigger than " + ((1 << countBits) - 1));
+            }
+        }
+
+        if (boostErrorCorrection) {
+            version = Math.max(version, targetVersion);
+            int range = countRange(version);
+            if (byRange[range] == null) {
+                byRange[range] = mixedModes ? Segments.mixed(content, offset, length, range) : single;
+            }
+            int bits = byRange[range].bits(range);
+            ErrorCorrectionLevel[] levels = ErrorCorrectionLevel.values();
+            // zxing declares the levels from the weakest: L, M, Q, H
+            for (int i = level.ordinal() + 1; i < levels.length; i++) {
+                if (bits <= QrTables.dataCodewords(version, levels[i]) * 8) {
+                    level = levels[i];
+                }
+            }
+        }
+        return new Plan(version, level, byRange[countRange(version)]);
+    }
+
+    /**
+     * The same mode as zxing chooses for the characters. Characters above 0xFF are replaced by '?' when encoded,
+     * which is not an alphanumeric character either, so the choice does not change.
+     */
+    private static int chooseMode(byte[] content, int offset, int length) {
+        boolean hasNumeric = false;
+        boolean hasAlphanumeric = false;
+        for (int i = offset; i < offset + length; i++) {
+            int c = content[i] & 0xFF;
+            if (c >= '0' && c <= '9') {
+                hasNumeric = true;
+            } else if (alphanumericCode(c) != -1) {
+                hasAlphanumeric = true;
+            } else {
+                return MODE_BYTE;
+            }
+        }
+        if (hasAlphanumeric) {
+            return MODE_ALPHANUMERIC;
+        }
+        return hasNumeric ? MODE_NUMERIC : MODE_BYTE;
+    }
+
+    private static int alphanumericCode(int c) {
+        return c < ALPHANUMERIC_CODES.length ? ALPHANUMERIC_CODES[c] : -1;
+    }
+
+    private static byte[] toBytes(String content) {
+        byte[] bytes = new byte[content.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = content.charAt(i);
+            if (c > 0xFF) {
+                // Let the charset encoder replace the unmappable characters (and surrogate pairs)
+                return content.getBytes(StandardCharsets.ISO_8859_1);
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
+    private static int dataBits(int mode, int length) {
+        switch (mode) {
+            case MODE_NUMERIC:
+                return length / 3 * 10 + (length % 3 == 1 ? 4 : length % 3 == 2 ? 7 : 0);
+            case MODE_ALPHANUMERIC:
+                return length / 2 * 11 + (length % 2) * 6;
+            default:
+                return length * 8;
+        }
+    }
+
+    private static int countRange(int version) {
+        return version <= 9 ? 0 : version <= 26 ? 1 : 2;
+    }
+
+    private static int characterCountBits(int mode, int version) {
+        return countBitsInRange(mode, countRange(version));
+    }
+
+    private static int countBitsInRange(int mode, int range) {
+        switch (mode) {
+            case MODE_NUMERIC:
+                return 10 + 2 * range;
+            case MODE_ALPHANUMERIC:
+                return 9 + 2 * range;
+            default:
+                return range == 0 ? 8 : 16;
+        }
+    }
+
+    private static void appendData(BitWriter target, int mode, byte[] content, int offset, int length) {
+        int end = offset + length;
+        switch (mode) {
+            case MODE_NUMERIC:
+                for (int i = offset; i < end; ) {
+                    int digits = Math.min(3, end - i);
+                    int value = 0;
+                    for (int j = 0; j < digits; j++) {
+                        value = value * 10 + content[i + j] - '0';
+                    }
+                    target.append(value, digits * 3 + 1);
+                    i += digits;
+                }
+                break;
+            case MODE_ALPHANUMERIC:
+                int i = offset;
+                for (; i + 1 < end; i += 2) {
+                    target.append(alphanumericCode(content[i]) * 45 + alphanumericCode(content[i + 1]), 11);
+                }
+                if (i < end) {
+                    target.append(alphanumericCode(content[i]), 6);
+                }
+                break;
+            default:
+                for (int j = offset; j < end; j++) {
+                    target.append(content[j] & 0xFF, 8);
+                }
+        }
+    }
+
+    /**
+     * Version and error correction level of a symbol with its segments.
+     */
+    private static final class Plan {
+        final int version;
+        final ErrorCorrectionLevel level;
+        final Segments segments;
+
+        Plan(int version, ErrorCorrectionLevel level, Segments segments) {
+            this.version = version;
+            this.level = level;
+            this.segments = segments;
+        }
+    }
+
+    /**
+     * The content split into segments, each with its mode, start and length.
+     */
+    private static final class Segments {
+
+        /**
+         * Whether the ISO-8859-1 ECI designator precedes the segments.
+         */
+        final boolean eci;
+        final int count;
+        final int[] modes;
+        final int[] starts;
+        final int[] lengths;
+
+        private Segments(boolean eci, int count, int[] modes, int[] starts, int[] lengths) {
+            this.eci = eci;
+            this.count = count;
+            this.modes = modes;
+            this.starts = starts;
+            this.lengths = lengths;
+        }
+
+        /**
+         * The whole content in one mode, with the ECI designator in the byte mode, like zxing.
+         */
+        static Segments single(int mode, int offset, int length) {
+            return new Segments(mode == MODE_BYTE, 1, new int[] {mode}, new int[] {offset}, new int[] {length});
+        }
+
+        /**
+         * The segmentation with the fewest bits for the character count lengths of the range.
+         * <p>
+         * For every character and mode, the cheapest encoding of the content up to the character with the last
+         * segment in the mode is computed from the costs for the previous character: either continuing
+         * the segment of the mode, or closing the cheapest segment of another mode (rounded up to whole bits)
+         * and opening a new one. The modes of the characters are then traced back from the cheapest end.
+         * The ECI designator is only needed if a byte segment contains characters outside of ASCII,
+         * which is the same in ISO-8859-1 and the UTF-8 assumed by many readers.
+         */
+        static Segments mixed(byte[] content, int offset, int length, int range) {
+            int[] header = {
+                    (4 + countBitsInRange(MODE_BYTE, range)) * 6,
+                    (4 + countBitsInRange(MODE_ALPHANUMERIC, range)) * 6,
+                    (4 + countBitsInRange(MODE_NUMERIC, range)) * 6,
+            };
+            int[] costs = header.clone();
+            int[] continued = new int[3];
+            // Mode of every character when the content up to it ends in a segment of the given mode
+            byte[] previousModes = new byte[length * 3];
+            for (int i = 0; i < length; i++) {
+                int c = content[offset + i] & 0xFF;
+                continued[0] = costs[0] + BYTE_COST;
+                continued[1] = alphanumericCode(c) == -1 ? UNREACHABLE : costs[1] + ALPHANUMERIC_COST;
+                continued[2] = c < '0' || c > '9' ? UNREACHABLE : costs[2] + NUMERIC_COST;
+                for (int mode = 0; mode < 3; mode++) {
+                    costs[mode] = continued[mode];
+                    previousModes[i * 3 + mode] = (byte) mode;
+                    for (int from = 0; from < 3; from++) {
+                        int switched = (continued[from] + 5) / 6 * 6 + header[mode];
+                        if (continued[from] < UNREACHABLE && switched < costs[mode]) {
+                            costs[mode] = switched;
+                            previousModes[i * 3 + mode] = (byte) from;
+                        }
+                    }
+                }
+            }
+
+            int mode = 0;
+            for (int m = 1; m < 3; m++) {
+                if (costs[m] < costs[mode]) {
+                    mode = m;
+                }
+            }
+            byte[] modes = new byte[length];
+            for (int i = length - 1; i >= 0; i--) {
+                mode = previousModes[i * 3 + mode];
+                modes[i] = (byte) mode;
+            }
+            return group(content, offset, modes, range);
+        }
+
+        /**
+         * Runs of characters of the same mode, split where they exceed the character count.
+         */
+        private static Segments group(byte[] content, int offset, byte[] characterModes, int range) {
+            int length = characterModes.length;
+            int[] modes = new int[Math.max(1, length)];
+            int[] starts = new int[modes.length];
+            int[] lengths = new int[modes.length];
+            int count = 0;
+            boolean eci = false;
+            for (int i = 0; i < length; ) {
+                int mode = MODE_CODES[characterModes[i]];
+                // Even alphanumeric lengths, not to spend 6 bits on the last character of a split segment
+                int maxLength = (1 << countBitsInRange(mode, range)) - 1 & (mode == MODE_ALPHANUMERIC ? ~1 : ~0);
+                int end = i + 1;
+                while (end < length && characterModes[end] == characterModes[i] && end - i < maxLength) {
+                    end++;
+                }
+                if (count == modes.length) {
+                    modes = Arrays.copyOf(modes, count * 2);
+                    starts = Arrays.copyOf(starts, count * 2);
+                    lengths = Arrays.copyOf(lengths, count * 2);
+                }
+                modes[count] = mode;
+                starts[count] = offset + i;
+                lengths[count] = end - i;
+                count++;
+                if (mode == MODE_BYTE && !eci) {
+                    for (int j = offset + i; j < offset + end; j++) {
+                        eci |= content[j] < 0;
+                    }
+                }
+                i = end;
+            }
+            return new Segments(eci, count, modes, starts, lengths);
+        }
+
+        int bits(int range) {
+            int bits = eci ? 12 : 0;
+            for (int i = 0; i < count; i++) {
+                bits += 4 + countBitsInRange(modes[i], range) + dataBits(modes[i], lengths[i]);
+            }
+            return bits;
+        }
+
+        void write(BitWriter target, byte[] content, int version) {
+            if (eci) {
+                target.append(MODE_ECI, 4);
+                target.append(ECI_ISO_8859_1, 8);
+            }
+            for (int i = 0; i < count; i++) {
+                target.append(modes[i], 4);
+                target.append(lengths[i], characterCountBits(modes[i], version));
+                appendData(target, modes[i], content, starts[i], lengths[i]);
+            }
+        }
+    }
+
+    /**
+     * Splits the data codewords to blocks, computes their error correction codewords and interleaves them.
+     */
+    private static byte[] interleaveWithEcCodewords(byte[] data, int version, ErrorCorrectionLevel level) {
+        int blocks = QrTables.blocks(version, level);
+        int shortBlocks = QrTables.shortBlocks(version, level);
+        int shortLength = QrTables.shortBlockDataCodewords(version, level);
+        int ecLength = QrTables.ecCodewordsPerBlock(version, level);
+        int[] generator = QrTables.generator(ecLength);
+
+        byte[] result = new byte[data.length + blocks * ecLength];
+        int[] remainder = new int[ecLength];
+        int dataOffset = 0;
+        for (int block = 0; block < blocks; block++) {
+            int blockLength = block < shortBlocks ? shortLength : shortLength + 1;
+            for (int i = 0; i < blockLength; i++) {
+                // Codeword i of every block, the longer blocks have one more at the end
+                int position = i < shortLength ? i * blocks + block : shortLength * blocks + block - shortBlocks;
+                result[position] = data[dataOffset + i];
+            }
+            reedSolomon(data, dataOffset, blockLength, generator, remainder);
+            for (int i = 0; i < ecLength; i++) {
+                result[data.length + i * blocks + block] = (byte) remainder[i];
+            }
+            dataOffset += blockLength;
+        }
+        return result;
+    }
+
+    /**
+     * Remainder of the data polynomial multiplied by x^n divided by the generator polynomial of degree n.
+     */
+    private static void reedSolomon(byte[] data, int offset, int length, int[] generator, int[] remainder) {
+        int degree = generator.length;
+        Arrays.fill(remainder, 0);
+        int[] exp = QrTables.EXP;
+        int[] log = QrTables.LOG;
+        for (int i = 0; i < length; i++) {
+            int factor = (data[offset + i] & 0xFF) ^ remainder[0];
+            System.arraycopy(remainder, 1, remainder, 0, degree - 1);
+            remainder[degree - 1] = 0;
+            if (factor != 0) {
+                int factorLog = log[factor];
+                for (int j = 0; j < degree; j++) {
+                    remainder[j] ^= exp[log[generator[j]] + factorLog];
+                }
+            }
+        }
+    }
+
+    /**
+     * Bits appended most significant first to a zeroed buffer of the capacity of the version.
+     */
+    private static final class BitWriter {
+
+        private final byte[] buffer;
+        private int position;
+
+        BitWriter(int capacityBytes) {
+            this.buffer = new byte[capacityBytes];
+        }
+
+        void append(int value, int count) {
+            while (count > 0) {
+                int free = 8 - (position & 7);
+                int n = Math.min(free, count);
+                int bits = value >>> (count - n) & ((1 << n) - 1);
+                buffer[position >>> 3] |= (byte) (bits << (free - n));
+                position += n;
+                count -= n;
+            }
+        }
+
+        /**
+         * Terminator of up to 4 zero bits, zero bits to the byte boundary and the alternating pad codewords.
+         */
+        void terminate() throws WriterException {
+            int capacity = buffer.length * 8;
+            if (position > capacity) {
+                throw new WriterException("data bits cannot fit in the QR Code" + position + " > " + capacity);
+            }
+            position = Math.min(capacity, position + 4);
+            position = (position + 7) & ~7;
+            for (int i = position >>> 3, pad = 0; i < buffer.length; i++, pad++) {
+                buffer[i] = (byte) ((pad & 1) == 0 ? 0xEC : 0x11);
+            }
+        }
+    }
+
+    /**
+     * Everything about a version which does not depend on the content, as packed rows and columns.
+     */
+    private static final class VersionLayout {
+
+        final int size;
+        final int words;
+        /**
+         * Function patterns and version information, format information is left clear.
+         */
+        final long[] base;
+        final long[] baseColumns;
+        /**
+         * Data module coordinates in the placement order, {@code y << 8 | x}.
+         */
+        final int[] dataModules;
+        /**
+         * Modules flipped by each mask, limited to the data area.
+         */
+        final long[][] masks;
+        final long[][] maskColumns;
+
+        private VersionLayout(int version) {
+            size = QrTables.dimension(version);
+            words = QrMatrix.wordsPerRow(size);
+            // -1 for an unassigned module, the same way as zxing builds the matrix
+            byte[][] grid = new byte[size][size];
+            for (byte[] row : grid) {
+                Arrays.fill(row, (byte) -1);
+            }
+            embedFunctionPatterns(grid, version);
+
+            base = new long[size * words];
+            baseColumns = new long[size * words];
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    if (grid[y][x] == 1) {
+                        setBit(base, baseColumns, words, x, y);
+                    }
+                }
+            }
+
+            dataModules = dataModuleOrder(grid);
+            masks = new long[MASK_PATTERNS][size * words];
+            maskColumns = new long[MASK_PATTERNS][size * words];
+            for (int module : dataModules) {
+                int x = module & 0xFF;
+                int y = module >>> 8;
+                for (int mask = 0; mask < MASK_PATTERNS; mask++) {
+                    if (maskBit(mask, x, y)) {
+                        setBit(masks[mask], maskColumns[mask], words, x, y);
+                    }
+                }
+            }
+        }
+
+        static VersionLayout of(int version) {
+            VersionLayout layout = LAYOUTS[version];
+            if (layout == null) {
+                layout = new VersionLayout(version);
+                LAYOUTS[version] = layout;
+            }
+            return layout;
+        }
+
+        QrMatrix build(byte[] codewords, ErrorCorrectionLevel level) {
+            int length = size * words;
+            long[] data = new long[length];
+            long[] dataColumns = new long[length];
+            int bits = Math.min(codewords.length * 8, dataModules.length);
+            for (int i = 0; i < bits; i++) {
+                if ((codewords[i >>> 3] << (i & 7) & 0x80) != 0) {
+                    int module = dataModules[i];
+                    setBit(data, dataColumns, words, module & 0xFF, module >>> 8);
+                }
+            }
+
+            long[] rows = new long[length];
+            long[] columns = new long[length];
+            long[] best = new long[length];
+            int minPenalty = Integer.MAX_VALUE;
+            for (int mask = 0; mask < MASK_PATTERNS; mask++) {
+                long[] maskRows = masks[mask];
+                long[] maskColumnsOfMask = maskColumns[mask];
+                for (int i = 0; i < length; i++) {
+                    rows[i] = base[i] | (data[i] ^ maskRows[i]);
+                    columns[i] = baseColumns[i] | (dataColumns[i] ^ maskColumnsOfMask[i]);
+                }
+                embedFormatInfo(rows, columns, QrTables.formatInfo(level, mask));
+                int penalty = penalty(rows, columns);
+                if (penalty < minPenalty) {
+                    minPenalty = penalty;
+                    long[] swap = best;
+                    best = rows;
+                    rows = swap;
+                }
+            }
+            return new QrMatrix(size, size, best);
+        }
+
+        private void embedFormatInfo(long[] rows, long[] columns, int formatInfo) {
+            for (int i = 0; i < 15; i++) {
+                if ((formatInfo >>> i & 1) == 0) {
+                    continue;
+                }
+                // Around the top left finder pattern
+                int x = i < 6 ? 8 : i < 8 ? 8 : i == 8 ? 7 : 14 - i;
+                int y = i < 6 ? i : i < 8 ? i + 1 : 8;
+                setBit(rows, columns, words, x, y);
+                // Split between the other two finder patterns
+                if (i < 8) {
+                    setBit(rows, columns, words, size - 1 - i, 8);
+                } else {
+                    setBit(rows, columns, words, 8, size - 15 + i);
+                }
+            }
+        }
+
+        private int penalty(long[] rows, long[] columns) {
+            int penalty = 0;
+            int finderLikePatterns = 0;
+            int dark = 0;
+            for (int y = 0; y < size; y++) {
+                int rowOffset = y * words;
+                penalty += runPenalty(rows, rowOffset) + runPenalty(columns, rowOffset);
+                finderLikePatterns += finderLikePatterns(rows, rowOffset) + finderLikePatterns(columns, rowOffset);
+                if (y + 1 < size) {
+                    penalty += PENALTY_N2 * sameBlocks(rows, rowOffset, rowOffset + words);
+                }
+                for (int i = 0; i < words; i++) {
+                    dark += Long.bitCount(rows[rowOffset + i]);
+                }
+            }
+            int total = size * size;
+            penalty += PENALTY_N3 * finderLikePatterns;
+            penalty += PENALTY_N4 * (Math.abs(dark * 2 - total) * 10 / total);
+            return penalty;
+        }
+
+        /**
+         * Rule 1: runs of five or more modules of the same colour.
+         */
+        private int runPenalty(long[] lines, int offset) {
+            int penalty = 0;
+            int runStart = 0;
+            for (int bit = 0; bit < size - 1; bit += 64) {
+                // Bit i set where module bit + i differs from the next one
+                long changes = window(lines, offset, bit) ^ window(lines, offset, bit + 1);
+                changes &= validBits(size - 1 - bit);
+                while (changes != 0) {
+                    int runEnd = bit + Long.numberOfTrailingZeros(changes) + 1;
+                    int run = runEnd - runStart;
+                    if (run >= 5) {
+                        penalty += PENALTY_N1 + run - 5;
+                    }
+                    runStart = runEnd;
+                    changes &= changes - 1;
+                }
+            }
+            int run = size - runStart;
+            if (run >= 5) {
+                penalty += PENALTY_N1 + run - 5;
+            }
+            return penalty;
+        }
+
+        /**
+         * Rule 2: 2x2 blocks of the same colour, with the top left corner in the first row.
+         */
+        private int sameBlocks(long[] rows, int offset, int nextOffset) {
+            int blocks = 0;
+            for (int bit = 0; bit < size - 1; bit += 64) {
+                long a = window(rows, offset, bit);
+                long b = window(rows, offset, bit + 1);
+                long c = window(rows, nextOffset, bit);
+                long d = window(rows, nextOffset, bit + 1);
+                long same = ~(a ^ b) & ~(c ^ d) & ~(a ^ c);
+                blocks += Long.bitCount(same & validBits(size - 1 - bit));
+            }
+            return blocks;
+        }
+
+        /**
+         * Rule 3: 1011101 with four light modules before or after, all of them inside the symbol.
+         */
+        private int finderLikePatterns(long[] lines, int offset) {
+            int count = 0;
+            for (int bit = 0; bit + 6 < size; bit += 64) {
+                long pattern = window(lines, offset, bit) & ~window(lines, offset, bit + 1)
+                        & window(lines, offset, bit + 2) & window(lines, offset, bit + 3)
+                        & window(lines, offset, bit + 4) & ~window(lines, offset, bit + 5)
+                        & window(lines, offset, bit + 6);
+                if (pattern == 0) {
+                    continue;
+                }
+                long lightBefore = ~(window(lines, offset, bit - 4) | window(lines, offset, bit - 3)
+                        | window(lines, offset, bit - 2) | window(lines, offset, bit - 1))
+                        & ~validBits(4 - bit);
+                long lightAfter = ~(window(lines, offset, bit + 7) | window(lines, offset, bit + 8)
+                        | window(lines, offset, bit + 9) | window(lines, offset, bit + 10))
+                        & validBits(size - 10 - bit);
+                count += Long.bitCount(pattern & (lightBefore | lightAfter));
+            }
+            return count;
+        }
+
+        /**
+         * 64 modules of the line starting at the given position, modules outside the line are 0.
+         */
+        private long window(long[] lines, int offset, int bit) {
+            if (bit < 0) {
+                return lines[offset] << -bit;
+            }
+            int word = bit >>> 6;
+            if (word >= words) {
+                return 0;
+            }
+            int shift = bit & 63;
+            long value = lines[offset + word] >>> shift;
+            if (shift != 0 && word + 1 < words) {
+                value |= lines[offset + word + 1] << (64 - shift);
+            }
+            return value;
+        }
+
+        /**
+         * The lowest {@code count} bits set.
+         */
+        private static long validBits(int count) {
+            if (count <= 0) {
+                return 0;
+            }
+            return count >= 64 ? -1L : (1L << count) - 1;
+        }
+
+        private static void setBit(long[] rows, long[] columns, int words, int x, int y) {
+            rows[y * words + (x >>> 6)] |= 1L << x;
+            columns[x * words + (y >>> 6)] |= 1L << y;
+        }
+
+        private int[] dataModuleOrder(byte[][] grid) {
+            int count = 0;
+            for (byte[] row : grid) {
+                for (byte module : row) {
+                    if (module == -1) {
+                        count++;
+                    }
+                }
+            }
+            int[] order = new int[count];
+            int index = 0;
+            int direction = -1;
+            int y = size - 1;
+            // Column pairs from the right, alternately upwards and downwards, skipping the vertical timing pattern
+            for (int x = size - 1; x > 0; x -= 2) {
+                if (x == 6) {
+                    x--;
+                }
+                for (; y >= 0 && y < size; y += direction) {
+                    for (int i = 0; i < 2; i++) {
+                        if (grid[y][x - i] == -1) {
+                            order[index++] = y << 8 | (x - i);
+                        }
+                    }
+                }
+                direction = -direction;
+                y += direction;
+            }
+            return order;
+        }
+
+        private static boolean maskBit(int mask, int x, int y) {
+            int product;
+            switch (mask) {
+                case 0:
+                    return ((y + x) & 1) == 0;
+                case 1:
+                    return (y & 1) == 0;
+                case 2:
+                    return x % 3 == 0;
+                case 3:
+                    return (y + x) % 3 == 0;
+                case 4:
+                    return ((y / 2 + x / 3) & 1) == 0;
+                case 5:
+                    product = y * x;
+                    return (product & 1) + product % 3 == 0;
+                case 6:
+                    product = y * x;
+                    return (((product & 1) + product % 3) & 1) == 0;
+                case 7:
+                    return ((y * x % 3 + ((y + x) & 1)) & 1) == 0;
+                default:
+                    throw new IllegalArgumentException("Invalid mask pattern: " + mask);
+            }
+        }
+
+        /**
+         * Finder patterns with separators, the dark module, alignment and timing patterns, reserved format
+         * information areas and the version information.
+         */
+        private void embedFunctionPatterns(byte[][] grid, int version) {
+            embedFinderPattern(grid, 0, 0);
+            embedFinderPattern(grid, size - 7, 0);
+            embedFinderPattern(grid, 0, size - 7);
+
+            grid[size - 8][8] = 1;
+
+            int[] centers = QrTables.alignmentCenters(version);
+            for (int cy : centers) {
+                for (int cx : centers) {
+                    // Skip the positions overlapping the finder patterns
+                    if (grid[cy][cx] != -1) {
+                        continue;
+                    }
+                    for (int dy = -2; dy <= 2; dy++) {
+                        for (int dx = -2; dx <= 2; dx++) {
+                            int ring = Math.max(Math.abs(dx), Math.abs(dy));
+                            grid[cy + dy][cx + dx] = (byte) (ring == 1 ? 0 : 1);
+                        }
+                    }
+                }
+            }
+
+            for (int i = 8; i < size - 8; i++) {
+                byte bit = (byte) ((i + 1) % 2);
+                if (grid[6][i] == -1) {
+                    grid[6][i] = bit;
+                }
+                if (grid[i][6] == -1) {
+                    grid[i][6] = bit;
+                }
+            }
+
+            // Format information, set for every mask separately
+            for (int i = 0; i < 9; i++) {
+                reserve(grid, 8, i);
+                reserve(grid, i, 8);
+            }
+            for (int i = 0; i < 8; i++) {
+                reserve(grid, size - 1 - i, 8);
+                reserve(grid, 8, size - 1 - i);
+            }
+
+            if (version >= 7) {
+                int versionInfo = QrTables.versionInfo(version);
+                for (int i = 0; i < 18; i++) {
+                    byte bit = (byte) (versionInfo >>> i & 1);
+                    int a = i / 3;
+                    int b = size - 11 + i % 3;
+                    grid[b][a] = bit;
+                    grid[a][b] = bit;
+                }
+            }
+        }
+
+        private static void reserve(byte[][] grid, int x, int y) {
+            if (grid[y][x] == -1) {
+                grid[y][x] = 0;
+            }
+        }
+
+        /**
+         * 7x7 finder pattern at the given position and the light separator around it, clipped to the symbol.
+         */
+        private void embedFinderPattern(byte[][] grid, int left, int top) {
+            for (int dy = -1; dy <= 7; dy++) {
+                for (int dx = -1; dx <= 7; dx++) {
+                    int x = left + dx;
+                    int y = top + dy;
+                    if (x < 0 || y < 0 || x >= size || y >= size) {
+                        continue;
+                    }
+                    int ring = Math.max(Math.abs(2 * dx - 6), Math.abs(2 * dy - 6)) / 2;
+                    grid[y][x] = (byte) (ring == 2 || ring == 4 ? 0 : 1);
+                }
+            }
+        }
+    }
+}
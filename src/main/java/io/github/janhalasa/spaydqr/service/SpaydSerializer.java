@@ -2,113 +2,360 @@ package io.github.janhalasa.spaydqr.service;
 
 import io.github.janhalasa.spaydqr.model.BankAccount;
 import io.github.janhalasa.spaydqr.model.Payment;
-import org.apache.commons.lang3.StringUtils;
 
-import java.text.DecimalFormat;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.List;
 import java.util.zip.CRC32;
 
 public class SpaydSerializer {
 
-    static final DecimalFormat DECIMAL_FORMAT;
+    static final String HEADER = "SPD*1.0";
 
-    static {
-        DECIMAL_FORMAT = new DecimalFormat("0.##");
-        DECIMAL_FORMAT.setMaximumFractionDigits(9);
-        DECIMAL_FORMAT.setGroupingUsed(false);
+    /*
+     * Keys in the order they are written. The order is the alphabetical one,
+     * so that the output matches the specification examples and the official generator.
+     */
+    static final String KEY_ACC = "ACC";
+    static final String KEY_ALT_ACC = "ALT-ACC";
+    static final String KEY_AM = "AM";
+    static final String KEY_CC = "CC";
+    static final String KEY_DT = "DT";
+    static final String KEY_MSG = "MSG";
+    static final String KEY_NT = "NT";
+    static final String KEY_NTA = "NTA";
+    static final String KEY_PT = "PT";
+    static final String KEY_RF = "RF";
+    static final String KEY_RN = "RN";
+    static final String KEY_X_KS = "X-KS";
+    static final String KEY_X_SS = "X-SS";
+    static final String KEY_X_VS = "X-VS";
+    static final String KEY_CRC32 = "CRC32";
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Per-thread buffers reused by the serializer.
+     */
+    private static final class Scratch {
+        final StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+        final CRC32 crc32 = new CRC32();
+        final byte[] checksumBytes = new byte[INITIAL_CAPACITY];
+        byte[] bytes = new byte[INITIAL_CAPACITY];
+        ByteBuffer byteView = ByteBuffer.wrap(bytes);
+
+        byte[] bytes(int capacity) {
+            if (bytes.length < capacity) {
+                bytes = new byte[Math.max(capacity, 2 * bytes.length)];
+                byteView = ByteBuffer.wrap(bytes);
+            }
+            return bytes;
+        }
     }
 
     private static String toISO88591(String value, boolean apply) {
-        if (value == null) {
-            return null;
-        }
-        return apply
-                ? StringUtils.stripAccents(value.trim()).toUpperCase()
-                : value;
+        return apply ? TextNormalizer.normalize(value) : value;
     }
 
-    private static void validate(Payment payment) {
+    static void validate(Payment payment) {
         if (payment.getBankAccount() == null) {
             throw new IllegalArgumentException("Bank account (IBAN) is required");
         }
     }
 
+    /**
+     * Checks the IBANs of all the accounts of the payment, see {@link IbanValidator}.
+     * Serialization does not check them on its own, so that any account can be encoded.
+     *
+     * @throws IllegalArgumentException with the first invalid IBAN
+     */
+    public static void validateIbans(Payment payment) {
+        validate(payment);
+        validateIban(payment.getBankAccount());
+        List<BankAccount> alternativeBankAccounts = payment.getAlternativeBankAccounts();
+        if (alternativeBankAccounts != null) {
+            for (int i = 0; i < alternativeBankAccounts.size(); i++) {
+                validateIban(alternativeBankAccounts.get(i));
+            }
+        }
+    }
+
+    private static void validateIban(BankAccount bankAccount) {
+        IbanError error = IbanValidator.validate(bankAccount.getIban());
+        if (error != null) {
+            throw new IllegalArgumentException(error.getMessage() + ": " + bankAccount.getIban());
+        }
+    }
+
     public static String serialize(Payment payment) {
         return serialize(payment, false, true);
     }
 
-    private static String bankAccountValue(BankAccount bankAccount) {
-        String result = bankAccount.getIban();
+    private static void appendBankAccount(StringBuilder target, BankAccount bankAccount) {
+        target.append(bankAccount.getIban());
         if (bankAccount.getBic() != null) {
-            result += "+" + bankAccount.getBic();
+            target.append('+').append(bankAccount.getBic());
         }
-        return result;
     }
 
-    public static String serialize(Payment payment, boolean includeChecksum, boolean normalizeStrings) {
-        validate(payment);
-
-        final Map<String, String> fields = new HashMap<>();
-        fields.put("ACC", bankAccountValue(payment.getBankAccount()));
+    private static StringBuilder appendKey(StringBuilder target, String key) {
+        return target.append('*').append(key).append(':');
+    }
 
-        if (payment.getAlternativeBankAccounts() != null && !payment.getAlternativeBankAccounts().isEmpty()) {
-            fields.put("ALT-ACC",payment.getAlternativeBankAccounts().stream()
-                    .map(SpaydSerializer::bankAccountValue)
-                    .collect(Collectors.joining(",")));
+    private static void appendField(StringBuilder target, String key, String value) {
+        if (value != null) {
+            appendValue(appendKey(target, key), value);
         }
+    }
 
-        if (payment.getAmount() != null) {
-            fields.put("AM", DECIMAL_FORMAT.format(payment.getAmount()));
-        }
-        if (payment.getCurrencyCode() != null) {
-            fields.put("CC", payment.getCurrencyCode());
+    /**
+     * Escapes the field separator as {@code %2A} and the percent sign as {@code %25},
+     * so that {@link SpaydParser} reads the value back unchanged.
+     */
+    private static void appendValue(StringBuilder target, String value) {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '*' || c == '%') {
+                target.append(value, start, i).append(c == '*' ? "%2A" : "%25");
+                start = i + 1;
+            }
         }
-        if (payment.getOriginatorsReference() != null) {
-            fields.put("RF", payment.getOriginatorsReference());
+        target.append(value, start, value.length());
+    }
+
+    static void appendDate(StringBuilder target, LocalDate date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            // Let the formatter report the out of range year the same way as before
+            target.append(DateTimeFormatter.BASIC_ISO_DATE.format(date));
+            return;
         }
-        if (payment.getBeneficiaryName() != null) {
-            fields.put("RN", toISO88591(payment.getBeneficiaryName(), normalizeStrings));
+        appendDigits(target, year, 4);
+        appendDigits(target, date.getMonthValue(), 2);
+        appendDigits(target, date.getDayOfMonth(), 2);
+    }
+
+    private static void appendDigits(StringBuilder target, int value, int width) {
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            target.append((char) ('0' + value / divisor % 10));
         }
-        if (payment.getPaymentDueDate() != null) {
-            fields.put("DT", DateTimeFormatter.BASIC_ISO_DATE.format(payment.getPaymentDueDate()));
+    }
+
+    public static String serialize(Payment payment, boolean includeChecksum, boolean normalizeStrings) {
+        return serializeTo(payment, includeChecksum, normalizeStrings, new StringBuilder(INITIAL_CAPACITY)).toString();
+    }
+
+    /**
+     * Writes the SPD string to the given builder. The output is identical to
+     * {@link #serialize(Payment, boolean, boolean)}, but no intermediate map, sorting or strings are involved,
+     * so a builder reused across payments makes the serialization practically garbage free.
+     *
+     * @return the target builder
+     */
+    public static StringBuilder serializeTo(
+            Payment payment, boolean includeChecksum, boolean normalizeStrings, StringBuilder target) {
+        validate(payment);
+
+        target.append(HEADER);
+        int fieldsStart = target.length() + 1;
+
+        appendAccounts(target, payment);
+        appendAmount(target, payment.getAmount());
+        appendCurrency(target, payment);
+        appendDueDate(target, payment.getPaymentDueDate());
+        appendDetails(target, payment, normalizeStrings);
+        appendVariableSymbol(target, payment.getVariableSymbol());
+
+        if (includeChecksum) {
+            CRC32 crc32 = resetChecksum();
+            updateChecksum(crc32, target, fieldsStart, target.length());
+            appendChecksum(target, crc32.getValue());
         }
-        if (Boolean.TRUE.equals(payment.getInstantPayment())) {
-            fields.put("PT", "IP");
+        return target;
+    }
+
+    /*
+     * Field groups in the canonical order. The groups are separated by the fields that typically change
+     * from one invoice to another, so that SpaydTemplate can precompute the rest.
+     */
+
+    static void appendAccounts(StringBuilder target, Payment payment) {
+        appendKey(target, KEY_ACC);
+        appendBankAccount(target, payment.getBankAccount());
+
+        List<BankAccount> alternativeBankAccounts = payment.getAlternativeBankAccounts();
+        if (alternativeBankAccounts != null && !alternativeBankAccounts.isEmpty()) {
+            appendKey(target, KEY_ALT_ACC);
+            for (int i = 0; i < alternativeBankAccounts.size(); i++) {
+                if (i > 0) {
+                    target.append(',');
+                }
+                appendBankAccount(target, alternativeBankAccounts.get(i));
+            }
         }
-        if (payment.getPaymentNote() != null) {
-            fields.put("MSG", toISO88591(payment.getPaymentNote(), normalizeStrings));
+    }
+
+    static void appendAmount(StringBuilder target, BigDecimal amount) {
+        if (amount != null) {
+            AmountFormatter.appendTo(appendKey(target, KEY_AM), amount);
         }
-        if (payment.getNotificationType() != null) {
-            fields.put("NT", payment.getNotificationType());
+    }
+
+    static void appendCurrency(StringBuilder target, Payment payment) {
+        appendField(target, KEY_CC, payment.getCurrencyCode());
+    }
+
+    static void appendDueDate(StringBuilder target, LocalDate dueDate) {
+        if (dueDate != null) {
+            appendDate(appendKey(target, KEY_DT), dueDate);
         }
-        if (payment.getNotificationAddress() != null) {
-            fields.put("NTA", payment.getNotificationAddress());
+    }
+
+    static void appendDetails(StringBuilder target, Payment payment, boolean normalizeStrings) {
+        appendField(target, KEY_MSG, toISO88591(payment.getPaymentNote(), normalizeStrings));
+        appendField(target, KEY_NT, payment.getNotificationType());
+        appendField(target, KEY_NTA, payment.getNotificationAddress());
+        if (Boolean.TRUE.equals(payment.getInstantPayment())) {
+            appendKey(target, KEY_PT).append("IP");
         }
-        if (payment.getConstantSymbol() != null) {
-            fields.put("X-KS", payment.getConstantSymbol());
+        appendField(target, KEY_RF, payment.getOriginatorsReference());
+        appendField(target, KEY_RN, toISO88591(payment.getBeneficiaryName(), normalizeStrings));
+        appendField(target, KEY_X_KS, payment.getConstantSymbol());
+        appendField(target, KEY_X_SS, payment.getSpecificSymbol());
+    }
+
+    static void appendVariableSymbol(StringBuilder target, String variableSymbol) {
+        appendField(target, KEY_X_VS, variableSymbol);
+    }
+
+    static void appendChecksum(StringBuilder target, long checksum) {
+        appendKey(target, KEY_CRC32);
+        appendHex(target, checksum);
+    }
+
+    /**
+     * Writes the SPD string to the given appendable, see {@link #serializeTo(Payment, boolean, boolean, StringBuilder)}.
+     */
+    public static void serializeTo(
+            Payment payment, boolean includeChecksum, boolean normalizeStrings, Appendable target) throws IOException {
+        if (target instanceof StringBuilder) {
+            serializeTo(payment, includeChecksum, normalizeStrings, (StringBuilder) target);
+            return;
         }
-        if (payment.getVariableSymbol() != null) {
-            fields.put("X-VS", payment.getVariableSymbol());
+        StringBuilder builder = SCRATCH.get().builder;
+        builder.setLength(0);
+        serializeTo(payment, includeChecksum, normalizeStrings, builder);
+        target.append(builder);
+    }
+
+    /**
+     * Writes the SPD string encoded in ISO-8859-1, the character set of the QR code, to the buffer.
+     * Characters outside of ISO-8859-1 are written as {@code ?}, the same way as the QR code encoder does.
+     * The fields are encoded once, the checksum is computed from the encoded bytes.
+     *
+     * @return the number of bytes written, the position of the buffer is advanced by it
+     * @throws java.nio.BufferOverflowException if the buffer has not enough space left, nothing is written then
+     */
+    public static int serializeTo(
+            Payment payment, boolean includeChecksum, boolean normalizeStrings, ByteBuffer target) {
+        ByteBuffer bytes = serializeToBytes(payment, includeChecksum, normalizeStrings);
+        int length = bytes.remaining();
+        target.put(bytes);
+        return length;
+    }
+
+    /**
+     * Serializes to the per-thread byte buffer, see {@link #serializeTo(Payment, boolean, boolean, ByteBuffer)}.
+     *
+     * @return the buffer with the bytes between its position and limit, valid until the next call on the thread
+     */
+    static ByteBuffer serializeToBytes(Payment payment, boolean includeChecksum, boolean normalizeStrings) {
+        Scratch scratch = SCRATCH.get();
+        StringBuilder builder = scratch.builder;
+        builder.setLength(0);
+        serializeTo(payment, false, normalizeStrings, builder);
+
+        int fieldsStart = HEADER.length() + 1;
+        int checksumLength = includeChecksum ? KEY_CRC32.length() + 10 : 0;
+        byte[] bytes = scratch.bytes(builder.length() + checksumLength);
+        int length = encodeIso88591(builder, 0, builder.length(), bytes, 0);
+        if (includeChecksum) {
+            CRC32 crc32 = scratch.crc32;
+            crc32.reset();
+            crc32.update(bytes, fieldsStart, length - fieldsStart);
+            builder.setLength(0);
+            appendChecksum(builder, crc32.getValue());
+            length = encodeIso88591(builder, 0, builder.length(), bytes, length);
         }
-        if (payment.getSpecificSymbol() != null) {
-            fields.put("X-SS", payment.getSpecificSymbol());
+        ByteBuffer view = scratch.byteView;
+        view.clear().limit(length);
+        return view;
+    }
+
+    /**
+     * The per-thread CRC32 instance, reset.
+     */
+    static CRC32 resetChecksum() {
+        CRC32 crc32 = SCRATCH.get().crc32;
+        crc32.reset();
+        return crc32;
+    }
+
+    /**
+     * Updates the CRC32 with the characters encoded in ISO-8859-1, the bytes stored in the QR code.
+     */
+    static void updateChecksum(CRC32 crc32, CharSequence value, int start, int end) {
+        byte[] bytes = SCRATCH.get().checksumBytes;
+        for (int chunkStart = start; chunkStart < end; ) {
+            int chunkEnd = Math.min(end, chunkStart + bytes.length);
+            if (chunkEnd < end && Character.isHighSurrogate(value.charAt(chunkEnd - 1))) {
+                // Keep surrogate pairs in one chunk
+                chunkEnd--;
+            }
+            crc32.update(bytes, 0, encodeIso88591(value, chunkStart, chunkEnd, bytes, 0));
+            chunkStart = chunkEnd;
         }
+    }
 
-        String fieldsAsString = fields.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(e -> e.getKey() + ":" + e.getValue())
-                .collect(Collectors.joining("*"));
+    /**
+     * Encodes the characters the same way as {@code String.getBytes(StandardCharsets.ISO_8859_1)}:
+     * a character outside of ISO-8859-1 or a surrogate pair becomes {@code ?}.
+     * The target must have space for one byte per character.
+     *
+     * @return the offset after the last byte written
+     */
+    static int encodeIso88591(CharSequence value, int start, int end, byte[] target, int offset) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c <= 0xFF) {
+                target[offset++] = (byte) c;
+                continue;
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                i++;
+            }
+            target[offset++] = '?';
+        }
+        return offset;
+    }
 
-        String result = "SPD*1.0*" + fieldsAsString;
-        if (includeChecksum) {
-            CRC32 crc32 = new CRC32();
-            crc32.update(fieldsAsString.getBytes());
-            String checksum = Long.toHexString(crc32.getValue()).toUpperCase();
-            result += "*CRC32:" + checksum;
+    /**
+     * Uppercase hexadecimal representation without leading zeros.
+     */
+    private static void appendHex(StringBuilder target, long value) {
+        int shift = 60;
+        while (shift > 0 && (value >>> shift & 0xF) == 0) {
+            shift -= 4;
+        }
+        for (; shift >= 0; shift -= 4) {
+            target.append(HEX_DIGITS[(int) (value >>> shift & 0xF)]);
         }
-        return result;
     }
 }
@@ -0,0 +1,134 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.Payment;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * Precompiled SPD string for many payments to the same account, which differ only in the amount,
+ * the due date and the variable symbol.
+ * <p>
+ * All the other fields are validated, normalized and serialized once, when the template is compiled.
+ * Serializing a payment then only splices the variable fields in between the prepared segments,
+ * and the CRC32 (if enabled) is computed from the pre-encoded segment bytes and the new characters.
+ * The result is identical to {@link SpaydSerializer#serialize(Payment, boolean, boolean)} of the complete payment.
+ * <p>
+ * Templates are immutable and thread-safe.
+ */
+public class SpaydTemplate {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final boolean includeChecksum;
+
+    /** Header and the account fields. */
+    private final String accounts;
+    /** Currency. */
+    private final String currency;
+    /** Message, notification, payment type, references, beneficiary name, constant and specific symbol. */
+    private final String details;
+
+    private final byte[] accountsBytes;
+    private final byte[] currencyBytes;
+    private final byte[] detailsBytes;
+
+    private SpaydTemplate(Payment template, boolean includeChecksum, boolean normalizeStrings) {
+        this.includeChecksum = includeChecksum;
+
+        StringBuilder builder = new StringBuilder(INITIAL_CAPACITY).append(SpaydSerializer.HEADER);
+        SpaydSerializer.appendAccounts(builder, template);
+        this.accounts = builder.toString();
+
+        builder.setLength(0);
+        SpaydSerializer.appendCurrency(builder, template);
+        this.currency = builder.toString();
+
+        builder.setLength(0);
+        SpaydSerializer.appendDetails(builder, template, normalizeStrings);
+        this.details = builder.toString();
+
+        // The checksum covers the fields only, without the header and its separator
+        this.accountsBytes = accounts.substring(SpaydSerializer.HEADER.length() + 1).getBytes(StandardCharsets.ISO_8859_1);
+        this.currencyBytes = currency.getBytes(StandardCharsets.ISO_8859_1);
+        this.detailsBytes = details.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Compiles the template.
+     *
+     * @param template payment with the fields shared by all payments; the amount, due date and variable symbol
+     *                 must not be set, they are provided for every payment
+     * @throws IllegalArgumentException if the template is invalid
+     */
+    public static SpaydTemplate compile(Payment template, boolean includeChecksum, boolean normalizeStrings) {
+        SpaydSerializer.validate(template);
+        if (template.getAmount() != null) {
+            throw new IllegalArgumentException("Amount must not be set in a template");
+        }
+        if (template.getPaymentDueDate() != null) {
+            throw new IllegalArgumentException("Payment due date must not be set in a template");
+        }
+        if (template.getVariableSymbol() != null) {
+            throw new IllegalArgumentException("Variable symbol must not be set in a template");
+        }
+        return new SpaydTemplate(template, includeChecksum, normalizeStrings);
+    }
+
+    public static SpaydTemplate compile(Payment template) {
+        return compile(template, false, true);
+    }
+
+    /**
+     * @param amount amount, or {@code null} to omit the field
+     * @param dueDate due date, or {@code null} to omit the field
+     * @param variableSymbol variable symbol, or {@code null} to omit the field
+     */
+    public String serialize(BigDecimal amount, LocalDate dueDate, String variableSymbol) {
+        return serializeTo(new StringBuilder(INITIAL_CAPACITY), amount, dueDate, variableSymbol).toString();
+    }
+
+    /**
+     * Appends the SPD string to the builder, see {@link #serialize(BigDecimal, LocalDate, String)}.
+     *
+     * @return the target builder
+     */
+    public StringBuilder serializeTo(StringBuilder target, BigDecimal amount, LocalDate dueDate, String variableSymbol) {
+        CRC32 crc32 = includeChecksum ? SpaydSerializer.resetChecksum() : null;
+
+        appendSegment(target, crc32, accounts, accountsBytes);
+        int start = target.length();
+        SpaydSerializer.appendAmount(target, amount);
+        updateChecksum(crc32, target, start);
+
+        appendSegment(target, crc32, currency, currencyBytes);
+        start = target.length();
+        SpaydSerializer.appendDueDate(target, dueDate);
+        updateChecksum(crc32, target, start);
+
+        appendSegment(target, crc32, details, detailsBytes);
+        start = target.length();
+        SpaydSerializer.appendVariableSymbol(target, variableSymbol);
+        updateChecksum(crc32, target, start);
+
+        if (crc32 != null) {
+            SpaydSerializer.appendChecksum(target, crc32.getValue());
+        }
+        return target;
+    }
+
+    private static void appendSegment(StringBuilder target, CRC32 crc32, String segment, byte[] segmentBytes) {
+        target.append(segment);
+        if (crc32 != null) {
+            crc32.update(segmentBytes);
+        }
+    }
+
+    private static void updateChecksum(CRC32 crc32, StringBuilder target, int start) {
+        if (crc32 != null) {
+            SpaydSerializer.updateChecksum(crc32, target, start, target.length());
+        }
+    }
+}
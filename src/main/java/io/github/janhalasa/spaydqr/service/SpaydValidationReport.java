@@ -0,0 +1,73 @@
+package io.github.janhalasa.spaydqr.service;
+
+import java.util.Set;
+
+/**
+ * Violations of every payment of a batch validated by {@link SpaydValidator#validateAll}, by the index
+ * of the payment in the list.
+ */
+public final class SpaydValidationReport {
+
+    private final long[] violations;
+    private final int invalid;
+
+    SpaydValidationReport(long[] violations) {
+        this.violations = violations;
+        int count = 0;
+        for (long payment : violations) {
+            if (payment != 0) {
+                count++;
+            }
+        }
+        this.invalid = count;
+    }
+
+    public int getTotal() {
+        return violations.length;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public int getValid() {
+        return violations.length - invalid;
+    }
+
+    /**
+     * @return true if all the payments are valid
+     */
+    public boolean isValid() {
+        return invalid == 0;
+    }
+
+    public boolean isValid(int index) {
+        return violations[index] == 0;
+    }
+
+    /**
+     * A new set of the violations of the payment, empty for a valid one.
+     */
+    public Set<SpaydViolation> getViolations(int index) {
+        return SpaydValidationResult.toSet(violations[index]);
+    }
+
+    /**
+     * Indexes of the invalid payments in ascending order.
+     */
+    public int[] getInvalidIndexes() {
+        int[] indexes = new int[invalid];
+        int count = 0;
+        for (int i = 0; i < violations.length; i++) {
+            if (violations[i] != 0) {
+                indexes[count++] = i;
+            }
+        }
+        return indexes;
+    }
+
+    @Override
+    public String toString() {
+        return "SpaydValidationReport(total=" + getTotal() + ", invalid=" + invalid + ")";
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.janhalasa.spaydqr.service;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Violations found by {@link SpaydValidator}, every rule at most once.
+ * <p>
+ * The violations are kept as bits of a {@code long}, so validating into a reused result allocates nothing.
+ * A result is reset by every validation. It must not be shared by multiple threads at the same time.
+ */
+public final class SpaydValidationResult {
+
+    private static final SpaydViolation[] VIOLATIONS = SpaydViolation.values();
+
+    private long violations;
+    private IbanError ibanError;
+
+    void reset() {
+        violations = 0;
+        ibanError = null;
+    }
+
+    void add(SpaydViolation violation) {
+        violations |= 1L << violation.ordinal();
+    }
+
+    /**
+     * Keeps the first IBAN error of the payment.
+     */
+    void add(SpaydViolation violation, IbanError error) {
+        add(violation);
+        if (ibanError == null) {
+            ibanError = error;
+        }
+    }
+
+    long getMask() {
+        return violations;
+    }
+
+    public boolean isValid() {
+        return violations == 0;
+    }
+
+    public boolean has(SpaydViolation violation) {
+        return (violations & 1L << violation.ordinal()) != 0;
+    }
+
+    public int getViolationCount() {
+        return Long.bitCount(violations);
+    }
+
+    /**
+     * A new set of the violations, in the declaration order.
+     */
+    public Set<SpaydViolation> getViolations() {
+        return toSet(violations);
+    }
+
+    /**
+     * Why the first invalid IBAN of the payment (account or alternative account) is invalid, null if none is.
+     */
+    public IbanError getIbanError() {
+        return ibanError;
+    }
+
+    /**
+     * Messages of the violations separated by {@code "; "}, null for a valid payment.
+     */
+    public String getMessage() {
+        if (violations == 0) {
+            return null;
+        }
+        StringBuilder message = new StringBuilder();
+        for (long remaining = violations; remaining != 0; remaining &= remaining - 1) {
+            if (message.length() > 0) {
+                message.append("; ");
+            }
+            message.append(VIOLATIONS[Long.numberOfTrailingZeros(remaining)].getMessage());
+        }
+        return message.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException with {@link #getMessage()} if there is any violation
+     */
+    public void throwIfInvalid() {
+        if (violations != 0) {
+            throw new IllegalArgumentException(getMessage());
+        }
+    }
+
+    static Set<SpaydViolation> toSet(long violations) {
+        Set<SpaydViolation> set = EnumSet.noneOf(SpaydViolation.class);
+        for (long remaining = violations; remaining != 0; remaining &= remaining - 1) {
+            set.add(VIOLATIONS[Long.numberOfTrailingZeros(remaining)]);
+        }
+        return set;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "SpaydValidationResult(valid)" : "SpaydValidationResult(" + getViolations() + ")";
+    }
+}
@@ -0,0 +1,329 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks payments against the rules of the SPAYD specification before they are serialized:
+ * the IBANs and BICs of the accounts, at most 2 alternative accounts, the amount (non-negative, up to 9999999.99
+ * with 2 decimal places), an ISO 4217 currency code, the due date, the lengths of the text fields, digit-only
+ * symbols and reference, the notification type and the character set of the text fields (printable ISO-8859-1
+ * without the {@code *} separator). {@link SpaydSerializer} itself only requires the account.
+ * <p>
+ * All the violations are collected to a {@link SpaydValidationResult} instead of throwing at the first one.
+ * Every field is scanned once, the characters are classified by a table of ISO-8859-1 built at class
+ * initialization, the currency codes are looked up in a table of all the ISO 4217 codes known to the JDK.
+ * Validating a payment into a reused result allocates nothing, except for normalizing non-ASCII text.
+ */
+public final class SpaydValidator {
+
+    static final int MAX_ALTERNATIVE_ACCOUNTS = 2;
+    static final int MAX_MESSAGE_LENGTH = 60;
+    static final int MAX_NOTIFICATION_ADDRESS_LENGTH = 320;
+    static final int MAX_BENEFICIARY_NAME_LENGTH = 35;
+    static final int MAX_SYMBOL_DIGITS = 10;
+    static final int MAX_REFERENCE_DIGITS = 16;
+
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("9999999.99");
+    private static final int MAX_AMOUNT_SCALE = 2;
+    private static final int MAX_YEAR = 9999;
+
+    private static final int BIC_LENGTH = 8;
+    private static final int BIC_BRANCH_LENGTH = 11;
+    private static final int BIC_LETTERS = 6;
+
+    /**
+     * Payments validated by one task of a batch, so that small batches are not split at all.
+     */
+    private static final int MIN_CHUNK_SIZE = 1024;
+
+    /*
+     * Character classes of ISO-8859-1.
+     */
+    private static final byte DIGIT = 1;
+    private static final byte LETTER = 2;
+    private static final byte CONTROL = 4;
+
+    private static final byte[] CLASSES = new byte[256];
+
+    /**
+     * ISO 4217 codes by {@link #currencyIndex}.
+     */
+    private static final boolean[] CURRENCIES = new boolean[26 * 26 * 26];
+
+    static {
+        for (int c = 0; c < CLASSES.length; c++) {
+            if (c >= '0' && c <= '9') {
+                CLASSES[c] = DIGIT;
+            } else if (c >= 'A' && c <= 'Z') {
+                CLASSES[c] = LETTER;
+            } else if (c < 0x20 || (c >= 0x7F && c < 0xA0)) {
+                CLASSES[c] = CONTROL;
+            }
+        }
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            String code = currency.getCurrencyCode();
+            if (isCurrencyFormat(code)) {
+                CURRENCIES[currencyIndex(code)] = true;
+            }
+        }
+    }
+
+    private SpaydValidator() {
+    }
+
+    /**
+     * Validates the payment with the text fields normalized, the way {@link SpaydSerializer#serialize(Payment)}
+     * writes them.
+     */
+    public static SpaydValidationResult validate(Payment payment) {
+        SpaydValidationResult result = new SpaydValidationResult();
+        validate(payment, true, result);
+        return result;
+    }
+
+    /**
+     * Validates the payment into the result, replacing its previous content.
+     *
+     * @param normalizeStrings see {@link SpaydSerializer#serialize(Payment, boolean, boolean)}, the message
+     *                         and the beneficiary name are checked as they will be serialized
+     * @return true if the payment is valid
+     */
+    public static boolean validate(Payment payment, boolean normalizeStrings, SpaydValidationResult result) {
+        result.reset();
+        validateAccounts(payment, result);
+
+        BigDecimal amount = payment.getAmount();
+        if (amount != null) {
+            if (amount.signum() < 0) {
+                result.add(SpaydViolation.AMOUNT_NEGATIVE);
+            }
+            if (amount.scale() > MAX_AMOUNT_SCALE && amount.stripTrailingZeros().scale() > MAX_AMOUNT_SCALE) {
+                result.add(SpaydViolation.AMOUNT_PRECISION);
+            }
+            if (amount.compareTo(MAX_AMOUNT) > 0) {
+                result.add(SpaydViolation.AMOUNT_TOO_LARGE);
+            }
+        }
+        String currencyCode = payment.getCurrencyCode();
+        if (currencyCode != null && !isCurrency(currencyCode)) {
+            result.add(SpaydViolation.CURRENCY);
+        }
+        LocalDate dueDate = payment.getPaymentDueDate();
+        if (dueDate != null && (dueDate.getYear() < 1 || dueDate.getYear() > MAX_YEAR)) {
+            result.add(SpaydViolation.DUE_DATE);
+        }
+
+        String paymentNote = payment.getPaymentNote();
+        if (paymentNote != null) {
+            validateText(normalizeStrings ? TextNormalizer.normalize(paymentNote) : paymentNote,
+                    MAX_MESSAGE_LENGTH, SpaydViolation.MESSAGE_LENGTH, result);
+        }
+        validateNotification(payment.getNotificationType(), payment.getNotificationAddress(), result);
+        validateDigits(payment.getOriginatorsReference(), MAX_REFERENCE_DIGITS,
+                SpaydViolation.ORIGINATORS_REFERENCE, result);
+        String beneficiaryName = payment.getBeneficiaryName();
+        if (beneficiaryName != null) {
+            validateText(normalizeStrings ? TextNormalizer.normalize(beneficiaryName) : beneficiaryName,
+                    MAX_BENEFICIARY_NAME_LENGTH, SpaydViolation.BENEFICIARY_NAME_LENGTH, result);
+        }
+        validateDigits(payment.getConstantSymbol(), MAX_SYMBOL_DIGITS, SpaydViolation.CONSTANT_SYMBOL, result);
+        validateDigits(payment.getSpecificSymbol(), MAX_SYMBOL_DIGITS, SpaydViolation.SPECIFIC_SYMBOL, result);
+        validateDigits(payment.getVariableSymbol(), MAX_SYMBOL_DIGITS, SpaydViolation.VARIABLE_SYMBOL, result);
+        return result.isValid();
+    }
+
+    /**
+     * Validates all the payments with the text fields normalized on {@link ForkJoinPool#commonPool()},
+     * see {@link #validateAll(List, boolean, Executor)}.
+     */
+    public static SpaydValidationReport validateAll(List<? extends Payment> payments) {
+        return validateAll(payments, true, null);
+    }
+
+    /**
+     * Validates a batch of payments, e.g. an invoice run before rendering starts. The list is split into chunks
+     * validated in parallel, each into its own reused result; the calling thread validates the last chunk
+     * and waits for the others.
+     *
+     * @param executor executor validating the chunks, {@link ForkJoinPool#commonPool()} if {@code null}
+     * @throws NullPointerException if a payment is null
+     */
+    public static SpaydValidationReport validateAll(
+            List<? extends Payment> payments, boolean normalizeStrings, Executor executor) {
+        List<? extends Payment> list = payments instanceof RandomAccess ? payments : new ArrayList<>(payments);
+        int size = list.size();
+        long[] violations = new long[size];
+        int parallelism = executor == null
+                ? ForkJoinPool.getCommonPoolParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        // A few chunks per thread even out payments taking longer than others
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (size + 4 * parallelism - 1) / (4 * parallelism));
+        if (size <= chunkSize) {
+            validateRange(list, 0, size, normalizeStrings, violations);
+            return new SpaydValidationReport(violations);
+        }
+
+        Executor chunkExecutor = executor == null ? ForkJoinPool.commonPool() : executor;
+        int chunkCount = (size + chunkSize - 1) / chunkSize;
+        CompletableFuture<?>[] chunks = new CompletableFuture<?>[chunkCount - 1];
+        for (int i = 0; i < chunks.length; i++) {
+            int start = i * chunkSize;
+            chunks[i] = CompletableFuture.runAsync(
+                    () -> validateRange(list, start, start + chunkSize, normalizeStrings, violations), chunkExecutor);
+        }
+        validateRange(list, (chunkCount - 1) * chunkSize, size, normalizeStrings, violations);
+        try {
+            CompletableFuture.allOf(chunks).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return new SpaydValidationReport(violations);
+    }
+
+    private static void validateRange(
+            List<? extends Payment> payments, int start, int end, boolean normalizeStrings, long[] violations) {
+        SpaydValidationResult result = new SpaydValidationResult();
+        for (int i = start; i < end; i++) {
+            validate(payments.get(i), normalizeStrings, result);
+            violations[i] = result.getMask();
+        }
+    }
+
+    private static void validateAccounts(Payment payment, SpaydValidationResult result) {
+        BankAccount bankAccount = payment.getBankAccount();
+        if (bankAccount == null) {
+            result.add(SpaydViolation.ACCOUNT_MISSING);
+        } else {
+            validateAccount(bankAccount, SpaydViolation.ACCOUNT_IBAN, SpaydViolation.ACCOUNT_BIC, result);
+        }
+        List<BankAccount> alternativeBankAccounts = payment.getAlternativeBankAccounts();
+        if (alternativeBankAccounts == null) {
+            return;
+        }
+        if (alternativeBankAccounts.size() > MAX_ALTERNATIVE_ACCOUNTS) {
+            result.add(SpaydViolation.ALTERNATIVE_ACCOUNT_COUNT);
+        }
+        for (int i = 0; i < alternativeBankAccounts.size(); i++) {
+            BankAccount alternative = alternativeBankAccounts.get(i);
+            if (alternative == null) {
+                result.add(SpaydViolation.ALTERNATIVE_ACCOUNT_IBAN, IbanError.EMPTY);
+            } else {
+                validateAccount(alternative,
+                        SpaydViolation.ALTERNATIVE_ACCOUNT_IBAN, SpaydViolation.ALTERNATIVE_ACCOUNT_BIC, result);
+            }
+        }
+    }
+
+    private static void validateAccount(
+            BankAccount account, SpaydViolation ibanViolation, SpaydViolation bicViolation,
+            SpaydValidationResult result) {
+        IbanError error = IbanValidator.validate(account.getIban());
+        if (error != null) {
+            result.add(ibanViolation, error);
+        }
+        if (account.getBic() != null && !isBic(account.getBic())) {
+            result.add(bicViolation);
+        }
+    }
+
+    private static void validateNotification(String type, String address, SpaydValidationResult result) {
+        if ((type == null) != (address == null)) {
+            result.add(SpaydViolation.NOTIFICATION_INCOMPLETE);
+        }
+        if (type != null && !type.equals("P") && !type.equals("E")) {
+            result.add(SpaydViolation.NOTIFICATION_TYPE);
+        }
+        if (address != null) {
+            validateText(address, MAX_NOTIFICATION_ADDRESS_LENGTH, SpaydViolation.NOTIFICATION_ADDRESS_LENGTH, result);
+        }
+    }
+
+    /**
+     * Checks the length and the character set of a text field in one pass. The {@code *} and {@code %} characters
+     * are valid, {@link SpaydSerializer} escapes them.
+     */
+    private static void validateText(
+            String value, int maxLength, SpaydViolation lengthViolation, SpaydValidationResult result) {
+        int length = value.length();
+        if (length > maxLength) {
+            result.add(lengthViolation);
+        }
+        int classes = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            classes |= c < CLASSES.length ? CLASSES[c] : CONTROL;
+        }
+        if ((classes & CONTROL) != 0) {
+            result.add(SpaydViolation.CHARACTER_SET);
+        }
+    }
+
+    private static void validateDigits(
+            String value, int maxDigits, SpaydViolation violation, SpaydValidationResult result) {
+        if (value != null && !isDigits(value, maxDigits)) {
+            result.add(violation);
+        }
+    }
+
+    private static boolean isDigits(String value, int maxDigits) {
+        int length = value.length();
+        if (length == 0 || length > maxDigits) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!hasClass(value.charAt(i), DIGIT)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Business party prefix (4 letters), country code (2 letters), location (2 letters or digits)
+     * and an optional branch (3 letters or digits).
+     */
+    private static boolean isBic(String bic) {
+        int length = bic.length();
+        if (length != BIC_LENGTH && length != BIC_BRANCH_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!hasClass(bic.charAt(i), i < BIC_LETTERS ? LETTER : DIGIT | LETTER)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCurrency(String code) {
+        return isCurrencyFormat(code) && CURRENCIES[currencyIndex(code)];
+    }
+
+    private static boolean isCurrencyFormat(String code) {
+        return code.length() == 3
+                && hasClass(code.charAt(0), LETTER) && hasClass(code.charAt(1), LETTER) && hasClass(code.charAt(2), LETTER);
+    }
+
+    private static int currencyIndex(String code) {
+        return ((code.charAt(0) - 'A') * 26 + code.charAt(1) - 'A') * 26 + code.charAt(2) - 'A';
+    }
+
+    private static boolean hasClass(char c, int characterClass) {
+        return c < CLASSES.length && (CLASSES[c] & characterClass) != 0;
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.janhalasa.spaydqr.service;
+
+/**
+ * Rules of the SPAYD specification a payment can break, see {@link SpaydValidator}.
+ */
+public enum SpaydViolation {
+
+    ACCOUNT_MISSING(SpaydSerializer.KEY_ACC, "Bank account (IBAN) is required"),
+    ACCOUNT_IBAN(SpaydSerializer.KEY_ACC, "IBAN of the bank account is invalid"),
+    ACCOUNT_BIC(SpaydSerializer.KEY_ACC, "BIC of the bank account must be 8 or 11 uppercase letters and digits"),
+    ALTERNATIVE_ACCOUNT_COUNT(SpaydSerializer.KEY_ALT_ACC, "At most 2 alternative bank accounts are allowed"),
+    ALTERNATIVE_ACCOUNT_IBAN(SpaydSerializer.KEY_ALT_ACC, "IBAN of an alternative bank account is invalid"),
+    ALTERNATIVE_ACCOUNT_BIC(SpaydSerializer.KEY_ALT_ACC,
+            "BIC of an alternative bank account must be 8 or 11 uppercase letters and digits"),
+    AMOUNT_NEGATIVE(SpaydSerializer.KEY_AM, "Amount cannot be negative"),
+    AMOUNT_PRECISION(SpaydSerializer.KEY_AM, "Amount can have at most 2 decimal places"),
+    AMOUNT_TOO_LARGE(SpaydSerializer.KEY_AM, "Amount cannot exceed 9999999.99"),
+    CURRENCY(SpaydSerializer.KEY_CC, "Currency must be an ISO 4217 code of 3 uppercase letters"),
+    DUE_DATE(SpaydSerializer.KEY_DT, "Due date must be in the years 1 to 9999"),
+    MESSAGE_LENGTH(SpaydSerializer.KEY_MSG, "Message cannot exceed 60 characters"),
+    NOTIFICATION_TYPE(SpaydSerializer.KEY_NT, "Notification type must be P (phone) or E (e-mail)"),
+    NOTIFICATION_ADDRESS_LENGTH(SpaydSerializer.KEY_NTA, "Notification address cannot exceed 320 characters"),
+    NOTIFICATION_INCOMPLETE(SpaydSerializer.KEY_NT, "Notification type and address must be given together"),
+    ORIGINATORS_REFERENCE(SpaydSerializer.KEY_RF, "Originator's reference must be 1 to 16 digits"),
+    BENEFICIARY_NAME_LENGTH(SpaydSerializer.KEY_RN, "Beneficiary name cannot exceed 35 characters"),
+    CONSTANT_SYMBOL(SpaydSerializer.KEY_X_KS, "Constant symbol must be 1 to 10 digits"),
+    SPECIFIC_SYMBOL(SpaydSerializer.KEY_X_SS, "Specific symbol must be 1 to 10 digits"),
+    VARIABLE_SYMBOL(SpaydSerializer.KEY_X_VS, "Variable symbol must be 1 to 10 digits"),
+    /**
+     * A text field (message, notification address or beneficiary name) contains a character
+     * outside of ISO-8859-1 or a control character.
+     */
+    CHARACTER_SET(null, "Text can contain only printable ISO-8859-1 characters");
+
+    private final String key;
+    private final String message;
+
+    SpaydViolation(String key, String message) {
+        this.key = key;
+        this.message = message;
+    }
+
+    /**
+     * The SPAYD key of the field, e.g. {@code X-VS}, null if the rule applies to all text fields.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
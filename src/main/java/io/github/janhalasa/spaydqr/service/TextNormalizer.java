@@ -0,0 +1,112 @@
+package io.github.janhalasa.spaydqr.service;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Locale;
+
+/**
+ * Normalizes free text fields (message, beneficiary name) the way {@code SpaydSerializer} always has:
+ * {@code StringUtils.stripAccents(value.trim()).toUpperCase()}.
+ * <p>
+ * Instead of the Unicode decomposition, a regular expression and three intermediate strings, every character
+ * is looked up in a table built at class initialization from that very expression, one character at a time.
+ * The table covers Latin-1, Latin Extended-A (all the Czech and Slovak letters) and the general punctuation
+ * (dashes, quotes), text with other characters falls back to the original expression.
+ * Uppercase ASCII text with nothing to trim is returned as is.
+ */
+final class TextNormalizer {
+
+    private static final char LATIN_END = '\u0180';
+    private static final char PUNCTUATION_START = '\u2000';
+    private static final char PUNCTUATION_END = '\u2070';
+
+    /**
+     * Marks characters not normalized to a single character, such as the German sharp s (uppercase SS).
+     */
+    private static final char NOT_MAPPED = '\uFFFF';
+
+    private static final char[] LATIN = new char[LATIN_END];
+    private static final char[] PUNCTUATION = new char[PUNCTUATION_END - PUNCTUATION_START];
+
+    static {
+        for (char c = 0; c < LATIN_END; c++) {
+            LATIN[c] = map(c);
+        }
+        for (char c = PUNCTUATION_START; c < PUNCTUATION_END; c++) {
+            PUNCTUATION[c - PUNCTUATION_START] = map(c);
+        }
+    }
+
+    private TextNormalizer() {
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        int length = value.length();
+        int start = 0;
+        int end = length;
+        // The same characters as String.trim()
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        int i = start;
+        while (i < end && isUnchanged(value.charAt(i))) {
+            i++;
+        }
+        if (i == end) {
+            return start == 0 && end == length ? value : value.substring(start, end);
+        }
+        if (!hasDefaultCaseMapping(Locale.getDefault())) {
+            return reference(value);
+        }
+
+        char[] result = new char[end - start];
+        value.getChars(start, i, result, 0);
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            char mapped;
+            if (c < LATIN_END) {
+                mapped = LATIN[c];
+            } else if (c >= PUNCTUATION_START && c < PUNCTUATION_END) {
+                mapped = PUNCTUATION[c - PUNCTUATION_START];
+            } else {
+                mapped = NOT_MAPPED;
+            }
+            if (mapped == NOT_MAPPED) {
+                return reference(value);
+            }
+            result[i - start] = mapped;
+        }
+        return new String(result);
+    }
+
+    /**
+     * The original normalization.
+     */
+    static String reference(String value) {
+        return StringUtils.stripAccents(value.trim()).toUpperCase();
+    }
+
+    private static boolean isUnchanged(char c) {
+        return c < 0x7F && (c < 'a' || c > 'z');
+    }
+
+    /**
+     * Lithuanian, Turkish and Azerbaijani have their own uppercase rules for i and dotted letters.
+     */
+    private static boolean hasDefaultCaseMapping(Locale locale) {
+        String language = locale.getLanguage();
+        return !language.equals("lt") && !language.equals("tr") && !language.equals("az");
+    }
+
+    private static char map(char c) {
+        String mapped = StringUtils.stripAccents(String.valueOf(c)).toUpperCase(Locale.ROOT);
+        return mapped.length() == 1 ? mapped.charAt(0) : NOT_MAPPED;
+    }
+}
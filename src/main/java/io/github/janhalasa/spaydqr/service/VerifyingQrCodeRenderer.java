@@ -0,0 +1,204 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.ReaderException;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import io.github.janhalasa.spaydqr.model.Payment;
+import lombok.Builder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorator checking that the rendered images scan: a sample of the PNG images is decoded back with zxing's
+ * QR code reader and compared to the SPD string they were rendered from.
+ * <p>
+ * The verification runs on the configured executor, so rendering is not slowed down by it. At most
+ * {@code maxPending} images are waiting for or being verified, further sampled images are dropped
+ * (and counted) rather than queued, so the memory used does not grow when the verification cannot keep up.
+ * Mismatches are reported to the listener and all results are summarized by {@link #getStats()}.
+ */
+public class VerifyingQrCodeRenderer implements QrCodeRenderer {
+
+    private static final Map<DecodeHintType, Object> DECODE_HINTS = new EnumMap<>(DecodeHintType.class);
+
+    static {
+        DECODE_HINTS.put(DecodeHintType.CHARACTER_SET, StandardCharsets.ISO_8859_1.name());
+    }
+
+    private final QrCodeRenderer delegate;
+    private final Executor executor;
+    private final double samplingRate;
+    private final int maxPending;
+    private final QrVerificationListener listener;
+    private final QrCodeMetrics metrics;
+    private final Semaphore pending;
+
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private final LongAdder unreadable = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder totalDecodeNanos = new LongAdder();
+    private final LongAccumulator maxDecodeNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param delegate the renderer whose images are verified
+     * @param executor executor decoding the images, {@link ForkJoinPool#commonPool()} if {@code null}
+     * @param samplingRate fraction of the images verified, from 0 to 1, all of them if {@code null}
+     * @param maxPending maximum number of images waiting for or being verified,
+     *                   twice the number of processors if {@code null}
+     * @param listener receives the images not scanning back to their string, none if {@code null}
+     * @param metrics notified about every verified image, {@link QrCodeMetrics#NONE} if {@code null}
+     */
+    @Builder
+    public VerifyingQrCodeRenderer(
+            QrCodeRenderer delegate,
+            Executor executor,
+            Double samplingRate,
+            Integer maxPending,
+            QrVerificationListener listener,
+            QrCodeMetrics metrics) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Renderer is required");
+        }
+        if (samplingRate != null && !(samplingRate >= 0 && samplingRate <= 1)) {
+            throw new IllegalArgumentException("Sampling rate must be between 0 and 1: " + samplingRate);
+        }
+        if (maxPending != null && maxPending < 1) {
+            throw new IllegalArgumentException("Max pending count must be positive: " + maxPending);
+        }
+        this.delegate = delegate;
+        this.executor = executor == null ? ForkJoinPool.commonPool() : executor;
+        this.samplingRate = samplingRate == null ? 1 : samplingRate;
+        this.maxPending = maxPending == null ? 2 * Runtime.getRuntime().availableProcessors() : maxPending;
+        this.listener = listener;
+        this.metrics = metrics == null ? QrCodeMetrics.NONE : metrics;
+        this.pending = new Semaphore(this.maxPending);
+    }
+
+    public byte[] render(Payment payment, int size) throws IOException, WriterException {
+        return render(SpaydSerializer.serialize(payment), size);
+    }
+
+    @Override
+    public byte[] render(String spaydString, int size) throws IOException, WriterException {
+        byte[] image = delegate.render(spaydString, size);
+        if (isSampled()) {
+            submit(spaydString, image);
+        }
+        return image;
+    }
+
+    @Override
+    public RenderingOptions getOptions() {
+        return delegate.getOptions();
+    }
+
+    public QrVerificationStats getStats() {
+        return new QrVerificationStats(
+                verified.sum(),
+                mismatches.sum(),
+                unreadable.sum(),
+                dropped.sum(),
+                skipped.sum(),
+                totalDecodeNanos.sum(),
+                maxDecodeNanos.get());
+    }
+
+    /**
+     * Waits until the images submitted so far are verified, e.g. at the end of a batch.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitVerification(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!pending.tryAcquire(maxPending, timeout, unit)) {
+            return false;
+        }
+        pending.release(maxPending);
+        return true;
+    }
+
+    private boolean isSampled() {
+        return samplingRate >= 1 || (samplingRate > 0 && ThreadLocalRandom.current().nextDouble() < samplingRate);
+    }
+
+    private void submit(String spaydString, byte[] image) {
+        if (getOptions().getFormat() != ImageFormat.PNG) {
+            skipped.increment();
+            return;
+        }
+        if (!pending.tryAcquire()) {
+            dropped.increment();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    verify(spaydString, image);
+                } finally {
+                    pending.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            dropped.increment();
+        }
+    }
+
+    private void verify(String spaydString, byte[] image) {
+        long start = System.nanoTime();
+        String decoded = decode(image);
+        long nanos = System.nanoTime() - start;
+        totalDecodeNanos.add(nanos);
+        maxDecodeNanos.accumulate(nanos);
+        verified.increment();
+        boolean matches = spaydString.equals(decoded);
+        metrics.onVerified(nanos, matches);
+
+        if (matches) {
+            return;
+        }
+        if (decoded == null) {
+            unreadable.increment();
+        } else {
+            mismatches.increment();
+        }
+        if (listener != null) {
+            listener.onMismatch(spaydString, decoded);
+        }
+    }
+
+    /**
+     * @return the text of the QR code or null if the image cannot be read or contains no QR code
+     */
+    static String decode(byte[] png) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+            if (image == null) {
+                return null;
+            }
+            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+            return new QRCodeReader().decode(bitmap, DECODE_HINTS).getText();
+        } catch (IOException | ReaderException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.Encoder;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Encoder backed by zxing's {@link Encoder}, the reference for {@link SpaydQrEncoder}.
+ */
+public final class ZxingQrEncoder implements QrEncoder {
+
+    public static final ZxingQrEncoder INSTANCE = new ZxingQrEncoder();
+
+    private static final Map<EncodeHintType, Object> HINTS;
+
+    static {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.CHARACTER_SET, "ISO-8859-1");
+        HINTS = Collections.unmodifiableMap(hints);
+    }
+
+    private ZxingQrEncoder() {
+    }
+
+    @Override
+    public QrMatrix encode(String content, ErrorCorrectionLevel errorCorrectionLevel) throws WriterException {
+        return QrMatrix.from(Encoder.encode(content, errorCorrectionLevel, HINTS).getMatrix());
+    }
+
+    @Override
+    public String toString() {
+        return "ZxingQrEncoder";
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.janhalasa.spaydqr.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmountFormatterTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "123.45, 123.45",
+            "123.450, 123.45",
+            "100, 100",
+            "1E+5, 100000",
+            "0, 0",
+            "0.00, 0",
+            "0.5, 0.5",
+            "-12.3400, -12.34",
+            "0.000000001, 0.000000001",
+            "0.0000000015, 0.000000002",
+            "0.0000000005, 0",
+            "-0.0000000001, -0",
+            "0.1234567895, 0.12345679",
+            "123456789012345678901234567890.123456789123, 123456789012345678901234567890.123456789",
+            "1.00000000000000000000000000001, 1",
+            "12345678901234567890123E-25, 0.001234568",
+            "98765432109876543210E+3, 98765432109876543210000",
+    })
+    void givenAmount_whenFormat_thenSameAsDecimalFormat(String amount, String expected) {
+        BigDecimal value = new BigDecimal(amount);
+        assertEquals(expected, AmountFormatter.format(value));
+        assertEquals(referenceFormat().format(value), AmountFormatter.format(value));
+    }
+
+    @Test
+    void givenRandomAmounts_whenFormat_thenSameAsDecimalFormat() {
+        DecimalFormat reference = referenceFormat();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = randomAmount(random);
+            assertEquals(reference.format(amount), AmountFormatter.format(amount), amount::toString);
+        }
+    }
+
+    @Test
+    void givenManyThreads_whenFormatConcurrently_thenAllResultsCorrect() throws Exception {
+        int threads = 8;
+        int iterations = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long seed = t;
+                results.add(executor.submit((Callable<Integer>) () -> {
+                    DecimalFormat reference = referenceFormat();
+                    Random random = new Random(seed);
+                    StringBuilder builder = new StringBuilder();
+                    int mismatches = 0;
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        BigDecimal amount = randomAmount(random);
+                        builder.setLength(0);
+                        AmountFormatter.appendTo(builder, amount);
+                        if (!reference.format(amount).contentEquals(builder)) {
+                            mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(0, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static BigDecimal randomAmount(Random random) {
+        BigInteger unscaled = random.nextInt(10) == 0
+                ? new BigInteger(100, random)
+                : BigInteger.valueOf(random.nextLong() >> random.nextInt(64));
+        if (random.nextBoolean()) {
+            unscaled = unscaled.negate();
+        }
+        return new BigDecimal(unscaled, random.nextInt(30) - 8);
+    }
+
+    private static DecimalFormat referenceFormat() {
+        DecimalFormat decimalFormat = new DecimalFormat("0.##");
+        decimalFormat.setMaximumFractionDigits(9);
+        decimalFormat.setGroupingUsed(false);
+        return decimalFormat;
+    }
+}
@@ -0,0 +1,292 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncQrCodeGeneratorTest {
+
+    private static final int SIZE = 120;
+
+    @Test
+    void givenPayment_whenGenerate_thenSameImageAsSynchronous() throws Exception {
+        Payment payment = payments(2).get(1).getValue();
+
+        byte[] image = AsyncQrCodeGenerator.builder().build().generate(payment, SIZE).get(10, TimeUnit.SECONDS);
+
+        assertArrayEquals(QrCodeGenerator.DEFAULT.generate(payment, SIZE), image);
+    }
+
+    @Test
+    void givenSpaydString_whenRender_thenSameImageAsSynchronous() throws Exception {
+        String spayd = "SPD*1.0*ACC:CZ5508000000001234567899*AM:480.50*CC:CZK";
+
+        byte[] image = AsyncQrCodeGenerator.builder().build().render(spayd, SIZE).get(10, TimeUnit.SECONDS);
+
+        assertArrayEquals(QrCodeGenerator.DEFAULT.render(spayd, SIZE), image);
+    }
+
+    @Test
+    void givenInvalidPayment_whenGenerate_thenFutureFails() {
+        Payment payment = payments(1).get(0).getValue();
+
+        CompletableFuture<byte[]> future = AsyncQrCodeGenerator.builder().build().generate(payment, SIZE);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertEquals("Bank account (IBAN) is required", e.getCause().getMessage());
+    }
+
+    @Test
+    void givenQueueFull_whenGenerate_thenRejectedUntilTaskRuns() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        AsyncQrCodeGenerator generator = AsyncQrCodeGenerator.builder().executor(tasks::add).maxQueued(2).build();
+        Payment payment = payments(2).get(1).getValue();
+
+        CompletableFuture<byte[]> first = generator.generate(payment, SIZE);
+        generator.generate(payment, SIZE);
+        CompletableFuture<byte[]> rejected = generator.generate(payment, SIZE);
+
+        assertEquals(2, tasks.size());
+        CompletionException e = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+
+        tasks.get(0).run();
+        assertTrue(first.isDone());
+        assertFalse(generator.generate(payment, SIZE).isCompletedExceptionally());
+    }
+
+    @Test
+    void givenExecutorRejects_whenGenerate_thenFutureFails() {
+        AsyncQrCodeGenerator generator = AsyncQrCodeGenerator.builder()
+                .executor(task -> {
+                    throw new RejectedExecutionException("Shut down");
+                })
+                .maxQueued(1)
+                .build();
+        Payment payment = payments(2).get(1).getValue();
+
+        assertThrows(CompletionException.class, () -> generator.generate(payment, SIZE).join());
+        // The permit was returned
+        assertThrows(CompletionException.class, () -> generator.generate(payment, SIZE).join());
+    }
+
+    @Test
+    void givenInvalidMaxQueued_whenBuild_thenThrows() {
+        assertThrows(IllegalArgumentException.class, () -> AsyncQrCodeGenerator.builder().maxQueued(0).build());
+    }
+
+    @Test
+    void givenBatch_whenSubscribedOneByOne_thenAllPublishedAndCompleted() throws Exception {
+        List<Map.Entry<Integer, Payment>> payments = payments(50);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncQrCodeGenerator generator = AsyncQrCodeGenerator.builder().executor(executor).maxQueued(3).build();
+            CollectingSubscriber subscriber = new CollectingSubscriber(1);
+
+            generator.publish(payments, SIZE).subscribe(subscriber);
+
+            assertTrue(subscriber.completed.await(30, TimeUnit.SECONDS));
+            assertNull(subscriber.error.get());
+            assertEquals(50, subscriber.results.size());
+            for (Map.Entry<Integer, Payment> entry : payments) {
+                QrCodeResult<Integer> result = subscriber.results.get(entry.getKey());
+                if (entry.getKey() % 5 == 0) {
+                    assertFalse(result.isSuccess());
+                    assertEquals("Bank account (IBAN) is required", result.getFailure().getMessage());
+                } else {
+                    assertArrayEquals(QrCodeGenerator.DEFAULT.generate(entry.getValue(), SIZE), result.getImage());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void givenBatch_whenNothingRequested_thenAtMostMaxQueuedRendered() {
+        List<Runnable> tasks = new ArrayList<>();
+        AsyncQrCodeGenerator generator = AsyncQrCodeGenerator.builder().executor(tasks::add).maxQueued(3).build();
+        CollectingSubscriber subscriber = new CollectingSubscriber(0);
+
+        generator.publish(payments(10), SIZE).subscribe(subscriber);
+        assertEquals(0, tasks.size());
+
+        subscriber.subscription.request(100);
+        assertEquals(3, tasks.size());
+        tasks.get(0).run();
+        assertEquals(1, subscriber.results.size());
+    }
+
+    @Test
+    void givenCancelledBatch_whenRendered_thenNothingPublished() {
+        List<Runnable> tasks = new ArrayList<>();
+        AsyncQrCodeGenerator generator = AsyncQrCodeGenerator.builder().executor(tasks::add).maxQueued(3).build();
+        CollectingSubscriber subscriber = new CollectingSubscriber(5);
+
+        generator.publish(payments(10), SIZE).subscribe(subscriber);
+        subscriber.subscription.cancel();
+        tasks.forEach(Runnable::run);
+
+        assertEquals(3, tasks.size());
+        assertTrue(subscriber.results.isEmpty());
+        assertEquals(1, subscriber.completed.getCount());
+        assertNull(subscriber.error.get());
+    }
+
+    @Test
+    void givenNonPositiveRequest_whenRequested_thenError() {
+        CollectingSubscriber subscriber = new CollectingSubscriber(0);
+
+        AsyncQrCodeGenerator.builder().executor(Runnable::run).build().publish(payments(3), SIZE).subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error.get());
+    }
+
+    @Test
+    void givenFailingIterator_whenRequested_thenError() {
+        Iterable<Map.Entry<Integer, Payment>> payments = () -> new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Map.Entry<Integer, Payment> next() {
+                throw new IllegalStateException("Database is down");
+            }
+        };
+        CollectingSubscriber subscriber = new CollectingSubscriber(1);
+
+        AsyncQrCodeGenerator.builder().executor(Runnable::run).build().publish(payments, SIZE).subscribe(subscriber);
+
+        assertEquals("Database is down", subscriber.error.get().getMessage());
+    }
+
+    @Test
+    void givenErrorInRenderTask_whenPublished_thenStreamEndsWithError() {
+        List<Map.Entry<Integer, Payment>> payments = new ArrayList<>(payments(6));
+        List<BankAccount> failingAccounts = new AbstractList<>() {
+            @Override
+            public BankAccount get(int index) {
+                throw new StackOverflowError("Test error");
+            }
+
+            @Override
+            public int size() {
+                return 1;
+            }
+        };
+        payments.set(2, Map.entry(2, Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .alternativeBankAccounts(failingAccounts)
+                .build()));
+        List<Runnable> tasks = new ArrayList<>();
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+
+        AsyncQrCodeGenerator.builder().executor(tasks::add).maxQueued(4).build()
+                .publish(payments, SIZE).subscribe(subscriber);
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).run();
+        }
+
+        assertInstanceOf(StackOverflowError.class, subscriber.error.get());
+        assertEquals(2, subscriber.results.size());
+        assertEquals(1, subscriber.completed.getCount());
+    }
+
+    @Test
+    void givenPublisher_whenSubscribedTwice_thenSecondSubscriberFails() {
+        Flow.Publisher<QrCodeResult<Integer>> publisher = AsyncQrCodeGenerator.builder().executor(Runnable::run).build()
+                .publish(payments(3), SIZE);
+        CollectingSubscriber first = new CollectingSubscriber(Long.MAX_VALUE);
+        CollectingSubscriber second = new CollectingSubscriber(Long.MAX_VALUE);
+
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        assertEquals(3, first.results.size());
+        assertEquals(0, first.completed.getCount());
+        assertInstanceOf(IllegalStateException.class, second.error.get());
+    }
+
+    private static List<Map.Entry<Integer, Payment>> payments(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Map.entry(i, Payment.builder()
+                        .bankAccount(i % 5 == 0 ? null : new BankAccount("CZ5508000000001234567899"))
+                        .amount(new BigDecimal(i + ".50"))
+                        .variableSymbol(Integer.toString(1000 + i))
+                        .build()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Requests {@code batch} results on subscription and another one after each result.
+     */
+    private static final class CollectingSubscriber implements Flow.Subscriber<QrCodeResult<Integer>> {
+
+        final long batch;
+        final Map<Integer, QrCodeResult<Integer>> results = new HashMap<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        final AtomicInteger signals = new AtomicInteger();
+        volatile Flow.Subscription subscription;
+
+        CollectingSubscriber(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onNext(QrCodeResult<Integer> item) {
+            assertEquals(1, signals.incrementAndGet(), "Concurrent signals");
+            synchronized (results) {
+                results.put(item.getKey(), item);
+            }
+            signals.decrementAndGet();
+            if (batch == 1) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.Bank;
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankRegistryTest {
+
+    @Test
+    void givenCzechBankCode_whenFind_thenBank() {
+        assertEquals(new Bank("0800", "GIBACZPX", "Česká spořitelna, a.s."), BankRegistry.findCzechBank("0800"));
+        assertEquals("FIOBCZPP", BankRegistry.findCzechBank("2010").getBic());
+        assertNull(BankRegistry.findCzechBank("7990").getBic());
+    }
+
+    @Test
+    void givenSlovakBankCode_whenFind_thenBank() {
+        assertEquals("TATRSKBX", BankRegistry.findSlovakBank("1100").getBic());
+        assertNull(BankRegistry.findSlovakBank("0800"));
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"0001", "080", "08000", "08a0"})
+    void givenUnknownBankCode_whenFind_thenNull(String bankCode) {
+        assertNull(BankRegistry.findCzechBank(bankCode));
+    }
+
+    @Test
+    void givenIban_whenFindBankByIban_thenBankOfCountry() {
+        assertEquals("GIBACZPX", BankRegistry.findBankByIban("CZ5508000000001234567899").getBic());
+        assertEquals("SPSRSKBA", BankRegistry.findBankByIban("SK3581800000510543524521").getBic());
+        assertNull(BankRegistry.findBankByIban("DE89370400440532013000"));
+        assertNull(BankRegistry.findBankByIban("CZ55"));
+    }
+
+    @Test
+    void givenAccountWithoutBic_whenWithBic_thenBicFilledIn() {
+        BankAccount account = new BankAccount("CZ5508000000001234567899");
+        assertEquals(new BankAccount("CZ5508000000001234567899", "GIBACZPX"), BankRegistry.withBic(account));
+
+        BankAccount withBic = new BankAccount("CZ5508000000001234567899", "OTHERBIC");
+        assertSame(withBic, BankRegistry.withBic(withBic));
+
+        BankAccount unknown = new BankAccount("DE89370400440532013000");
+        assertSame(unknown, BankRegistry.withBic(unknown));
+    }
+
+    @Test
+    void givenCzechAccount_whenComposeBankAccount_thenIbanAndBic() {
+        BankAccount account = CzechIbanGenerator.composeCzechBankAccount("0800", "1234567899", null);
+
+        assertEquals(new BankAccount("CZ5508000000001234567899", "GIBACZPX"), account);
+    }
+}
@@ -0,0 +1,188 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkQrCodeGeneratorTest {
+
+    private static final int SIZE = 120;
+
+    @Test
+    void givenValidAndInvalidPayments_whenGenerate_thenAllReportedWithoutAbort() throws Exception {
+        List<Map.Entry<Integer, Payment>> payments = payments(50);
+        Map<Integer, byte[]> images = new HashMap<>();
+        Map<Integer, Exception> failures = new HashMap<>();
+
+        BulkQrCodeResult result = BulkQrCodeGenerator.builder().size(SIZE).build()
+                .generate(payments, new BulkQrCodeSink<Integer>() {
+                    @Override
+                    public void onSuccess(Integer key, byte[] png) {
+                        images.put(key, png);
+                    }
+
+                    @Override
+                    public void onFailure(Integer key, Exception exception) {
+                        failures.put(key, exception);
+                    }
+                });
+
+        assertEquals(40, result.getSucceeded());
+        assertEquals(10, result.getFailed());
+        assertEquals(50, result.getTotal());
+        for (Map.Entry<Integer, Payment> entry : payments) {
+            if (entry.getKey() % 5 == 0) {
+                assertEquals("Bank account (IBAN) is required", failures.get(entry.getKey()).getMessage());
+            } else {
+                assertArrayEquals(SpaydQrCodeGenerator.generateQrCode(entry.getValue(), SIZE), images.get(entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    void givenMaxInFlight_whenGenerate_thenInputConsumedWithBackpressure() throws Exception {
+        int maxInFlight = 3;
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        Iterator<Map.Entry<Integer, Payment>> source = payments(40).iterator();
+        Iterable<Map.Entry<Integer, Payment>> counting = () -> new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public Map.Entry<Integer, Payment> next() {
+                maxPending.accumulateAndGet(pulled.incrementAndGet() - consumed.get(), Math::max);
+                return source.next();
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BulkQrCodeGenerator.builder().size(SIZE).executor(executor).maxInFlight(maxInFlight).build()
+                    .generate(counting, new BulkQrCodeSink<Integer>() {
+                        @Override
+                        public void onSuccess(Integer key, byte[] png) {
+                            consumed.incrementAndGet();
+                        }
+
+                        @Override
+                        public void onFailure(Integer key, Exception exception) {
+                            consumed.incrementAndGet();
+                        }
+                    });
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(40, consumed.get());
+        assertTrue(maxPending.get() <= maxInFlight, "Pending: " + maxPending.get());
+    }
+
+    @Test
+    void givenPayments_whenGenerateToZip_thenEntryPerValidPayment() throws Exception {
+        ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+        List<Integer> failedKeys = new ArrayList<>();
+        try (ZipOutputStream zip = new ZipOutputStream(zipBytes)) {
+            BulkQrCodeGenerator.builder().size(SIZE).build()
+                    .generateToZip(payments(12), zip, key -> "invoice-" + key + ".png", (key, e) -> failedKeys.add(key));
+        }
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(zipBytes.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+                assertTrue(zip.readAllBytes().length > 0);
+            }
+        }
+        assertEquals(9, names.size());
+        assertTrue(names.contains("invoice-1.png"));
+        assertEquals(List.of(0, 5, 10), failedKeys.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void givenFailingSink_whenGenerate_thenBatchAborted() {
+        IOException exception = assertThrows(IOException.class, () -> BulkQrCodeGenerator.builder().size(SIZE).build()
+                .generate(payments(20).stream(), new BulkQrCodeSink<Integer>() {
+                    @Override
+                    public void onSuccess(Integer key, byte[] png) throws IOException {
+                        throw new IOException("Disk full");
+                    }
+
+                    @Override
+                    public void onFailure(Integer key, Exception e) {
+                    }
+                }));
+        assertEquals("Disk full", exception.getMessage());
+    }
+
+    @Test
+    void givenErrorInRenderTask_whenGenerate_thenThrowsInsteadOfHanging() {
+        List<Map.Entry<Integer, Payment>> payments = new ArrayList<>(payments(20));
+        List<BankAccount> failingAccounts = new AbstractList<>() {
+            @Override
+            public BankAccount get(int index) {
+                throw new StackOverflowError("Test error");
+            }
+
+            @Override
+            public int size() {
+                return 1;
+            }
+        };
+        payments.set(7, Map.entry(7, Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .alternativeBankAccounts(failingAccounts)
+                .build()));
+        BulkQrCodeSink<Integer> sink = new BulkQrCodeSink<>() {
+            @Override
+            public void onSuccess(Integer key, byte[] png) {
+            }
+
+            @Override
+            public void onFailure(Integer key, Exception exception) {
+            }
+        };
+
+        IllegalStateException exception = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertThrows(IllegalStateException.class,
+                        () -> BulkQrCodeGenerator.builder().size(SIZE).maxInFlight(4).build().generate(payments, sink)));
+        assertInstanceOf(StackOverflowError.class, exception.getCause());
+    }
+
+    /**
+     * Every fifth payment (starting with key 0) is invalid.
+     */
+    private static List<Map.Entry<Integer, Payment>> payments(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Map.entry(i, Payment.builder()
+                        .bankAccount(i % 5 == 0 ? null : new BankAccount("CZ5508000000001234567899"))
+                        .amount(new BigDecimal(i + ".50"))
+                        .variableSymbol(Integer.toString(1000 + i))
+                        .build()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,163 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingQrCodeRendererTest {
+
+    @Test
+    void givenRepeatedPayment_whenRender_thenServedFromCache() throws Exception {
+        CountingRenderer delegate = new CountingRenderer(RenderingOptions.DEFAULT_PNG, 100);
+        CachingQrCodeRenderer renderer = new CachingQrCodeRenderer(delegate, new QrCodeCache(1024 * 1024));
+
+        byte[] first = renderer.render("SPD*1.0*ACC:CZ5508000000001234567899", 200);
+        byte[] second = renderer.render("SPD*1.0*ACC:CZ5508000000001234567899", 200);
+        renderer.render("SPD*1.0*ACC:CZ5508000000001234567899", 300);
+
+        assertArrayEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals(2, delegate.calls.get());
+        QrCodeCacheStats stats = renderer.getCache().getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(2, stats.getEntries());
+        assertEquals(0, stats.getEvictions());
+    }
+
+    @Test
+    void givenSharedCache_whenRenderWithDifferentOptions_thenSeparateEntries() throws Exception {
+        QrCodeCache cache = new QrCodeCache(1024 * 1024);
+        RenderingOptions highEc = RenderingOptions.builder().errorCorrectionLevel(ErrorCorrectionLevel.H).build();
+        CountingRenderer png = new CountingRenderer(RenderingOptions.DEFAULT_PNG, 100);
+        CountingRenderer pngHighEc = new CountingRenderer(highEc, 100);
+
+        new CachingQrCodeRenderer(png, cache).render("SPD*1.0*ACC:CZ5508000000001234567899", 200);
+        new CachingQrCodeRenderer(pngHighEc, cache).render("SPD*1.0*ACC:CZ5508000000001234567899", 200);
+        new CachingQrCodeRenderer(new CountingRenderer(RenderingOptions.builder().build(), 100), cache)
+                .render("SPD*1.0*ACC:CZ5508000000001234567899", 200);
+
+        assertEquals(1, png.calls.get());
+        assertEquals(1, pngHighEc.calls.get());
+        assertEquals(1, cache.getStats().getHits());
+    }
+
+    @Test
+    void givenMemoryBudget_whenExceeded_thenLeastRecentlyUsedEvicted() throws Exception {
+        CountingRenderer delegate = new CountingRenderer(RenderingOptions.DEFAULT_PNG, 1000);
+        QrCodeCache cache = new QrCodeCache(3500, 1);
+        CachingQrCodeRenderer renderer = new CachingQrCodeRenderer(delegate, cache);
+
+        renderer.render("A", 1);
+        renderer.render("B", 1);
+        renderer.render("C", 1);
+        renderer.render("A", 1);
+        renderer.render("D", 1);
+
+        QrCodeCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getEvictions());
+        assertEquals(3, stats.getEntries());
+        assertTrue(stats.getBytes() <= 3500);
+        renderer.render("A", 1);
+        assertEquals(4, delegate.calls.get());
+        renderer.render("B", 1);
+        assertEquals(5, delegate.calls.get());
+    }
+
+    @Test
+    void givenManyThreads_whenRender_thenCorrectImages() throws Exception {
+        CachingQrCodeRenderer renderer = new CachingQrCodeRenderer(
+                SpaydQrCodeGenerator.renderer(RenderingOptions.DEFAULT_PNG), new QrCodeCache(256 * 1024));
+        List<Payment> payments = new ArrayList<>();
+        List<byte[]> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Payment payment = Payment.builder()
+                    .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                    .amount(BigDecimal.valueOf(i))
+                    .build();
+            payments.add(payment);
+            expected.add(SpaydQrCodeGenerator.generateQrCode(payment, 150));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        int index = (i + offset) % payments.size();
+                        if (!java.util.Arrays.equals(expected.get(index), renderer.render(payments.get(index), 150))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        QrCodeCacheStats stats = renderer.getCache().getStats();
+        assertEquals(1600, stats.getHits() + stats.getMisses());
+        assertTrue(stats.getHitRate() > 0.9, "Hit rate: " + stats.getHitRate());
+    }
+
+    @Test
+    void givenMetrics_whenRender_thenHitsAndMissesReported() throws Exception {
+        List<Boolean> lookups = new ArrayList<>();
+        CachingQrCodeRenderer renderer = new CachingQrCodeRenderer(
+                new CountingRenderer(RenderingOptions.DEFAULT_PNG, 100),
+                new QrCodeCache(1024 * 1024),
+                new QrCodeMetrics() {
+                    @Override
+                    public void onCacheLookup(boolean hit) {
+                        lookups.add(hit);
+                    }
+                });
+
+        renderer.render("SPD*1.0*ACC:CZ5508000000001234567899", 200);
+        renderer.render("SPD*1.0*ACC:CZ5508000000001234567899", 200);
+
+        assertEquals(List.of(false, true), lookups);
+    }
+
+    private static class CountingRenderer implements QrCodeRenderer {
+        private final RenderingOptions options;
+        private final int imageLength;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingRenderer(RenderingOptions options, int imageLength) {
+            this.options = options;
+            this.imageLength = imageLength;
+        }
+
+        @Override
+        public byte[] render(String spaydString, int size) {
+            calls.incrementAndGet();
+            byte[] image = new byte[imageLength];
+            byte[] content = (spaydString + size).getBytes(StandardCharsets.ISO_8859_1);
+            System.arraycopy(content, 0, image, 0, Math.min(content.length, imageLength));
+            return image;
+        }
+
+        @Override
+        public RenderingOptions getOptions() {
+            return options;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.CzechAccountNumber;
+import org.apache.commons.validator.routines.IBANValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CzechIbanConverterTest {
+
+    private static final String WITHOUT_PREFIX = "CZ5508000000001234567899";
+    private static final String WITH_PREFIX = referenceIban("0800", "1234567899", "19");
+
+    private final CzechIbanConverter converter = new CzechIbanConverter();
+
+    @Test
+    void givenRandomAccounts_whenConvert_thenSameIbanAsBigIntegerChecksum() {
+        Random random = new Random(42);
+        int converted = 0;
+        for (int i = 0; i < 20_000; i++) {
+            String bankCode = digits(random, 4);
+            String account = digits(random, 2 + random.nextInt(9));
+            String prefix = random.nextBoolean() ? "" : digits(random, 1 + random.nextInt(6));
+
+            CzechIbanError error = converter.convert(bankCode, account, prefix);
+
+            if (error == null) {
+                String iban = converter.getIban().toString();
+                assertEquals(referenceIban(bankCode, account, prefix), iban);
+                assertTrue(IBANValidator.getInstance().isValid(iban), iban);
+                converted++;
+            } else {
+                assertTrue(error == CzechIbanError.ACCOUNT_CHECKSUM || error == CzechIbanError.PREFIX_CHECKSUM
+                        || error == CzechIbanError.ACCOUNT_ZERO, error::name);
+            }
+        }
+        // About one in eleven numbers has a valid checksum
+        assertTrue(converted > 100, "Converted " + converted);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            ", 1234567899, , BANK_CODE_NULL",
+            "'', 1234567899, , BANK_CODE_EMPTY",
+            "080, 1234567899, , BANK_CODE_LENGTH",
+            "08a0, , , BANK_CODE_NOT_DIGITS",
+            "0800, , , ACCOUNT_NULL",
+            "0800, '', , ACCOUNT_EMPTY",
+            "0800, 1, , ACCOUNT_TOO_SHORT",
+            "0800, 12345678901, , ACCOUNT_TOO_LONG",
+            "0800, 12345678٩9, , ACCOUNT_NOT_DIGITS",
+            "0800, 0000000, , ACCOUNT_ZERO",
+            "0800, 0000012, , ACCOUNT_CHECKSUM",
+            "0800, 1234567899, 1234567, PREFIX_TOO_LONG",
+            "0800, 1234567899, 1-9, PREFIX_NOT_DIGITS",
+            "0800, 1234567899, 12, PREFIX_CHECKSUM",
+    })
+    void givenInvalidInput_whenConvert_thenError(String bankCode, String account, String prefix, CzechIbanError expected) {
+        assertEquals(expected, converter.convert(bankCode, account, prefix));
+    }
+
+    @Test
+    void givenFailedConversions_whenGetIban_thenLastSuccessfulIban() {
+        assertNull(converter.convert("0800", "1234567899", "19"));
+        StringBuilder appended = new StringBuilder();
+
+        assertEquals(CzechIbanError.ACCOUNT_NULL, converter.convert("0100", null, null));
+        assertEquals(CzechIbanError.ACCOUNT_CHECKSUM, converter.convert("0800", "1234567890", null));
+        assertEquals(CzechIbanError.PREFIX_NOT_DIGITS, converter.convert("0300", "1234567899", "1x"));
+        assertEquals(CzechIbanError.FORMAT, converter.convert("1-2-1234567899/0800", 0, 19));
+
+        assertEquals(WITH_PREFIX, converter.getIban().toString());
+        assertEquals(WITH_PREFIX, converter.appendIban(appended).toString());
+        assertNull(converter.convert("0800", "1234567899", null));
+        assertEquals(WITHOUT_PREFIX, converter.getIban().toString());
+    }
+
+    @Test
+    void givenErrors_whenCompose_thenSameMessagesAsBefore() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> CzechIbanGenerator.composeCzechIban("080", "1234567899", null));
+        assertEquals("Bank code must be exactly 4 digits, got: 3", exception.getMessage());
+
+        exception = assertThrows(IllegalArgumentException.class,
+                () -> CzechIbanGenerator.composeCzechIban("0800", "1234567899", "1234567"));
+        assertEquals("Prefix cannot exceed 6 digits, got: 7", exception.getMessage());
+    }
+
+    @Test
+    void givenDomesticFormat_whenConvert_thenIban() {
+        assertNull(converter.convert(" 19-1234567899/0800\r", 0, 20));
+        assertEquals(WITH_PREFIX, converter.getIban().toString());
+
+        assertNull(converter.convert("x1234567899/0800", 1, 16));
+        assertEquals(WITHOUT_PREFIX, converter.getIban().toString());
+
+        assertEquals(CzechIbanError.FORMAT, converter.convert("1234567899", 0, 10));
+        assertEquals(CzechIbanError.FORMAT, converter.convert("1-2-1234567899/0800", 0, 19));
+        assertEquals(CzechIbanError.FORMAT, converter.convert("1234567899/0800/0800", 0, 20));
+        assertEquals(CzechIbanError.BANK_CODE_EMPTY, converter.convert("1234567899/", 0, 11));
+    }
+
+    @Test
+    void givenLines_whenConvertLines_thenResultPerRecord() {
+        String text = "19-1234567899/0800\n\n1234567899/0800\r\nnonsense\n12-1234567899/0800";
+        List<String> results = new ArrayList<>();
+        CzechIbanSink sink = new CzechIbanSink() {
+            @Override
+            public void onSuccess(long record, CharSequence iban) {
+                results.add(record + ":" + iban);
+            }
+
+            @Override
+            public void onFailure(long record, CzechIbanError error) {
+                results.add(record + ":" + error);
+            }
+        };
+
+        CzechIbanBatchResult result = converter.convertLines(text, sink);
+
+        List<String> expected = List.of(
+                "0:" + WITH_PREFIX,
+                "2:" + WITHOUT_PREFIX,
+                "3:FORMAT",
+                "4:PREFIX_CHECKSUM");
+        assertEquals(expected, results);
+        assertEquals(new CzechIbanBatchResult(2, 2), result);
+
+        results.clear();
+        ByteBuffer bytes = ByteBuffer.wrap(("skipped\n" + text).getBytes(StandardCharsets.US_ASCII));
+        bytes.position(8);
+
+        assertEquals(new CzechIbanBatchResult(2, 2), converter.convertLines(bytes, sink));
+        assertEquals(expected, results);
+        assertEquals(8, bytes.position());
+    }
+
+    @Test
+    void givenTooLongLine_whenConvertByteLines_thenFormatError() {
+        ByteBuffer bytes = ByteBuffer.wrap(("1".repeat(100) + "/0800\n1234567899/0800").getBytes(StandardCharsets.US_ASCII));
+        List<CzechIbanError> errors = new ArrayList<>();
+
+        CzechIbanBatchResult result = converter.convertLines(bytes, new CzechIbanSink() {
+            @Override
+            public void onSuccess(long record, CharSequence iban) {
+            }
+
+            @Override
+            public void onFailure(long record, CzechIbanError error) {
+                errors.add(error);
+            }
+        });
+
+        assertEquals(List.of(CzechIbanError.FORMAT), errors);
+        assertEquals(1, result.getConverted());
+    }
+
+    @Test
+    void givenArrays_whenConvertAll_thenIbansAndErrors() {
+        String[] ibans = new String[3];
+        CzechIbanError[] errors = new CzechIbanError[3];
+
+        CzechIbanBatchResult result = converter.convertAll(
+                new String[] {"0800", "0800", "0800"},
+                new String[] {"1234567899", "1234567890", "9999999999"},
+                null,
+                ibans,
+                errors);
+
+        assertEquals(new CzechIbanBatchResult(2, 1), result);
+        assertArrayEquals(new String[] {WITHOUT_PREFIX, null, referenceIban("0800", "9999999999", "")}, ibans);
+        assertArrayEquals(new CzechIbanError[] {null, CzechIbanError.ACCOUNT_CHECKSUM, null}, errors);
+    }
+
+    @Test
+    void givenStream_whenConvertAll_thenRecordsInOrder() {
+        Stream<CzechAccountNumber> accounts = Stream.of(
+                CzechAccountNumber.builder().number("1234567899").bankCode("0800").build(),
+                CzechAccountNumber.builder().prefix("19").number("1234567899").bankCode("0800").build());
+        List<String> ibans = new ArrayList<>();
+
+        CzechIbanBatchResult result = converter.convertAll(accounts, new CzechIbanSink() {
+            @Override
+            public void onSuccess(long record, CharSequence iban) {
+                ibans.add(iban.toString());
+            }
+
+            @Override
+            public void onFailure(long record, CzechIbanError error) {
+                fail(error.getMessage());
+            }
+        });
+
+        assertEquals(2, result.getTotal());
+        assertEquals(List.of(WITHOUT_PREFIX, WITH_PREFIX), ibans);
+    }
+
+    private static String digits(Random random, int length) {
+        StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            result.append((char) ('0' + random.nextInt(10)));
+        }
+        return result.toString();
+    }
+
+    /**
+     * The original implementation of the check digits.
+     */
+    private static String referenceIban(String bankCode, String account, String prefix) {
+        String bban = bankCode
+                + String.format("%06d", Long.parseLong(prefix.isEmpty() ? "0" : prefix))
+                + String.format("%010d", Long.parseLong(account));
+        int remainder = new BigInteger(bban + "123500").mod(BigInteger.valueOf(97)).intValue();
+        return "CZ" + String.format("%02d", 98 - remainder) + bban;
+    }
+}
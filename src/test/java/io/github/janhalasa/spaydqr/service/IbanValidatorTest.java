@@ -0,0 +1,145 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.CzechAccountNumber;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.apache.commons.validator.routines.IBANValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IbanValidatorTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "CZ5508000000001234567899",
+            "SK3581800000510543524521",
+            "DE89370400440532013000",
+            "GB29NWBK60161331926819",
+            "FR1420041010050500013M02606",
+            "AT611904300234573201",
+            "NO9386011117947",
+            "MT84MALT011000012345MTLCAST001S",
+    })
+    void givenValidIban_whenValidate_thenNoError(String iban) {
+        assertNull(IbanValidator.validate(iban));
+        assertTrue(IBANValidator.getInstance().isValid(iban));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "'', EMPTY",
+            "CZ5, LENGTH",
+            "cz5508000000001234567899, INVALID_CHARACTER",
+            "CZ55 0800 0000 0012 3456 7899, INVALID_CHARACTER",
+            "XX5508000000001234567899, UNSUPPORTED_COUNTRY",
+            "US5508000000001234567899, UNSUPPORTED_COUNTRY",
+            "CZ550800000000123456789, LENGTH",
+            "CZ55080000000012345678990, LENGTH",
+            "C55508000000001234567899, STRUCTURE",
+            "CZ55080000000012345678A9, STRUCTURE",
+            "GB2912346016133192681, LENGTH",
+            "GB29NWB160161331926819, STRUCTURE",
+            "CZ5608000000001234567899, CHECKSUM",
+            "SK3112000000001987426375, CHECKSUM",
+    })
+    void givenInvalidIban_whenValidate_thenError(String iban, IbanError expected) {
+        assertEquals(expected, IbanValidator.validate(iban));
+        assertFalse(IBANValidator.getInstance().isValid(iban));
+    }
+
+    @Test
+    void givenNull_whenValidate_thenEmpty() {
+        assertEquals(IbanError.EMPTY, IbanValidator.validate(null));
+    }
+
+    @Test
+    void givenRandomIbans_whenValidate_thenSameAsCommonsValidator() {
+        Random random = new Random(7);
+        String[] templates = {"CZ5508000000001234567899", "GB29NWBK60161331926819", "FR1420041010050500013M02606"};
+        String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        int valid = 0;
+        for (int i = 0; i < 50_000; i++) {
+            char[] iban = templates[random.nextInt(templates.length)].toCharArray();
+            int changes = 1 + random.nextInt(2);
+            for (int j = 0; j < changes; j++) {
+                iban[2 + random.nextInt(iban.length - 2)] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            String value = new String(iban);
+
+            boolean expected = IBANValidator.getInstance().isValid(value);
+
+            assertEquals(expected, IbanValidator.isValid(value), value);
+            if (expected) {
+                valid++;
+            }
+        }
+        assertTrue(valid > 100, "Valid " + valid);
+    }
+
+    @Test
+    void givenFormattedIban_whenNormalize_thenElectronicFormat() {
+        assertEquals("CZ5508000000001234567899", IbanValidator.normalize("cz55 0800-0000\t0012 3456 7899"));
+
+        String normalized = "CZ5508000000001234567899";
+        assertSame(normalized, IbanValidator.normalize(normalized));
+    }
+
+    @Test
+    void givenCountryCodes_whenIsSupportedCountry_thenSepaOnly() {
+        assertTrue(IbanValidator.isSupportedCountry("CZ"));
+        assertTrue(IbanValidator.isSupportedCountry("SK"));
+        assertTrue(IbanValidator.isSupportedCountry("DE"));
+        assertFalse(IbanValidator.isSupportedCountry("US"));
+        assertFalse(IbanValidator.isSupportedCountry("cz"));
+        assertFalse(IbanValidator.isSupportedCountry("CZE"));
+    }
+
+    @Test
+    void givenCzechIban_whenToCzechAccountNumber_thenConvertsBack() {
+        CzechIbanConverter converter = new CzechIbanConverter();
+        assertNull(converter.convert("0800", "1234567899", "19"));
+        String iban = converter.getIban().toString();
+
+        CzechAccountNumber account = IbanValidator.toCzechAccountNumber(iban);
+
+        assertEquals(CzechAccountNumber.builder().bankCode("0800").prefix("19").number("1234567899").build(), account);
+        assertNull(converter.convert(account));
+        assertEquals(iban, converter.getIban().toString());
+
+        assertNull(IbanValidator.toCzechAccountNumber("CZ5508000000001234567899").getPrefix());
+    }
+
+    @Test
+    void givenOtherIban_whenToCzechAccountNumber_thenException() {
+        assertThrows(IllegalArgumentException.class, () -> IbanValidator.toCzechAccountNumber("DE89370400440532013000"));
+        assertThrows(IllegalArgumentException.class, () -> IbanValidator.toCzechAccountNumber("CZ5608000000001234567899"));
+    }
+
+    @Test
+    void givenInvalidAlternativeIban_whenValidateIbans_thenException() {
+        Payment payment = Payment.builder()
+                .bankAccount(BankAccount.builder().iban("CZ5508000000001234567899").build())
+                .alternativeBankAccounts(List.of(BankAccount.builder().iban("CZ5608000000001234567899").build()))
+                .amount(BigDecimal.TEN)
+                .build();
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> SpaydSerializer.validateIbans(payment));
+        assertEquals("IBAN check digits are invalid: CZ5608000000001234567899", exception.getMessage());
+    }
+
+    @Test
+    void givenFormattedIban_whenUnformat_thenWhitespaceRemoved() {
+        String iban = "CZ5508000000001234567899";
+        assertSame(iban, CzechIbanGenerator.unformatIban(iban));
+        assertEquals(iban, CzechIbanGenerator.unformatIban(" CZ55 0800\t0000 0012\r\n3456 7899 "));
+    }
+}
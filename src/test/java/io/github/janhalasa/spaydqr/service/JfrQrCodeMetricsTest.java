@@ -0,0 +1,61 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrQrCodeMetricsTest {
+
+    @Test
+    void givenRecording_whenGenerate_thenEventsRecorded(@TempDir Path directory) throws Exception {
+        QrCodeGenerator generator = QrCodeGenerator.builder().metrics(JfrQrCodeMetrics.INSTANCE).build();
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .amount(new BigDecimal("480.50"))
+                .build();
+        Path file = directory.resolve("spayd.jfr");
+
+        byte[] image;
+        try (Recording recording = new Recording()) {
+            recording.enable("io.github.janhalasa.spaydqr.Serialized");
+            recording.enable("io.github.janhalasa.spaydqr.Encoded");
+            recording.enable("io.github.janhalasa.spaydqr.Written");
+            recording.start();
+            image = generator.generate(payment, 200);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("io.github.janhalasa.spaydqr."))
+                .collect(Collectors.toMap(event -> event.getEventType().getName(), Function.identity()));
+        int length = SpaydSerializer.serialize(payment).length();
+        assertEquals(length, events.get("io.github.janhalasa.spaydqr.Serialized").getInt("length"));
+        assertEquals("M", events.get("io.github.janhalasa.spaydqr.Encoded").getString("errorCorrectionLevel"));
+        assertEquals(image.length, events.get("io.github.janhalasa.spaydqr.Written").getLong("length"));
+        assertTrue(events.get("io.github.janhalasa.spaydqr.Written").getLong("nanos") > 0);
+    }
+
+    @Test
+    void givenNoRecording_whenReported_thenNothingHappens() {
+        QrCodeMetrics metrics = JfrQrCodeMetrics.INSTANCE;
+
+        assertDoesNotThrow(() -> {
+            metrics.onCacheLookup(true);
+            metrics.onVerified(1000, false);
+            metrics.onInvalidPayment(new IllegalArgumentException("Invalid"));
+        });
+    }
+}
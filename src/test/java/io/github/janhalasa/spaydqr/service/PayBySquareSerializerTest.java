@@ -0,0 +1,223 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.tukaani.xz.LZMAInputStream;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayBySquareSerializerTest {
+
+    private static Payment.PaymentBuilder payment() {
+        return Payment.builder()
+                .bankAccount(new BankAccount("SK3112000000198742637541", "TATRSKBX"))
+                .alternativeBankAccounts(List.of(new BankAccount("SK3581800000510543524521")))
+                .amount(new BigDecimal("480.50"))
+                .paymentDueDate(LocalDate.of(2026, 11, 15))
+                .variableSymbol("2026000123")
+                .constantSymbol("0308")
+                .paymentNote("Faktúra č. 123 – ďakujeme")
+                .beneficiaryName("Žltý kôň s.r.o.");
+    }
+
+    @Test
+    void givenPayment_whenSerialize_thenDecodedToTabSeparatedFields() throws IOException {
+        String serialized = PayBySquareSerializer.serialize(payment().build());
+
+        assertTrue(serialized.matches("[0-9A-V]+"), serialized);
+        assertEquals("\t1\t1\t480.5\tEUR\t20261115\t2026000123\t0308\t\t\tFaktúra č. 123 – ďakujeme\t"
+                        + "2\tSK3112000000198742637541\tTATRSKBX\tSK3581800000510543524521\t\t0\t0\t"
+                        + "Žltý kôň s.r.o.\t\t",
+                decode(serialized));
+    }
+
+    @Test
+    void givenMinimalPayment_whenSerialize_thenEmptyFieldsAndDefaultCurrency() throws IOException {
+        Payment payment = Payment.builder().bankAccount(new BankAccount("SK3112000000198742637541")).build();
+
+        assertEquals("\t1\t1\t\tEUR\t\t\t\t\t\t\t1\tSK3112000000198742637541\t\t0\t0\t\t\t",
+                decode(PayBySquareSerializer.serialize(payment)));
+    }
+
+    @Test
+    void givenSpaydOnlyFields_whenSerialize_thenSkipped() throws IOException {
+        Payment payment = payment()
+                .currencyCode("CZK")
+                .specificSymbol("77")
+                .originatorsReference("/VS2026000123/SS77/KS0308")
+                .notificationType("E")
+                .notificationAddress("platby@example.com")
+                .instantPayment(true)
+                .build();
+
+        String data = decode(PayBySquareSerializer.serialize(payment));
+
+        assertTrue(data.startsWith("\t1\t1\t480.5\tCZK\t20261115\t2026000123\t0308\t77\t/VS2026000123/SS77/KS0308\t"),
+                data);
+        assertFalse(data.contains("platby@example.com"));
+    }
+
+    @Test
+    void givenInvalidPayment_whenSerialize_thenThrows() {
+        IllegalArgumentException missingAccount = assertThrows(IllegalArgumentException.class,
+                () -> PayBySquareSerializer.serialize(Payment.builder().build()));
+        assertEquals("Bank account (IBAN) is required", missingAccount.getMessage());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> PayBySquareSerializer.serialize(payment().paymentNote("a\tb").build()));
+        assertThrows(IllegalArgumentException.class,
+                () -> PayBySquareSerializer.serialize(payment().paymentNote("ľ".repeat(40_000)).build()));
+    }
+
+    @Test
+    void givenLongNote_whenSerialize_thenCompressed() throws IOException {
+        String note = "Platba za služby ".repeat(200);
+        String serialized = PayBySquareSerializer.serialize(payment().paymentNote(note).build());
+
+        assertTrue(serialized.length() < note.length() / 4, "Length " + serialized.length());
+        assertTrue(decode(serialized).contains(note));
+    }
+
+    @Test
+    void givenPaymentsOnManyThreads_whenSerialize_thenPooledBuffersGiveSameResult() throws Exception {
+        List<Payment> payments = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Payment payment = payment().variableSymbol(Integer.toString(i)).amount(BigDecimal.valueOf(i, 2)).build();
+            payments.add(payment);
+            expected.add(PayBySquareSerializer.serialize(payment));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (Payment payment : payments) {
+                results.add(executor.submit(() -> PayBySquareSerializer.serialize(payment)));
+            }
+            for (int i = 0; i < payments.size(); i++) {
+                assertEquals(expected.get(i), results.get(i).get());
+                assertTrue(decode(expected.get(i)).contains("\t" + i + "\t0308\t"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The same payment encoded independently of this library: the fields assembled by hand, checksummed by zlib,
+     * compressed by liblzma of xz-utils (raw LZMA1, lc=3, lp=0, pb=2, 128 KiB dictionary, which ends the stream
+     * with a marker) and encoded by a separate base32hex implementation. liblzma reads the serializer output back,
+     * and the two compressed streams are identical up to the end marker.
+     */
+    private static final String INDEPENDENTLY_ENCODED = "0406I0009UJKC5PC92PRPD1F5PC40518VTVLHS7LIAI1LM5INCU6HR3M7KNB"
+            + "AH848Q05J62SG81CME6H0OU4EMJQ45M81757DCIHCKSFUT10PAC7VA3TDJTME04SBNP243UFEJH71MBUMP6KPRU56OKQCF3NCHI8IIG1"
+            + "KIQUBRUN19Q0";
+    private static final String SERIALIZED = "0406I0009UJKC5PC92PRPD1F5PC40518VTVLHS7LIAI1LM5INCU6HR3M7KNBAH848Q05J6"
+            + "2SG81CME6H0OU4EMJQ45M81757DCIHCKSFUT10PACNQMSS9L5IQ1CC07TRHGRH4KE4FUQ2B22E8NL4QSSD9RDAC8FSF0B77100";
+
+    @Test
+    void givenFixedPayment_whenSerialize_thenMatchesIndependentEncoder() throws IOException {
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("SK3112000000198742637541", "TATRSKBX"))
+                .amount(new BigDecimal("25.30"))
+                .paymentDueDate(LocalDate.of(2026, 11, 15))
+                .variableSymbol("123")
+                .paymentNote("Platba za služby")
+                .beneficiaryName("Ján Novák")
+                .build();
+
+        String serialized = PayBySquareSerializer.serialize(payment);
+
+        assertEquals(SERIALIZED, serialized);
+        assertEquals(decode(INDEPENDENTLY_ENCODED), decode(serialized));
+        String commonPrefix = "0406I0009UJKC5PC92PRPD1F5PC40518VTVLHS7LIAI1LM5INCU6HR3M7KNBAH848Q05J62SG81CME6H0OU4EMJQ45M8"
+                + "1757DCIHCKSFUT10PAC";
+        assertTrue(INDEPENDENTLY_ENCODED.startsWith(commonPrefix));
+        assertTrue(serialized.startsWith(commonPrefix));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "'', ''",
+            "f, CO",
+            "fo, CPNG",
+            "foo, CPNMU",
+            "foob, CPNMUOG",
+            "fooba, CPNMUOJ1",
+            "foobar, CPNMUOJ1E8"
+    })
+    void givenRfc4648Vectors_whenToBase32Hex_thenEncodedWithoutPadding(String value, String expected) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        assertEquals(expected, PayBySquareSerializer.toBase32Hex(bytes, bytes.length));
+    }
+
+    @Test
+    void givenPayment_whenGeneratePayBySquare_thenQrCodeContainsSerializedString() throws Exception {
+        Payment payment = payment().build();
+
+        byte[] png = QrCodeGenerator.DEFAULT.generatePayBySquare(payment, 300);
+
+        assertEquals(PayBySquareSerializer.serialize(payment),
+                QrCodeGeneratorTest.decode(ImageIO.read(new ByteArrayInputStream(png))));
+    }
+
+    /**
+     * Reverses the serialization the way a banking application does and checks the header and the checksum.
+     */
+    private static String decode(String serialized) throws IOException {
+        byte[] bytes = fromBase32Hex(serialized);
+        assertEquals(PayBySquareSerializer.HEADER_TYPE_VERSION, bytes[0]);
+        assertEquals(PayBySquareSerializer.HEADER_DOCUMENT_TYPE, bytes[1]);
+        int length = bytes[2] & 0xFF | (bytes[3] & 0xFF) << 8;
+
+        ByteArrayInputStream compressed = new ByteArrayInputStream(bytes, PayBySquareSerializer.HEADER_LENGTH,
+                bytes.length - PayBySquareSerializer.HEADER_LENGTH);
+        byte[] data;
+        try (LZMAInputStream lzma = new LZMAInputStream(compressed, length,
+                PayBySquareSerializer.LITERAL_CONTEXT_BITS, PayBySquareSerializer.LITERAL_POSITION_BITS,
+                PayBySquareSerializer.POSITION_BITS, PayBySquareSerializer.DICTIONARY_SIZE, null)) {
+            // Stop at the length from the header, whether or not an end marker follows as liblzma writes one
+            lzma.enableRelaxedEndCondition();
+            data = lzma.readAllBytes();
+        }
+        assertEquals(length, data.length);
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, PayBySquareSerializer.CHECKSUM_LENGTH, length - PayBySquareSerializer.CHECKSUM_LENGTH);
+        long checksum = data[0] & 0xFFL | (data[1] & 0xFFL) << 8 | (data[2] & 0xFFL) << 16 | (data[3] & 0xFFL) << 24;
+        assertEquals(crc32.getValue(), checksum);
+        return new String(data, PayBySquareSerializer.CHECKSUM_LENGTH, length - PayBySquareSerializer.CHECKSUM_LENGTH,
+                StandardCharsets.UTF_8);
+    }
+
+    private static byte[] fromBase32Hex(String value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < value.length(); i++) {
+            buffer = buffer << 5 | Character.digit(value.charAt(i), 32);
+            bits += 5;
+            if (bits >= 8) {
+                bits -= 8;
+                out.write(buffer >>> bits & 0xFF);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrBitmapTest {
+
+    private static final String SPAYD_STRING =
+            "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK*DT:20290131*MSG:ZPRAVA PRO PRIJEMCE";
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 100",
+            "0, 256",
+            "4, 257",
+            "2, 10",
+            "1, 1000",
+    })
+    void givenSize_whenRenderBitmap_thenSamePixelsAsPng(int margin, int size) throws Exception {
+        QrCodeGenerator generator = QrCodeGenerator.builder().margin(margin).build();
+
+        QrBitmap bitmap = generator.renderBitmap(SPAYD_STRING, size);
+
+        assertSamePixels(QrCodeGeneratorTest.read(generator.render(SPAYD_STRING, size)), bitmap);
+    }
+
+    @Test
+    void givenModuleSize_whenGenerateBitmap_thenOnePixelPerModuleAndClearPadding() throws Exception {
+        QrCodeGenerator generator = QrCodeGenerator.builder().moduleSize(1).build();
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .amount(new BigDecimal("480.50"))
+                .build();
+
+        QrBitmap bitmap = generator.generateBitmap(payment, 0, false, true);
+        QrMatrix modules = generator.encode(payment, false, true);
+
+        assertEquals(modules.getWidth(), bitmap.getWidth());
+        assertEquals((bitmap.getWidth() + 7) / 8, bitmap.getStride());
+        assertEquals(bitmap.getStride() * bitmap.getHeight(), bitmap.getData().length);
+        for (int y = 0; y < modules.getHeight(); y++) {
+            for (int x = 0; x < modules.getWidth(); x++) {
+                assertEquals(modules.get(x, y), bitmap.get(x, y));
+            }
+            int padding = bitmap.getStride() * 8 - bitmap.getWidth();
+            assertEquals(0, bitmap.getData()[y * bitmap.getStride() + bitmap.getStride() - 1] & ((1 << padding) - 1));
+        }
+    }
+
+    static void assertSamePixels(BufferedImage image, QrBitmap bitmap) {
+        assertEquals(image.getWidth(), bitmap.getWidth());
+        assertEquals(image.getHeight(), bitmap.getHeight());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(image.getRGB(x, y) == QrPngWriter.BLACK, bitmap.get(x, y), "Pixel " + x + ", " + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrCodeGeneratorTest {
+
+    private static final String SPAYD_STRING =
+            "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK*DT:20290131*MSG:ZPRAVA PRO PRIJEMCE";
+
+    @ParameterizedTest
+    @CsvSource({
+            "M, 0, 100",
+            "M, 0, 256",
+            "M, 4, 257",
+            "L, 2, 10",
+            "H, 1, 1000",
+    })
+    void givenSize_whenRenderPng_thenSamePixelsAsZxing(ErrorCorrectionLevel level, int margin, int size) throws Exception {
+        QrCodeGenerator generator = QrCodeGenerator.builder().errorCorrectionLevel(level).margin(margin).build();
+
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, level);
+        hints.put(EncodeHintType.CHARACTER_SET, "ISO-8859-1");
+        hints.put(EncodeHintType.MARGIN, margin);
+        BitMatrix expected = new QRCodeWriter().encode(SPAYD_STRING, BarcodeFormat.QR_CODE, size, size, hints);
+
+        assertSamePixels(MatrixToImageWriter.toBufferedImage(expected), read(generator.render(SPAYD_STRING, size)));
+    }
+
+    @Test
+    void givenPayment_whenGenerate_thenSameImageAsFromString() throws Exception {
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899", "GIBACZPX"))
+                .amount(new BigDecimal("123.45"))
+                .paymentNote("Zpráva pro příjemce – €")
+                .build();
+        for (ImageFormat format : ImageFormat.values()) {
+            QrCodeGenerator generator = QrCodeGenerator.builder().format(format).build();
+            for (boolean includeChecksum : new boolean[] {false, true}) {
+                for (boolean normalizeStrings : new boolean[] {false, true}) {
+                    String spayd = SpaydSerializer.serialize(payment, includeChecksum, normalizeStrings);
+
+                    assertArrayEquals(generator.render(spayd, 200),
+                            generator.generate(payment, 200, includeChecksum, normalizeStrings));
+                }
+            }
+        }
+    }
+
+    @Test
+    void givenPayment_whenPredict_thenSymbolOfRenderedImage() throws Exception {
+        QrCodeGenerator generator = QrCodeGenerator.builder()
+                .encoder(SpaydQrEncoder.builder().mixedModes(true).boostErrorCorrection(true).build())
+                .moduleSize(1)
+                .build();
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899", "GIBACZPX"))
+                .amount(new BigDecimal("123.45"))
+                .paymentNote("Platba za zbozi")
+                .build();
+
+        QrSymbol symbol = generator.predict(payment, false, false);
+
+        assertEquals(symbol, generator.predict(SpaydSerializer.serialize(payment, false, false)));
+        assertEquals(symbol.getModules(), read(generator.generate(payment, 0, false, false)).getWidth());
+        assertEquals(symbol.getErrorCorrectionLevel(),
+                generator.encode(payment, false, false).getErrorCorrectionLevel());
+    }
+
+    @Test
+    void givenModuleSize_whenRenderPng_thenImageSizeDerivedFromModules() throws Exception {
+        QrCodeGenerator generator = QrCodeGenerator.builder().moduleSize(3).margin(4).build();
+        int modules = generator.encode(SPAYD_STRING).getWidth();
+
+        BufferedImage image = read(generator.render(SPAYD_STRING, 999));
+
+        assertEquals((modules + 8) * 3, image.getWidth());
+        assertEquals((modules + 8) * 3, image.getHeight());
+        assertEquals(SPAYD_STRING, decode(image));
+    }
+
+    @Test
+    void givenColours_whenRenderPng_thenPaletteImage() throws Exception {
+        QrCodeGenerator generator = QrCodeGenerator.builder()
+                .darkColor(0xFF1A237E)
+                .lightColor(0x00FFFFFF)
+                .margin(1)
+                .moduleSize(2)
+                .build();
+
+        BufferedImage image = read(generator.render(SPAYD_STRING, 0));
+
+        // Transparent margin
+        assertEquals(0, image.getRGB(0, 0) >>> 24);
+        // Top left finder pattern starts after the margin
+        assertEquals(0xFF1A237E, image.getRGB(2, 2));
+    }
+
+    @Test
+    void givenSvgFormat_whenRender_thenSvgDocument() throws Exception {
+        QrCodeGenerator generator = QrCodeGenerator.builder()
+                .format(ImageFormat.SVG)
+                .darkColor(0xFF1A237E)
+                .margin(2)
+                .build();
+
+        String svg = new String(generator.render(SPAYD_STRING, 300), StandardCharsets.UTF_8);
+
+        assertTrue(svg.contains("width=\"300\""), svg);
+        assertTrue(svg.contains("fill=\"#1A237E\""), svg);
+        assertTrue(svg.endsWith("</svg>"));
+    }
+
+    @Test
+    void givenMetrics_whenGenerate_thenStagesReported() throws Exception {
+        List<String> events = new ArrayList<>();
+        QrCodeGenerator generator = QrCodeGenerator.builder()
+                .errorCorrectionLevel(ErrorCorrectionLevel.Q)
+                .metrics(new QrCodeMetrics() {
+                    @Override
+                    public void onSerialized(long nanos, int length) {
+                        events.add("serialized " + length);
+                    }
+
+                    @Override
+                    public void onInvalidPayment(IllegalArgumentException exception) {
+                        events.add("invalid " + exception.getMessage());
+                    }
+
+                    @Override
+                    public void onEncoded(long nanos, int length, int version, ErrorCorrectionLevel level) {
+                        events.add("encoded " + length + " " + version + " " + level);
+                    }
+
+                    @Override
+                    public void onWritten(long nanos, ImageFormat format, long length) {
+                        events.add("written " + format + " " + length);
+                    }
+                })
+                .build();
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899", "GIBACZPX"))
+                .amount(new BigDecimal("123.45"))
+                .build();
+        String spayd = SpaydSerializer.serialize(payment);
+
+        byte[] image = generator.generate(payment, 200);
+        generator.render(spayd, 200);
+        assertThrows(IllegalArgumentException.class, () -> generator.generate(Payment.builder().build(), 200));
+
+        int version = generator.encode(spayd).getVersion();
+        assertEquals(List.of(
+                "serialized " + spayd.length(),
+                "encoded " + spayd.length() + " " + version + " Q",
+                "written PNG " + image.length,
+                "encoded " + spayd.length() + " " + version + " Q",
+                "written PNG " + image.length,
+                "invalid Bank account (IBAN) is required",
+                "encoded " + spayd.length() + " " + version + " Q"), events);
+    }
+
+    @Test
+    void givenInvalidOptions_whenBuild_thenException() {
+        assertThrows(IllegalArgumentException.class, () -> QrCodeGenerator.builder().margin(-1).build());
+        assertThrows(IllegalArgumentException.class, () -> QrCodeGenerator.builder().moduleSize(0).build());
+        assertThrows(IllegalArgumentException.class, () -> QrCodeGenerator.builder().compressionLevel(11).build());
+    }
+
+    static BufferedImage read(byte[] png) throws Exception {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Pixel " + x + "," + y);
+            }
+        }
+    }
+
+    static String decode(BufferedImage image) throws Exception {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+        return new QRCodeReader().decode(bitmap, hints).getText();
+    }
+}
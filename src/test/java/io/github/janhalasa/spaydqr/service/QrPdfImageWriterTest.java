@@ -0,0 +1,92 @@
+package io.github.janhalasa.spaydqr.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrPdfImageWriterTest {
+
+    private static final String SPAYD_STRING =
+            "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK*DT:20290131*MSG:ZPRAVA PRO PRIJEMCE";
+
+    private static final Pattern DICTIONARY = Pattern.compile(
+            "<< /Type /XObject /Subtype /Image /Width (\\d+) /Height (\\d+) /BitsPerComponent 1 (.*)"
+                    + " /Filter /FlateDecode /Length (\\d+) >>\nstream\n");
+
+    @Test
+    void givenPdfFormat_whenRender_thenXObjectWithBitmapPixels() throws Exception {
+        QrCodeGenerator generator = QrCodeGenerator.builder().format(ImageFormat.PDF).margin(2).build();
+
+        byte[] xObject = generator.render(SPAYD_STRING, 300);
+
+        QrBitmap bitmap = generator.renderBitmap(SPAYD_STRING, 300);
+        Matcher dictionary = parse(xObject);
+        assertEquals(bitmap.getWidth(), Integer.parseInt(dictionary.group(1)));
+        assertEquals(bitmap.getHeight(), Integer.parseInt(dictionary.group(2)));
+        assertEquals("/ColorSpace /DeviceGray /Decode [1 0]", dictionary.group(3));
+        assertArrayEquals(bitmap.getData(), inflate(xObject, dictionary));
+        assertTrue(xObject.length < bitmap.getData().length / 4, "Length: " + xObject.length);
+    }
+
+    @Test
+    void givenColours_whenWrite_thenIndexedColorSpace() throws Exception {
+        QrBitmap bitmap = QrCodeGenerator.builder().moduleSize(1).build().renderBitmap(SPAYD_STRING, 0);
+        ByteArrayOutputStream opaque = new ByteArrayOutputStream();
+        ByteArrayOutputStream transparent = new ByteArrayOutputStream();
+
+        new QrPdfImageWriter(9, 0xFF1A237E, 0xFFFFF8E1).write(bitmap, opaque);
+        new QrPdfImageWriter(9, 0xFF1A237E, 0x00FFFFFF).write(bitmap, transparent);
+
+        assertEquals("/ColorSpace [/Indexed /DeviceRGB 1 <FFF8E11A237E>]", parse(opaque.toByteArray()).group(3));
+        Matcher dictionary = parse(transparent.toByteArray());
+        assertEquals("/ColorSpace [/Indexed /DeviceRGB 1 <FFFFFF1A237E>] /Mask [0 0]", dictionary.group(3));
+        assertArrayEquals(bitmap.getData(), inflate(transparent.toByteArray(), dictionary));
+    }
+
+    @Test
+    void givenWriter_whenReusedForLargerImage_thenBufferGrows() throws Exception {
+        QrPdfImageWriter writer = new QrPdfImageWriter(Deflater.BEST_SPEED, QrPngWriter.BLACK, QrPngWriter.WHITE);
+        QrCodeGenerator generator = QrCodeGenerator.builder().build();
+
+        for (int size : new int[] {50, 2000, 100}) {
+            QrBitmap bitmap = generator.renderBitmap(SPAYD_STRING, size);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writer.write(bitmap, out);
+
+            assertArrayEquals(bitmap.getData(), inflate(out.toByteArray(), parse(out.toByteArray())));
+        }
+    }
+
+    @Test
+    void givenInvalidCompressionLevel_whenCreate_thenException() {
+        assertThrows(IllegalArgumentException.class, () -> new QrPdfImageWriter(10, 0, 0));
+    }
+
+    private static Matcher parse(byte[] xObject) {
+        String text = new String(xObject, StandardCharsets.ISO_8859_1);
+        Matcher matcher = DICTIONARY.matcher(text);
+        assertTrue(matcher.lookingAt(), text.substring(0, Math.min(200, text.length())));
+        assertTrue(text.endsWith("\nendstream"));
+        assertEquals(matcher.end() + Integer.parseInt(matcher.group(4)) + "\nendstream".length(), xObject.length);
+        return matcher;
+    }
+
+    private static byte[] inflate(byte[] xObject, Matcher dictionary) throws Exception {
+        Inflater inflater = new Inflater();
+        inflater.setInput(Arrays.copyOfRange(xObject, dictionary.end(), dictionary.end() + Integer.parseInt(dictionary.group(4))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        while (!inflater.finished()) {
+            out.write(buffer, 0, inflater.inflate(buffer));
+        }
+        return out.toByteArray();
+    }
+}
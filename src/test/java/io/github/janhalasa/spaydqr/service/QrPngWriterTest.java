@@ -0,0 +1,84 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrPngWriterTest {
+
+    private static final String SPAYD_STRING =
+            "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK*DT:20290131*MSG:ZPRAVA PRO PRIJEMCE";
+
+    @ParameterizedTest
+    @ValueSource(ints = {21, 100, 129, 256, 1000})
+    void givenQrMatrix_whenWrite_thenSamePixelsAsImageIo(int size) throws Exception {
+        BitMatrix matrix = new QRCodeWriter().encode(SPAYD_STRING, BarcodeFormat.QR_CODE, size, size);
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        new QrPngWriter().write(matrix, png);
+        ByteArrayOutputStream imageIoPng = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(matrix, "PNG", imageIoPng);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png.toByteArray()));
+        BufferedImage expected = ImageIO.read(new ByteArrayInputStream(imageIoPng.toByteArray()));
+        assertEquals(expected.getWidth(), image.getWidth());
+        assertEquals(expected.getHeight(), image.getHeight());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), image.getRGB(x, y), "Pixel " + x + "," + y);
+            }
+        }
+        if (size >= 100) {
+            assertTrue(png.size() < imageIoPng.size(), png.size() + " < " + imageIoPng.size());
+        }
+    }
+
+    @Test
+    void givenReusedWriter_whenWriteDifferentSizes_thenIdenticalToFreshWriter() throws Exception {
+        QrPngWriter reused = new QrPngWriter(Deflater.BEST_SPEED);
+        for (int size : new int[] {300, 50, 300}) {
+            BitMatrix matrix = new QRCodeWriter().encode(SPAYD_STRING, BarcodeFormat.QR_CODE, size, size);
+            ByteArrayOutputStream fromReused = new ByteArrayOutputStream();
+            reused.write(matrix, fromReused);
+            ByteArrayOutputStream fromFresh = new ByteArrayOutputStream();
+            new QrPngWriter(Deflater.BEST_SPEED).write(matrix, fromFresh);
+            assertArrayEquals(fromFresh.toByteArray(), fromReused.toByteArray());
+        }
+    }
+
+    @Test
+    void givenInvalidCompressionLevel_whenCreate_thenException() {
+        assertThrows(IllegalArgumentException.class, () -> new QrPngWriter(10));
+    }
+
+    @Test
+    void givenRandomNoise_whenWrite_thenWithinMaxEncodedLength() throws Exception {
+        Random random = new Random(7);
+        for (int size : new int[] {1, 9, 333, 1200}) {
+            BitMatrix matrix = new BitMatrix(size, size);
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    if (random.nextBoolean()) {
+                        matrix.set(x, y);
+                    }
+                }
+            }
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            new QrPngWriter(Deflater.BEST_COMPRESSION).write(matrix, png);
+            assertTrue(png.size() <= QrPngWriter.maxEncodedLength(size, size), png.size() + " <= max");
+        }
+    }
+}
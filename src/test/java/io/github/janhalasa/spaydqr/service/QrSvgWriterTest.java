@@ -0,0 +1,68 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrSvgWriterTest {
+
+    private static final String SPAYD_STRING =
+            "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK*DT:20290131*MSG:ZPRAVA PRO PRIJEMCE";
+
+    @Test
+    void givenSmallMatrix_whenWrite_thenRunsMergedIntoPathSegments() throws Exception {
+        ByteMatrix modules = new ByteMatrix(3, 2);
+        modules.clear((byte) 0);
+        modules.set(0, 0, 1);
+        modules.set(1, 0, 1);
+        modules.set(2, 1, 1);
+
+        StringWriter writer = new StringWriter();
+        QrSvgWriter.builder().margin(1).size("30").build().write(modules, writer);
+
+        assertEquals("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" viewBox=\"0 0 5 4\""
+                + " width=\"30\" height=\"30\" shape-rendering=\"crispEdges\">"
+                + "<rect width=\"100%\" height=\"100%\" fill=\"#FFFFFF\"/>"
+                + "<path fill=\"#000000\" d=\"M1 1h2v1h-2zM3 2h1v1h-1z\"/></svg>", writer.toString());
+    }
+
+    @Test
+    void givenQrCode_whenWrite_thenPathCoversExactlyTheDarkModules() throws Exception {
+        QrMatrix modules = SpaydQrCodeGenerator.encodeModules(SPAYD_STRING);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        QrSvgWriter.builder().lightColor("none").darkColor("navy").build().write(modules, out);
+        String svg = out.toString(StandardCharsets.UTF_8);
+
+        assertFalse(svg.contains("<rect"));
+        assertTrue(svg.contains("fill=\"navy\""));
+
+        boolean[][] painted = new boolean[modules.getHeight()][modules.getWidth()];
+        Matcher matcher = Pattern.compile("M(\\d+) (\\d+)h(\\d+)v1h-\\3z").matcher(svg);
+        while (matcher.find()) {
+            int x = Integer.parseInt(matcher.group(1));
+            int y = Integer.parseInt(matcher.group(2));
+            for (int i = 0; i < Integer.parseInt(matcher.group(3)); i++) {
+                assertFalse(painted[y][x + i]);
+                painted[y][x + i] = true;
+            }
+        }
+        for (int y = 0; y < modules.getHeight(); y++) {
+            for (int x = 0; x < modules.getWidth(); x++) {
+                assertEquals(modules.get(x, y), painted[y][x], "Module " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void givenInvalidAttributeValue_whenBuild_thenException() {
+        assertThrows(IllegalArgumentException.class, () -> QrSvgWriter.builder().darkColor("\"/><script>").build());
+        assertThrows(IllegalArgumentException.class, () -> QrSvgWriter.builder().margin(-1).build());
+    }
+}
@@ -0,0 +1,163 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaydParserTest {
+
+    private static final String WITH_CRC = "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK*DT:20290131*MSG:ZPRAVA PRO PRIJEMCE*X-KS:0308*X-SS:11111*X-VS:22222*CRC32:56674E89";
+
+    private final SpaydParser parser = new SpaydParser();
+
+    @Test
+    void givenSerializedPayment_whenParse_thenSamePayment() {
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899", "GIBACZPX"))
+                .alternativeBankAccounts(List.of(
+                        new BankAccount("SK3581800000510543524521", "TATRSKBX"),
+                        new BankAccount("SK3112000000001987426375")))
+                .amount(new BigDecimal("123.45"))
+                .currencyCode("CZK")
+                .paymentDueDate(LocalDate.of(2029, 1, 31))
+                .variableSymbol("22222")
+                .specificSymbol("11111")
+                .constantSymbol("0308")
+                .paymentNote("ZPRAVA PRO PRIJEMCE")
+                .beneficiaryName("JAN NOVAK")
+                .originatorsReference("1234")
+                .notificationType("E")
+                .notificationAddress("jan@example.com")
+                .instantPayment(true)
+                .build();
+
+        assertNull(parser.parse(SpaydSerializer.serialize(payment, true, true)));
+
+        assertTrue(parser.hasChecksum());
+        assertEquals(payment, parser.toPayment());
+    }
+
+    @Test
+    void givenChecksum_whenParse_thenVerified() {
+        assertNull(parser.parse(WITH_CRC));
+        assertEquals("22222", parser.getField("X-VS"));
+        assertNull(parser.getField("RN"));
+
+        String changed = WITH_CRC.replace("AM:123.45", "AM:123.46");
+        assertEquals(SpaydParseError.CHECKSUM_MISMATCH, parser.parse(changed));
+        assertEquals(changed.indexOf("CRC32:") + 6, parser.getErrorPosition());
+    }
+
+    @Test
+    void givenChecksumNotLast_whenParse_thenVerifiedWithoutIt() {
+        String reordered = "SPD*1.0*CRC32:56674E89*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK*DT:20290131*MSG:ZPRAVA PRO PRIJEMCE*X-KS:0308*X-SS:11111*X-VS:22222";
+        assertNull(parser.parse(reordered));
+
+        String middle = "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CRC32:56674e89*CC:CZK*DT:20290131*MSG:ZPRAVA PRO PRIJEMCE*X-KS:0308*X-SS:11111*X-VS:22222";
+        assertNull(parser.parse(middle));
+    }
+
+    @Test
+    void givenEscapedValues_whenParse_thenDecoded() {
+        assertNull(parser.parse("SPD*1.0*ACC:CZ5508000000001234567899*MSG:A%2AB*RN:P%C5%98%C3%8DJEMCE%20S.R.O.*X-URL:x"));
+
+        assertEquals("A*B", parser.getField("MSG"));
+        assertEquals("PŘÍJEMCE S.R.O.", parser.toPayment().getBeneficiaryName());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"SLEVA 10%", "KOD 50%41", "A*B", "%2A", "100 % * 2"})
+    void givenNoteWithEscapedCharacters_whenSerializeAndParse_thenSameNote(String note) {
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .paymentNote(note)
+                .build();
+
+        for (boolean includeChecksum : new boolean[] {false, true}) {
+            String serialized = SpaydSerializer.serialize(payment, includeChecksum, true);
+            assertNull(parser.parse(serialized), () -> serialized + " at " + parser.getErrorPosition());
+            assertEquals(note, parser.toPayment().getPaymentNote());
+        }
+        assertEquals("SPD*1.0*ACC:CZ5508000000001234567899*MSG:SLEVA 10%25", SpaydSerializer.serialize(
+                Payment.builder().bankAccount(new BankAccount("CZ5508000000001234567899")).paymentNote("SLEVA 10%").build()));
+    }
+
+    @Test
+    void givenBytes_whenParse_thenSameAsText() {
+        ByteBuffer bytes = ByteBuffer.wrap(("xx" + WITH_CRC).getBytes(StandardCharsets.ISO_8859_1));
+        bytes.position(2);
+
+        assertNull(parser.parse(bytes));
+
+        assertEquals(2, bytes.position());
+        assertEquals(new BigDecimal("123.45"), parser.toPayment().getAmount());
+        assertEquals("ZPRAVA PRO PRIJEMCE", parser.getField("MSG"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1234.50", "987654.321", "0.000000001", "123456789012345678901234.5", "-1.5", "10000000.001"})
+    void givenAmountWrittenBySerializer_whenParse_thenSameAmount(BigDecimal amount) {
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899", "GIBACZPX"))
+                .alternativeBankAccounts(List.of(new BankAccount("SK3581800000510543524521", "TATRSKBX")))
+                .amount(amount)
+                .currencyCode(Payment.CURRENCY_CZK)
+                .paymentDueDate(LocalDate.of(2029, 12, 31))
+                .variableSymbol("2024000123")
+                .constantSymbol("0308")
+                .paymentNote("Úhrada faktury č. 2024000123 – děkujeme")
+                .build();
+
+        for (boolean includeChecksum : new boolean[] {false, true}) {
+            String serialized = SpaydSerializer.serialize(payment, includeChecksum, true);
+            assertNull(parser.parse(serialized), () -> serialized + " at " + parser.getErrorPosition());
+            assertEquals(0, amount.compareTo(parser.toPayment().getAmount()), serialized);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "QR*1.0*ACC:CZ5508000000001234567899 | NOT_SPAYD | 0",
+            "SPD*1*ACC:CZ5508000000001234567899 | NOT_SPAYD | 0",
+            "SPD*2.0*ACC:CZ5508000000001234567899 | UNSUPPORTED_VERSION | 4",
+            "SPD*1.0*ACC:CZ5508000000001234567899*AM | MALFORMED_FIELD | 37",
+            "SPD*1.0*ACC:CZ5508000000001234567899*MSG:100%*X-VS:1 | INVALID_ESCAPE | 44",
+            "SPD*1.0*ACC:CZ5508000000001234567899*AM:1*AM:2 | DUPLICATE_FIELD | 42",
+            "SPD*1.0*AM:1 | MISSING_ACCOUNT | 12",
+            "SPD*1.0*ACC:CZ55 0800 | INVALID_ACCOUNT | 16",
+            "SPD*1.0*ACC:CZ5508000000001234567899+ | INVALID_ACCOUNT | 37",
+            "SPD*1.0*ACC:CZ5508000000001234567899*ALT-ACC:SK3581800000510543524521, | INVALID_ACCOUNT | 70",
+            "SPD*1.0*ACC:CZ5508000000001234567899*AM:1.1234567891 | INVALID_AMOUNT | 40",
+            "SPD*1.0*ACC:CZ5508000000001234567899*AM:-.5 | INVALID_AMOUNT | 40",
+            "SPD*1.0*ACC:CZ5508000000001234567899*AM:1,5 | INVALID_AMOUNT | 40",
+            "SPD*1.0*ACC:CZ5508000000001234567899*DT:20290230 | INVALID_DATE | 40",
+            "SPD*1.0*ACC:CZ5508000000001234567899*CRC32:XYZ | INVALID_CHECKSUM | 43",
+    })
+    void givenMalformedText_whenParse_thenErrorAndPosition(String text, SpaydParseError expected, int position) {
+        assertEquals(expected, parser.parse(text));
+        assertEquals(position, parser.getErrorPosition());
+        assertThrows(IllegalStateException.class, parser::toPayment);
+    }
+
+    @Test
+    void givenTrailingAsterisk_whenParse_thenValid() {
+        assertNull(parser.parse("SPD*1.0*ACC:CZ5508000000001234567899*"));
+        assertEquals(new BankAccount("CZ5508000000001234567899"), parser.toPayment().getBankAccount());
+    }
+
+    @Test
+    void givenUnknownKey_whenGetField_thenException() {
+        assertNull(parser.parse("SPD*1.0*ACC:CZ5508000000001234567899"));
+        assertThrows(IllegalArgumentException.class, () -> parser.getField("X-URL"));
+    }
+}
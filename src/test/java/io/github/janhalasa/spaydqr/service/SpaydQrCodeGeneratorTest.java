@@ -4,6 +4,11 @@ import io.github.janhalasa.spaydqr.model.BankAccount;
 import io.github.janhalasa.spaydqr.model.Payment;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class SpaydQrCodeGeneratorTest {
@@ -41,4 +46,55 @@ class SpaydQrCodeGeneratorTest {
         assertNotNull(qrImage);
         // java.nio.file.Files.write(java.nio.file.Path.of("spayd-qr.png"), qrImage);
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenPayment_whenGenerateSvgQrCode_thenSvgDocument() throws Exception {
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899", "GIBACZPX"))
+                .amount(new java.math.BigDecimal("123.45"))
+                .build();
+        String svg = SpaydQrCodeGenerator.generateSvgQrCode(payment);
+        assertTrue(svg.startsWith("<svg "));
+        assertTrue(svg.endsWith("</svg>"));
+    }
+
+    @Test
+    void givenOutputTargets_whenWriteQrCode_thenSameBytesAsGenerate() throws Exception {
+        String spaydString = "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK";
+        byte[] expected = SpaydQrCodeGenerator.generateQrCodeFromString(spaydString, 200);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        SpaydQrCodeGenerator.writeQrCodeFromString(spaydString, 200, stream);
+        assertArrayEquals(expected, stream.toByteArray());
+
+        ByteArrayOutputStream channelTarget = new ByteArrayOutputStream();
+        SpaydQrCodeGenerator.writeQrCodeFromString(spaydString, 200, Channels.newChannel(channelTarget));
+        assertArrayEquals(expected, channelTarget.toByteArray());
+
+        ByteBuffer buffer = ByteBuffer.allocate(SpaydQrCodeGenerator.maxQrCodeLength(200));
+        buffer.put((byte) 42);
+        int length = SpaydQrCodeGenerator.writeQrCodeFromString(spaydString, 200, buffer);
+        assertEquals(expected.length, length);
+        assertEquals(1 + length, buffer.position());
+        byte[] written = new byte[length];
+        buffer.flip().position(1);
+        buffer.get(written);
+        assertArrayEquals(expected, written);
+    }
+
+    @Test
+    void givenTooSmallBuffer_whenWriteQrCode_thenOverflow() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        assertThrows(BufferOverflowException.class,
+                () -> SpaydQrCodeGenerator.writeQrCodeFromString("SPD*1.0*ACC:CZ5508000000001234567899", 200, buffer));
+    }
+
+    @Test
+    void givenSizes_whenMaxQrCodeLength_thenNotSmallerThanImage() throws Exception {
+        String spaydString = "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK";
+        for (int size : new int[] {1, 10, 100, 256, 1000}) {
+            byte[] image = SpaydQrCodeGenerator.generateQrCodeFromString(spaydString, size);
+            assertTrue(image.length <= SpaydQrCodeGenerator.maxQrCodeLength(size));
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaydQrEncoderTest {
+
+    private static final String SPAYD_STRING =
+            "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK*DT:20290131*MSG:ZPRAVA PRO PRIJEMCE";
+
+    @ParameterizedTest
+    @EnumSource(ErrorCorrectionLevel.class)
+    void givenSpaydOfAnyLength_whenEncode_thenSameMatrixAsZxing(ErrorCorrectionLevel level) throws Exception {
+        Random random = new Random(level.ordinal());
+        // Up to the capacity of version 40, so that every version and block structure is covered
+        for (int length = 1; length < 4400; length += 1 + length / 8) {
+            String content = randomSpayd(random, length);
+            if (!fits(content, level)) {
+                break;
+            }
+            assertSameMatrix(content, level);
+            // Byte and numeric modes
+            assertSameMatrix(content.toLowerCase(), level);
+            assertSameMatrix(content.replaceAll("\\D", "7"), level);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "1", "12", "123", "1234", "0000000000", "31415926535897932384626433832795028841971693993751",
+            "A", "AB", "SPD*1.0*ACC:CZ5508000000001234567899*AM:450.00*CC:CZK", "HTTP://EXAMPLE.COM/$%*+-./:",
+            "x", "", "SPD*1.0*MSG:Příliš žluťoučký kůň", "€ outside Latin-1", "emoji 😀 pair", "lone \uD800 surrogate",
+    })
+    void givenAnyMode_whenEncode_thenSameMatrixAsZxing(String content) throws Exception {
+        for (ErrorCorrectionLevel level : ErrorCorrectionLevel.values()) {
+            assertSameMatrix(content, level);
+        }
+    }
+
+    @Test
+    void givenSpayd_whenEncodeAndDecode_thenSameString() throws Exception {
+        QrCodeGenerator generator = QrCodeGenerator.builder().margin(4).moduleSize(4).build();
+
+        String decoded = QrCodeGeneratorTest.decode(QrCodeGeneratorTest.read(generator.render(SPAYD_STRING, 0)));
+
+        assertEquals(SPAYD_STRING, decoded);
+    }
+
+    @Test
+    void givenZxingEncoder_whenRender_thenSameImageAsNativeEncoder() throws Exception {
+        QrCodeGenerator zxing = QrCodeGenerator.builder().encoder(ZxingQrEncoder.INSTANCE).build();
+
+        assertArrayEquals(zxing.render(SPAYD_STRING, 300), QrCodeGenerator.DEFAULT.render(SPAYD_STRING, 300));
+    }
+
+    @Test
+    void givenTooLongContent_whenEncode_thenWriterException() {
+        String content = "x".repeat(3000);
+
+        assertThrows(WriterException.class, () -> SpaydQrEncoder.INSTANCE.encode(content, ErrorCorrectionLevel.M));
+        assertThrows(WriterException.class, () -> ZxingQrEncoder.INSTANCE.encode(content, ErrorCorrectionLevel.M));
+    }
+
+    @Test
+    void givenMixedModes_whenEncode_thenDecodedBackAndNeverLargerThanSingleMode() throws Exception {
+        SpaydQrEncoder encoder = SpaydQrEncoder.builder().mixedModes(true).build();
+        QrCodeGenerator generator = QrCodeGenerator.builder().encoder(encoder).margin(4).moduleSize(2).build();
+        Random random = new Random(7);
+        String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ*:+-. abcdefghijklmnopqrstuvwxyzáéíóôöúüý@#";
+        for (int i = 0; i < 60; i++) {
+            StringBuilder content = new StringBuilder("SPD*1.0*");
+            int length = random.nextInt(300);
+            while (content.length() < length) {
+                // Runs of characters of one kind, as in the SPAYD fields
+                int from = random.nextInt(alphabet.length());
+                int to = Math.min(alphabet.length(), from + 1 + random.nextInt(15));
+                for (int j = random.nextInt(12); j >= 0; j--) {
+                    content.append(alphabet.charAt(from + random.nextInt(to - from)));
+                }
+            }
+            String spayd = content.toString();
+
+            QrSymbol mixed = encoder.predict(spayd, ErrorCorrectionLevel.M);
+            QrSymbol single = SpaydQrEncoder.INSTANCE.predict(spayd, ErrorCorrectionLevel.M);
+            assertTrue(mixed.getVersion() <= single.getVersion(), spayd);
+            assertEquals(spayd, VerifyingQrCodeRenderer.decode(generator.render(spayd, 0)), spayd);
+        }
+    }
+
+    @Test
+    void givenLowercaseMessage_whenMixedModes_thenSmallerSymbol() throws Exception {
+        String spayd = "SPD*1.0*ACC:CZ5508000000001234567899+GIBACZPX*AM:123.45*CC:CZK*X-VS:1234567890*DT:20290131"
+                + "*MSG:Platba za zbozi c. 2024/0815*RN:Jan Novak";
+        SpaydQrEncoder encoder = SpaydQrEncoder.builder().mixedModes(true).build();
+
+        QrSymbol single = SpaydQrEncoder.INSTANCE.predict(spayd, ErrorCorrectionLevel.M);
+        QrSymbol mixed = encoder.predict(spayd, ErrorCorrectionLevel.M);
+
+        assertEquals(8, single.getVersion());
+        assertEquals(6, mixed.getVersion());
+        assertEquals(41, mixed.getModules());
+        assertEquals(41, encoder.encode(spayd, ErrorCorrectionLevel.M).getWidth());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ErrorCorrectionLevel.class)
+    void givenBoostedErrorCorrection_whenEncode_thenStrongestLevelOfSameVersion(ErrorCorrectionLevel level)
+            throws Exception {
+        SpaydQrEncoder encoder = SpaydQrEncoder.builder().boostErrorCorrection(true).build();
+        int version = SpaydQrEncoder.INSTANCE.predict(SPAYD_STRING, level).getVersion();
+
+        QrMatrix matrix = encoder.encode(SPAYD_STRING, level);
+
+        assertEquals(version, matrix.getVersion());
+        ErrorCorrectionLevel boosted = matrix.getErrorCorrectionLevel();
+        assertTrue(boosted.ordinal() >= level.ordinal());
+        if (boosted != ErrorCorrectionLevel.H) {
+            ErrorCorrectionLevel stronger = ErrorCorrectionLevel.values()[boosted.ordinal() + 1];
+            assertTrue(SpaydQrEncoder.INSTANCE.predict(SPAYD_STRING, stronger).getVersion() > version);
+        }
+        assertEquals(SpaydQrEncoder.INSTANCE.encode(SPAYD_STRING, boosted), matrix);
+        assertEquals(new QrSymbol(version, boosted), encoder.predict(SPAYD_STRING, level));
+    }
+
+    @Test
+    void givenTargetVersion_whenEncode_thenCapacityUsedForErrorCorrection() throws Exception {
+        SpaydQrEncoder encoder = SpaydQrEncoder.builder()
+                .mixedModes(true)
+                .boostErrorCorrection(true)
+                .targetVersion(10)
+                .build();
+
+        QrMatrix small = encoder.encode("SPD*1.0*ACC:CZ5508000000001234567899*AM:480.50", ErrorCorrectionLevel.L);
+        QrMatrix large = encoder.encode(SPAYD_STRING.repeat(8), ErrorCorrectionLevel.L);
+
+        assertEquals(10, small.getVersion());
+        assertEquals(ErrorCorrectionLevel.H, small.getErrorCorrectionLevel());
+        assertTrue(large.getVersion() > 10);
+        assertEquals("SPD*1.0*ACC:CZ5508000000001234567899*AM:480.50",
+                VerifyingQrCodeRenderer.decode(QrCodeGenerator.builder().encoder(encoder).margin(4).moduleSize(2).build()
+                        .render("SPD*1.0*ACC:CZ5508000000001234567899*AM:480.50", 0)));
+    }
+
+    @Test
+    void givenLongContent_whenMixedModes_thenLargestVersionsUsable() throws Exception {
+        SpaydQrEncoder encoder = SpaydQrEncoder.builder().mixedModes(true).build();
+        String content = randomSpayd(new Random(3), 4000) + "x".repeat(100) + "1234567890".repeat(20);
+        QrCodeGenerator generator = QrCodeGenerator.builder().encoder(encoder).margin(4).moduleSize(2)
+                .errorCorrectionLevel(ErrorCorrectionLevel.L).build();
+
+        assertEquals(40, encoder.predict(content, ErrorCorrectionLevel.L).getVersion());
+        assertThrows(WriterException.class, () -> SpaydQrEncoder.INSTANCE.encode(content, ErrorCorrectionLevel.L));
+        assertEquals(content, VerifyingQrCodeRenderer.decode(generator.render(content, 0)));
+        assertThrows(WriterException.class, () -> encoder.encode(content + content, ErrorCorrectionLevel.L));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ErrorCorrectionLevel.class)
+    void givenAnyEncoder_whenPredict_thenSameAsEncoded(ErrorCorrectionLevel level) throws Exception {
+        for (String content : new String[] {"", "1", SPAYD_STRING, SPAYD_STRING.toLowerCase(), "x".repeat(500)}) {
+            for (QrEncoder encoder : new QrEncoder[] {SpaydQrEncoder.INSTANCE, ZxingQrEncoder.INSTANCE}) {
+                QrMatrix matrix = encoder.encode(content, level);
+
+                assertEquals(new QrSymbol(matrix.getVersion(), level), encoder.predict(content, level));
+                assertEquals(level, matrix.getErrorCorrectionLevel());
+            }
+        }
+    }
+
+    @Test
+    void givenInvalidOptions_whenBuild_thenException() {
+        assertThrows(IllegalArgumentException.class, () -> SpaydQrEncoder.builder().targetVersion(5).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> SpaydQrEncoder.builder().boostErrorCorrection(true).targetVersion(41).build());
+    }
+
+    @Test
+    void givenSameConfiguration_whenCompared_thenEqualWithSameString() {
+        SpaydQrEncoder boosted = SpaydQrEncoder.builder().boostErrorCorrection(true).targetVersion(10).build();
+
+        assertEquals(SpaydQrEncoder.INSTANCE, SpaydQrEncoder.builder().build());
+        assertEquals(boosted, SpaydQrEncoder.builder().boostErrorCorrection(true).targetVersion(10).build());
+        assertEquals(boosted.toString(),
+                SpaydQrEncoder.builder().boostErrorCorrection(true).targetVersion(10).build().toString());
+        assertNotEquals(boosted, SpaydQrEncoder.builder().boostErrorCorrection(true).build());
+        assertNotEquals(SpaydQrEncoder.INSTANCE.toString(), SpaydQrEncoder.builder().mixedModes(true).build().toString());
+        assertNotEquals(SpaydQrEncoder.INSTANCE.toString(), ZxingQrEncoder.INSTANCE.toString());
+    }
+
+    @Test
+    void givenMatrix_whenConvertToByteMatrixAndBack_thenEqual() throws Exception {
+        QrMatrix matrix = SpaydQrEncoder.INSTANCE.encode(SPAYD_STRING, ErrorCorrectionLevel.M);
+
+        assertEquals(matrix, QrMatrix.from(matrix.toByteMatrix()));
+    }
+
+    @Test
+    void givenRow_whenScanForRuns_thenSameAsModuleByModule() throws Exception {
+        // Version 40, rows span three words
+        QrMatrix matrix = SpaydQrEncoder.INSTANCE.encode(randomSpayd(new Random(1), 4200), ErrorCorrectionLevel.L);
+        assertEquals(177, matrix.getWidth());
+
+        for (int y = 0; y < matrix.getWidth(); y++) {
+            for (int x = 0; x <= matrix.getWidth(); x++) {
+                assertEquals(expectedNext(matrix, x, y, true), matrix.nextDark(x, y));
+                assertEquals(expectedNext(matrix, x, y, false), matrix.nextLight(x, y));
+            }
+        }
+    }
+
+    private static int expectedNext(QrMatrix matrix, int fromX, int y, boolean dark) {
+        for (int x = fromX; x < matrix.getWidth(); x++) {
+            if (matrix.get(x, y) == dark) {
+                return x;
+            }
+        }
+        return matrix.getWidth();
+    }
+
+    private static void assertSameMatrix(String content, ErrorCorrectionLevel level) throws WriterException {
+        if (!fits(content, level)) {
+            assertThrows(WriterException.class, () -> SpaydQrEncoder.INSTANCE.encode(content, level));
+            return;
+        }
+        QrMatrix expected = ZxingQrEncoder.INSTANCE.encode(content, level);
+        QrMatrix actual = SpaydQrEncoder.INSTANCE.encode(content, level);
+        assertEquals(expected, actual, () -> "Content of length " + content.length() + ", level " + level);
+
+        byte[] bytes = ("xx" + content).getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(expected, SpaydQrEncoder.INSTANCE.encode(bytes, 2, bytes.length - 2, level));
+    }
+
+    private static boolean fits(String content, ErrorCorrectionLevel level) {
+        try {
+            ZxingQrEncoder.INSTANCE.encode(content, level);
+            return true;
+        } catch (WriterException e) {
+            return false;
+        }
+    }
+
+    private static String randomSpayd(Random random, int length) {
+        String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ*:+-. ";
+        StringBuilder result = new StringBuilder("SPD*1.0*");
+        while (result.length() < length) {
+            result.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return result.substring(0, Math.max(length, 1));
+    }
+}
@@ -4,9 +4,18 @@ import io.github.janhalasa.spaydqr.model.BankAccount;
 import io.github.janhalasa.spaydqr.model.Payment;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringWriter;
 import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -85,4 +94,181 @@ public class SpaydSerializerTest {
         String result = SpaydSerializer.serialize(payment, true, true);
         assertEquals(expected, result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenReusedBuilder_whenSerializeTo_thenSameAsSerialize() {
+        Payment payment = fullPayment();
+        StringBuilder builder = new StringBuilder();
+        for (boolean includeChecksum : new boolean[] {false, true}) {
+            for (boolean normalizeStrings : new boolean[] {false, true}) {
+                builder.setLength(0);
+                SpaydSerializer.serializeTo(payment, includeChecksum, normalizeStrings, builder);
+                assertEquals(SpaydSerializer.serialize(payment, includeChecksum, normalizeStrings), builder.toString());
+            }
+        }
+    }
+
+    @Test
+    void givenAppendable_whenSerializeTo_thenSameAsSerialize() throws Exception {
+        Payment payment = fullPayment();
+        StringWriter writer = new StringWriter();
+        SpaydSerializer.serializeTo(payment, true, true, writer);
+        assertEquals(SpaydSerializer.serialize(payment, true, true), writer.toString());
+    }
+
+    @Test
+    void givenByteBuffer_whenSerializeTo_thenIso88591BytesOfSerialize() {
+        Payment payment = fullPayment();
+        payment.setPaymentNote("Úhrada – 😀 Привет");
+        ByteBuffer target = ByteBuffer.allocate(512);
+        target.position(3);
+        for (boolean includeChecksum : new boolean[] {false, true}) {
+            for (boolean normalizeStrings : new boolean[] {false, true}) {
+                target.clear().position(3);
+
+                int length = SpaydSerializer.serializeTo(payment, includeChecksum, normalizeStrings, target);
+
+                byte[] expected = SpaydSerializer.serialize(payment, includeChecksum, normalizeStrings)
+                        .getBytes(StandardCharsets.ISO_8859_1);
+                byte[] actual = new byte[length];
+                target.flip().position(3);
+                target.get(actual);
+                assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    void givenNonLatinCharacters_whenSerializeWithChecksum_thenChecksumOfQrCodeBytes() {
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .paymentNote("Zpráva – €")
+                .build();
+        CRC32 crc32 = new CRC32();
+        crc32.update("ACC:CZ5508000000001234567899*MSG:Zpráva ? ?".getBytes(StandardCharsets.ISO_8859_1));
+
+        String result = SpaydSerializer.serialize(payment, true, false);
+
+        assertTrue(result.endsWith("*CRC32:" + Long.toHexString(crc32.getValue()).toUpperCase()), result);
+    }
+
+    @Test
+    void givenSmallBuffer_whenSerializeTo_thenOverflowAndNothingWritten() {
+        ByteBuffer target = ByteBuffer.allocate(10);
+
+        assertThrows(BufferOverflowException.class, () -> SpaydSerializer.serializeTo(fullPayment(), true, true, target));
+        assertEquals(0, target.position());
+    }
+
+    @Test
+    void givenVariousPayments_whenSerialize_thenSameAsMapBasedSerialization() {
+        List<Payment> payments = List.of(
+                Payment.builder().bankAccount(new BankAccount("CZ5508000000001234567899")).build(),
+                Payment.builder()
+                        .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                        .amount(new BigDecimal("0.001"))
+                        .paymentDueDate(LocalDate.of(1, 2, 3))
+                        .build(),
+                Payment.builder()
+                        .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                        .amount(new BigDecimal("1E+3"))
+                        .instantPayment(false)
+                        .beneficiaryName("Jan Novák")
+                        .build(),
+                fullPayment());
+        for (Payment payment : payments) {
+            for (boolean includeChecksum : new boolean[] {false, true}) {
+                for (boolean normalizeStrings : new boolean[] {false, true}) {
+                    assertEquals(
+                            mapBasedSerialize(payment, includeChecksum, normalizeStrings),
+                            SpaydSerializer.serialize(payment, includeChecksum, normalizeStrings));
+                }
+            }
+        }
+    }
+
+    private static Payment fullPayment() {
+        return Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899", "GIBACZPX"))
+                .alternativeBankAccounts(List.of(
+                        new BankAccount("SK3581800000510543524521", "TATRSKBX"),
+                        new BankAccount("SK3112000000001987426375")
+                ))
+                .amount(new BigDecimal("987654.321"))
+                .currencyCode("CZK")
+                .paymentDueDate(LocalDate.of(2029, 12, 31))
+                .variableSymbol("22222")
+                .specificSymbol("11111")
+                .constantSymbol("0308")
+                .originatorsReference("1234567890")
+                .beneficiaryName("  Žluťoučký kůň s.r.o. ")
+                .paymentNote("Úhrada faktury – děkujeme")
+                .notificationType("E")
+                .notificationAddress("fakturace@example.cz")
+                .instantPayment(true)
+                .build();
+    }
+
+    /**
+     * The original map based implementation, kept as a reference for the output format.
+     */
+    private static String mapBasedSerialize(Payment payment, boolean includeChecksum, boolean normalizeStrings) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("ACC", bankAccountValue(payment.getBankAccount()));
+        if (payment.getAlternativeBankAccounts() != null && !payment.getAlternativeBankAccounts().isEmpty()) {
+            fields.put("ALT-ACC", payment.getAlternativeBankAccounts().stream()
+                    .map(SpaydSerializerTest::bankAccountValue)
+                    .collect(Collectors.joining(",")));
+        }
+        if (payment.getAmount() != null) {
+            java.text.DecimalFormat decimalFormat = new java.text.DecimalFormat("0.##");
+            decimalFormat.setMaximumFractionDigits(9);
+            decimalFormat.setGroupingUsed(false);
+            fields.put("AM", decimalFormat.format(payment.getAmount()));
+        }
+        putIfNotNull(fields, "CC", payment.getCurrencyCode());
+        putIfNotNull(fields, "RF", payment.getOriginatorsReference());
+        putIfNotNull(fields, "RN", normalize(payment.getBeneficiaryName(), normalizeStrings));
+        if (payment.getPaymentDueDate() != null) {
+            fields.put("DT", DateTimeFormatter.BASIC_ISO_DATE.format(payment.getPaymentDueDate()));
+        }
+        if (Boolean.TRUE.equals(payment.getInstantPayment())) {
+            fields.put("PT", "IP");
+        }
+        putIfNotNull(fields, "MSG", normalize(payment.getPaymentNote(), normalizeStrings));
+        putIfNotNull(fields, "NT", payment.getNotificationType());
+        putIfNotNull(fields, "NTA", payment.getNotificationAddress());
+        putIfNotNull(fields, "X-KS", payment.getConstantSymbol());
+        putIfNotNull(fields, "X-VS", payment.getVariableSymbol());
+        putIfNotNull(fields, "X-SS", payment.getSpecificSymbol());
+
+        String fieldsAsString = fields.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> e.getKey() + ":" + e.getValue())
+                .collect(Collectors.joining("*"));
+        String result = "SPD*1.0*" + fieldsAsString;
+        if (includeChecksum) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(fieldsAsString.getBytes(StandardCharsets.ISO_8859_1));
+            result += "*CRC32:" + Long.toHexString(crc32.getValue()).toUpperCase();
+        }
+        return result;
+    }
+
+    private static String bankAccountValue(BankAccount bankAccount) {
+        return bankAccount.getBic() == null ? bankAccount.getIban() : bankAccount.getIban() + "+" + bankAccount.getBic();
+    }
+
+    private static String normalize(String value, boolean apply) {
+        if (value == null) {
+            return null;
+        }
+        return apply ? org.apache.commons.lang3.StringUtils.stripAccents(value.trim()).toUpperCase() : value;
+    }
+
+    private static void putIfNotNull(Map<String, String> fields, String key, String value) {
+        if (value != null) {
+            fields.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaydTemplateTest {
+
+    @Test
+    void givenTemplate_whenSerialize_thenSameAsSerializerForCompletePayment() {
+        for (boolean includeChecksum : new boolean[] {false, true}) {
+            for (boolean normalizeStrings : new boolean[] {false, true}) {
+                SpaydTemplate template = SpaydTemplate.compile(template().build(), includeChecksum, normalizeStrings);
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < 20; i++) {
+                    BigDecimal amount = i % 7 == 0 ? null : new BigDecimal(i * 1234 + ".5" + i);
+                    LocalDate dueDate = i % 5 == 0 ? null : LocalDate.of(2029, 1 + i % 12, 1 + i);
+                    String variableSymbol = i % 3 == 0 ? null : Integer.toString(2024000000 + i);
+
+                    String expected = SpaydSerializer.serialize(template()
+                            .amount(amount)
+                            .paymentDueDate(dueDate)
+                            .variableSymbol(variableSymbol)
+                            .build(), includeChecksum, normalizeStrings);
+                    assertEquals(expected, template.serialize(amount, dueDate, variableSymbol));
+
+                    builder.setLength(0);
+                    assertEquals(expected, template.serializeTo(builder, amount, dueDate, variableSymbol).toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    void givenNonLatinNoteWithoutNormalization_whenSerializeWithChecksum_thenChecksumOfQrCodeBytes() {
+        SpaydTemplate template = SpaydTemplate.compile(Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .paymentNote("Zpráva – €")
+                .build(), true, false);
+        CRC32 crc32 = new CRC32();
+        crc32.update("ACC:CZ5508000000001234567899*AM:100*MSG:Zpráva ? ?*X-VS:123"
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+        String result = template.serialize(new BigDecimal("100"), null, "123");
+
+        assertEquals("SPD*1.0*ACC:CZ5508000000001234567899*AM:100*MSG:Zpráva – €*X-VS:123*CRC32:"
+                + Long.toHexString(crc32.getValue()).toUpperCase(), result);
+        assertEquals(SpaydSerializer.serialize(Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .amount(new BigDecimal("100"))
+                .paymentNote("Zpráva – €")
+                .variableSymbol("123")
+                .build(), true, false), result);
+    }
+
+    @Test
+    void givenMinimalTemplate_whenSerialize_thenOnlyVariableFieldsAdded() {
+        SpaydTemplate template = SpaydTemplate.compile(Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899"))
+                .build());
+        assertEquals("SPD*1.0*ACC:CZ5508000000001234567899*AM:100*DT:20290131*X-VS:123",
+                template.serialize(new BigDecimal("100.00"), LocalDate.of(2029, 1, 31), "123"));
+    }
+
+    @Test
+    void givenVariableFieldInTemplate_whenCompile_thenException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SpaydTemplate.compile(template().amount(BigDecimal.ONE).build()));
+        assertThrows(IllegalArgumentException.class,
+                () -> SpaydTemplate.compile(template().paymentDueDate(LocalDate.now()).build()));
+        assertThrows(IllegalArgumentException.class,
+                () -> SpaydTemplate.compile(template().variableSymbol("1").build()));
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> SpaydTemplate.compile(Payment.builder().build()));
+        assertEquals("Bank account (IBAN) is required", exception.getMessage());
+    }
+
+    private static Payment.PaymentBuilder template() {
+        return Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567899", "GIBACZPX"))
+                .alternativeBankAccounts(List.of(new BankAccount("SK3581800000510543524521", "TATRSKBX")))
+                .currencyCode("CZK")
+                .constantSymbol("0308")
+                .beneficiaryName("Žluťoučký kůň s.r.o.")
+                .paymentNote("Předplatné – děkujeme")
+                .notificationType("E")
+                .notificationAddress("fakturace@example.cz");
+    }
+}
@@ -0,0 +1,231 @@
+package io.github.janhalasa.spaydqr.service;
+
+import io.github.janhalasa.spaydqr.model.BankAccount;
+import io.github.janhalasa.spaydqr.model.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaydValidatorTest {
+
+    private static final String IBAN = "CZ5508000000001234567899";
+
+    private static Payment.PaymentBuilder validPayment() {
+        return Payment.builder()
+                .bankAccount(new BankAccount(IBAN, "GIBACZPX"))
+                .alternativeBankAccounts(List.of(new BankAccount("SK3581800000510543524521"),
+                        new BankAccount("DE89370400440532013000", "COBADEFFXXX")))
+                .amount(new BigDecimal("9999999.990"))
+                .currencyCode("CZK")
+                .paymentDueDate(LocalDate.of(2026, 10, 31))
+                .paymentNote("Platba za zboží, objednávka č. 12345 - děkujeme!")
+                .notificationType("E")
+                .notificationAddress("platby@example.com")
+                .instantPayment(true)
+                .originatorsReference("1234567890123456")
+                .beneficiaryName("Žluťoučký kůň s.r.o.")
+                .constantSymbol("0308")
+                .specificSymbol("1234567890")
+                .variableSymbol("2026000123");
+    }
+
+    @Test
+    void givenValidPayment_whenValidate_thenNoViolations() {
+        SpaydValidationResult result = SpaydValidator.validate(validPayment().build());
+
+        assertTrue(result.isValid(), result::toString);
+        assertEquals(0, result.getViolationCount());
+        assertTrue(result.getViolations().isEmpty());
+        assertNull(result.getMessage());
+        assertNull(result.getIbanError());
+        assertDoesNotThrow(result::throwIfInvalid);
+    }
+
+    @Test
+    void givenMinimalPayment_whenValidate_thenNoViolations() {
+        assertTrue(SpaydValidator.validate(Payment.builder().bankAccount(new BankAccount(IBAN)).build()).isValid());
+    }
+
+    @Test
+    void givenEveryRuleBroken_whenValidate_thenAllViolationsCollected() {
+        Payment payment = Payment.builder()
+                .bankAccount(new BankAccount("CZ5508000000001234567898", "GIBACZ"))
+                .alternativeBankAccounts(Arrays.asList(new BankAccount(IBAN), null,
+                        new BankAccount(IBAN, "1IBACZPX")))
+                .amount(new BigDecimal("-10000000.001"))
+                .currencyCode("Kč")
+                .paymentDueDate(LocalDate.of(10000, 1, 1))
+                .paymentNote("x".repeat(61))
+                .notificationType("S")
+                .originatorsReference("12345678901234567")
+                .beneficiaryName("y".repeat(36))
+                .constantSymbol("")
+                .specificSymbol("12345678901")
+                .variableSymbol("VS123")
+                .build();
+
+        SpaydValidationResult result = SpaydValidator.validate(payment);
+
+        Set<SpaydViolation> expected = EnumSet.allOf(SpaydViolation.class);
+        expected.removeAll(List.of(SpaydViolation.ACCOUNT_MISSING, SpaydViolation.AMOUNT_TOO_LARGE,
+                SpaydViolation.NOTIFICATION_ADDRESS_LENGTH, SpaydViolation.CHARACTER_SET));
+        assertEquals(expected, result.getViolations());
+        assertEquals(expected.size(), result.getViolationCount());
+        assertEquals(IbanError.CHECKSUM, result.getIbanError());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, result::throwIfInvalid);
+        assertTrue(e.getMessage().startsWith("IBAN of the bank account is invalid; BIC of the bank account"));
+    }
+
+    @Test
+    void givenMissingAccount_whenValidate_thenSameMessageAsSerializer() {
+        SpaydValidationResult result = SpaydValidator.validate(Payment.builder().build());
+
+        IllegalArgumentException serializer = assertThrows(IllegalArgumentException.class,
+                () -> SpaydSerializer.serialize(Payment.builder().build()));
+        assertEquals(serializer.getMessage(), result.getMessage());
+        assertEquals(Set.of(SpaydViolation.ACCOUNT_MISSING), result.getViolations());
+    }
+
+    @Test
+    void givenAmounts_whenValidate_thenLimitsChecked() {
+        assertValid(p -> p.amount(new BigDecimal("0")));
+        assertValid(p -> p.amount(new BigDecimal("1E+3")));
+        assertValid(p -> p.amount(new BigDecimal("12.5000")));
+        assertViolations(p -> p.amount(new BigDecimal("10000000")), SpaydViolation.AMOUNT_TOO_LARGE);
+        assertViolations(p -> p.amount(new BigDecimal("0.001")), SpaydViolation.AMOUNT_PRECISION);
+        assertViolations(p -> p.amount(new BigDecimal("-1")), SpaydViolation.AMOUNT_NEGATIVE);
+    }
+
+    @Test
+    void givenCurrencyCodes_whenValidate_thenIso4217Required() {
+        assertValid(p -> p.currencyCode("EUR"));
+        assertValid(p -> p.currencyCode("USD"));
+        assertViolations(p -> p.currencyCode("czk"), SpaydViolation.CURRENCY);
+        assertViolations(p -> p.currencyCode("ABC"), SpaydViolation.CURRENCY);
+        assertViolations(p -> p.currencyCode("CZKK"), SpaydViolation.CURRENCY);
+        assertViolations(p -> p.currencyCode(""), SpaydViolation.CURRENCY);
+    }
+
+    @Test
+    void givenTextFields_whenValidate_thenLengthAndCharacterSetChecked() {
+        assertValid(p -> p.paymentNote("  " + "á".repeat(60) + "  "));
+        assertViolations(p -> p.paymentNote("line\nbreak"), SpaydViolation.CHARACTER_SET);
+        assertViolations(p -> p.beneficiaryName("Ĳssel €"), SpaydViolation.CHARACTER_SET);
+        // Normalization keeps the em dash, the QR code would contain ? instead
+        assertViolations(p -> p.paymentNote("Faktura — říjen"), SpaydViolation.CHARACTER_SET);
+        assertViolations(p -> p.notificationAddress("a".repeat(321)), SpaydViolation.NOTIFICATION_ADDRESS_LENGTH);
+        assertViolations(p -> p.notificationAddress(null), SpaydViolation.NOTIFICATION_INCOMPLETE);
+        assertViolations(p -> p.notificationType("p"), SpaydViolation.NOTIFICATION_TYPE);
+    }
+
+    @Test
+    void givenEscapedCharacters_whenValidate_thenValidAndSerializedReadably() {
+        assertValid(p -> p.notificationAddress("a*b@example.com"));
+        Payment payment = validPayment().paymentNote("SLEVA 10%").beneficiaryName("A*B 100%").build();
+
+        assertTrue(SpaydValidator.validate(payment).isValid());
+        SpaydParser parser = new SpaydParser();
+        assertNull(parser.parse(SpaydSerializer.serialize(payment)));
+        assertEquals("SLEVA 10%", parser.toPayment().getPaymentNote());
+        assertEquals("A*B 100%", parser.toPayment().getBeneficiaryName());
+    }
+
+    @Test
+    void givenNotNormalizedText_whenValidate_thenCheckedAsWritten() {
+        SpaydValidationResult result = new SpaydValidationResult();
+        Payment payment = validPayment().build();
+
+        assertFalse(SpaydValidator.validate(payment, false, result));
+
+        // The Czech letters outside of ISO-8859-1 are written as they are without normalization
+        assertEquals(Set.of(SpaydViolation.CHARACTER_SET), result.getViolations());
+        assertTrue(SpaydValidator.validate(validPayment().paymentNote("Platba").beneficiaryName("Kun").build(),
+                false, result));
+    }
+
+    @Test
+    void givenReusedResult_whenValidateAgain_thenReset() {
+        SpaydValidationResult result = new SpaydValidationResult();
+
+        assertFalse(SpaydValidator.validate(validPayment().variableSymbol("x").bankAccount(
+                new BankAccount("CZ00")).build(), true, result));
+        assertNotNull(result.getIbanError());
+
+        assertTrue(SpaydValidator.validate(validPayment().build(), true, result));
+        assertNull(result.getIbanError());
+        assertTrue(result.getViolations().isEmpty());
+    }
+
+    @Test
+    void givenBatch_whenValidateAll_thenSameAsOneByOne() throws Exception {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            payments.add(validPayment()
+                    .variableSymbol(i % 7 == 0 ? "VS" + i : Integer.toString(i))
+                    .amount(i % 11 == 0 ? new BigDecimal("0.001") : BigDecimal.valueOf(i))
+                    .build());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (SpaydValidationReport report : List.of(
+                    SpaydValidator.validateAll(payments),
+                    SpaydValidator.validateAll(new LinkedList<>(payments), true, executor))) {
+                assertEquals(10_000, report.getTotal());
+                int invalid = 0;
+                for (int i = 0; i < payments.size(); i++) {
+                    Set<SpaydViolation> expected = SpaydValidator.validate(payments.get(i)).getViolations();
+                    assertEquals(expected, report.getViolations(i));
+                    assertEquals(expected.isEmpty(), report.isValid(i));
+                    if (!expected.isEmpty()) {
+                        assertEquals(i, report.getInvalidIndexes()[invalid++]);
+                    }
+                }
+                assertEquals(invalid, report.getInvalid());
+                assertEquals(10_000 - invalid, report.getValid());
+                assertFalse(report.isValid());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void givenNullPaymentInBatch_whenValidateAll_thenThrows() {
+        List<Payment> payments = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            payments.add(i == 10 ? null : validPayment().build());
+        }
+
+        assertThrows(NullPointerException.class, () -> SpaydValidator.validateAll(payments));
+    }
+
+    @Test
+    void givenEmptyBatch_whenValidateAll_thenValid() {
+        SpaydValidationReport report = SpaydValidator.validateAll(List.of());
+
+        assertTrue(report.isValid());
+        assertEquals(0, report.getTotal());
+    }
+
+    private static void assertValid(UnaryOperator<Payment.PaymentBuilder> change) {
+        SpaydValidationResult result = SpaydValidator.validate(change.apply(validPayment()).build());
+        assertTrue(result.isValid(), result::toString);
+    }
+
+    private static void assertViolations(UnaryOperator<Payment.PaymentBuilder> change, SpaydViolation... expected) {
+        SpaydValidationResult result = SpaydValidator.validate(change.apply(validPayment()).build());
+        assertEquals(Set.of(expected), result.getViolations());
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.janhalasa.spaydqr.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextNormalizerTest {
+
+    private static final String CZECH_SLOVAK = "aáäbcčdďeéěfghiíjklĺľmnňoóôpqrŕřsštťuúůvwxyýzž"
+            + "AÁÄBCČDĎEÉĚFGHIÍJKLĹĽMNŇOÓÔPQRŔŘSŠTŤUÚŮVWXYÝZŽ";
+    private static final String PUNCTUATION = " .,;:-–—„“”‚‘’…/()&%+\t\n";
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "   Zpráva pro příjemce   ",
+            "Faktura č. 2024/123 – „záloha“",
+            "Žluťoučký kůň úpěl ďábelské ódy",
+            "Ľudová banka, Šaľa, Ôsmy ročník, Äno",
+            "Straße",
+            "ŉ",
+            "Łódź",
+            "Ωmega ÿ",
+            "é",
+            " nbsp ",
+            "",
+            "   ",
+    })
+    void givenText_whenNormalize_thenSameAsStripAccents(String text) {
+        assertEquals(TextNormalizer.reference(text), TextNormalizer.normalize(text));
+    }
+
+    @Test
+    void givenRandomText_whenNormalize_thenSameAsStripAccents() {
+        Random random = new Random(11);
+        String alphabet = CZECH_SLOVAK + PUNCTUATION + "0123456789";
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            text.setLength(0);
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                // Mostly Czech and Slovak, sometimes any character of the table or beyond it
+                char c = random.nextInt(20) == 0
+                        ? (char) random.nextInt(0x2100)
+                        : alphabet.charAt(random.nextInt(alphabet.length()));
+                text.append(c);
+            }
+            String value = text.toString();
+
+            assertEquals(TextNormalizer.reference(value), TextNormalizer.normalize(value), value);
+        }
+    }
+
+    @Test
+    void givenUppercaseAscii_whenNormalize_thenSameInstance() {
+        String text = "ZPRAVA PRO PRIJEMCE 123";
+
+        assertSame(text, TextNormalizer.normalize(text));
+        assertEquals(text, TextNormalizer.normalize("  " + text + "\n"));
+    }
+
+    @Test
+    void givenNull_whenNormalize_thenNull() {
+        assertNull(TextNormalizer.normalize(null));
+    }
+
+    @Test
+    void givenTurkishLocale_whenNormalize_thenLocaleRulesApplied() {
+        Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+
+            assertEquals("İSTANBUL CESTİNA", TextNormalizer.normalize("istanbul čeština"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+}
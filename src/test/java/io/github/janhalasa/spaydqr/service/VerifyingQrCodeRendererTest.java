@@ -0,0 +1,154 @@
+package io.github.janhalasa.spaydqr.service;
+
+import com.google.zxing.WriterException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifyingQrCodeRendererTest {
+
+    private static final String SPAYD_STRING = "SPD*1.0*ACC:CZ5508000000001234567899*AM:450.00*CC:CZK*X-VS:";
+
+    @Test
+    void givenCorrectImages_whenRender_thenAllVerified() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            VerifyingQrCodeRenderer renderer = VerifyingQrCodeRenderer.builder()
+                    .delegate(QrCodeGenerator.DEFAULT)
+                    .executor(executor)
+                    .maxPending(100)
+                    .listener((spaydString, decoded) -> fail("Mismatch: " + spaydString))
+                    .build();
+
+            for (int i = 0; i < 20; i++) {
+                byte[] image = renderer.render(SPAYD_STRING + i, 200);
+                assertArrayEquals(QrCodeGenerator.DEFAULT.render(SPAYD_STRING + i, 200), image);
+            }
+
+            assertTrue(renderer.awaitVerification(30, TimeUnit.SECONDS));
+            QrVerificationStats stats = renderer.getStats();
+            assertEquals(20, stats.getVerified());
+            assertEquals(0, stats.getFailureRate());
+            assertTrue(stats.getMaxDecodeNanos() > 0);
+            assertTrue(stats.getAverageDecodeNanos() <= stats.getMaxDecodeNanos());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void givenWrongImages_whenRender_thenMismatchesReported() throws Exception {
+        List<String> reported = Collections.synchronizedList(new ArrayList<>());
+        QrCodeRenderer wrongContent = new QrCodeRenderer() {
+            @Override
+            public byte[] render(String spaydString, int size) throws IOException, WriterException {
+                return QrCodeGenerator.DEFAULT.render(spaydString.isEmpty() ? "x" : spaydString + "1", size);
+            }
+
+            @Override
+            public RenderingOptions getOptions() {
+                return QrCodeGenerator.DEFAULT.getOptions();
+            }
+        };
+        VerifyingQrCodeRenderer renderer = VerifyingQrCodeRenderer.builder()
+                .delegate(wrongContent)
+                .executor(Runnable::run)
+                .listener((spaydString, decoded) -> reported.add(spaydString + "=" + decoded))
+                .build();
+
+        renderer.render(SPAYD_STRING, 200);
+
+        assertEquals(List.of(SPAYD_STRING + "=" + SPAYD_STRING + "1"), reported);
+        assertEquals(1, renderer.getStats().getMismatches());
+    }
+
+    @Test
+    void givenUnreadableImage_whenVerify_thenUnreadable() throws Exception {
+        QrCodeRenderer broken = new QrCodeRenderer() {
+            @Override
+            public byte[] render(String spaydString, int size) {
+                return new byte[] {1, 2, 3};
+            }
+
+            @Override
+            public RenderingOptions getOptions() {
+                return QrCodeGenerator.DEFAULT.getOptions();
+            }
+        };
+        List<String> decoded = new ArrayList<>();
+        VerifyingQrCodeRenderer renderer = VerifyingQrCodeRenderer.builder()
+                .delegate(broken)
+                .executor(Runnable::run)
+                .listener((spaydString, text) -> decoded.add(text))
+                .build();
+
+        renderer.render(SPAYD_STRING, 200);
+
+        assertEquals(Collections.singletonList(null), decoded);
+        assertEquals(1, renderer.getStats().getUnreadable());
+        assertEquals(1.0, renderer.getStats().getFailureRate());
+    }
+
+    @Test
+    void givenZeroSamplingRate_whenRender_thenNothingVerified() throws Exception {
+        VerifyingQrCodeRenderer renderer = VerifyingQrCodeRenderer.builder()
+                .delegate(QrCodeGenerator.DEFAULT)
+                .executor(Runnable::run)
+                .samplingRate(0.0)
+                .build();
+
+        renderer.render(SPAYD_STRING, 100);
+
+        assertEquals(new QrVerificationStats(0, 0, 0, 0, 0, 0, 0), renderer.getStats());
+    }
+
+    @Test
+    void givenFullQueue_whenRender_thenDropped() throws Exception {
+        List<Runnable> queued = new ArrayList<>();
+        VerifyingQrCodeRenderer renderer = VerifyingQrCodeRenderer.builder()
+                .delegate(QrCodeGenerator.DEFAULT)
+                .executor(queued::add)
+                .maxPending(2)
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            renderer.render(SPAYD_STRING + i, 100);
+        }
+
+        assertEquals(2, queued.size());
+        assertEquals(3, renderer.getStats().getDropped());
+        assertFalse(renderer.awaitVerification(1, TimeUnit.MILLISECONDS));
+
+        queued.forEach(Runnable::run);
+
+        assertTrue(renderer.awaitVerification(1, TimeUnit.MILLISECONDS));
+        assertEquals(2, renderer.getStats().getVerified());
+    }
+
+    @Test
+    void givenSvg_whenRender_thenSkipped() throws Exception {
+        VerifyingQrCodeRenderer renderer = VerifyingQrCodeRenderer.builder()
+                .delegate(QrCodeGenerator.builder().format(ImageFormat.SVG).build())
+                .executor(Runnable::run)
+                .build();
+
+        renderer.render(SPAYD_STRING, 100);
+
+        assertEquals(1, renderer.getStats().getSkipped());
+        assertEquals(0, renderer.getStats().getVerified());
+    }
+
+    @Test
+    void givenInvalidSamplingRate_whenBuild_thenException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> VerifyingQrCodeRenderer.builder().delegate(QrCodeGenerator.DEFAULT).samplingRate(1.5).build());
+    }
+}